@@ -1,21 +1,23 @@
 package org.bnemu.bncs;
 
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
-import com.mongodb.client.MongoDatabase;
-import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import org.bnemu.bncs.chat.ChatChannelManager;
+import org.bnemu.core.config.CacheConfig;
 import org.bnemu.core.config.ConfigLoader;
 import org.bnemu.core.config.ConfigLoadException;
 import org.bnemu.core.config.CoreConfig;
+import org.bnemu.core.config.PortConfig;
 import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.AsyncAccountDao;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bnemu.core.link.SelectionLinkServer;
+import org.bnemu.core.net.Acceptors;
+import org.bnemu.core.net.FlushBatching;
+import org.bnemu.core.net.ServerTransport;
 import org.bnemu.bncs.handler.BncsDispatcher;
 import org.bnemu.bncs.handler.SessionTimeoutHandler;
 import org.bnemu.bncs.net.logging.InboundLoggingHandler;
@@ -25,13 +27,21 @@ import org.bnemu.bncs.net.packet.BncsPacketDecoder;
 import org.bnemu.bncs.net.packet.BncsPacketEncoder;
 import org.bnemu.core.session.SessionManager;
 import org.bnemu.core.auth.RealmTokenStore;
+import org.bnemu.core.auth.CachingSelectedCharacterStore;
 import org.bnemu.core.auth.SelectedCharacterStore;
 import org.bnemu.bnftp.BnftpFileProvider;
-import org.bnemu.persistence.dao.MongoAccountDao;
+import org.bnemu.persistence.Persistence;
+import org.bnemu.persistence.dao.CachingAccountDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class BncsServer {
     private static final Logger logger = LoggerFactory.getLogger(BncsServer.class);
@@ -39,78 +49,123 @@ public class BncsServer {
     private final BncsDispatcher dispatcher;
     private final ChatChannelManager channelManager;
     private final BnftpFileProvider bnftpFileProvider;
+    private final Acceptors acceptors;
+    private final SelectionLinkServer selectionLink;
 
     public BncsServer(CoreConfig config) {
-        this.port = config.getServer().getBncs().getPort();
+        this(config, new Acceptors(ServerTransport.select(config.getServer().getTransport())),
+                Persistence.open(config));
+    }
 
-        // Construct MongoDB connection
-        String mongoUri = String.format(
-                "mongodb://%s:%s@%s:%d/%s?authSource=admin",
-                config.getMongo().getUsername(),
-                config.getMongo().getPassword(),
-                config.getMongo().getHost(),
-                config.getMongo().getPort(),
-                config.getMongo().getDatabase()
-        );
+    private BncsServer(CoreConfig config, Acceptors acceptors, Persistence persistence) {
+        this(config, acceptors, persistence,
+                // Database calls run here, never on the event loops
+                new DaoExecutor(persistence.maxConcurrentOperations()));
+    }
 
-        MongoClient mongoClient = MongoClients.create(mongoUri);
-        MongoDatabase db = mongoClient.getDatabase(config.getMongo().getDatabase());
+    private BncsServer(CoreConfig config, Acceptors acceptors, Persistence persistence, DaoExecutor daoExecutor) {
+        this(config, acceptors, persistence, daoExecutor,
+                // Shared with D2CS through the database
+                persistence.realmTokenStore(config.getRealm(), daoExecutor),
+                cached(config, acceptors, persistence.selectedCharacterStore(daoExecutor)));
+    }
 
-        // Initialize shared token store for D2 realm auth
-        RealmTokenStore.initialize(db);
+    /**
+     * With the selection link configured, keep selections pushed by D2CS in memory and only read
+     * the database on a miss.
+     */
+    private static SelectedCharacterStore cached(CoreConfig config, Acceptors acceptors, SelectedCharacterStore store) {
+        return config.getServer().getSelectionLink() != null
+                ? new CachingSelectedCharacterStore(store, acceptors.nextWorker())
+                : store;
+    }
 
-        // Initialize selected character store for cross-server sharing
-        SelectedCharacterStore.initialize(db);
+    /**
+     * Build a server on shared event loops and stores, for running in one process with D2CS.
+     * {@link #bind()} it rather than {@link #start()}, which shuts the event loops down.
+     */
+    public BncsServer(CoreConfig config, Acceptors acceptors, Persistence persistence, DaoExecutor daoExecutor,
+                      RealmTokenStore tokenStore, SelectedCharacterStore selectedCharStore) {
+        this.port = config.getServer().getBncs().getPort();
+        this.acceptors = acceptors;
+        PortConfig linkConfig = config.getServer().getSelectionLink();
+        this.selectionLink = linkConfig != null && selectedCharStore instanceof CachingSelectedCharacterStore cache
+                ? new SelectionLinkServer(linkConfig.getHost(), linkConfig.getPort(),
+                        cache::cache, cache::invalidateAll)
+                : null;
 
         // Initialize core components
-        AccountDao accountDao = new MongoAccountDao(db);
+        AccountDao accounts = persistence.accountDao();
+        CacheConfig cacheConfig = config.getCache();
+        if (cacheConfig.getAccountMaxSize() > 0) {
+            CachingAccountDao cache = new CachingAccountDao(accounts, cacheConfig.getAccountMaxSize(),
+                    Duration.ofSeconds(cacheConfig.getAccountTtlSeconds()),
+                    Duration.ofSeconds(cacheConfig.getAccountNegativeTtlSeconds()));
+            acceptors.nextWorker().scheduleAtFixedRate(
+                    () -> logger.info("Account cache: size={}, {}", cache.size(), cache.stats()),
+                    5, 5, TimeUnit.MINUTES);
+            accounts = cache;
+        }
+        AsyncAccountDao accountDao = AsyncAccountDao.offload(accounts, daoExecutor);
         SessionManager sessions = new SessionManager();
-        this.channelManager = new ChatChannelManager(sessions);
+        // Chat channels are pinned to worker event loops
+        this.channelManager = new ChatChannelManager(sessions, acceptors::nextWorker);
 
         // Initialize BNFTP file provider
         this.bnftpFileProvider = new BnftpFileProvider(Path.of(config.getBnftp().getFilesDir()));
 
+        // CPU-heavy handlers (password proofs) run on virtual threads, keeping the event loops on I/O
+        Executor handlerExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("bncs-handler-", 0).factory());
+
         // Pass all components into the dispatcher (use same channelManager instance)
         this.dispatcher = new BncsDispatcher(accountDao, sessions, this.channelManager, config,
-                                             SelectedCharacterStore.getInstance(), bnftpFileProvider);
+                                             selectedCharStore, tokenStore, bnftpFileProvider,
+                                             handlerExecutor);
     }
 
 
-    public void start() throws InterruptedException {
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+    /**
+     * Open the listening sockets and return them; the event loops keep running until shut down.
+     */
+    public List<Channel> bind() throws InterruptedException {
+        List<Channel> listeners = acceptors.bind(this.port, new LoggingHandler(LogLevel.INFO),
+                new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        FlushBatching.install(pipeline);
+                        pipeline.addLast(new BncsPacketDecoder(bnftpFileProvider));
+                        pipeline.addLast(new InboundLoggingHandler());
+                        pipeline.addLast(new BncsPacketEncoder());
+                        pipeline.addLast(new OutboundLoggingHandler());
+                        // Send ping every 30s of write idle, disconnect after 120s of read idle
+                        pipeline.addLast(new IdleStateHandler(120, 30, 0));
+                        pipeline.addLast(new SessionTimeoutHandler(channelManager));
+                        pipeline.addLast(new SimpleChannelInboundHandler<BncsPacket>(false) { // dispatcher releases
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, BncsPacket msg) {
+                                dispatcher.dispatch(ctx, msg);
+                            }
+                        });
+                    }
+                });
+
+        logger.info("BNCS server started on port {} ({} acceptor(s))", this.port, listeners.size());
+        if (selectionLink != null) {
+            listeners = new ArrayList<>(listeners);
+            listeners.addAll(selectionLink.bind(acceptors));
+        }
+        return listeners;
+    }
 
+    public void start() throws InterruptedException {
         try {
-            ServerBootstrap bootstrap = new ServerBootstrap();
-            bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .handler(new LoggingHandler(LogLevel.INFO))
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) {
-                            ChannelPipeline pipeline = ch.pipeline();
-                            pipeline.addLast(new BncsPacketDecoder(bnftpFileProvider));
-                            pipeline.addLast(new InboundLoggingHandler());
-                            pipeline.addLast(new BncsPacketEncoder());
-                            pipeline.addLast(new OutboundLoggingHandler());
-                            // Send ping every 30s of write idle, disconnect after 120s of read idle
-                            pipeline.addLast(new IdleStateHandler(120, 30, 0));
-                            pipeline.addLast(new SessionTimeoutHandler(channelManager));
-                            pipeline.addLast(new SimpleChannelInboundHandler<BncsPacket>() {
-                                @Override
-                                protected void channelRead0(ChannelHandlerContext ctx, BncsPacket msg) {
-                                    dispatcher.dispatch(ctx, msg);
-                                }
-                            });
-                        }
-                    });
-
-            ChannelFuture future = bootstrap.bind(this.port).sync();
-            logger.info("BNCS server started on port {}", this.port);
-            future.channel().closeFuture().sync();
+            for (Channel listener : bind()) {
+                listener.closeFuture().sync();
+            }
         } finally {
-            bossGroup.shutdownGracefully();
-            workerGroup.shutdownGracefully();
+            acceptors.shutdownGracefully();
         }
     }
 
@@ -1,17 +1,32 @@
 package org.bnemu.bncs.chat;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.util.concurrent.EventExecutor;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.Session;
 import org.bnemu.core.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.function.Predicate;
+
+/**
+ * A chat channel. Each channel is pinned to one {@link EventExecutor} and all of its state
+ * (members, operator, ban list, topic) is confined to that executor: membership changes, operator
+ * promotion and broadcasts run one at a time, in submission order, without locks.
+ *
+ * <p>Code running elsewhere submits work with {@link #execute(Runnable)}. Unless noted otherwise,
+ * the public methods of this class must only be called from such a task.
+ */
 public class ChatChannel {
     private static final Logger logger = LoggerFactory.getLogger(ChatChannel.class);
 
@@ -19,8 +34,12 @@ public class ChatChannel {
     private static final int FLAG_OPERATOR = 0x02;  // Channel operator
 
     private final String name;
-    private final Set<Channel> members = ConcurrentHashMap.newKeySet();
     private final SessionManager sessionManager;
+    private final ChatChannelManager channelManager;
+    private final EventExecutor executor;
+
+    // Members in join order; the first remaining member inherits operator
+    private final Map<Channel, Member> members = new LinkedHashMap<>();
     private Channel operator;  // Track channel operator
 
     // Ban list: case-insensitive usernames banned from this channel
@@ -32,139 +51,143 @@ public class ChatChannel {
     // Channel topic (set via /topic by operator, null = no topic)
     private String topic;
 
-    public ChatChannel(String name, SessionManager sessionManager) {
+    // Set once the last member leaves and the channel is dropped from the manager
+    private boolean closed;
+
+    // Published for readers on other threads (e.g. the NoCreate check in SID_JOINCHANNEL)
+    private volatile int userCount;
+
+    public ChatChannel(String name, SessionManager sessionManager, ChatChannelManager channelManager,
+                       EventExecutor executor) {
         this.name = name;
         this.sessionManager = sessionManager;
+        this.channelManager = channelManager;
+        this.executor = executor;
     }
 
     /**
-     * Add a member to the channel. Returns false if user is banned.
+     * Queue a task on this channel's executor. Safe to call from any thread; tasks run in the order
+     * they were submitted.
      */
-    public boolean addMember(Channel newChannel, String username) {
-        logger.debug("Adding member '{}' to channel '{}' (current members: {})", username, name, members.size());
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public EventExecutor executor() {
+        return executor;
+    }
+
+    /**
+     * Apply join request {@code request} for {@code user}. Does nothing if the user has issued a
+     * newer join or leave since; retries through the manager if this channel closed in the
+     * meantime. On success the user is removed from their previous channel.
+     */
+    void join(Channel user, String username, int request) {
+        if (closed) {
+            channelManager.join(name, user, username, request);
+            return;
+        }
+
+        Session session = sessionManager.session(user);
+        String previous;
+        synchronized (session) {
+            if (session.getJoinRequest() != request) {
+                closeIfEmpty(); // superseded
+                return;
+            }
+            if (isBanned(username)) {
+                // Per PvPGN: reject banned users, leaving them in their current channel
+                sendErrorMessage(user, "You are banned from that channel.");
+                closeIfEmpty();
+                return;
+            }
+            previous = session.getChannel();
+            session.setChannel(name, request);
+        }
 
-        // Check ban list
-        if (isBanned(username)) {
-            logger.debug("Rejecting banned user '{}' from channel '{}'", username, name);
-            return false;
+        if (members.containsKey(user)) {
+            // Rejoin: leave and come back in
+            detach(user);
+        } else if (previous != null && !previous.equals(name)) {
+            ChatChannel old = channelManager.getChannel(previous);
+            if (old != null) {
+                old.execute(() -> old.removeMember(user));
+            }
         }
 
-        // Get the new user's statstring
-        String newUserStatstring = getStatstring(newChannel);
+        addMember(user, session, request);
+    }
+
+    private void addMember(Channel newChannel, Session newSession, int request) {
+        logger.debug("Adding member '{}' to channel '{}' (current members: {})",
+            newSession.getUsername(), name, members.size());
 
         // Determine flags for new user - first user becomes operator
         int newUserFlags = members.isEmpty() ? FLAG_OPERATOR : 0;
         if (newUserFlags == FLAG_OPERATOR) {
             operator = newChannel;
         }
-        sessionManager.set(newChannel, "flags", String.valueOf(newUserFlags));
+        newSession.setFlags(newUserFlags);
+
+        // Steps 1-3 and 6 are written without flushing and go out in one flush at the end,
+        // however many members the channel has.
 
         // 1. Send EID_CHANNEL first (tells client which channel they're joining)
-        var channelInfo = ChatEventBuilder.build(
+        var channelInfo = ChatEventBuilder.build(newChannel.alloc(),
             ChatEventIds.EID_CHANNEL.getId(), 0, 0, 0, 0, 0, "", name
         );
-        newChannel.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, channelInfo));
+        newChannel.write(new BncsPacket(BncsPacketId.SID_CHATEVENT, channelInfo));
 
         // 2. Send EID_SHOWUSER for each existing user to the new user
-        for (Channel existing : members) {
-            if (!existing.equals(newChannel) && existing.isActive()) {
-                String otherUser = sessionManager.get(existing, "username");
-                String otherStatstring = getStatstring(existing);
-                int otherFlags = getFlags(existing);
-                if (otherUser != null) {
-                    var showUser = ChatEventBuilder.build(
-                        ChatEventIds.EID_SHOWUSER.getId(), otherFlags, getPing(existing), 0, 0, 0, otherUser, otherStatstring
-                    );
-                    newChannel.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, showUser));
-                }
+        for (Map.Entry<Channel, Member> entry : members.entrySet()) {
+            Member other = entry.getValue();
+            if (entry.getKey().isActive() && other.session.getUsername() != null) {
+                var showUser = ChatEventBuilder.build(newChannel.alloc(),
+                    ChatEventIds.EID_SHOWUSER.getId(), other.flags, other.session.getPing(), 0, 0, 0,
+                    other.session.getUsernameBytes(), other.session.getStatstringBytes()
+                );
+                newChannel.write(new BncsPacket(BncsPacketId.SID_CHATEVENT, showUser));
             }
         }
 
         // 3. Send EID_SHOWUSER to the new user for themselves
-        var showSelf = ChatEventBuilder.build(
-            ChatEventIds.EID_SHOWUSER.getId(), newUserFlags, getPing(newChannel), 0, 0, 0, username, newUserStatstring
+        var showSelf = ChatEventBuilder.build(newChannel.alloc(),
+            ChatEventIds.EID_SHOWUSER.getId(), newUserFlags, newSession.getPing(), 0, 0, 0,
+            newSession.getUsernameBytes(), newSession.getStatstringBytes()
         );
-        newChannel.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, showSelf));
+        newChannel.write(new BncsPacket(BncsPacketId.SID_CHATEVENT, showSelf));
 
         // 4. Add the new member
-        members.add(newChannel);
-        sessionManager.set(newChannel, "channel", name);
-        sessionManager.set(newChannel, "username", username);
+        members.put(newChannel, new Member(newSession, request, newUserFlags));
+        userCount = members.size();
 
         // 5. Notify existing users that the new user joined (EID_JOIN)
-        logger.debug("Sending EID_JOIN for '{}' to {} members (excluding self)", username, members.size());
-        for (Channel ch : members) {
-            String targetUser = sessionManager.get(ch, "username");
-            boolean isSelf = ch.equals(newChannel);
-            logger.debug("  -> Member '{}': isSelf={}, active={}", targetUser, isSelf, ch.isActive());
-            if (!isSelf && ch.isActive()) {
-                var joinNotify = ChatEventBuilder.build(
-                    ChatEventIds.EID_JOIN.getId(), newUserFlags, getPing(newChannel), 0, 0, 0, username, newUserStatstring
-                );
-                ch.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, joinNotify));
-            }
-        }
+        logger.debug("Sending EID_JOIN for '{}' to {} members (excluding self)", newSession.getUsername(), members.size());
+        var joinNotify = ChatEventBuilder.encodeFrame(newChannel.alloc(),
+            ChatEventIds.EID_JOIN.getId(), newUserFlags, newSession.getPing(), 0, 0, 0,
+            newSession.getUsernameBytes(), newSession.getStatstringBytes()
+        );
+        fanOut(joinNotify, ch -> !ch.equals(newChannel));
 
         // 6. Channel topic as EID_INFO (only if set)
         if (topic != null) {
             sendInfoMessage(newChannel, "Topic: " + topic);
+        } else {
+            newChannel.flush();
         }
-        return true;
-    }
-
-    private String getStatstring(Channel channel) {
-        String statstring = sessionManager.get(channel, "statstring");
-        return statstring != null ? statstring : "";
-    }
-
-    private int getFlags(Channel channel) {
-        String flagsStr = sessionManager.get(channel, "flags");
-        if (flagsStr != null) {
-            try {
-                return Integer.parseInt(flagsStr);
-            } catch (NumberFormatException e) {
-                return 0;
-            }
-        }
-        return 0;
-    }
-
-    private int getPing(Channel channel) {
-        String pingStr = sessionManager.get(channel, "ping");
-        if (pingStr != null) {
-            try {
-                return Integer.parseInt(pingStr);
-            } catch (NumberFormatException e) {
-                return 0;
-            }
-        }
-        return 0;
     }
 
+    /**
+     * Remove a user who has since joined another channel, left chat or disconnected. A membership
+     * that is still current (the user rejoined this channel in the meantime) is left alone.
+     */
     public void removeMember(Channel channel) {
-        String username = sessionManager.get(channel, "username");
-        logger.debug("Removing member '{}' from channel '{}' (current members: {})", username, name, members.size());
-
-        if (members.remove(channel)) {
-            int flags = getFlags(channel);
-            boolean wasOperator = channel.equals(operator);
-
-            if (wasOperator && !members.isEmpty()) {
-                promoteNextOperator();
-            }
-
-            if (username != null) {
-                // Broadcast EID_LEAVE to remaining members
-                for (Channel ch : members) {
-                    if (ch.isActive()) {
-                        var leaveEvent = ChatEventBuilder.build(
-                            ChatEventIds.EID_LEAVE.getId(), flags, 0, 0, 0, 0, username, ""
-                        );
-                        ch.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, leaveEvent));
-                    }
-                }
-            }
+        Member member = members.get(channel);
+        if (member == null || member.isCurrent()) {
+            return;
         }
+        detach(channel);
+        closeIfEmpty();
     }
 
     /**
@@ -175,32 +198,58 @@ public class ChatChannel {
         Channel target = findMemberByUsername(targetUsername);
         if (target == null) return null;
 
-        String username = sessionManager.get(target, "username");
-        int flags = getFlags(target);
-        boolean wasOperator = target.equals(operator);
-
-        members.remove(target);
+        Member member = detach(target);
 
         // Clear kicked user's channel session so they can't send messages
-        sessionManager.set(target, "channel", null);
+        synchronized (member.session) {
+            if (member.session.getMembership() == member.membership) {
+                member.session.setChannel(null, member.membership);
+            }
+        }
+        closeIfEmpty();
+
+        return target;
+    }
 
-        if (wasOperator && !members.isEmpty()) {
-            promoteNextOperator();
+    /**
+     * Remove a member, hand operator to the next in line and broadcast EID_LEAVE to the rest.
+     * Returns the removed membership, or null if the user was not a member.
+     */
+    private Member detach(Channel channel) {
+        Member member = members.remove(channel);
+        if (member == null) {
+            return null;
         }
+        userCount = members.size();
+        logger.debug("Removed member '{}' from channel '{}' (remaining members: {})",
+            member.username, name, members.size());
 
-        // Broadcast EID_LEAVE to remaining members
-        if (username != null) {
-            for (Channel ch : members) {
-                if (ch.isActive()) {
-                    var leaveEvent = ChatEventBuilder.build(
-                        ChatEventIds.EID_LEAVE.getId(), flags, 0, 0, 0, 0, username, ""
-                    );
-                    ch.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, leaveEvent));
-                }
+        if (channel.equals(operator)) {
+            operator = null;
+            if (!members.isEmpty()) {
+                promoteNextOperator();
             }
         }
 
-        return target;
+        if (member.username != null) {
+            // Broadcast EID_LEAVE to remaining members
+            broadcastLeave(channel, member);
+        }
+        return member;
+    }
+
+    private void closeIfEmpty() {
+        if (members.isEmpty() && !closed) {
+            closed = true;
+            channelManager.remove(this);
+        }
+    }
+
+    private void broadcastLeave(Channel leaving, Member member) {
+        var leaveEvent = ChatEventBuilder.encodeFrame(leaving.alloc(),
+            ChatEventIds.EID_LEAVE.getId(), member.flags, 0, 0, 0, 0, member.usernameBytes, null
+        );
+        fanOut(leaveEvent, ch -> true);
     }
 
     /**
@@ -210,25 +259,24 @@ public class ChatChannel {
     public void sendToVoid(Channel target) {
         if (!target.isActive()) return;
 
-        String username = sessionManager.get(target, "username");
-        int flags = getFlags(target);
+        Session session = sessionManager.session(target);
 
         // 1. EID_CHANNEL - tells client they're now in "The Void"
-        var channelEvent = ChatEventBuilder.build(
+        var channelEvent = ChatEventBuilder.build(target.alloc(),
             ChatEventIds.EID_CHANNEL.getId(), 0, 0, 0, 0, 0, "", "The Void"
         );
-        target.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, channelEvent));
+        target.write(new BncsPacket(BncsPacketId.SID_CHATEVENT, channelEvent));
 
         // 2. EID_SHOWUSER - show themselves (only user visible in The Void)
-        if (username != null) {
-            var showSelf = ChatEventBuilder.build(
-                ChatEventIds.EID_SHOWUSER.getId(), flags, getPing(target), 0, 0, 0,
-                username, getStatstring(target)
+        if (session.getUsername() != null) {
+            var showSelf = ChatEventBuilder.build(target.alloc(),
+                ChatEventIds.EID_SHOWUSER.getId(), 0, session.getPing(), 0, 0, 0,
+                session.getUsernameBytes(), session.getStatstringBytes()
             );
-            target.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, showSelf));
+            target.write(new BncsPacket(BncsPacketId.SID_CHATEVENT, showSelf));
         }
 
-        // 3. EID_INFO - no chat privileges
+        // 3. EID_INFO - no chat privileges (flushes all three)
         sendInfoMessage(target, "This channel does not have chat privileges.");
     }
 
@@ -247,7 +295,7 @@ public class ChatChannel {
 
         // Fall back to first available member
         if (newOp == null) {
-            newOp = members.iterator().next();
+            newOp = members.keySet().iterator().next();
         }
 
         promoteOperator(newOp);
@@ -258,71 +306,67 @@ public class ChatChannel {
      */
     public void promoteOperator(Channel newOp) {
         // Demote current operator if exists and still in channel
-        if (operator != null && members.contains(operator)) {
-            sessionManager.set(operator, "flags", "0");
-            String oldOpName = sessionManager.get(operator, "username");
-            if (oldOpName != null) {
-                broadcastUserFlags(operator, 0);
-            }
+        Member current = operator != null ? members.get(operator) : null;
+        if (current != null) {
+            current.flags = 0;
+            current.session.setFlags(0);
+            broadcastUserFlags(operator, current);
         }
 
-        operator = newOp;
-        sessionManager.set(newOp, "flags", String.valueOf(FLAG_OPERATOR));
-
-        String newOpName = sessionManager.get(newOp, "username");
-        if (newOpName != null) {
-            broadcastUserFlags(newOp, FLAG_OPERATOR);
+        Member promoted = members.get(newOp);
+        if (promoted == null) {
+            operator = null;
+            return;
         }
+        operator = newOp;
+        promoted.flags = FLAG_OPERATOR;
+        promoted.session.setFlags(FLAG_OPERATOR);
+        broadcastUserFlags(newOp, promoted);
     }
 
     /**
      * Broadcast EID_USERFLAGS for a user to all channel members.
      */
-    private void broadcastUserFlags(Channel target, int flags) {
-        String username = sessionManager.get(target, "username");
-        if (username == null) return;
-
-        for (Channel ch : members) {
-            if (ch.isActive()) {
-                var flagsUpdate = ChatEventBuilder.build(
-                    ChatEventIds.EID_USERFLAGS.getId(), flags, getPing(target), 0, 0, 0,
-                    username, getStatstring(target)
-                );
-                ch.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, flagsUpdate));
+    private void broadcastUserFlags(Channel channel, Member member) {
+        Session session = member.session;
+        if (session.getUsername() == null) return;
+
+        var flagsUpdate = ChatEventBuilder.encodeFrame(channel.alloc(),
+            ChatEventIds.EID_USERFLAGS.getId(), member.flags, session.getPing(), 0, 0, 0,
+            session.getUsernameBytes(), session.getStatstringBytes()
+        );
+        fanOut(flagsUpdate, ch -> true);
+    }
+
+    /**
+     * Write one pre-encoded SID_CHATEVENT frame to every active member accepted by the filter.
+     * Members that have already moved to another channel (removal still queued) are skipped.
+     * Each recipient gets a retained duplicate; the caller's reference is released here.
+     */
+    private int fanOut(ByteBuf frame, Predicate<Channel> recipients) {
+        int writeCount = 0;
+        try {
+            for (Map.Entry<Channel, Member> entry : members.entrySet()) {
+                Channel ch = entry.getKey();
+                if (ch.isActive() && entry.getValue().isCurrent() && recipients.test(ch)) {
+                    ch.writeAndFlush(frame.retainedDuplicate());
+                    writeCount++;
+                }
             }
+        } finally {
+            frame.release();
         }
+        return writeCount;
     }
 
     /**
      * Find a member Channel by username (case-insensitive).
      */
     public Channel findMemberByUsername(String username) {
-        // Strip leading '*' — Battle.net convention for account-name lookup
-        if (username.startsWith("*")) {
-            username = username.substring(1);
-        }
-        // Exact match first
-        for (Channel ch : members) {
-            if (ch.isActive()) {
-                String memberName = sessionManager.get(ch, "username");
-                if (memberName != null && memberName.equalsIgnoreCase(username)) {
-                    return ch;
-                }
-            }
-        }
-        // Fallback: match by character name or account name for D2 "CharName*AccountName" format
-        for (Channel ch : members) {
-            if (ch.isActive()) {
-                String memberName = sessionManager.get(ch, "username");
-                if (memberName != null && memberName.contains("*")) {
-                    int star = memberName.indexOf('*');
-                    String charPart = memberName.substring(0, star);
-                    String acctPart = memberName.substring(star + 1);
-                    if (charPart.equalsIgnoreCase(username) || acctPart.equalsIgnoreCase(username)) {
-                        return ch;
-                    }
-                }
-            }
+        // Display name, character name or account name — resolved through the user registry
+        Channel ch = sessionManager.getChannelByUsername(username);
+        if (ch != null && ch.isActive() && members.containsKey(ch)) {
+            return ch;
         }
         return null;
     }
@@ -386,19 +430,22 @@ public class ChatChannel {
         return name;
     }
 
+    /**
+     * Current member count. Safe to call from any thread; may lag queued joins and leaves.
+     */
     public int getUserCount() {
-        return members.size();
+        return userCount;
     }
 
     public Set<Channel> getMembers() {
-        return members;
+        return Collections.unmodifiableSet(members.keySet());
     }
 
     public Set<String> getUsernames() {
         Set<String> names = new HashSet<>();
-        for (Channel ch : members) {
-            if (ch.isActive()) {
-                String name = sessionManager.get(ch, "username");
+        for (Map.Entry<Channel, Member> entry : members.entrySet()) {
+            if (entry.getKey().isActive()) {
+                String name = entry.getValue().session.getUsername();
                 if (name != null) {
                     names.add(name);
                 }
@@ -407,60 +454,42 @@ public class ChatChannel {
         return names;
     }
 
-    public void broadcastChatEvent(int eid, String user, String text) {
-        // Look up sender's channel to get their flags
-        Channel senderChannel = sessionManager.getChannelByUsername(user);
-        int senderFlags = senderChannel != null ? getFlags(senderChannel) : 0;
+    public void broadcastChatEvent(Channel senderChannel, int eid, String text) {
+        Member sender = members.get(senderChannel);
+        if (sender == null || !sender.isCurrent()) {
+            // Sender left (or is leaving) this channel before the message was processed
+            return;
+        }
+        String user = sender.session.getUsername();
+        int senderId = sender.session.getUserId();
 
         // Only skip sender for EID_TALK - clients display their own chat locally
         // For EID_EMOTE and other events, send to everyone including sender
         boolean skipSender = (eid == ChatEventIds.EID_TALK.getId());
 
-        int writeCount = 0;
         logger.debug("Broadcasting EID {} from '{}' to {} members in channel '{}' (skipSender={})",
                 String.format("0x%02X", eid), user, members.size(), name, skipSender);
 
-        for (Channel ch : members) {
-            String targetUser = sessionManager.get(ch, "username");
+        // Encode the event once; every recipient gets a duplicate of the same frame
+        var frame = ChatEventBuilder.encodeFrame(senderChannel.alloc(), eid, sender.flags, sender.session.getPing(), 0, 0, 0,
+            sender.session.getUsernameBytes(), text != null ? text.getBytes(StandardCharsets.ISO_8859_1) : null);
+        int writeCount = fanOut(frame, ch -> {
             if (skipSender && ch.equals(senderChannel)) {
-                logger.debug("  -> Skipping sender '{}'", targetUser);
-                continue;
+                return false;
             }
-
             // Check if recipient has squelched the sender
-            if (isSquelched(ch, user)) {
-                logger.debug("  -> Skipping '{}' (squelched sender '{}')", targetUser, user);
-                continue;
-            }
-
-            if (ch.isActive()) {
-                writeCount++;
-                logger.debug("  -> Write #{}: to '{}' text='{}'", writeCount, targetUser, text);
-                int senderPing = senderChannel != null ? getPing(senderChannel) : 0;
-                var packet = ChatEventBuilder.build(eid, senderFlags, senderPing, 0, 0, 0, user, text);
-                ch.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, packet));
-            } else {
-                logger.debug("  -> Skipping '{}' (active=false)", targetUser);
+            if (members.get(ch).session.isSquelched(senderId)) {
+                logger.debug("  -> Skipping '{}' (squelched sender '{}')", sessionManager.getUsername(ch), user);
+                return false;
             }
-        }
+            return true;
+        });
         logger.debug("Broadcast complete: {} total writes", writeCount);
     }
 
-    /**
-     * Check if a recipient has squelched the sender.
-     */
-    private boolean isSquelched(Channel recipient, String senderUsername) {
-        String squelchList = sessionManager.get(recipient, "squelch");
-        if (squelchList == null || squelchList.isEmpty()) return false;
-        for (String squelched : squelchList.split(",")) {
-            if (squelched.equalsIgnoreCase(senderUsername)) return true;
-        }
-        return false;
-    }
-
     public void sendSystemMessage(Channel target, String message) {
         if (target.isActive()) {
-            var packet = ChatEventBuilder.build(
+            var packet = ChatEventBuilder.build(target.alloc(),
                 ChatEventIds.EID_BROADCAST.getId(), 0, 0, 0, 0, 0, "Battle.net", message
             );
             var output = new BncsPacket(BncsPacketId.SID_CHATEVENT, packet);
@@ -471,7 +500,7 @@ public class ChatChannel {
     public void sendInfoMessage(Channel target, String message) {
         if (target.isActive()) {
             // Per BNetDocs, EID_INFO uses empty username
-            var packet = ChatEventBuilder.build(
+            var packet = ChatEventBuilder.build(target.alloc(),
                 ChatEventIds.EID_INFO.getId(), 0, 0, 0, 0, 0, "", message
             );
             var output = new BncsPacket(BncsPacketId.SID_CHATEVENT, packet);
@@ -481,11 +510,40 @@ public class ChatChannel {
 
     public void sendErrorMessage(Channel target, String message) {
         if (target.isActive()) {
-            var packet = ChatEventBuilder.build(
+            var packet = ChatEventBuilder.build(target.alloc(),
                 ChatEventIds.EID_ERROR.getId(), 0, 0, 0, 0, 0, "", message
             );
             var output = new BncsPacket(BncsPacketId.SID_CHATEVENT, packet);
             target.writeAndFlush(output);
         }
     }
+
+    /**
+     * A user's membership in this channel: their session, the join request they came in under
+     * and their flags here. The username is kept from the join, because a disconnect clears the
+     * session before the removal queued here runs, and EID_LEAVE still has to name the user.
+     */
+    private static final class Member {
+        final Session session;
+        final int membership;
+        final String username;
+        final byte[] usernameBytes;
+        int flags;
+
+        Member(Session session, int membership, int flags) {
+            this.session = session;
+            this.membership = membership;
+            this.username = session.getUsername();
+            this.usernameBytes = session.getUsernameBytes();
+            this.flags = flags;
+        }
+
+        /**
+         * False once the user has joined or left another channel and only their removal from
+         * this one is still pending.
+         */
+        boolean isCurrent() {
+            return session.getMembership() == membership;
+        }
+    }
 }
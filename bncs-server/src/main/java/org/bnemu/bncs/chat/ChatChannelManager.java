@@ -1,66 +1,82 @@
 package org.bnemu.bncs.chat;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.bnemu.core.session.Session;
 import org.bnemu.core.session.SessionManager;
 
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * Creates chat channels, pinning each to an executor from {@code executors}, and routes joins and
+ * leaves to them. Joins and leaves are applied asynchronously on the channel's executor; a user's
+ * latest request always wins (see {@link Session#requestJoin()}).
+ */
 public class ChatChannelManager {
 
     private final Map<String, ChatChannel> channels = new ConcurrentHashMap<>();
     private final SessionManager sessionManager;
+    private final Supplier<EventExecutor> executors;
 
-    public ChatChannelManager(SessionManager sessionManager) {
+    public ChatChannelManager(SessionManager sessionManager, EventExecutorGroup executors) {
+        this(sessionManager, executors::next);
+    }
+
+    /**
+     * @param executors called once per new channel for the executor to pin it to
+     */
+    public ChatChannelManager(SessionManager sessionManager, Supplier<EventExecutor> executors) {
         this.sessionManager = sessionManager;
+        this.executors = executors;
     }
 
     public ChatChannel getOrCreateChannel(String name) {
-        return channels.computeIfAbsent(name, n -> new ChatChannel(n, sessionManager));
+        return channels.computeIfAbsent(name, n -> new ChatChannel(n, sessionManager, this, executors.get()));
     }
 
     public void joinChannel(String channelName, ChannelHandlerContext ctx, String username) {
-        ChatChannel newChannel = getOrCreateChannel(channelName);
+        int request = sessionManager.session(ctx.channel()).requestJoin();
+        join(channelName, ctx.channel(), username, request);
+    }
 
-        // Check ban before leaving old channel
-        if (newChannel.isBanned(username)) {
-            // Per PvPGN: silently reject banned users (send restricted event)
-            newChannel.sendErrorMessage(ctx.channel(), "You are banned from that channel.");
+    void join(String channelName, Channel user, String username, int request) {
+        if (sessionManager.session(user).getJoinRequest() != request) {
+            // Superseded: don't create (or recreate) a channel nobody is going to stay in
             return;
         }
-
-        // Leave old channel
-        String oldChannel = sessionManager.get(ctx.channel(), "channel");
-        if (oldChannel != null && !oldChannel.equals(channelName)) {
-            ChatChannel old = channels.get(oldChannel);
-            if (old != null) {
-                old.removeMember(ctx.channel());
-                if (old.getUserCount() == 0) {
-                    channels.remove(oldChannel);
-                }
-            }
-        }
-
-        sessionManager.set(ctx.channel(), "channel", channelName);
-        newChannel.addMember(ctx.channel(), username);
+        ChatChannel channel = getOrCreateChannel(channelName);
+        channel.execute(() -> channel.join(user, username, request));
     }
 
     public void leaveChannel(ChannelHandlerContext ctx) {
-        String current = sessionManager.get(ctx.channel(), "channel");
+        Session session = sessionManager.session(ctx.channel());
+        String current;
+        synchronized (session) {
+            int request = session.requestJoin();
+            current = session.getChannel();
+            session.setChannel(null, request);
+        }
         if (current != null) {
             ChatChannel chan = channels.get(current);
             if (chan != null) {
-                chan.removeMember(ctx.channel());
-                if (chan.getUserCount() == 0) {
-                    channels.remove(current);
-                }
+                chan.execute(() -> chan.removeMember(ctx.channel()));
             }
-            sessionManager.set(ctx.channel(), "channel", null);
         }
     }
 
+    /**
+     * Called by a channel, on its executor, once its last member has left.
+     */
+    void remove(ChatChannel channel) {
+        channels.remove(channel.getName(), channel);
+    }
+
     public Set<String> getAllChannels() {
         return Collections.unmodifiableSet(channels.keySet());
     }
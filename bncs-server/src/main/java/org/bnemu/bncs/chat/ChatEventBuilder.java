@@ -1,10 +1,17 @@
 package org.bnemu.bncs.chat;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
+import org.bnemu.bncs.net.packet.BncsPacketId;
+
+import java.nio.charset.StandardCharsets;
 
 public class ChatEventBuilder {
-    public static BncsPacketBuffer build(int eid, int flags, int ping, int ip, int account, int regAuth, String username, String text) {
-        return new BncsPacketBuffer()
+    private static final byte[] EMPTY = new byte[0];
+
+    public static BncsPacketBuffer build(ByteBufAllocator alloc, int eid, int flags, int ping, int ip, int account, int regAuth, String username, String text) {
+        return new BncsPacketBuffer(alloc)
             .writeDword(eid)
             .writeDword(flags)
             .writeDword(ping)
@@ -14,4 +21,42 @@ public class ChatEventBuilder {
             .writeString(username)
             .writeString(text != null ? text : "");
     }
+
+    /**
+     * Same as {@link #build(ByteBufAllocator, int, int, int, int, int, int, String, String)} for a username and
+     * text that are already ISO-8859-1 encoded (e.g. cached on the session).
+     */
+    public static BncsPacketBuffer build(ByteBufAllocator alloc, int eid, int flags, int ping, int ip, int account, int regAuth, byte[] username, byte[] text) {
+        return new BncsPacketBuffer(alloc)
+            .writeDword(eid)
+            .writeDword(flags)
+            .writeDword(ping)
+            .writeDword(ip)
+            .writeDword(account)
+            .writeDword(regAuth)
+            .writeString(username)
+            .writeString(text != null ? text : EMPTY);
+    }
+
+    /**
+     * Encodes a complete SID_CHATEVENT frame (BNCS header included) into a buffer from {@code alloc}.
+     * The frame is encoded once and fanned out to every recipient with
+     * {@link ByteBuf#retainedDuplicate()}; the caller owns the returned reference.
+     */
+    public static ByteBuf encodeFrame(ByteBufAllocator alloc, int eid, int flags, int ping, int ip, int account,
+                                      int regAuth, String username, String text) {
+        return encodeFrame(alloc, eid, flags, ping, ip, account, regAuth,
+            username.getBytes(StandardCharsets.ISO_8859_1),
+            text != null ? text.getBytes(StandardCharsets.ISO_8859_1) : EMPTY);
+    }
+
+    public static ByteBuf encodeFrame(ByteBufAllocator alloc, int eid, int flags, int ping, int ip, int account,
+                                      int regAuth, byte[] username, byte[] text) {
+        BncsPacketBuffer payload = build(alloc, eid, flags, ping, ip, account, regAuth, username, text);
+        try {
+            return payload.withHeader(BncsPacketId.SID_CHATEVENT);
+        } finally {
+            payload.getBuf().release();
+        }
+    }
 }
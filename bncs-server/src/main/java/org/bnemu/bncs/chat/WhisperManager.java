@@ -3,6 +3,7 @@ package org.bnemu.bncs.chat;
 import io.netty.channel.Channel;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.Session;
 import org.bnemu.core.session.SessionManager;
 
 public class WhisperManager {
@@ -17,9 +18,10 @@ public class WhisperManager {
 
         if (targetChannel != null && targetChannel.isActive()) {
             // Check DND (Do Not Disturb) - block the whisper entirely
-            String dndMsg = sessionManager.get(targetChannel, "dnd");
+            Session target = sessionManager.session(targetChannel);
+            String dndMsg = target.getDnd();
             if (dndMsg != null) {
-                var dndError = ChatEventBuilder.build(
+                var dndError = ChatEventBuilder.build(senderChannel.alloc(),
                     ChatEventIds.EID_ERROR.getId(), 0, 0, 0, 0, 0, "",
                     toUser + " is in Do Not Disturb mode (" + dndMsg + ")."
                 );
@@ -28,21 +30,21 @@ public class WhisperManager {
             }
 
             // Send EID_WHISPER to the recipient with the message
-            var whisperToTarget = ChatEventBuilder.build(
+            var whisperToTarget = ChatEventBuilder.build(targetChannel.alloc(),
                 ChatEventIds.EID_WHISPER.getId(), 0, 0, 0, 0, 0, fromUser, message
             );
             targetChannel.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, whisperToTarget));
 
             // Send EID_WHISPERSENT confirmation to the sender
-            var whisperSent = ChatEventBuilder.build(
+            var whisperSent = ChatEventBuilder.build(senderChannel.alloc(),
                 ChatEventIds.EID_WHISPERSENT.getId(), 0, 0, 0, 0, 0, toUser, message
             );
             senderChannel.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, whisperSent));
 
             // Check away status - deliver whisper but notify sender
-            String awayMsg = sessionManager.get(targetChannel, "away");
+            String awayMsg = target.getAway();
             if (awayMsg != null) {
-                var awayInfo = ChatEventBuilder.build(
+                var awayInfo = ChatEventBuilder.build(senderChannel.alloc(),
                     ChatEventIds.EID_INFO.getId(), 0, 0, 0, 0, 0, "",
                     toUser + " is away (" + awayMsg + ")."
                 );
@@ -50,7 +52,7 @@ public class WhisperManager {
             }
         } else {
             // User not found - send error to sender
-            var errorPacket = ChatEventBuilder.build(
+            var errorPacket = ChatEventBuilder.build(senderChannel.alloc(),
                 ChatEventIds.EID_ERROR.getId(), 0, 0, 0, 0, 0, "",
                 "That user is not logged on."
             );
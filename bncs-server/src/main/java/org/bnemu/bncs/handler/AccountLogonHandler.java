@@ -26,10 +26,10 @@ public class AccountLogonHandler extends BncsPacketHandler {
     @Override
     public void handle(ChannelHandlerContext ctx, BncsPacket packet) {
         var username = packet.payload().readString();
-        sessions.set(ctx.channel(), "username", username);
+        sessions.session(ctx.channel()).setLogonName(username);
         logger.debug("Session created for account '{}', channel: {}", username, ctx.channel().id());
 
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeByte(0x00);
         send(ctx, output);
     }
@@ -4,7 +4,7 @@ import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
 import org.bnemu.bncs.net.packet.BncsPacketId;
-import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.AsyncAccountDao;
 import org.bnemu.core.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,10 +12,10 @@ import org.slf4j.LoggerFactory;
 public class AccountLogonProofHandler extends BncsPacketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(AccountLogonProofHandler.class);
-    private final AccountDao accountDao;
+    private final AsyncAccountDao accountDao;
     private final SessionManager sessions;
 
-    public AccountLogonProofHandler(AccountDao accountDao, SessionManager sessions) {
+    public AccountLogonProofHandler(AsyncAccountDao accountDao, SessionManager sessions) {
         this.accountDao = accountDao;
         this.sessions = sessions;
     }
@@ -32,20 +32,25 @@ public class AccountLogonProofHandler extends BncsPacketHandler {
         var serverToken = input.readDword();
         var clientHash = input.readBytes(20);
 
-        String username = sessions.get(ctx.channel(), "username");
-
-        boolean verified = false;
-        if (username != null) {
-            verified = accountDao.validatePassword(username, clientHash, clientToken, serverToken);
+        String username = sessions.session(ctx.channel()).getLogonName();
+        if (username == null) {
+            complete(ctx, null, false);
+            return;
         }
+
+        await(ctx, accountDao.validatePassword(username, clientHash, clientToken, serverToken),
+            verified -> complete(ctx, username, verified));
+    }
+
+    private void complete(ChannelHandlerContext ctx, String username, boolean verified) {
         logger.debug("Login attempt for {} verified: {}", username, verified);
 
-        if (verified && username != null) {
+        if (verified) {
             sessions.setUsername(ctx.channel(), username.toLowerCase());
             sessions.markAuthenticated(ctx.channel());
         }
 
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeByte(verified ? 0x00 : 0x01);
         send(ctx, output);
     }
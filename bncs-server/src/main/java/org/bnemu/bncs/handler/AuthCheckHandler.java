@@ -23,9 +23,9 @@ public class AuthCheckHandler extends BncsPacketHandler {
         var input = packet.payload().skipBytes(4);
         var clientToken = input.readDword();
 
-        sessionManager.set(ctx.channel(), "clientToken", String.valueOf(clientToken));
+        sessionManager.session(ctx.channel()).setClientToken(clientToken);
 
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(0x00)
             .writeByte(0x00);
         send(ctx, output);
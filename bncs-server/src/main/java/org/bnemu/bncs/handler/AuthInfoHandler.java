@@ -44,18 +44,18 @@ public class AuthInfoHandler extends BncsPacketHandler {
             (byte) ((productId >> 16) & 0xFF),
             (byte) ((productId >> 24) & 0xFF)
         });
-        sessionManager.set(ctx.channel(), "product", productCode);
+        sessionManager.session(ctx.channel()).setProduct(productCode);
 
         // TODO: this should increment from 1 for every login to the server
         int serverToken = RANDOM.nextInt() & 0x7FFFFFFF;
-        sessionManager.set(ctx.channel(), "serverToken", String.valueOf(serverToken));
+        sessionManager.session(ctx.channel()).setServerToken(serverToken);
 
         // Get real FILETIME from the MPQ file on disk (client hangs/crashes if this is zero)
         long filetime = bnftpFileProvider.getFiletime(MPQ_FILENAME);
         int filetimeLow = (int) (filetime & 0xFFFFFFFFL);
         int filetimeHigh = (int) (filetime >>> 32);
 
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(LOGON_TYPE)
             .writeDword(serverToken)
             .writeDword(0x02C9)
@@ -68,7 +68,7 @@ public class AuthInfoHandler extends BncsPacketHandler {
         // Send SID_PING for login-time latency measurement
         // Client echoes the cookie back; PingHandler records RTT on first response
         int pingCookie = (int) System.currentTimeMillis();
-        var pingPayload = new BncsPacketBuffer().writeDword(pingCookie);
-        ctx.writeAndFlush(new BncsPacket(BncsPacketId.SID_PING, pingPayload));
+        var pingPayload = new BncsPacketBuffer(ctx.alloc()).writeDword(pingCookie);
+        ctx.write(new BncsPacket(BncsPacketId.SID_PING, pingPayload));
     }
 }
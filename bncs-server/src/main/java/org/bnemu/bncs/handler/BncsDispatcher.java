@@ -4,49 +4,60 @@ import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.chat.ChatChannelManager;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bnftp.BnftpFileProvider;
+import org.bnemu.core.auth.RealmTokenStore;
 import org.bnemu.core.auth.SelectedCharacterStore;
 import org.bnemu.core.config.CoreConfig;
-import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.AsyncAccountDao;
+import org.bnemu.core.net.PacketSequencer;
 import org.bnemu.core.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 public class BncsDispatcher {
     private static final Logger logger = LoggerFactory.getLogger(BncsDispatcher.class);
 
     private final Map<Byte, BncsPacketHandler> handlers = new HashMap<>();
+    private final BiConsumer<ChannelHandlerContext, BncsPacket> dispatchNow = this::dispatchNow;
 
-    private final AccountDao accountDao;
+    private final AsyncAccountDao accountDao;
     private final SessionManager sessions;
     private final ChatChannelManager channelManager;
     private final CoreConfig config;
     private final SelectedCharacterStore selectedCharStore;
+    private final RealmTokenStore tokenStore;
     private final BnftpFileProvider bnftpFileProvider;
+    private final Executor offloadExecutor;
 
     // production
-    public BncsDispatcher(AccountDao accountDao, SessionManager sessions, ChatChannelManager channelManager,
-                          CoreConfig config, SelectedCharacterStore selectedCharStore,
-                          BnftpFileProvider bnftpFileProvider) {
+    public BncsDispatcher(AsyncAccountDao accountDao, SessionManager sessions, ChatChannelManager channelManager,
+                          CoreConfig config, SelectedCharacterStore selectedCharStore, RealmTokenStore tokenStore,
+                          BnftpFileProvider bnftpFileProvider, Executor offloadExecutor) {
         this.accountDao = accountDao;
         this.sessions = sessions;
         this.channelManager = channelManager;
         this.config = config;
         this.selectedCharStore = selectedCharStore;
+        this.tokenStore = tokenStore;
         this.bnftpFileProvider = bnftpFileProvider;
+        this.offloadExecutor = offloadExecutor;
         registerDefaults();
     }
 
     // legacy/test mode
-    public BncsDispatcher(AccountDao accountDao, SessionManager sessions, boolean skipDefaults) {
+    public BncsDispatcher(AsyncAccountDao accountDao, SessionManager sessions, boolean skipDefaults) {
         this.accountDao = accountDao;
         this.sessions = sessions;
         this.channelManager = null; // prevents use of JoinChannelHandler
         this.config = null;
         this.selectedCharStore = null;
+        this.tokenStore = null;
         this.bnftpFileProvider = null;
+        this.offloadExecutor = null; // blocking handlers run inline
         if (!skipDefaults) {
             registerDefaults();
         }
@@ -84,7 +95,7 @@ public class BncsDispatcher {
         // D2 realm handlers (only if config is available)
         if (config != null) {
             register(new QueryRealms2Handler(config.getRealm()));
-            register(new LogonRealmExHandler(sessions, config.getServer().getD2cs()));
+            register(new LogonRealmExHandler(sessions, config.getServer().getD2cs(), tokenStore));
         }
     }
 
@@ -92,12 +103,41 @@ public class BncsDispatcher {
         handlers.put(handler.bncsPacketId().getCode(), handler);
     }
 
+    /**
+     * Dispatch a decoded packet to its handler. Handlers only write; the response is flushed here
+     * once the handler returns (coalesced with the rest of the read by the pipeline's flush
+     * batching). Blocking handlers run on the offload executor instead. If an earlier packet on this
+     * connection is still waiting on the database or an offloaded handler, the packet is held and
+     * dispatched after it. The packet is released whether or not a handler was registered for it.
+     */
     public void dispatch(ChannelHandlerContext ctx, BncsPacket packet) {
+        if (PacketSequencer.attach(ctx, dispatchNow).defer(packet)) {
+            return;
+        }
+        dispatchNow(ctx, packet);
+    }
+
+    private void dispatchNow(ChannelHandlerContext ctx, BncsPacket packet) {
         BncsPacketHandler handler = handlers.get(packet.packetId().getCode());
-        if (handler != null) {
-            handler.handle(ctx, packet);
-        } else {
-            logger.debug("No handler found for packet ID: 0x{}", String.format("%02X", packet.rawPacketId()));
+        if (handler != null && handler.isBlocking() && offloadExecutor != null) {
+            PacketSequencer.offload(ctx, offloadExecutor, () -> {
+                try {
+                    handler.handle(ctx, packet);
+                } finally {
+                    packet.release();
+                }
+            });
+            return;
+        }
+        try {
+            if (handler != null) {
+                handler.handle(ctx, packet);
+            } else {
+                logger.debug("No handler found for packet ID: 0x{}", String.format("%02X", packet.rawPacketId()));
+            }
+        } finally {
+            ctx.flush();
+            packet.release();
         }
     }
 }
@@ -4,17 +4,42 @@ import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
 import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.net.PacketSequencer;
 
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Base class for BNCS packet handlers. Responses are written without flushing; the dispatcher
+ * flushes once the handler returns. Handlers that call the database {@link #await} the result
+ * rather than blocking the event loop.
+ */
 public abstract class BncsPacketHandler {
     abstract BncsPacketId bncsPacketId();
 
     abstract void handle(ChannelHandlerContext ctx, BncsPacket packet);
 
+    /**
+     * Whether {@link #handle} is CPU-heavy or blocking. Such handlers, and whatever they await, run
+     * on the dispatcher's offload executor; the connection's later packets still wait for them.
+     */
+    boolean isBlocking() {
+        return false;
+    }
+
     protected void send(ChannelHandlerContext ctx, BncsPacketBuffer buffer) {
-        ctx.writeAndFlush(new BncsPacket(bncsPacketId(), buffer));
+        ctx.write(new BncsPacket(bncsPacketId(), buffer));
     }
 
     protected void send(ChannelHandlerContext ctx, BncsPacketId id, BncsPacketBuffer buffer) {
-        ctx.writeAndFlush(new BncsPacket(id, buffer));
+        ctx.write(new BncsPacket(id, buffer));
+    }
+
+    /**
+     * Continue on the event loop once {@code stage} completes; later packets from this connection
+     * wait until then. Read the whole payload before calling this.
+     */
+    protected <T> void await(ChannelHandlerContext ctx, CompletionStage<T> stage, Consumer<T> continuation) {
+        PacketSequencer.await(ctx, stage, continuation);
     }
 }
@@ -54,7 +54,7 @@ public class CdKey2Handler extends BncsPacketHandler {
         String keyOwner = input.readString();
 
         // Store client token for login
-        sessionManager.set(ctx.channel(), "clientToken", String.valueOf(clientToken));
+        sessionManager.session(ctx.channel()).setClientToken(clientToken);
 
         logger.debug("SID_CDKEY2: spawn={}, keyLength={}, keyProduct=0x{}, keyOwner='{}'",
             spawn, keyLength, Integer.toHexString(keyProduct), keyOwner);
@@ -62,7 +62,7 @@ public class CdKey2Handler extends BncsPacketHandler {
         // S->C response per BNetDocs:
         // (DWORD) Result (1 = OK, 2 = Invalid, 3 = Bad product, 4 = Banned, 5 = In use)
         // (STRING) Key owner
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(RESULT_OK)
             .writeString(keyOwner);
         send(ctx, output);
@@ -5,6 +5,7 @@ import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.chat.*;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.Session;
 import org.bnemu.core.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +14,7 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class ChatCommandHandler extends BncsPacketHandler {
 
@@ -49,8 +51,9 @@ public class ChatCommandHandler extends BncsPacketHandler {
 
     @Override
     public void handle(ChannelHandlerContext ctx, BncsPacket packet) {
-        String username = sessions.getUsername(ctx.channel());
-        String currentChannel = sessions.get(ctx.channel(), "channel");
+        Session session = sessions.session(ctx.channel());
+        String username = session.getUsername();
+        String currentChannel = session.getChannel();
 
         if (username == null) {
             return;
@@ -67,7 +70,7 @@ public class ChatCommandHandler extends BncsPacketHandler {
         // Normal message
         ChatChannel chan = channelManager.getChannel(currentChannel);
         if (chan != null) {
-            chan.broadcastChatEvent(ChatEventIds.EID_TALK.getId(), username, message);
+            chan.execute(() -> chan.broadcastChatEvent(ctx.channel(), ChatEventIds.EID_TALK.getId(), message));
         }
     }
 
@@ -104,7 +107,7 @@ public class ChatCommandHandler extends BncsPacketHandler {
             String emote = message.substring(message.indexOf(' ') + 1);
             ChatChannel chan = channelManager.getChannel(currentChannel);
             if (chan != null) {
-                chan.broadcastChatEvent(ChatEventIds.EID_EMOTE.getId(), username, emote);
+                chan.execute(() -> chan.broadcastChatEvent(ctx.channel(), ChatEventIds.EID_EMOTE.getId(), emote));
             }
             return;
         }
@@ -201,216 +204,172 @@ public class ChatCommandHandler extends BncsPacketHandler {
     // --- Operator moderation ---
 
     private void handleKick(ChannelHandlerContext ctx, String username, String currentChannel, String targetUser) {
-        ChatChannel chan = channelManager.getChannel(currentChannel);
-        if (chan == null) return;
-
-        if (!chan.isOperator(ctx.channel())) {
-            sendError(ctx, "You are not a channel operator.");
-            return;
-        }
-
-        if (targetUser.equalsIgnoreCase(username)) {
-            sendError(ctx, "You can't kick yourself.");
-            return;
-        }
+        asOperator(ctx, currentChannel, chan -> {
+            if (targetUser.equalsIgnoreCase(username)) {
+                sendError(ctx, "You can't kick yourself.");
+                return;
+            }
 
-        Channel kicked = chan.kickMember(targetUser);
-        if (kicked == null) {
-            sendError(ctx, "That user is not in the channel.");
-            return;
-        }
+            Channel kicked = chan.kickMember(targetUser);
+            if (kicked == null) {
+                sendError(ctx, "That user is not in the channel.");
+                return;
+            }
 
-        // Notify the kicked user, then send them to The Void
-        chan.sendInfoMessage(kicked, "You were kicked out of the channel by " + username + ".");
-        chan.sendToVoid(kicked);
+            // Notify the kicked user, then send them to The Void
+            chan.sendInfoMessage(kicked, "You were kicked out of the channel by " + username + ".");
+            chan.sendToVoid(kicked);
 
-        // Notify the operator
-        sendInfo(ctx, targetUser + " was kicked out of the channel by " + username + ".");
+            // Notify the operator
+            sendInfo(ctx, targetUser + " was kicked out of the channel by " + username + ".");
+        });
     }
 
     private void handleBan(ChannelHandlerContext ctx, String username, String currentChannel, String targetUser) {
-        ChatChannel chan = channelManager.getChannel(currentChannel);
-        if (chan == null) return;
-
-        if (!chan.isOperator(ctx.channel())) {
-            sendError(ctx, "You are not a channel operator.");
-            return;
-        }
-
-        if (targetUser.equalsIgnoreCase(username)) {
-            sendError(ctx, "You can't ban yourself.");
-            return;
-        }
+        asOperator(ctx, currentChannel, chan -> {
+            if (targetUser.equalsIgnoreCase(username)) {
+                sendError(ctx, "You can't ban yourself.");
+                return;
+            }
 
-        // Add to ban list
-        chan.ban(targetUser);
+            // Add to ban list
+            chan.ban(targetUser);
 
-        // Kick if currently in channel, then send to The Void
-        Channel banned = chan.kickMember(targetUser);
-        if (banned != null) {
-            chan.sendInfoMessage(banned, "You were banned from the channel by " + username + ".");
-            chan.sendToVoid(banned);
-        }
+            // Kick if currently in channel, then send to The Void
+            Channel banned = chan.kickMember(targetUser);
+            if (banned != null) {
+                chan.sendInfoMessage(banned, "You were banned from the channel by " + username + ".");
+                chan.sendToVoid(banned);
+            }
 
-        sendInfo(ctx, targetUser + " was banned from the channel by " + username + ".");
+            sendInfo(ctx, targetUser + " was banned from the channel by " + username + ".");
+        });
     }
 
     private void handleUnban(ChannelHandlerContext ctx, String username, String currentChannel, String targetUser) {
-        ChatChannel chan = channelManager.getChannel(currentChannel);
-        if (chan == null) return;
-
-        if (!chan.isOperator(ctx.channel())) {
-            sendError(ctx, "You are not a channel operator.");
-            return;
-        }
-
-        if (!chan.isBanned(targetUser)) {
-            sendError(ctx, "That user is not banned.");
-            return;
-        }
+        asOperator(ctx, currentChannel, chan -> {
+            if (!chan.isBanned(targetUser)) {
+                sendError(ctx, "That user is not banned.");
+                return;
+            }
 
-        chan.unban(targetUser);
-        sendInfo(ctx, targetUser + " is no longer banned from this channel.");
+            chan.unban(targetUser);
+            sendInfo(ctx, targetUser + " is no longer banned from this channel.");
+        });
     }
 
     // --- Operator management ---
 
     private void handleDesignate(ChannelHandlerContext ctx, String username, String currentChannel, String targetUser) {
-        ChatChannel chan = channelManager.getChannel(currentChannel);
-        if (chan == null) return;
+        asOperator(ctx, currentChannel, chan -> {
+            // Target must be in the channel
+            Channel target = chan.findMemberByUsername(targetUser);
+            if (target == null) {
+                sendError(ctx, "That user is not in the channel.");
+                return;
+            }
 
-        if (!chan.isOperator(ctx.channel())) {
-            sendError(ctx, "You are not a channel operator.");
-            return;
-        }
+            chan.setDesignatedOperator(targetUser);
+            sendInfo(ctx, targetUser + " is the designated heir.");
+        });
+    }
 
-        // Target must be in the channel
-        Channel target = chan.findMemberByUsername(targetUser);
-        if (target == null) {
-            sendError(ctx, "That user is not in the channel.");
-            return;
-        }
+    private void handleResign(ChannelHandlerContext ctx, String username, String currentChannel) {
+        asOperator(ctx, currentChannel, chan -> {
+            // Find next operator: designated first, then any other member
+            Channel nextOp = null;
+            String designated = chan.getDesignatedOperator();
+            if (designated != null) {
+                nextOp = chan.findMemberByUsername(designated);
+                chan.setDesignatedOperator(null);
+            }
+
+            if (nextOp == null) {
+                for (Channel member : chan.getMembers()) {
+                    if (!member.equals(ctx.channel()) && member.isActive()) {
+                        nextOp = member;
+                        break;
+                    }
+                }
+            }
 
-        chan.setDesignatedOperator(targetUser);
-        sendInfo(ctx, targetUser + " is the designated heir.");
+            if (nextOp != null) {
+                // promoteOperator demotes current op and promotes the new one
+                chan.promoteOperator(nextOp);
+            }
+            // If no other members, stay as operator (nothing to resign to)
+        });
     }
 
-    private void handleResign(ChannelHandlerContext ctx, String username, String currentChannel) {
+    /**
+     * Run an operator command on the channel's executor, once the caller is confirmed to be the
+     * channel operator there.
+     */
+    private void asOperator(ChannelHandlerContext ctx, String currentChannel, Consumer<ChatChannel> command) {
         ChatChannel chan = channelManager.getChannel(currentChannel);
         if (chan == null) return;
 
-        if (!chan.isOperator(ctx.channel())) {
-            sendError(ctx, "You are not a channel operator.");
-            return;
-        }
-
-        // Find next operator: designated first, then any other member
-        Channel nextOp = null;
-        String designated = chan.getDesignatedOperator();
-        if (designated != null) {
-            nextOp = chan.findMemberByUsername(designated);
-            chan.setDesignatedOperator(null);
-        }
-
-        if (nextOp == null) {
-            for (String name : chan.getUsernames()) {
-                if (!name.equalsIgnoreCase(username)) {
-                    nextOp = chan.findMemberByUsername(name);
-                    if (nextOp != null) break;
-                }
+        chan.execute(() -> {
+            if (!chan.isOperator(ctx.channel())) {
+                sendError(ctx, "You are not a channel operator.");
+                return;
             }
-        }
-
-        if (nextOp != null) {
-            // promoteOperator demotes current op and promotes the new one
-            chan.promoteOperator(nextOp);
-        }
-        // If no other members, stay as operator (nothing to resign to)
+            command.accept(chan);
+        });
     }
 
     // --- User status ---
 
     private void handleAway(ChannelHandlerContext ctx, String username, String awayMsg) {
-        String current = sessions.get(ctx.channel(), "away");
+        Session session = sessions.session(ctx.channel());
+        String current = session.getAway();
 
         if (awayMsg.isEmpty() && current != null) {
             // Toggle off
-            sessions.set(ctx.channel(), "away", null);
+            session.setAway(null);
             sendInfo(ctx, "You are no longer marked as away.");
         } else if (!awayMsg.isEmpty()) {
-            sessions.set(ctx.channel(), "away", awayMsg);
+            session.setAway(awayMsg);
             sendInfo(ctx, "You are now marked as being away.");
         } else {
             sendInfo(ctx, "You are no longer marked as away.");
-            sessions.set(ctx.channel(), "away", null);
+            session.setAway(null);
         }
     }
 
     private void handleDnd(ChannelHandlerContext ctx, String username, String dndMsg) {
-        String current = sessions.get(ctx.channel(), "dnd");
+        Session session = sessions.session(ctx.channel());
+        String current = session.getDnd();
 
         if (dndMsg.isEmpty() && current != null) {
             // Toggle off
-            sessions.set(ctx.channel(), "dnd", null);
+            session.setDnd(null);
             sendInfo(ctx, "Do Not Disturb mode cancelled.");
         } else if (!dndMsg.isEmpty()) {
-            sessions.set(ctx.channel(), "dnd", dndMsg);
+            session.setDnd(dndMsg);
             sendInfo(ctx, "Do Not Disturb mode engaged.");
         } else {
             sendInfo(ctx, "Do Not Disturb mode cancelled.");
-            sessions.set(ctx.channel(), "dnd", null);
+            session.setDnd(null);
         }
     }
 
     // --- Squelch ---
 
     private void handleSquelch(ChannelHandlerContext ctx, String username, String targetUser) {
-        String squelchList = sessions.get(ctx.channel(), "squelch");
-        if (squelchList == null) squelchList = "";
-
-        // Check if already squelched
-        for (String s : squelchList.split(",")) {
-            if (s.equalsIgnoreCase(targetUser)) {
-                sendError(ctx, targetUser + " is already being ignored.");
-                return;
-            }
-        }
-
-        // Add to squelch list
-        if (squelchList.isEmpty()) {
-            squelchList = targetUser;
-        } else {
-            squelchList += "," + targetUser;
+        if (!sessions.squelch(ctx.channel(), targetUser)) {
+            sendError(ctx, targetUser + " is already being ignored.");
+            return;
         }
-        sessions.set(ctx.channel(), "squelch", squelchList);
         sendInfo(ctx, "Ignoring " + targetUser + ".");
     }
 
     private void handleUnsquelch(ChannelHandlerContext ctx, String username, String targetUser) {
-        String squelchList = sessions.get(ctx.channel(), "squelch");
-        if (squelchList == null || squelchList.isEmpty()) {
-            // Silently succeed — PvPGN does not send an error here.
-            return;
-        }
-
-        StringBuilder newList = new StringBuilder();
-        boolean found = false;
-        for (String s : squelchList.split(",")) {
-            if (s.equalsIgnoreCase(targetUser)) {
-                found = true;
-            } else {
-                if (newList.length() > 0) newList.append(",");
-                newList.append(s);
-            }
-        }
-
-        if (!found) {
+        if (!sessions.unsquelch(ctx.channel(), targetUser)) {
             // Silently succeed — PvPGN does not send an error here.
             // StealthBot periodically sends /unignore as maintenance.
             return;
         }
-
-        sessions.set(ctx.channel(), "squelch", newList.length() > 0 ? newList.toString() : null);
         sendInfo(ctx, targetUser + " is no longer being ignored.");
     }
 
@@ -428,12 +387,14 @@ public class ChatCommandHandler extends BncsPacketHandler {
             return;
         }
 
-        Set<String> names = chan.getUsernames();
-        sendInfo(ctx, "Users in channel " + channelName + ":");
-        for (String name : names) {
-            sendInfo(ctx, name);
-        }
-        sendInfo(ctx, "Total of " + names.size() + " user(s).");
+        chan.execute(() -> {
+            Set<String> names = chan.getUsernames();
+            sendInfo(ctx, "Users in channel " + channelName + ":");
+            for (String name : names) {
+                sendInfo(ctx, name);
+            }
+            sendInfo(ctx, "Total of " + names.size() + " user(s).");
+        });
     }
 
     private void handleWhois(ChannelHandlerContext ctx, String targetUser) {
@@ -443,8 +404,9 @@ public class ChatCommandHandler extends BncsPacketHandler {
             return;
         }
 
-        String targetChannel = sessions.get(target, "channel");
-        String product = sessions.get(target, "product");
+        Session targetSession = sessions.session(target);
+        String targetChannel = targetSession.getChannel();
+        String product = targetSession.getProduct();
         String productName = PRODUCT_NAMES.getOrDefault(product, product != null ? product : "Unknown");
 
         String info = targetUser + " is using " + productName;
@@ -461,7 +423,7 @@ public class ChatCommandHandler extends BncsPacketHandler {
     }
 
     private void handleWhoami(ChannelHandlerContext ctx, String username, String currentChannel) {
-        String product = sessions.get(ctx.channel(), "product");
+        String product = sessions.session(ctx.channel()).getProduct();
         String productName = PRODUCT_NAMES.getOrDefault(product, product != null ? product : "Unknown");
         String info = "You are " + username + ", using " + productName;
         if (currentChannel != null) {
@@ -482,52 +444,46 @@ public class ChatCommandHandler extends BncsPacketHandler {
             sendError(ctx, "You are not in a channel.");
             return;
         }
-        Set<String> names = chan.getUsernames();
-        String userList = String.join(", ", names);
-        sendInfo(ctx, "Users in channel: " + userList);
+        chan.execute(() -> sendInfo(ctx, "Users in channel: " + String.join(", ", chan.getUsernames())));
     }
 
     private void handleTopic(ChannelHandlerContext ctx, String username, String currentChannel, String topicText) {
-        ChatChannel chan = channelManager.getChannel(currentChannel);
-        if (chan == null) return;
-
-        if (!chan.isOperator(ctx.channel())) {
-            sendError(ctx, "You are not a channel operator.");
-            return;
-        }
-
-        if (topicText.isEmpty()) {
-            // Show current topic
-            String current = chan.getTopic();
-            if (current != null) {
-                sendInfo(ctx, "Topic: " + current);
-            } else {
-                sendInfo(ctx, "No topic is set.");
+        asOperator(ctx, currentChannel, chan -> {
+            if (topicText.isEmpty()) {
+                // Show current topic
+                String current = chan.getTopic();
+                if (current != null) {
+                    sendInfo(ctx, "Topic: " + current);
+                } else {
+                    sendInfo(ctx, "No topic is set.");
+                }
+                return;
             }
-            return;
-        }
 
-        chan.setTopic(topicText);
+            chan.setTopic(topicText);
 
-        // Broadcast the new topic to all channel members
-        for (io.netty.channel.Channel ch : chan.getMembers()) {
-            if (ch.isActive()) {
-                chan.sendInfoMessage(ch, "Topic: " + topicText);
+            // Broadcast the new topic to all channel members
+            for (Channel ch : chan.getMembers()) {
+                if (ch.isActive()) {
+                    chan.sendInfoMessage(ch, "Topic: " + topicText);
+                }
             }
-        }
+        });
     }
 
     // --- Helpers ---
 
+    // These flush themselves: operator commands reply from the chat channel's executor, after the
+    // dispatcher's flush for the request has already run.
     private void sendInfo(ChannelHandlerContext ctx, String message) {
-        var packet = ChatEventBuilder.build(
+        var packet = ChatEventBuilder.build(ctx.alloc(),
             ChatEventIds.EID_INFO.getId(), 0, 0, 0, 0, 0, "", message
         );
         ctx.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, packet));
     }
 
     private void sendError(ChannelHandlerContext ctx, String message) {
-        var packet = ChatEventBuilder.build(
+        var packet = ChatEventBuilder.build(ctx.alloc(),
             ChatEventIds.EID_ERROR.getId(), 0, 0, 0, 0, 0, "", message
         );
         ctx.writeAndFlush(new BncsPacket(BncsPacketId.SID_CHATEVENT, packet));
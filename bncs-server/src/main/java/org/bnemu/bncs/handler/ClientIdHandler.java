@@ -41,7 +41,7 @@ public class ClientIdHandler extends BncsPacketHandler {
             regVersion, regAuthority, accountNumber, regToken, lanComputerName, lanUsername);
 
         // S->C response echoes the registration values
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(regVersion)
             .writeDword(regAuthority)
             .writeDword(accountNumber)
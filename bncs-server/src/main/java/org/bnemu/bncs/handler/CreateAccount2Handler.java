@@ -4,12 +4,12 @@ import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
 import org.bnemu.bncs.net.packet.BncsPacketId;
-import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.AsyncAccountDao;
 
 public class CreateAccount2Handler extends BncsPacketHandler {
-    private final AccountDao accountDao;
+    private final AsyncAccountDao accountDao;
 
-    public CreateAccount2Handler(AccountDao accountDao) {
+    public CreateAccount2Handler(AsyncAccountDao accountDao) {
         this.accountDao = accountDao;
     }
 
@@ -25,11 +25,11 @@ public class CreateAccount2Handler extends BncsPacketHandler {
         var username = input.readString();
 
         String usernameLower = username.toLowerCase();
-        boolean created = accountDao.createAccount(usernameLower, passwordHash);
-
-        var output = new BncsPacketBuffer()
-            .writeDword(created ? 0x00 : 0x04)
-            .writeString("");
-        send(ctx, output);
+        await(ctx, accountDao.createAccount(usernameLower, passwordHash), created -> {
+            var output = new BncsPacketBuffer(ctx.alloc())
+                .writeDword(created ? 0x00 : 0x04)
+                .writeString("");
+            send(ctx, output);
+        });
     }
 }
@@ -5,6 +5,8 @@ import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
 import org.bnemu.bncs.net.packet.BncsPacketId;
 import org.bnemu.core.auth.SelectedCharacterStore;
+import org.bnemu.core.auth.SelectedCharacterStore.SelectedCharacter;
+import org.bnemu.core.session.Session;
 import org.bnemu.core.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,35 +34,47 @@ public class EnterChatHandler extends BncsPacketHandler {
 
         // Get product code from session (set by AuthInfoHandler)
         // Read product before the username guard — W3 clients send empty username/statstring
-        String product = sessions.get(ctx.channel(), "product");
+        Session session = sessions.session(ctx.channel());
+        String product = session.getProduct();
         if (product == null || product.isEmpty()) {
             product = "RATS"; // Default to StarCraft
         }
 
         if ((username == null || username.isEmpty()) && !isW3Product(product)) {
-            var error = new BncsPacketBuffer().writeString("You must provide a username.");
-            ctx.writeAndFlush(new BncsPacket(BncsPacketId.SID_MESSAGEBOX, error));
+            var error = new BncsPacketBuffer(ctx.alloc()).writeString("You must provide a username.");
+            ctx.write(new BncsPacket(BncsPacketId.SID_MESSAGEBOX, error));
             return;
         }
 
         // Get account name from session — prefer the explicit "accountName" attribute
         // because getUsername() is overwritten with the channel display name
         // (e.g., "CharName*AccountName" for D2 realm chars) on each SID_ENTERCHAT.
-        String accountName = sessions.get(ctx.channel(), "accountName");
+        String accountName = session.getAccountName();
         if (accountName == null) {
-            accountName = sessions.getUsername(ctx.channel());
+            accountName = session.getUsername();
         }
         if (accountName == null) {
             accountName = username;
         }
 
+        if (isD2Product(product) && selectedCharStore != null) {
+            String name = accountName;
+            String productId = product;
+            await(ctx, selectedCharStore.getSelectedCharacterAsync(accountName),
+                selectedChar -> enterChat(ctx, session, productId, username, name, selectedChar));
+        } else {
+            enterChat(ctx, session, product, username, accountName, null);
+        }
+    }
+
+    private void enterChat(ChannelHandlerContext ctx, Session session, String product, String username,
+                           String accountName, SelectedCharacter selectedChar) {
         String statstring;
         // channelDisplayName is what appears in chat events (EID_SHOWUSER, EID_JOIN, EID_TALK, etc.)
         String channelDisplayName = username;
 
         // Check for D2 products and realm character
         if (isD2Product(product) && selectedCharStore != null) {
-            var selectedChar = selectedCharStore.getSelectedCharacter(accountName);
             if (selectedChar != null) {
                 // Don't clear — CharLogonHandler overwrites on new selection,
                 // and the 5-minute expiry in SelectedCharacterStore handles cleanup.
@@ -96,14 +110,14 @@ public class EnterChatHandler extends BncsPacketHandler {
 
         // Store channel display name and statstring in session for use in channel events
         sessions.setUsername(ctx.channel(), channelDisplayName);
-        sessions.set(ctx.channel(), "statstring", statstring);
-        sessions.set(ctx.channel(), "accountName", accountName);
+        session.setStatstring(statstring);
+        session.setAccountName(accountName);
 
         // SID_ENTERCHAT response per PvPGN:
         // Field 1 (Unique Name): account name (not character name)
         // Field 2 (Statstring): product + realm info
         // Field 3 (Account Name): account name
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeString(accountName)
             .writeString(statstring)
             .writeString(accountName);
@@ -16,11 +16,11 @@ public class GetChannelListHandler extends BncsPacketHandler {
         var input = packet.payload();
 //        var productId = input.readBytes(4);
 
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeString("bnemu")
             .writeString("The Void")
             .writeString("");
 
-        ctx.writeAndFlush(new BncsPacket(BncsPacketId.SID_GETCHANNELLIST, output));
+        ctx.write(new BncsPacket(BncsPacketId.SID_GETCHANNELLIST, output));
     }
 }
@@ -73,7 +73,7 @@ public class JoinChannelHandler extends BncsPacketHandler {
             // NoCreate join: only join if channel exists and has users
             ChatChannel existing = channelManager.getChannel(channelName);
             if (existing == null || existing.getUserCount() == 0) {
-                var output = ChatEventBuilder.build(
+                var output = ChatEventBuilder.build(ctx.alloc(),
                     ChatEventIds.EID_CHANNELDOESNOTEXIST.getId(),
                     0, 0, 0, 0, 0,
                     channelName,
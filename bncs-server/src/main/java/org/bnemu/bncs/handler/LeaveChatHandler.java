@@ -1,10 +1,10 @@
 package org.bnemu.bncs.handler;
 
 import io.netty.channel.ChannelHandlerContext;
-import org.bnemu.bncs.chat.ChatChannel;
 import org.bnemu.bncs.chat.ChatChannelManager;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.Session;
 import org.bnemu.core.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,18 +27,10 @@ public class LeaveChatHandler extends BncsPacketHandler {
 
     @Override
     public void handle(ChannelHandlerContext ctx, BncsPacket packet) {
-        String username = sessions.getUsername(ctx.channel());
-        String channelName = sessions.get(ctx.channel(), "channel");
-
-        logger.debug("User '{}' leaving chat from channel '{}'", username, channelName);
-
-        if (channelName != null) {
-            ChatChannel channel = channelManager.getChannel(channelName);
-            if (channel != null) {
-                channel.removeMember(ctx.channel());
-            }
-            sessions.set(ctx.channel(), "channel", null);
-        }
+        Session session = sessions.session(ctx.channel());
+        logger.debug("User '{}' leaving chat from channel '{}'", session.getUsername(), session.getChannel());
+
+        channelManager.leaveChannel(ctx);
 
         // SID_LEAVECHAT has no response per BNetDocs spec
     }
@@ -24,10 +24,10 @@ public class LogonRealmExHandler extends BncsPacketHandler {
     private final PortConfig d2csConfig;
     private final RealmTokenStore tokenStore;
 
-    public LogonRealmExHandler(SessionManager sessionManager, PortConfig d2csConfig) {
+    public LogonRealmExHandler(SessionManager sessionManager, PortConfig d2csConfig, RealmTokenStore tokenStore) {
         this.sessionManager = sessionManager;
         this.d2csConfig = d2csConfig;
-        this.tokenStore = RealmTokenStore.getInstance();
+        this.tokenStore = tokenStore;
     }
 
     @Override
@@ -55,15 +55,18 @@ public class LogonRealmExHandler extends BncsPacketHandler {
         }
 
         // Get server token from session
-        String serverTokenStr = sessionManager.get(ctx.channel(), "serverToken");
-        int serverToken = serverTokenStr != null ? Integer.parseInt(serverTokenStr) : 0;
+        int serverToken = sessionManager.session(ctx.channel()).getServerToken();
 
         logger.debug("SID_LOGONREALMEX: user='{}', realm='{}', clientToken={}",
             username, realmTitle, clientToken);
 
         // Generate realm token
-        RealmToken token = tokenStore.createToken(username, clientToken, serverToken);
+        await(ctx, tokenStore.createTokenAsync(username, clientToken, serverToken),
+            token -> sendRealmLogon(ctx, token, username, clientToken, serverToken));
+    }
 
+    private void sendRealmLogon(ChannelHandlerContext ctx, RealmToken token, String username,
+                                int clientToken, int serverToken) {
         // Convert IP string to integer (network byte order)
         int ipAddress = ipToInt(d2csConfig.getHost());
 
@@ -73,9 +76,9 @@ public class LogonRealmExHandler extends BncsPacketHandler {
         // (DWORD[2]) MCP Chunk 1 (auth data - can be tokens)
         // (DWORD) IP Address
         // (DWORD) Port
-        // (DWORD[12]) MCP Chunk 2 (more auth data - padding)
+        // (DWORD[12]) MCP Chunk 2 (more auth data - signature for signed tokens)
         // (STRING) Unique name (MCSID)
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(token.getCookie())     // MCP Cookie
             .writeDword(STATUS_SUCCESS)        // MCP Status
             .writeDword(clientToken)           // MCP Chunk 1[0] - client token
@@ -83,10 +86,8 @@ public class LogonRealmExHandler extends BncsPacketHandler {
             .writeDword(ipAddress)             // IP Address
             .writeDword(portToInt(d2csConfig.getPort())); // Port (byte-swapped)
 
-        // MCP Chunk 2 - 12 DWORDs of padding/auth data
-        for (int i = 0; i < 12; i++) {
-            output.writeDword(0);
-        }
+        // MCP Chunk 2 - 12 DWORDs of auth data, echoed back to D2CS in MCP_STARTUP
+        output.writeBytes(token.getAuthData());
 
         output.writeString(username);          // Unique name
 
@@ -97,7 +98,7 @@ public class LogonRealmExHandler extends BncsPacketHandler {
     }
 
     private void sendError(ChannelHandlerContext ctx) {
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(0)  // Cookie
             .writeDword(1); // Status (1 = error)
         send(ctx, output);
@@ -4,7 +4,7 @@ import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
 import org.bnemu.bncs.net.packet.BncsPacketId;
-import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.AsyncAccountDao;
 import org.bnemu.core.model.Account;
 import org.bnemu.core.session.SessionManager;
 import org.bnemu.crypto.BrokenSHA1;
@@ -20,10 +20,10 @@ import java.util.Arrays;
 public class LogonResponse2Handler extends BncsPacketHandler {
     private static final Logger logger = LoggerFactory.getLogger(LogonResponse2Handler.class);
 
-    private final AccountDao accountDao;
+    private final AsyncAccountDao accountDao;
     private final SessionManager sessionManager;
 
-    public LogonResponse2Handler(AccountDao accountDao, SessionManager sessionManager) {
+    public LogonResponse2Handler(AsyncAccountDao accountDao, SessionManager sessionManager) {
         this.accountDao = accountDao;
         this.sessionManager = sessionManager;
     }
@@ -33,6 +33,14 @@ public class LogonResponse2Handler extends BncsPacketHandler {
         return BncsPacketId.SID_LOGONRESPONSE2;
     }
 
+    /**
+     * The proof is a broken-SHA1 over the stored hash; keep it off the event loop during login storms.
+     */
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
     @Override
     public void handle(ChannelHandlerContext ctx, BncsPacket packet) {
         var input = packet.payload();
@@ -43,8 +51,14 @@ public class LogonResponse2Handler extends BncsPacketHandler {
  
         String usernameLower = username.toLowerCase();
 
+        await(ctx, accountDao.findAccount(usernameLower),
+            account -> complete(ctx, account, username, clientToken, serverToken, clientProof));
+    }
+
+    private void complete(ChannelHandlerContext ctx, Account account, String username,
+                          int clientToken, int serverToken, byte[] clientProof) {
+        String usernameLower = username.toLowerCase();
         int statusCode;
-        Account account = accountDao.findAccount(usernameLower);
         if (account == null) {
             statusCode = 0x01;
             logger.info("Login failed for '{}': account not found", username);
@@ -73,8 +87,8 @@ public class LogonResponse2Handler extends BncsPacketHandler {
     }
 
     private void sendLoginResponse(ChannelHandlerContext ctx, int statusCode) {
-        var output = new BncsPacketBuffer().writeDword(statusCode);
-        ctx.writeAndFlush(new BncsPacket(BncsPacketId.SID_LOGONRESPONSE2, output));
+        var output = new BncsPacketBuffer(ctx.alloc()).writeDword(statusCode);
+        ctx.write(new BncsPacket(BncsPacketId.SID_LOGONRESPONSE2, output));
     }
 
     private byte[] computeProof(int clientToken, int serverToken, byte[] passwordHash) {
@@ -4,7 +4,7 @@ import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
 import org.bnemu.bncs.net.packet.BncsPacketId;
-import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.AsyncAccountDao;
 import org.bnemu.core.model.Account;
 import org.bnemu.core.session.SessionManager;
 import org.bnemu.crypto.BrokenSHA1;
@@ -34,10 +34,10 @@ public class LogonResponseHandler extends BncsPacketHandler {
     private static final int RESULT_INVALID_PASSWORD = 0;
     private static final int RESULT_ACCOUNT_NOT_FOUND = 2;
 
-    private final AccountDao accountDao;
+    private final AsyncAccountDao accountDao;
     private final SessionManager sessionManager;
 
-    public LogonResponseHandler(AccountDao accountDao, SessionManager sessionManager) {
+    public LogonResponseHandler(AsyncAccountDao accountDao, SessionManager sessionManager) {
         this.accountDao = accountDao;
         this.sessionManager = sessionManager;
     }
@@ -47,6 +47,14 @@ public class LogonResponseHandler extends BncsPacketHandler {
         return BncsPacketId.SID_LOGONRESPONSE;
     }
 
+    /**
+     * The proof is a broken-SHA1 over the stored hash; keep it off the event loop during login storms.
+     */
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
     @Override
     public void handle(ChannelHandlerContext ctx, BncsPacket packet) {
         var input = packet.payload();
@@ -63,8 +71,14 @@ public class LogonResponseHandler extends BncsPacketHandler {
 
         String usernameLower = username.toLowerCase();
 
+        await(ctx, accountDao.findAccount(usernameLower),
+            account -> complete(ctx, account, username, clientToken, serverToken, clientProof));
+    }
+
+    private void complete(ChannelHandlerContext ctx, Account account, String username,
+                          int clientToken, int serverToken, byte[] clientProof) {
+        String usernameLower = username.toLowerCase();
         int statusCode;
-        Account account = accountDao.findAccount(usernameLower);
         if (account == null) {
             logger.debug("Login failed for '{}': account not found", username);
             statusCode = RESULT_ACCOUNT_NOT_FOUND;
@@ -88,7 +102,7 @@ public class LogonResponseHandler extends BncsPacketHandler {
             }
         }
 
-        var output = new BncsPacketBuffer().writeDword(statusCode);
+        var output = new BncsPacketBuffer(ctx.alloc()).writeDword(statusCode);
         send(ctx, output);
     }
 
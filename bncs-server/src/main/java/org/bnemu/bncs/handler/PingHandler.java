@@ -3,6 +3,7 @@ package org.bnemu.bncs.handler;
 import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.Session;
 import org.bnemu.core.session.SessionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +26,8 @@ public class PingHandler extends BncsPacketHandler {
     public void handle(ChannelHandlerContext ctx, BncsPacket packet) {
         // Ping is measured once at login (sent alongside SID_AUTH_INFO response).
         // Subsequent pings from SessionTimeoutHandler are keep-alive only.
-        if (sessions.has(ctx.channel(), "ping")) {
+        Session session = sessions.session(ctx.channel());
+        if (session.isPingMeasured()) {
             return;
         }
 
@@ -36,7 +38,7 @@ public class PingHandler extends BncsPacketHandler {
             int echoedValue = payload.readDword();
             int rtt = (int) System.currentTimeMillis() - echoedValue;
             if (rtt < 0) rtt = 0;
-            sessions.set(ctx.channel(), "ping", String.valueOf(rtt));
+            session.setPing(rtt);
             logger.info("Login ping from {}: {}ms", ctx.channel().remoteAddress(), rtt);
         }
     }
@@ -37,7 +37,7 @@ public class QueryRealms2Handler extends BncsPacketHandler {
         //   (DWORD) Unknown (1)
         //   (STRING) Realm title
         //   (STRING) Realm description
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(0)              // Unknown
             .writeDword(1)              // Count (1 realm)
             .writeDword(1)              // Unknown (1)
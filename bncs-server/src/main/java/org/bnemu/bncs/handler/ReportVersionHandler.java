@@ -54,7 +54,7 @@ public class ReportVersionHandler extends BncsPacketHandler {
         // (DWORD) Result
         // Result codes: 0 = Old game version not allowed, 1 = Invalid version,
         //               2 = Success, 3 = Reinstall required
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(RESULT_SUCCESS);
         send(ctx, output);
     }
@@ -8,6 +8,7 @@ import org.bnemu.bncs.chat.ChatChannelManager;
 import org.bnemu.bncs.net.packet.BncsPacket;
 import org.bnemu.bncs.net.packet.BncsPacketBuffer;
 import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,13 +26,14 @@ public class SessionTimeoutHandler extends ChannelInboundHandlerAdapter {
             if (idleEvent.state() == IdleState.WRITER_IDLE) {
                 // Send SID_PING to keep connection alive
                 int pingValue = (int) System.currentTimeMillis();
-                var pingPayload = new BncsPacketBuffer().writeDword(pingValue);
+                var pingPayload = new BncsPacketBuffer(ctx.alloc()).writeDword(pingValue);
                 ctx.writeAndFlush(new BncsPacket(BncsPacketId.SID_PING, pingPayload));
                 logger.debug("Sent keep-alive ping to {}", ctx.channel().remoteAddress());
             } else if (idleEvent.state() == IdleState.READER_IDLE) {
                 // No response for too long, disconnect
-                String username = channelManager.getSessionManager().get(ctx.channel(), "username");
-                String channel = channelManager.getSessionManager().get(ctx.channel(), "channel");
+                Session session = channelManager.getSessionManager().session(ctx.channel());
+                String username = session.getUsername();
+                String channel = session.getChannel();
 
                 logger.info("Disconnecting idle user: {}", username != null ? username : ctx.channel().remoteAddress());
 
@@ -48,8 +50,9 @@ public class SessionTimeoutHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        String username = channelManager.getSessionManager().get(ctx.channel(), "username");
-        String channel = channelManager.getSessionManager().get(ctx.channel(), "channel");
+        Session session = channelManager.getSessionManager().session(ctx.channel());
+        String username = session.getUsername();
+        String channel = session.getChannel();
 
         if (channel != null) {
             logger.info("User disconnected: {}", username != null ? username : ctx.channel().remoteAddress());
@@ -57,6 +60,9 @@ public class SessionTimeoutHandler extends ChannelInboundHandlerAdapter {
             logger.debug("Removed user '{}' from channel '{}' on disconnect", username, channel);
         }
 
+        // Evict from the online user registry once the channel has been left
+        channelManager.getSessionManager().clear(ctx.channel());
+
         super.channelInactive(ctx);
     }
 }
@@ -51,7 +51,7 @@ public class StartVersioningHandler extends BncsPacketHandler {
             (byte) ((productId >> 16) & 0xFF),
             (byte) ((productId >> 24) & 0xFF)
         });
-        sessionManager.set(ctx.channel(), "product", productCode);
+        sessionManager.session(ctx.channel()).setProduct(productCode);
 
         logger.debug("SID_STARTVERSIONING: platform=0x{}, product='{}', versionByte={}, unknown={}",
             Integer.toHexString(platformId), productCode, versionByte, unknown);
@@ -60,7 +60,7 @@ public class StartVersioningHandler extends BncsPacketHandler {
         // (FILETIME) MPQ Filetime - 8 bytes, can be 0
         // (STRING) MPQ Filename
         // (STRING) ValueString (formula)
-        var output = new BncsPacketBuffer()
+        var output = new BncsPacketBuffer(ctx.alloc())
             .writeDword(0) // FILETIME low
             .writeDword(0) // FILETIME high
             .writeString(MPQ_FILENAME)
@@ -1,5 +1,6 @@
 package org.bnemu.bncs.net.logging;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
@@ -14,6 +15,8 @@ public class OutboundLoggingHandler extends ChannelOutboundHandlerAdapter {
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (msg instanceof BncsPacket packet) {
             logger.debug("Outbound packet sent: 0x{}", String.format("%02X", packet.packetId().getCode()));
+        } else if (msg instanceof ByteBuf frame && frame.readableBytes() >= 4) {
+            logger.debug("Outbound frame sent: 0x{}", String.format("%02X", frame.getByte(frame.readerIndex() + 1)));
         }
         super.write(ctx, msg, promise);
     }
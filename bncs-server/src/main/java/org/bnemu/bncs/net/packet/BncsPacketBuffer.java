@@ -1,15 +1,22 @@
 package org.bnemu.bncs.net.packet;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
 import org.bnemu.core.net.packet.PacketBuffer;
 
+/**
+ * BNCS packet buffer with 4-byte header format: [0xFF][ID:1][SIZE:2]
+ * Size includes the header (4 bytes).
+ */
 public class BncsPacketBuffer extends PacketBuffer<BncsPacketId, BncsPacketBuffer> {
+    public static final int HEADER_SIZE = 4;
 
-    public BncsPacketBuffer() { super(); }
+    public BncsPacketBuffer(ByteBufAllocator alloc) {
+        super(alloc, HEADER_SIZE);
+    }
 
     public BncsPacketBuffer(ByteBuf buf) {
-        super(buf);
+        super(buf, HEADER_SIZE);
     }
 
     @Override
@@ -18,16 +25,9 @@ public class BncsPacketBuffer extends PacketBuffer<BncsPacketId, BncsPacketBuffe
     }
 
     @Override
-    public ByteBuf withHeader(BncsPacketId id) {
-        final var output = Unpooled.buffer();
-        final var headerSize = 4;
-        final var length = this.buf.readableBytes() + headerSize;
-
-        output.writeByte(0xFF);
-        output.writeByte(id.getCode());
-        output.writeShortLE(length);
-        output.writeBytes(this.buf);
-
-        return output;
+    protected void writeHeader(ByteBuf out, int index, BncsPacketId id, int length) {
+        out.setByte(index, 0xFF);
+        out.setByte(index + 1, id.getCode());
+        out.setShortLE(index + 2, length);
     }
 }
@@ -3,20 +3,31 @@ package org.bnemu.bncs.net.packet;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class BncsPacketEncoder extends MessageToByteEncoder<BncsPacket> {
+import java.util.List;
+
+/**
+ * Frames outgoing {@link BncsPacket}s. The header is back-patched into space reserved at the
+ * front of the payload buffer, which is then passed on as-is (no copy); the packet itself is
+ * released by {@link MessageToMessageEncoder} once encoded. Pre-framed
+ * {@link ByteBuf}s (such as chat event frames fanned out by ChatChannel) are not matched by
+ * this encoder and pass through untouched.
+ */
+public class BncsPacketEncoder extends MessageToMessageEncoder<BncsPacket> {
     private static final Logger logger = LoggerFactory.getLogger(BncsPacketEncoder.class);
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, BncsPacket msg, ByteBuf out) {
+    protected void encode(ChannelHandlerContext ctx, BncsPacket msg, List<Object> out) {
         ByteBuf encoded = msg.payload().withHeader(msg.packetId());
-        logger.debug("Encoding packet 0x{} ({} bytes): {}",
-            String.format("%02X", msg.packetId().getCode()),
-            encoded.readableBytes(),
-            ByteBufUtil.hexDump(encoded));
-        out.writeBytes(encoded);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Encoding packet 0x{} ({} bytes): {}",
+                String.format("%02X", msg.packetId().getCode()),
+                encoded.readableBytes(),
+                ByteBufUtil.hexDump(encoded));
+        }
+        out.add(encoded);
     }
-}
\ No newline at end of file
+}
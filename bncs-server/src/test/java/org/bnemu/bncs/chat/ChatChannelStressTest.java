@@ -0,0 +1,244 @@
+package org.bnemu.bncs.chat;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.bnemu.bncs.handler.SessionTimeoutHandler;
+import org.bnemu.bncs.net.packet.BncsPacketEncoder;
+import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.Session;
+import org.bnemu.core.session.SessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Join/leave/talk storm against channels pinned to a multi-threaded event loop group, as in the
+ * server: every user's commands run on its own event loop while channel state is updated on the
+ * channel's. Once everything has drained, channel membership must agree with the sessions.
+ */
+public class ChatChannelStressTest {
+    private static final Logger logger = LoggerFactory.getLogger(ChatChannelStressTest.class);
+    private static final int USERS = 50;
+    private static final int OPS_PER_USER = 400;
+    private static final String[] CHANNELS = {"Chat", "Op Test", "Clan Foo", "Diablo II", "Lobby"};
+
+    private EventLoopGroup group;
+    private SessionManager sessions;
+    private ChatChannelManager manager;
+    private final List<ChannelHandlerContext> users = new CopyOnWriteArrayList<>();
+    // Usernames in the EID_LEAVE events the clients received, one entry per recipient
+    private final Queue<String> leaves = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(8);
+        sessions = new SessionManager();
+        manager = new ChatChannelManager(sessions, group);
+
+        LocalAddress address = new LocalAddress("chat-stress");
+        new ServerBootstrap()
+            .group(group)
+            .channel(LocalServerChannel.class)
+            .childHandler(new ChannelInitializer<LocalChannel>() {
+                @Override
+                protected void initChannel(LocalChannel ch) {
+                    ch.pipeline().addLast(new BncsPacketEncoder(), new SessionTimeoutHandler(manager),
+                            new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelActive(ChannelHandlerContext ctx) {
+                            users.add(ctx);
+                        }
+                    });
+                }
+            })
+            .bind(address).sync();
+
+        Bootstrap client = new Bootstrap()
+            .group(group)
+            .channel(LocalChannel.class)
+            .handler(new ChannelInitializer<LocalChannel>() {
+                @Override
+                protected void initChannel(LocalChannel ch) {
+                    ch.pipeline().addLast(
+                        new LengthFieldBasedFrameDecoder(ByteOrder.LITTLE_ENDIAN, 0xFFFF, 2, 2, -4, 0, true),
+                        new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                try {
+                                    recordLeave((ByteBuf) msg);
+                                } finally {
+                                    ReferenceCountUtil.release(msg);
+                                }
+                            }
+                        });
+                }
+            });
+        for (int i = 0; i < USERS; i++) {
+            client.connect(address).sync();
+        }
+        while (users.size() < USERS) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < USERS; i++) {
+            sessions.setUsername(users.get(i).channel(), "user" + i);
+        }
+    }
+
+    @AfterEach
+    public void teardown() {
+        for (ChannelHandlerContext ctx : users) {
+            ctx.channel().close().syncUninterruptibly();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    public void membershipStaysConsistentUnderConcurrentJoinsAndLeaves() throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> storms = new ArrayList<>();
+        for (ChannelHandlerContext ctx : users) {
+            storms.add(ctx.executor().submit(() -> storm(ctx)));
+        }
+        for (Future<?> storm : storms) {
+            storm.sync();
+        }
+        drain();
+        long elapsed = System.nanoTime() - start;
+        logger.info("{} commands in {} ms ({}/s)",
+            USERS * OPS_PER_USER, elapsed / 1_000_000, Math.round(USERS * OPS_PER_USER * 1e9 / elapsed));
+
+        Map<Channel, String> seen = new HashMap<>();
+        for (String name : manager.getAllChannels()) {
+            ChatChannel chan = manager.getChannel(name);
+            Snapshot snapshot = inChannel(chan, () ->
+                new Snapshot(new ArrayList<>(chan.getMembers()), chan.getOperator(), chan.getUserCount()));
+
+            assertFalse(snapshot.members.isEmpty(), "empty channel still registered: " + name);
+            assertEquals(snapshot.members.size(), snapshot.userCount, name);
+            assertNotNull(snapshot.operator, "no operator in " + name);
+            assertTrue(snapshot.members.contains(snapshot.operator), "operator is not a member of " + name);
+
+            for (Channel member : snapshot.members) {
+                String previous = seen.put(member, name);
+                assertNull(previous, "user in both " + previous + " and " + name);
+                assertEquals(name, sessions.session(member).getChannel());
+            }
+        }
+
+        for (ChannelHandlerContext ctx : users) {
+            Session session = sessions.session(ctx.channel());
+            assertEquals(session.getChannel(), seen.get(ctx.channel()), session.getUsername());
+        }
+    }
+
+    @Test
+    public void disconnectedMemberLeavesForEveryoneElse() throws Exception {
+        int joined = 5;
+        for (int i = 0; i < joined; i++) {
+            ChannelHandlerContext ctx = users.get(i);
+            ctx.executor().submit(() -> manager.joinChannel("Chat", ctx, sessions.getUsername(ctx.channel()))).sync();
+            drain();
+        }
+        leaves.clear();
+
+        users.get(0).channel().close().sync();
+        drain();
+
+        assertEquals(Collections.nCopies(joined - 1, "user0"), new ArrayList<>(leaves));
+        ChatChannel chat = manager.getChannel("Chat");
+        assertEquals(joined - 1, inChannel(chat, () -> chat.getMembers().size()));
+    }
+
+    /**
+     * Note the username of an EID_LEAVE frame: [0xFF][id][length:2], then six dwords and the
+     * username.
+     */
+    private void recordLeave(ByteBuf frame) {
+        if (frame.getByte(1) == BncsPacketId.SID_CHATEVENT.getCode()
+                && frame.getIntLE(4) == ChatEventIds.EID_LEAVE.getId()) {
+            int start = 4 + 24;
+            int end = frame.indexOf(start, frame.writerIndex(), (byte) 0);
+            leaves.add(frame.toString(start, end - start, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private void storm(ChannelHandlerContext ctx) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < OPS_PER_USER; i++) {
+            int op = random.nextInt(10);
+            if (op < 5) {
+                manager.joinChannel(CHANNELS[random.nextInt(CHANNELS.length)], ctx, sessions.getUsername(ctx.channel()));
+            } else if (op < 7) {
+                manager.leaveChannel(ctx);
+            } else {
+                ChatChannel chan = manager.getChannel(sessions.session(ctx.channel()).getChannel());
+                if (chan != null) {
+                    chan.execute(() -> chan.broadcastChatEvent(ctx.channel(), ChatEventIds.EID_TALK.getId(), "hello"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until no chat task is queued anywhere. A task can queue follow-ups on other loops (a
+     * join removes the user from their old channel, or retries on a replacement for a channel
+     * that just closed), and such a chain can stay one step ahead of a sweep, so sweeps are spaced
+     * out and several consecutive ones must find every loop idle.
+     */
+    private void drain() throws Exception {
+        int idleSweeps = 0;
+        while (idleSweeps < 3) {
+            Thread.sleep(20);
+            boolean idle = true;
+            for (EventExecutor executor : group) {
+                SingleThreadEventExecutor loop = (SingleThreadEventExecutor) executor;
+                idle &= loop.submit(() -> loop.pendingTasks() == 0).get();
+            }
+            idleSweeps = idle ? idleSweeps + 1 : 0;
+        }
+    }
+
+    private static <T> T inChannel(ChatChannel chan, Callable<T> read) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        chan.execute(() -> {
+            try {
+                result.complete(read.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    private record Snapshot(List<Channel> members, Channel operator, int userCount) {
+    }
+}
@@ -0,0 +1,186 @@
+package org.bnemu.bncs.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.bnemu.bncs.net.packet.BncsPacket;
+import org.bnemu.bncs.net.packet.BncsPacketBuffer;
+import org.bnemu.bncs.net.packet.BncsPacketDecoder;
+import org.bnemu.bncs.net.packet.BncsPacketEncoder;
+import org.bnemu.bncs.net.packet.BncsPacketId;
+import org.bnemu.core.session.SessionManager;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.bnemu.core.net.LeakDetectionExtension.assertNoLeaks;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives packets through the real decoder/dispatcher/encoder path under paranoid leak detection.
+ * Every inbound packet must be released once its handler returns (even when the handler throws),
+ * and Netty must not report any leaked buffer.
+ */
+public class BncsDispatcherLeakTest {
+    private final List<BncsPacket> decoded = new ArrayList<>();
+    private EmbeddedChannel channel;
+    private CompletableFuture<Integer> pending;
+
+    @BeforeEach
+    public void setup() {
+        SessionManager sessions = new SessionManager();
+        BncsDispatcher dispatcher = new BncsDispatcher(null, sessions, true);
+        dispatcher.register(new NullHandler());
+        dispatcher.register(new PingHandler(sessions));
+        dispatcher.register(new GetChannelListHandler());
+        dispatcher.register(new BncsPacketHandler() {
+            @Override
+            BncsPacketId bncsPacketId() {
+                return BncsPacketId.SID_CHECKAD;
+            }
+
+            @Override
+            void handle(ChannelHandlerContext ctx, BncsPacket packet) {
+                throw new IllegalStateException("handler failure");
+            }
+        });
+        dispatcher.register(new BncsPacketHandler() {
+            @Override
+            BncsPacketId bncsPacketId() {
+                return BncsPacketId.SID_LOGONRESPONSE2;
+            }
+
+            @Override
+            void handle(ChannelHandlerContext ctx, BncsPacket packet) {
+                await(ctx, pending, status -> send(ctx, new BncsPacketBuffer(ctx.alloc()).writeDword(status)));
+            }
+        });
+        pending = new CompletableFuture<>();
+
+        decoded.clear();
+        channel = new EmbeddedChannel(
+            new BncsPacketDecoder(null),
+            new BncsPacketEncoder(),
+            new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    decoded.add((BncsPacket) msg);
+                    ctx.fireChannelRead(msg);
+                }
+            },
+            new SimpleChannelInboundHandler<BncsPacket>(false) {
+                @Override
+                protected void channelRead0(ChannelHandlerContext ctx, BncsPacket msg) {
+                    dispatcher.dispatch(ctx, msg);
+                }
+            });
+        channel.writeInbound(protocolByte());
+    }
+
+    @AfterEach
+    public void teardown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void handledPacketsAreReleased() {
+        channel.writeInbound(frame(0x00, new byte[0]));
+        channel.writeInbound(frame(0x25, new byte[] {1, 2, 3, 4}));
+
+        assertEquals(2, decoded.size());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void unhandledPacketsAreReleased() {
+        channel.writeInbound(frame(0x99, new byte[] {1, 2, 3, 4}));
+
+        assertEquals(1, decoded.size());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void packetsAreReleasedWhenHandlerThrows() {
+        assertThrows(IllegalStateException.class, () -> channel.writeInbound(frame(0x15, new byte[0])));
+
+        assertEquals(1, decoded.size());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void responsesAreFramedAndReleased() {
+        channel.writeInbound(frame(0x0B, new byte[] {1, 2, 3, 4}));
+
+        ByteBuf response = channel.readOutbound();
+        assertNotNull(response);
+        assertEquals((byte) 0xFF, response.getByte(0));
+        assertEquals((byte) 0x0B, response.getByte(1));
+        assertEquals(response.readableBytes(), response.getUnsignedShortLE(2));
+        assertTrue(response.release());
+
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void packetsWaitForAwaitedResultInOrder() {
+        channel.writeInbound(frame(0x3A, new byte[0]));
+        channel.writeInbound(frame(0x0B, new byte[] {1, 2, 3, 4}));
+
+        assertNull(channel.readOutbound(), "nothing may be sent before the awaited result");
+        assertEquals(1, decoded.get(1).refCnt(), "the later packet is held, not dropped");
+
+        pending.complete(0);
+        channel.runPendingTasks();
+
+        ByteBuf first = channel.readOutbound();
+        ByteBuf second = channel.readOutbound();
+        assertEquals((byte) 0x3A, first.getByte(1));
+        assertEquals((byte) 0x0B, second.getByte(1));
+        first.release();
+        second.release();
+
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void heldPacketsAreReleasedOnClose() {
+        channel.writeInbound(frame(0x3A, new byte[0]));
+        channel.writeInbound(frame(0x0B, new byte[] {1, 2, 3, 4}));
+
+        channel.close();
+        pending.complete(0);
+        channel.runPendingTasks();
+
+        assertNull(channel.readOutbound());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    private void assertAllReleased() {
+        for (BncsPacket packet : decoded) {
+            assertEquals(0, packet.refCnt(), "packet 0x" + String.format("%02X", packet.rawPacketId()) + " leaked");
+        }
+    }
+
+    private ByteBuf protocolByte() {
+        return PooledByteBufAllocator.DEFAULT.buffer(1).writeByte(0x01);
+    }
+
+    private ByteBuf frame(int id, byte[] payload) {
+        return PooledByteBufAllocator.DEFAULT.buffer(4 + payload.length)
+            .writeByte(0xFF)
+            .writeByte(id)
+            .writeShortLE(4 + payload.length)
+            .writeBytes(payload);
+    }
+}
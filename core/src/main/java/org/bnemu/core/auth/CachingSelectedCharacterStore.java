@@ -0,0 +1,108 @@
+package org.bnemu.core.auth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-through cache in front of another store, filled as well by selections D2CS pushes over
+ * the selection link ({@link #cache}). Reads are answered from memory when possible and only go
+ * to the backing store on a miss; entries expire on a timer.
+ *
+ * <p>Selections made while a link is down reach only the backing store, and a cached entry would
+ * hide them, so the whole cache is dropped ({@link #invalidateAll}) whenever a link connects or
+ * disconnects.
+ */
+public class CachingSelectedCharacterStore implements SelectedCharacterStore {
+    private static final class Entry {
+        final SelectedCharacter character;
+        volatile ScheduledFuture<?> expiry;
+
+        Entry(SelectedCharacter character) {
+            this.character = character;
+        }
+    }
+
+    private final SelectedCharacterStore delegate;
+    private final ScheduledExecutorService timer;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param timer runs the expiry of cached selections
+     */
+    public CachingSelectedCharacterStore(SelectedCharacterStore delegate, ScheduledExecutorService timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    /**
+     * Remember a selection made elsewhere, without writing it to the backing store.
+     */
+    public void cache(SelectedCharacter character) {
+        String key = character.accountName().toLowerCase();
+        Entry entry = new Entry(character);
+        Entry previous = entries.put(key, entry);
+        if (previous != null && previous.expiry != null) {
+            previous.expiry.cancel(false);
+        }
+        // Removes only this entry, never a later selection that replaced it
+        entry.expiry = timer.schedule(() -> entries.remove(key, entry), SELECTION_TTL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forget every cached selection, leaving the backing store as it is.
+     */
+    public void invalidateAll() {
+        for (Entry entry : entries.values()) {
+            if (entry.expiry != null) {
+                entry.expiry.cancel(false);
+            }
+        }
+        entries.clear();
+    }
+
+    @Override
+    public void setSelectedCharacter(String accountName, String realmName, String characterName,
+                                     String charClass, int level, boolean expansion,
+                                     boolean hardcore, boolean ladder) {
+        cache(new SelectedCharacter(accountName.toLowerCase(), realmName, characterName, charClass,
+            level, expansion, hardcore, ladder));
+        delegate.setSelectedCharacter(accountName, realmName, characterName, charClass, level, expansion, hardcore, ladder);
+    }
+
+    @Override
+    public CompletionStage<Void> setSelectedCharacterAsync(String accountName, String realmName, String characterName,
+                                                           String charClass, int level, boolean expansion,
+                                                           boolean hardcore, boolean ladder) {
+        cache(new SelectedCharacter(accountName.toLowerCase(), realmName, characterName, charClass,
+            level, expansion, hardcore, ladder));
+        return delegate.setSelectedCharacterAsync(accountName, realmName, characterName, charClass,
+            level, expansion, hardcore, ladder);
+    }
+
+    @Override
+    public SelectedCharacter getSelectedCharacter(String accountName) {
+        Entry entry = entries.get(accountName.toLowerCase());
+        return entry != null ? entry.character : delegate.getSelectedCharacter(accountName);
+    }
+
+    @Override
+    public CompletionStage<SelectedCharacter> getSelectedCharacterAsync(String accountName) {
+        Entry entry = entries.get(accountName.toLowerCase());
+        return entry != null
+            ? CompletableFuture.completedFuture(entry.character)
+            : delegate.getSelectedCharacterAsync(accountName);
+    }
+
+    @Override
+    public void clearSelectedCharacter(String accountName) {
+        Entry entry = entries.remove(accountName.toLowerCase());
+        if (entry != null && entry.expiry != null) {
+            entry.expiry.cancel(false);
+        }
+        delegate.clearSelectedCharacter(accountName);
+    }
+}
@@ -0,0 +1,65 @@
+package org.bnemu.core.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Realm tokens kept in memory, for when BNCS and D2CS run in the same process.
+ */
+public class InMemoryRealmTokenStore implements RealmTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryRealmTokenStore.class);
+
+    private final ConcurrentHashMap<Integer, RealmToken> tokens = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    @Override
+    public RealmToken createToken(String accountName, int clientToken, int serverToken) {
+        sweep();
+
+        RealmToken token;
+        do {
+            token = new RealmToken(random.nextInt() & 0x7FFFFFFF, accountName, clientToken, serverToken);
+        } while (tokens.putIfAbsent(token.getCookie(), token) != null);
+
+        logger.debug("Created realm token: cookie={}, account={}", token.getCookie(), accountName);
+        return token;
+    }
+
+    @Override
+    public CompletionStage<RealmToken> createTokenAsync(String accountName, int clientToken, int serverToken) {
+        return CompletableFuture.completedFuture(createToken(accountName, clientToken, serverToken));
+    }
+
+    @Override
+    public RealmToken validateAndConsume(RealmToken presented) {
+        RealmToken token = tokens.remove(presented.getCookie());
+        if (token == null || token.isExpired()) {
+            logger.debug("Token not found for cookie: {}", presented.getCookie());
+            return null;
+        }
+        return token;
+    }
+
+    @Override
+    public CompletionStage<RealmToken> validateAndConsumeAsync(RealmToken presented) {
+        return CompletableFuture.completedFuture(validateAndConsume(presented));
+    }
+
+    /**
+     * Drop tokens that were never claimed; at most once a minute.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        long due = nextSweep.get();
+        if (now >= due && nextSweep.compareAndSet(due, now + 60_000)) {
+            tokens.values().removeIf(RealmToken::isExpired);
+        }
+    }
+}
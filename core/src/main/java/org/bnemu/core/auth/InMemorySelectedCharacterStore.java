@@ -0,0 +1,57 @@
+package org.bnemu.core.auth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Selected characters kept in memory, for when BNCS and D2CS run in the same process.
+ */
+public class InMemorySelectedCharacterStore implements SelectedCharacterStore {
+    private record Selection(SelectedCharacter character, long selectedAt) {
+    }
+
+    private final ConcurrentHashMap<String, Selection> selections = new ConcurrentHashMap<>();
+
+    @Override
+    public void setSelectedCharacter(String accountName, String realmName, String characterName,
+                                     String charClass, int level, boolean expansion,
+                                     boolean hardcore, boolean ladder) {
+        String key = accountName.toLowerCase();
+        selections.put(key, new Selection(
+            new SelectedCharacter(key, realmName, characterName, charClass, level, expansion, hardcore, ladder),
+            System.currentTimeMillis()));
+    }
+
+    @Override
+    public CompletionStage<Void> setSelectedCharacterAsync(String accountName, String realmName, String characterName,
+                                                           String charClass, int level, boolean expansion,
+                                                           boolean hardcore, boolean ladder) {
+        setSelectedCharacter(accountName, realmName, characterName, charClass, level, expansion, hardcore, ladder);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public SelectedCharacter getSelectedCharacter(String accountName) {
+        String key = accountName.toLowerCase();
+        Selection selection = selections.get(key);
+        if (selection == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - selection.selectedAt() > SELECTION_TTL_MILLIS) {
+            selections.remove(key, selection);
+            return null;
+        }
+        return selection.character();
+    }
+
+    @Override
+    public CompletionStage<SelectedCharacter> getSelectedCharacterAsync(String accountName) {
+        return CompletableFuture.completedFuture(getSelectedCharacter(accountName));
+    }
+
+    @Override
+    public void clearSelectedCharacter(String accountName) {
+        selections.remove(accountName.toLowerCase());
+    }
+}
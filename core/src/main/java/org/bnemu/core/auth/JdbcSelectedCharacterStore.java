@@ -0,0 +1,136 @@
+package org.bnemu.core.auth;
+
+import org.bnemu.core.dao.DaoExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Stores selected realm character info for sharing between D2CS and BNCS, in a MariaDB/MySQL
+ * table.
+ */
+public class JdbcSelectedCharacterStore implements SelectedCharacterStore {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcSelectedCharacterStore.class);
+
+    private static final String UPSERT =
+        "INSERT INTO selected_characters (account_name, realm_name, character_name, char_class, level,"
+            + " expansion, hardcore, ladder, selected_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE realm_name = VALUES(realm_name), character_name = VALUES(character_name),"
+            + " char_class = VALUES(char_class), level = VALUES(level), expansion = VALUES(expansion),"
+            + " hardcore = VALUES(hardcore), ladder = VALUES(ladder), selected_at = VALUES(selected_at)";
+    private static final String SELECT =
+        "SELECT account_name, realm_name, character_name, char_class, level, expansion, hardcore, ladder,"
+            + " selected_at FROM selected_characters WHERE account_name = ?";
+    private static final String DELETE = "DELETE FROM selected_characters WHERE account_name = ?";
+
+    private final DataSource dataSource;
+    private final DaoExecutor executor;
+
+    /**
+     * @param executor runs the async variants off the caller's thread
+     */
+    public JdbcSelectedCharacterStore(DataSource dataSource, DaoExecutor executor) {
+        this.dataSource = dataSource;
+        this.executor = executor;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS selected_characters ("
+                + "account_name VARCHAR(32) NOT NULL PRIMARY KEY,"
+                + " realm_name VARCHAR(32),"
+                + " character_name VARCHAR(16) NOT NULL,"
+                + " char_class VARCHAR(16),"
+                + " level INT NOT NULL,"
+                + " expansion BOOLEAN NOT NULL,"
+                + " hardcore BOOLEAN NOT NULL,"
+                + " ladder BOOLEAN NOT NULL,"
+                + " selected_at BIGINT NOT NULL)");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create the selected_characters table", e);
+        }
+    }
+
+    @Override
+    public void setSelectedCharacter(String accountName, String realmName, String characterName,
+                                     String charClass, int level, boolean expansion,
+                                     boolean hardcore, boolean ladder) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+            statement.setString(1, accountName.toLowerCase());
+            statement.setString(2, realmName);
+            statement.setString(3, characterName);
+            statement.setString(4, charClass);
+            statement.setInt(5, level);
+            statement.setBoolean(6, expansion);
+            statement.setBoolean(7, hardcore);
+            statement.setBoolean(8, ladder);
+            statement.setLong(9, System.currentTimeMillis());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to store selected character for " + accountName, e);
+        }
+
+        logger.debug("Stored selected character: account={}, char={}, realm={}",
+            accountName, characterName, realmName);
+    }
+
+    @Override
+    public CompletionStage<Void> setSelectedCharacterAsync(String accountName, String realmName, String characterName,
+                                                           String charClass, int level, boolean expansion,
+                                                           boolean hardcore, boolean ladder) {
+        return executor.run(() -> setSelectedCharacter(accountName, realmName, characterName,
+            charClass, level, expansion, hardcore, ladder));
+    }
+
+    @Override
+    public SelectedCharacter getSelectedCharacter(String accountName) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            statement.setString(1, accountName.toLowerCase());
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return null;
+                }
+                // Check if selection is recent (within 5 minutes)
+                if (System.currentTimeMillis() - row.getLong("selected_at") > SELECTION_TTL_MILLIS) {
+                    clearSelectedCharacter(accountName);
+                    return null;
+                }
+                return new SelectedCharacter(
+                    row.getString("account_name"),
+                    row.getString("realm_name"),
+                    row.getString("character_name"),
+                    row.getString("char_class"),
+                    row.getInt("level"),
+                    row.getBoolean("expansion"),
+                    row.getBoolean("hardcore"),
+                    row.getBoolean("ladder")
+                );
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read selected character for " + accountName, e);
+        }
+    }
+
+    @Override
+    public CompletionStage<SelectedCharacter> getSelectedCharacterAsync(String accountName) {
+        return executor.supply(() -> getSelectedCharacter(accountName));
+    }
+
+    @Override
+    public void clearSelectedCharacter(String accountName) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE)) {
+            statement.setString(1, accountName.toLowerCase());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to clear selected character for " + accountName, e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.bnemu.core.auth;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MongoDB-backed store for realm authentication tokens.
+ * Shared between BNCS (creates tokens) and D2CS (validates tokens).
+ */
+public class MongoRealmTokenStore implements RealmTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(MongoRealmTokenStore.class);
+    private static final String COLLECTION_NAME = "realm_tokens";
+    private static final long TOKEN_TTL_SECONDS = 300; // 5 minutes
+
+    private final MongoCollection<Document> tokens;
+    private final DaoExecutor executor;
+    private final Random random = new Random();
+
+    /**
+     * @param executor runs the async variants off the caller's thread
+     */
+    public MongoRealmTokenStore(MongoDatabase db, DaoExecutor executor) {
+        this.tokens = db.getCollection(COLLECTION_NAME);
+        this.executor = executor;
+        // Create TTL index for automatic expiration
+        try {
+            tokens.createIndex(
+                Indexes.ascending("createdAt"),
+                new IndexOptions().expireAfter(TOKEN_TTL_SECONDS, TimeUnit.SECONDS)
+            );
+        } catch (Exception e) {
+            logger.debug("TTL index may already exist: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public RealmToken createToken(String accountName, int clientToken, int serverToken) {
+        int cookie = random.nextInt() & 0x7FFFFFFF;
+
+        Document doc = new Document()
+            .append("cookie", cookie)
+            .append("accountName", accountName)
+            .append("clientToken", clientToken)
+            .append("serverToken", serverToken)
+            .append("createdAt", new Date());
+
+        tokens.insertOne(doc);
+        logger.debug("Created realm token: cookie={}, account={}", cookie, accountName);
+
+        return new RealmToken(cookie, accountName, clientToken, serverToken);
+    }
+
+    @Override
+    public CompletionStage<RealmToken> createTokenAsync(String accountName, int clientToken, int serverToken) {
+        return executor.supply(() -> createToken(accountName, clientToken, serverToken));
+    }
+
+    /**
+     * Looks the token up by cookie and deletes it. The caller compares the client and server tokens.
+     */
+    @Override
+    public RealmToken validateAndConsume(RealmToken presented) {
+        int cookie = presented.getCookie();
+        Document doc = tokens.findOneAndDelete(Filters.eq("cookie", cookie));
+        if (doc == null) {
+            logger.debug("Token not found for cookie: {}", cookie);
+            return null;
+        }
+
+        String accountName = doc.getString("accountName");
+        int clientToken = doc.getInteger("clientToken");
+        int serverToken = doc.getInteger("serverToken");
+        Date createdAt = doc.getDate("createdAt");
+
+        logger.debug("Validated and consumed token: cookie={}, account={}", cookie, accountName);
+        return new RealmToken(cookie, accountName, clientToken, serverToken, createdAt.getTime());
+    }
+
+    @Override
+    public CompletionStage<RealmToken> validateAndConsumeAsync(RealmToken presented) {
+        return executor.supply(() -> validateAndConsume(presented));
+    }
+
+    /**
+     * Get token without consuming it (for verification).
+     */
+    public RealmToken get(int cookie) {
+        Document doc = tokens.find(Filters.eq("cookie", cookie)).first();
+        if (doc == null) {
+            return null;
+        }
+
+        String accountName = doc.getString("accountName");
+        int clientToken = doc.getInteger("clientToken");
+        int serverToken = doc.getInteger("serverToken");
+        Date createdAt = doc.getDate("createdAt");
+
+        return new RealmToken(cookie, accountName, clientToken, serverToken, createdAt.getTime());
+    }
+}
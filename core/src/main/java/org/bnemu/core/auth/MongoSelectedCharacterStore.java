@@ -0,0 +1,102 @@
+package org.bnemu.core.auth;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Stores selected realm character info for sharing between D2CS and BNCS.
+ * Uses MongoDB for cross-process persistence.
+ */
+public class MongoSelectedCharacterStore implements SelectedCharacterStore {
+    private static final Logger logger = LoggerFactory.getLogger(MongoSelectedCharacterStore.class);
+    private static final String COLLECTION_NAME = "selected_characters";
+
+    private final MongoCollection<Document> collection;
+    private final DaoExecutor executor;
+
+    /**
+     * @param executor runs the async variants off the caller's thread
+     */
+    public MongoSelectedCharacterStore(MongoDatabase db, DaoExecutor executor) {
+        this.collection = db.getCollection(COLLECTION_NAME);
+        this.executor = executor;
+    }
+
+    @Override
+    public void setSelectedCharacter(String accountName, String realmName, String characterName,
+                                     String charClass, int level, boolean expansion,
+                                     boolean hardcore, boolean ladder) {
+        Document doc = new Document()
+            .append("accountName", accountName.toLowerCase())
+            .append("realmName", realmName)
+            .append("characterName", characterName)
+            .append("charClass", charClass)
+            .append("level", level)
+            .append("expansion", expansion)
+            .append("hardcore", hardcore)
+            .append("ladder", ladder)
+            .append("selectedAt", System.currentTimeMillis());
+
+        collection.replaceOne(
+            Filters.eq("accountName", accountName.toLowerCase()),
+            doc,
+            new ReplaceOptions().upsert(true)
+        );
+
+        logger.debug("Stored selected character: account={}, char={}, realm={}",
+            accountName, characterName, realmName);
+    }
+
+    @Override
+    public CompletionStage<Void> setSelectedCharacterAsync(String accountName, String realmName, String characterName,
+                                                           String charClass, int level, boolean expansion,
+                                                           boolean hardcore, boolean ladder) {
+        return executor.run(() -> setSelectedCharacter(accountName, realmName, characterName,
+            charClass, level, expansion, hardcore, ladder));
+    }
+
+    @Override
+    public SelectedCharacter getSelectedCharacter(String accountName) {
+        Document doc = collection.find(Filters.eq("accountName", accountName.toLowerCase())).first();
+        if (doc == null) {
+            return null;
+        }
+
+        // Check if selection is recent (within 5 minutes)
+        long selectedAt = doc.getLong("selectedAt");
+        if (System.currentTimeMillis() - selectedAt > SELECTION_TTL_MILLIS) {
+            // Selection expired, remove it
+            collection.deleteOne(Filters.eq("accountName", accountName.toLowerCase()));
+            return null;
+        }
+
+        return new SelectedCharacter(
+            doc.getString("accountName"),
+            doc.getString("realmName"),
+            doc.getString("characterName"),
+            doc.getString("charClass"),
+            doc.getInteger("level", 1),
+            doc.getBoolean("expansion", false),
+            doc.getBoolean("hardcore", false),
+            doc.getBoolean("ladder", false)
+        );
+    }
+
+    @Override
+    public CompletionStage<SelectedCharacter> getSelectedCharacterAsync(String accountName) {
+        return executor.supply(() -> getSelectedCharacter(accountName));
+    }
+
+    @Override
+    public void clearSelectedCharacter(String accountName) {
+        collection.deleteOne(Filters.eq("accountName", accountName.toLowerCase()));
+    }
+}
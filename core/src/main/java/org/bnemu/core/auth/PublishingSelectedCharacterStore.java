@@ -0,0 +1,52 @@
+package org.bnemu.core.auth;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Passes every new selection to {@code publisher} (the selection link to BNCS) before writing it
+ * to the backing store, so BNCS usually has it in memory before the client enters chat.
+ */
+public class PublishingSelectedCharacterStore implements SelectedCharacterStore {
+    private final SelectedCharacterStore delegate;
+    private final Consumer<SelectedCharacter> publisher;
+
+    public PublishingSelectedCharacterStore(SelectedCharacterStore delegate, Consumer<SelectedCharacter> publisher) {
+        this.delegate = delegate;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void setSelectedCharacter(String accountName, String realmName, String characterName,
+                                     String charClass, int level, boolean expansion,
+                                     boolean hardcore, boolean ladder) {
+        publisher.accept(new SelectedCharacter(accountName.toLowerCase(), realmName, characterName, charClass,
+            level, expansion, hardcore, ladder));
+        delegate.setSelectedCharacter(accountName, realmName, characterName, charClass, level, expansion, hardcore, ladder);
+    }
+
+    @Override
+    public CompletionStage<Void> setSelectedCharacterAsync(String accountName, String realmName, String characterName,
+                                                           String charClass, int level, boolean expansion,
+                                                           boolean hardcore, boolean ladder) {
+        publisher.accept(new SelectedCharacter(accountName.toLowerCase(), realmName, characterName, charClass,
+            level, expansion, hardcore, ladder));
+        return delegate.setSelectedCharacterAsync(accountName, realmName, characterName, charClass,
+            level, expansion, hardcore, ladder);
+    }
+
+    @Override
+    public SelectedCharacter getSelectedCharacter(String accountName) {
+        return delegate.getSelectedCharacter(accountName);
+    }
+
+    @Override
+    public CompletionStage<SelectedCharacter> getSelectedCharacterAsync(String accountName) {
+        return delegate.getSelectedCharacterAsync(accountName);
+    }
+
+    @Override
+    public void clearSelectedCharacter(String accountName) {
+        delegate.clearSelectedCharacter(accountName);
+    }
+}
@@ -6,22 +6,34 @@ package org.bnemu.core.auth;
  * validated by D2CS when client connects.
  */
 public class RealmToken {
+    /**
+     * Size of MCP chunk 2, which the client echoes back to D2CS unchanged.
+     */
+    public static final int AUTH_DATA_LENGTH = 48;
+
     private final int cookie;
     private final String accountName;
     private final long createdAt;
     private final int clientToken;
     private final int serverToken;
+    private final byte[] authData;
 
     public RealmToken(int cookie, String accountName, int clientToken, int serverToken) {
         this(cookie, accountName, clientToken, serverToken, System.currentTimeMillis());
     }
 
     public RealmToken(int cookie, String accountName, int clientToken, int serverToken, long createdAt) {
+        this(cookie, accountName, clientToken, serverToken, createdAt, new byte[AUTH_DATA_LENGTH]);
+    }
+
+    public RealmToken(int cookie, String accountName, int clientToken, int serverToken, long createdAt,
+                      byte[] authData) {
         this.cookie = cookie;
         this.accountName = accountName;
         this.clientToken = clientToken;
         this.serverToken = serverToken;
         this.createdAt = createdAt;
+        this.authData = authData;
     }
 
     public int getCookie() {
@@ -44,6 +56,14 @@ public class RealmToken {
         return serverToken;
     }
 
+    /**
+     * MCP chunk 2 ({@value #AUTH_DATA_LENGTH} bytes): zeros for stored tokens, the signature for
+     * signed ones.
+     */
+    public byte[] getAuthData() {
+        return authData;
+    }
+
     public boolean isExpired() {
         // Tokens expire after 5 minutes
         return System.currentTimeMillis() - createdAt > 5 * 60 * 1000;
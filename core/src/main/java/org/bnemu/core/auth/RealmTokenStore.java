@@ -1,109 +1,44 @@
 package org.bnemu.core.auth;
 
-import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.IndexOptions;
-import com.mongodb.client.model.Indexes;
-import org.bson.Document;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.bnemu.core.config.RealmConfig;
+import org.bnemu.core.dao.DaoExecutor;
 
-import java.util.Date;
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionStage;
 
 /**
- * MongoDB-backed store for realm authentication tokens.
- * Shared between BNCS (creates tokens) and D2CS (validates tokens).
+ * Issues realm tokens on BNCS (SID_LOGONREALMEX) and checks them on D2CS (MCP_STARTUP).
  */
-public class RealmTokenStore {
-    private static final Logger logger = LoggerFactory.getLogger(RealmTokenStore.class);
-    private static final String COLLECTION_NAME = "realm_tokens";
-    private static final long TOKEN_TTL_SECONDS = 300; // 5 minutes
-
-    private static RealmTokenStore INSTANCE;
-    private final MongoCollection<Document> tokens;
-    private final Random random = new Random();
-
-    private RealmTokenStore(MongoDatabase db) {
-        this.tokens = db.getCollection(COLLECTION_NAME);
-        // Create TTL index for automatic expiration
-        try {
-            tokens.createIndex(
-                Indexes.ascending("createdAt"),
-                new IndexOptions().expireAfter(TOKEN_TTL_SECONDS, TimeUnit.SECONDS)
-            );
-        } catch (Exception e) {
-            logger.debug("TTL index may already exist: {}", e.getMessage());
-        }
-    }
-
-    public static synchronized void initialize(MongoDatabase db) {
-        if (INSTANCE == null) {
-            INSTANCE = new RealmTokenStore(db);
-        }
-    }
-
-    public static RealmTokenStore getInstance() {
-        if (INSTANCE == null) {
-            throw new IllegalStateException("RealmTokenStore not initialized. Call initialize() first.");
-        }
-        return INSTANCE;
-    }
-
+public interface RealmTokenStore {
     /**
      * Generate a new realm token for the given account.
      */
-    public RealmToken createToken(String accountName, int clientToken, int serverToken) {
-        int cookie = random.nextInt() & 0x7FFFFFFF;
-
-        Document doc = new Document()
-            .append("cookie", cookie)
-            .append("accountName", accountName)
-            .append("clientToken", clientToken)
-            .append("serverToken", serverToken)
-            .append("createdAt", new Date());
-
-        tokens.insertOne(doc);
-        logger.debug("Created realm token: cookie={}, account={}", cookie, accountName);
-
-        return new RealmToken(cookie, accountName, clientToken, serverToken);
-    }
+    RealmToken createToken(String accountName, int clientToken, int serverToken);
 
     /**
-     * Validate and consume a token. Returns null if invalid or expired.
+     * {@link #createToken} without blocking the caller.
      */
-    public RealmToken validateAndConsume(int cookie) {
-        Document doc = tokens.findOneAndDelete(Filters.eq("cookie", cookie));
-        if (doc == null) {
-            logger.debug("Token not found for cookie: {}", cookie);
-            return null;
-        }
-
-        String accountName = doc.getString("accountName");
-        int clientToken = doc.getInteger("clientToken");
-        int serverToken = doc.getInteger("serverToken");
-        Date createdAt = doc.getDate("createdAt");
-
-        logger.debug("Validated and consumed token: cookie={}, account={}", cookie, accountName);
-        return new RealmToken(cookie, accountName, clientToken, serverToken, createdAt.getTime());
-    }
+    CompletionStage<RealmToken> createTokenAsync(String accountName, int clientToken, int serverToken);
 
     /**
-     * Get token without consuming it (for verification).
+     * Validate and consume the token a client presented (cookie, unique name, chunk 1 and
+     * chunk 2 as received). Returns the issued token, or null if invalid, expired or already used.
      */
-    public RealmToken get(int cookie) {
-        Document doc = tokens.find(Filters.eq("cookie", cookie)).first();
-        if (doc == null) {
-            return null;
-        }
+    RealmToken validateAndConsume(RealmToken presented);
 
-        String accountName = doc.getString("accountName");
-        int clientToken = doc.getInteger("clientToken");
-        int serverToken = doc.getInteger("serverToken");
-        Date createdAt = doc.getDate("createdAt");
+    /**
+     * {@link #validateAndConsume} without blocking the caller.
+     */
+    CompletionStage<RealmToken> validateAndConsumeAsync(RealmToken presented);
 
-        return new RealmToken(cookie, accountName, clientToken, serverToken, createdAt.getTime());
+    /**
+     * The store selected by {@link RealmConfig#getTokenMode()}.
+     */
+    static RealmTokenStore create(RealmConfig config, MongoDatabase db, DaoExecutor executor) {
+        return switch (config.getTokenMode()) {
+            case "mongo" -> new MongoRealmTokenStore(db, executor);
+            case "signed" -> new SignedRealmTokenStore(config.getTokenSecret());
+            default -> throw new IllegalArgumentException("Unknown realm token mode: " + config.getTokenMode());
+        };
     }
 }
@@ -1,105 +1,45 @@
 package org.bnemu.core.auth;
 
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.ReplaceOptions;
-import org.bson.Document;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.CompletionStage;
 
 /**
- * Stores selected realm character info for sharing between D2CS and BNCS.
- * Uses MongoDB for cross-process persistence.
+ * The realm character a D2 client picked on D2CS, for BNCS to show when the client enters chat.
  */
-public class SelectedCharacterStore {
-    private static final Logger logger = LoggerFactory.getLogger(SelectedCharacterStore.class);
-    private static final String COLLECTION_NAME = "selected_characters";
-
-    private static SelectedCharacterStore INSTANCE;
-
-    private final MongoCollection<Document> collection;
-
-    private SelectedCharacterStore(MongoDatabase db) {
-        this.collection = db.getCollection(COLLECTION_NAME);
-    }
-
-    public static synchronized void initialize(MongoDatabase db) {
-        if (INSTANCE == null) {
-            INSTANCE = new SelectedCharacterStore(db);
-        }
-    }
-
-    public static SelectedCharacterStore getInstance() {
-        if (INSTANCE == null) {
-            throw new IllegalStateException("SelectedCharacterStore not initialized. Call initialize() first.");
-        }
-        return INSTANCE;
-    }
+public interface SelectedCharacterStore {
+    /**
+     * How long a selection stays valid.
+     */
+    long SELECTION_TTL_MILLIS = 5 * 60 * 1000;
 
     /**
      * Store the selected character for an account.
      */
-    public void setSelectedCharacter(String accountName, String realmName, String characterName,
-                                     String charClass, int level, boolean expansion,
-                                     boolean hardcore, boolean ladder) {
-        Document doc = new Document()
-            .append("accountName", accountName.toLowerCase())
-            .append("realmName", realmName)
-            .append("characterName", characterName)
-            .append("charClass", charClass)
-            .append("level", level)
-            .append("expansion", expansion)
-            .append("hardcore", hardcore)
-            .append("ladder", ladder)
-            .append("selectedAt", System.currentTimeMillis());
-
-        collection.replaceOne(
-            Filters.eq("accountName", accountName.toLowerCase()),
-            doc,
-            new ReplaceOptions().upsert(true)
-        );
-
-        logger.debug("Stored selected character: account={}, char={}, realm={}",
-            accountName, characterName, realmName);
-    }
+    void setSelectedCharacter(String accountName, String realmName, String characterName,
+                              String charClass, int level, boolean expansion,
+                              boolean hardcore, boolean ladder);
+
+    /**
+     * {@link #setSelectedCharacter} without blocking the caller.
+     */
+    CompletionStage<Void> setSelectedCharacterAsync(String accountName, String realmName, String characterName,
+                                                    String charClass, int level, boolean expansion,
+                                                    boolean hardcore, boolean ladder);
 
     /**
      * Get the selected character for an account.
      * @return SelectedCharacter or null if none selected
      */
-    public SelectedCharacter getSelectedCharacter(String accountName) {
-        Document doc = collection.find(Filters.eq("accountName", accountName.toLowerCase())).first();
-        if (doc == null) {
-            return null;
-        }
+    SelectedCharacter getSelectedCharacter(String accountName);
 
-        // Check if selection is recent (within 5 minutes)
-        long selectedAt = doc.getLong("selectedAt");
-        if (System.currentTimeMillis() - selectedAt > 5 * 60 * 1000) {
-            // Selection expired, remove it
-            collection.deleteOne(Filters.eq("accountName", accountName.toLowerCase()));
-            return null;
-        }
-
-        return new SelectedCharacter(
-            doc.getString("accountName"),
-            doc.getString("realmName"),
-            doc.getString("characterName"),
-            doc.getString("charClass"),
-            doc.getInteger("level", 1),
-            doc.getBoolean("expansion", false),
-            doc.getBoolean("hardcore", false),
-            doc.getBoolean("ladder", false)
-        );
-    }
+    /**
+     * {@link #getSelectedCharacter} without blocking the caller.
+     */
+    CompletionStage<SelectedCharacter> getSelectedCharacterAsync(String accountName);
 
     /**
      * Clear the selected character for an account.
      */
-    public void clearSelectedCharacter(String accountName) {
-        collection.deleteOne(Filters.eq("accountName", accountName.toLowerCase()));
-    }
+    void clearSelectedCharacter(String accountName);
 
     /**
      * Record class for selected character info.
@@ -0,0 +1,143 @@
+package org.bnemu.core.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Stateless realm tokens: BNCS signs the handoff and D2CS checks it locally, so no database call
+ * sits on the realm login path.
+ *
+ * <p>MCP chunk 2, which the client echoes back unchanged, carries the issue time and an
+ * HMAC-SHA256 over the cookie, unique name, client and server tokens and issue time, keyed with
+ * {@code realm.tokenSecret} (which BNCS and D2CS must share). Each token is accepted once: D2CS
+ * remembers the signatures it has seen until they expire. That replay window is per process, so
+ * with several D2CS instances behind one address a token could be used once on each.
+ */
+public class SignedRealmTokenStore implements RealmTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(SignedRealmTokenStore.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final long TOKEN_TTL_SECONDS = 300; // 5 minutes, as for stored tokens
+    private static final long CLOCK_SKEW_SECONDS = 30;
+    private static final int MAC_LENGTH = 32;
+
+    private final SecretKeySpec key;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<Long, Long> used = new ConcurrentHashMap<>(); // signature prefix -> expiry
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    public SignedRealmTokenStore(String secret) {
+        this(secret, System::currentTimeMillis);
+    }
+
+    SignedRealmTokenStore(String secret, LongSupplier clock) {
+        if (secret == null || secret.length() < 16) {
+            throw new IllegalArgumentException(
+                "realm.tokenSecret must be at least 16 characters for signed realm tokens");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.clock = clock;
+    }
+
+    @Override
+    public RealmToken createToken(String accountName, int clientToken, int serverToken) {
+        int cookie = random.nextInt() & 0x7FFFFFFF;
+        int issuedAt = (int) (clock.getAsLong() / 1000);
+
+        byte[] authData = ByteBuffer.allocate(RealmToken.AUTH_DATA_LENGTH).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(issuedAt)
+            .put(sign(cookie, accountName, clientToken, serverToken, issuedAt))
+            .array();
+
+        logger.debug("Signed realm token: cookie={}, account={}", cookie, accountName);
+        return new RealmToken(cookie, accountName, clientToken, serverToken, issuedAt * 1000L, authData);
+    }
+
+    @Override
+    public CompletionStage<RealmToken> createTokenAsync(String accountName, int clientToken, int serverToken) {
+        return CompletableFuture.completedFuture(createToken(accountName, clientToken, serverToken));
+    }
+
+    @Override
+    public RealmToken validateAndConsume(RealmToken presented) {
+        byte[] authData = presented.getAuthData();
+        if (authData == null || authData.length != RealmToken.AUTH_DATA_LENGTH || presented.getAccountName() == null) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.wrap(authData).order(ByteOrder.LITTLE_ENDIAN);
+        int issuedAt = data.getInt();
+        byte[] mac = new byte[MAC_LENGTH];
+        data.get(mac);
+
+        byte[] expected = sign(presented.getCookie(), presented.getAccountName(),
+            presented.getClientToken(), presented.getServerToken(), issuedAt);
+        if (!MessageDigest.isEqual(expected, mac)) {
+            logger.debug("Bad realm token signature for cookie {}", presented.getCookie());
+            return null;
+        }
+
+        long now = clock.getAsLong() / 1000;
+        long age = now - Integer.toUnsignedLong(issuedAt);
+        if (age > TOKEN_TTL_SECONDS || age < -CLOCK_SKEW_SECONDS) {
+            logger.debug("Expired realm token for cookie {} (age {}s)", presented.getCookie(), age);
+            return null;
+        }
+
+        sweep(now);
+        long id = ByteBuffer.wrap(mac).getLong();
+        if (used.putIfAbsent(id, Integer.toUnsignedLong(issuedAt) + TOKEN_TTL_SECONDS) != null) {
+            logger.warn("Replayed realm token for cookie {}", presented.getCookie());
+            return null;
+        }
+
+        return new RealmToken(presented.getCookie(), presented.getAccountName(), presented.getClientToken(),
+            presented.getServerToken(), Integer.toUnsignedLong(issuedAt) * 1000L, authData);
+    }
+
+    @Override
+    public CompletionStage<RealmToken> validateAndConsumeAsync(RealmToken presented) {
+        return CompletableFuture.completedFuture(validateAndConsume(presented));
+    }
+
+    /**
+     * Forget used tokens once they would have expired anyway; at most once a minute.
+     */
+    private void sweep(long now) {
+        long due = nextSweep.get();
+        if (now < due || !nextSweep.compareAndSet(due, now + 60)) {
+            return;
+        }
+        used.values().removeIf(expiry -> expiry < now);
+    }
+
+    private byte[] sign(int cookie, String accountName, int clientToken, int serverToken, int issuedAt) {
+        byte[] name = accountName.getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer input = ByteBuffer.allocate(16 + name.length).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(cookie)
+            .putInt(clientToken)
+            .putInt(serverToken)
+            .putInt(issuedAt)
+            .put(name);
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(input.array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
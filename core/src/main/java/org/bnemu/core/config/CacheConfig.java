@@ -0,0 +1,65 @@
+package org.bnemu.core.config;
+
+/**
+ * In-process caches in front of the database.
+ */
+public class CacheConfig {
+    /**
+     * Accounts kept by the read-through account cache; 0 disables it.
+     */
+    private int accountMaxSize = 10_000;
+    private int accountTtlSeconds = 300;
+
+    /**
+     * How long a lookup for a nonexistent account is remembered. Kept short so an account created
+     * by another server process becomes visible quickly.
+     */
+    private int accountNegativeTtlSeconds = 30;
+
+    /**
+     * Accounts whose characters D2CS keeps in memory. Changes made through another D2CS instance
+     * become visible after at most the TTL.
+     */
+    private int characterAccountsMaxSize = 10_000;
+    private int characterTtlSeconds = 300;
+
+    public int getAccountMaxSize() {
+        return accountMaxSize;
+    }
+
+    public void setAccountMaxSize(int accountMaxSize) {
+        this.accountMaxSize = accountMaxSize;
+    }
+
+    public int getAccountTtlSeconds() {
+        return accountTtlSeconds;
+    }
+
+    public void setAccountTtlSeconds(int accountTtlSeconds) {
+        this.accountTtlSeconds = accountTtlSeconds;
+    }
+
+    public int getAccountNegativeTtlSeconds() {
+        return accountNegativeTtlSeconds;
+    }
+
+    public void setAccountNegativeTtlSeconds(int accountNegativeTtlSeconds) {
+        this.accountNegativeTtlSeconds = accountNegativeTtlSeconds;
+    }
+
+    public int getCharacterAccountsMaxSize() {
+        return characterAccountsMaxSize;
+    }
+
+    public void setCharacterAccountsMaxSize(int characterAccountsMaxSize) {
+        this.characterAccountsMaxSize = characterAccountsMaxSize;
+    }
+
+    public int getCharacterTtlSeconds() {
+        return characterTtlSeconds;
+    }
+
+    public void setCharacterTtlSeconds(int characterTtlSeconds) {
+        this.characterTtlSeconds = characterTtlSeconds;
+    }
+}
@@ -5,6 +5,8 @@ public class CoreConfig {
     private ServerConfig server;
     private RealmConfig realm = new RealmConfig();
     private BnftpConfig bnftp = new BnftpConfig();
+    private CacheConfig cache = new CacheConfig();
+    private PersistenceConfig persistence = new PersistenceConfig();
 
     public MongoConfig getMongo() {
         return mongo;
@@ -37,4 +39,20 @@ public class CoreConfig {
     public void setBnftp(BnftpConfig bnftp) {
         this.bnftp = bnftp;
     }
+
+    public CacheConfig getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheConfig cache) {
+        this.cache = cache;
+    }
+
+    public PersistenceConfig getPersistence() {
+        return persistence;
+    }
+
+    public void setPersistence(PersistenceConfig persistence) {
+        this.persistence = persistence;
+    }
 }
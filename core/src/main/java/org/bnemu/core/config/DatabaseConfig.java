@@ -1,8 +1,83 @@
 package org.bnemu.core.config;
 
+/**
+ * Connection settings for the JDBC backend (MariaDB or MySQL).
+ */
 public class DatabaseConfig {
-    public String url;
-    public String username;
-    public String password;
-    public int poolSize;
-}
\ No newline at end of file
+    private String url;
+    private String username;
+    private String password;
+
+    /**
+     * Pooled connections; database calls allowed in flight at once follow this.
+     */
+    private int poolSize = 20;
+
+    /**
+     * Prepared statements the driver keeps per connection, so the hot queries are parsed once.
+     */
+    private int preparedStatementCacheSize = 250;
+
+    /**
+     * As {@link MongoConfig#getCharacterWriteBehindMillis()}: 0 writes each character update
+     * immediately, more batches them and flushes this often.
+     */
+    private int characterWriteBehindMillis = 0;
+    private int characterWriteBehindMaxPending = 1000;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize;
+    }
+
+    public void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+        this.preparedStatementCacheSize = preparedStatementCacheSize;
+    }
+
+    public int getCharacterWriteBehindMillis() {
+        return characterWriteBehindMillis;
+    }
+
+    public void setCharacterWriteBehindMillis(int characterWriteBehindMillis) {
+        this.characterWriteBehindMillis = characterWriteBehindMillis;
+    }
+
+    public int getCharacterWriteBehindMaxPending() {
+        return characterWriteBehindMaxPending;
+    }
+
+    public void setCharacterWriteBehindMaxPending(int characterWriteBehindMaxPending) {
+        this.characterWriteBehindMaxPending = characterWriteBehindMaxPending;
+    }
+}
@@ -0,0 +1,72 @@
+package org.bnemu.core.config;
+
+/**
+ * Settings for the write-ahead journal in front of the mongo and jdbc backends. With it enabled,
+ * account and character writes are acknowledged once they are on local disk and reach the
+ * database in the background.
+ */
+public class JournalConfig {
+    private boolean enabled = false;
+
+    /**
+     * Where the journal segments live. Each file is opened by one process: BNCS journals accounts,
+     * D2CS characters.
+     */
+    private String dir = "journal";
+
+    /**
+     * How often journaled writes are applied to the database. Character updates within one batch
+     * are merged, as with write-behind, which the journal replaces.
+     */
+    private int replayIntervalMillis = 200;
+
+    /**
+     * Journaled writes applied to the database in one batch at most.
+     */
+    private int replayBatchSize = 1000;
+
+    /**
+     * A new segment is started past this size; segments are deleted once applied.
+     */
+    private int segmentSizeMegabytes = 16;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public int getReplayIntervalMillis() {
+        return replayIntervalMillis;
+    }
+
+    public void setReplayIntervalMillis(int replayIntervalMillis) {
+        this.replayIntervalMillis = replayIntervalMillis;
+    }
+
+    public int getReplayBatchSize() {
+        return replayBatchSize;
+    }
+
+    public void setReplayBatchSize(int replayBatchSize) {
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    public int getSegmentSizeMegabytes() {
+        return segmentSizeMegabytes;
+    }
+
+    public void setSegmentSizeMegabytes(int segmentSizeMegabytes) {
+        this.segmentSizeMegabytes = segmentSizeMegabytes;
+    }
+}
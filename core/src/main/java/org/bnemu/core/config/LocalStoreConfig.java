@@ -0,0 +1,60 @@
+package org.bnemu.core.config;
+
+/**
+ * Settings for the embedded "local" backend, which keeps accounts and characters in log files.
+ */
+public class LocalStoreConfig {
+    /**
+     * Where {@code accounts.log} and {@code characters.log} live. Each file is opened by one
+     * process: BNCS opens the accounts, D2CS the characters.
+     */
+    private String dataDir = "data";
+
+    /**
+     * How often writes are forced to disk. Writes survive a process crash at once, but an OS
+     * crash or power loss can lose the last interval.
+     */
+    private int syncIntervalMillis = 1000;
+
+    /**
+     * How often to check whether a log is mostly garbage and rewrite it.
+     */
+    private int compactionIntervalSeconds = 300;
+
+    /**
+     * Files grow, and are memory-mapped, in steps of this size. A single record must fit.
+     */
+    private int regionSizeMegabytes = 64;
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public void setDataDir(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public int getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    public void setSyncIntervalMillis(int syncIntervalMillis) {
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    public int getCompactionIntervalSeconds() {
+        return compactionIntervalSeconds;
+    }
+
+    public void setCompactionIntervalSeconds(int compactionIntervalSeconds) {
+        this.compactionIntervalSeconds = compactionIntervalSeconds;
+    }
+
+    public int getRegionSizeMegabytes() {
+        return regionSizeMegabytes;
+    }
+
+    public void setRegionSizeMegabytes(int regionSizeMegabytes) {
+        this.regionSizeMegabytes = regionSizeMegabytes;
+    }
+}
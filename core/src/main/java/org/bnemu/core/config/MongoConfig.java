@@ -7,6 +7,23 @@ public class MongoConfig {
     private String username;
     private String password;
 
+    /**
+     * Database calls allowed in flight at once; should not exceed the driver's connection pool
+     * (100 by default).
+     */
+    private int maxConcurrentOperations = 100;
+
+    /**
+     * How often queued character updates (last played, level, flags, save) are written in one
+     * batch; 0 writes each one immediately.
+     */
+    private int characterWriteBehindMillis = 0;
+
+    /**
+     * Characters with queued updates that trigger an early flush.
+     */
+    private int characterWriteBehindMaxPending = 1000;
+
     public String getHost() {
         return host;
     }
@@ -46,4 +63,28 @@ public class MongoConfig {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public int getMaxConcurrentOperations() {
+        return maxConcurrentOperations;
+    }
+
+    public void setMaxConcurrentOperations(int maxConcurrentOperations) {
+        this.maxConcurrentOperations = maxConcurrentOperations;
+    }
+
+    public int getCharacterWriteBehindMillis() {
+        return characterWriteBehindMillis;
+    }
+
+    public void setCharacterWriteBehindMillis(int characterWriteBehindMillis) {
+        this.characterWriteBehindMillis = characterWriteBehindMillis;
+    }
+
+    public int getCharacterWriteBehindMaxPending() {
+        return characterWriteBehindMaxPending;
+    }
+
+    public void setCharacterWriteBehindMaxPending(int characterWriteBehindMaxPending) {
+        this.characterWriteBehindMaxPending = characterWriteBehindMaxPending;
+    }
 }
@@ -0,0 +1,52 @@
+package org.bnemu.core.config;
+
+/**
+ * Where accounts, characters and character selections are stored.
+ */
+public class PersistenceConfig {
+    /**
+     * "mongo" connects with the top-level {@code mongo} section, "jdbc" with {@link #getJdbc() jdbc},
+     * and "local" keeps accounts and characters in files as set by {@link #getLocal() local}.
+     */
+    private String backend = "mongo";
+
+    private DatabaseConfig jdbc;
+    private LocalStoreConfig local = new LocalStoreConfig();
+
+    /**
+     * Journals mongo and jdbc writes to local disk first; the local backend ignores it.
+     */
+    private JournalConfig journal = new JournalConfig();
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    public DatabaseConfig getJdbc() {
+        return jdbc;
+    }
+
+    public void setJdbc(DatabaseConfig jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public LocalStoreConfig getLocal() {
+        return local;
+    }
+
+    public void setLocal(LocalStoreConfig local) {
+        this.local = local;
+    }
+
+    public JournalConfig getJournal() {
+        return journal;
+    }
+
+    public void setJournal(JournalConfig journal) {
+        this.journal = journal;
+    }
+}
@@ -4,6 +4,17 @@ public class RealmConfig {
     private String name = "bnemu";
     private String description = "bnemu Realm";
 
+    /**
+     * How BNCS hands a client over to D2CS: "mongo" stores a one-time token in the database,
+     * "signed" carries an HMAC-signed token in the MCP data that D2CS checks locally.
+     */
+    private String tokenMode = "mongo";
+
+    /**
+     * Key shared by BNCS and D2CS for "signed" tokens (at least 16 characters).
+     */
+    private String tokenSecret;
+
     public String getName() {
         return name;
     }
@@ -19,4 +30,20 @@ public class RealmConfig {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    public String getTokenMode() {
+        return tokenMode;
+    }
+
+    public void setTokenMode(String tokenMode) {
+        this.tokenMode = tokenMode;
+    }
+
+    public String getTokenSecret() {
+        return tokenSecret;
+    }
+
+    public void setTokenSecret(String tokenSecret) {
+        this.tokenSecret = tokenSecret;
+    }
 }
@@ -5,6 +5,12 @@ public class ServerConfig {
     private PortConfig d2cs;
     private PortConfig d2gs;
     private PortConfig telnet;
+    /**
+     * Where BNCS listens for character selections pushed by D2CS; null to share them through the
+     * database only.
+     */
+    private PortConfig selectionLink;
+    private TransportConfig transport = new TransportConfig();
 
     public PortConfig getBncs() {
         return bncs;
@@ -37,4 +43,20 @@ public class ServerConfig {
     public void setTelnet(PortConfig telnet) {
         this.telnet = telnet;
     }
+
+    public PortConfig getSelectionLink() {
+        return selectionLink;
+    }
+
+    public void setSelectionLink(PortConfig selectionLink) {
+        this.selectionLink = selectionLink;
+    }
+
+    public TransportConfig getTransport() {
+        return transport;
+    }
+
+    public void setTransport(TransportConfig transport) {
+        this.transport = transport;
+    }
 }
@@ -0,0 +1,119 @@
+package org.bnemu.core.config;
+
+/**
+ * Socket transport and channel options shared by the BNCS and D2CS listeners.
+ */
+public class TransportConfig {
+    /**
+     * "auto" (io_uring, then epoll, then NIO), "io_uring", "epoll" or "nio".
+     */
+    private String type = "auto";
+
+    /**
+     * Worker event loop threads; 0 uses Netty's default (2 x available processors).
+     */
+    private int workerThreads = 0;
+
+    /**
+     * Listening sockets bound to the same port with SO_REUSEPORT, each with its own acceptor and
+     * worker group. More than one implies {@link #reusePort}.
+     */
+    private int acceptors = 1;
+
+    /**
+     * Bind with SO_REUSEPORT even with a single acceptor, so a new server process can bind next to
+     * the old one during a rolling restart.
+     */
+    private boolean reusePort = false;
+
+    /**
+     * "pooled" or "unpooled".
+     */
+    private String allocator = "pooled";
+    private boolean preferDirect = true;
+
+    private boolean tcpNoDelay = true;
+    private int backlog = 1024;
+    private int writeBufferLowWaterMark = 32 * 1024;
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
+    public String getAllocator() {
+        return allocator;
+    }
+
+    public void setAllocator(String allocator) {
+        this.allocator = allocator;
+    }
+
+    public boolean isPreferDirect() {
+        return preferDirect;
+    }
+
+    public void setPreferDirect(boolean preferDirect) {
+        this.preferDirect = preferDirect;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+}
@@ -0,0 +1,27 @@
+package org.bnemu.core.dao;
+
+import org.bnemu.core.model.Account;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking view of {@link AccountDao} for use from Netty event loops. Results complete on a
+ * database thread; handlers resume on their channel through the packet sequencer.
+ */
+public interface AsyncAccountDao {
+    /**
+     * Completes with the account, or null if not found.
+     */
+    CompletionStage<Account> findAccount(String username);
+
+    CompletionStage<Boolean> createAccount(String username, byte[] passwordHash);
+
+    CompletionStage<Boolean> validatePassword(String username, byte[] clientProof, int clientToken, int serverToken);
+
+    /**
+     * Run the blocking {@code dao} on {@code executor}.
+     */
+    static AsyncAccountDao offload(AccountDao dao, DaoExecutor executor) {
+        return new OffloadedAccountDao(dao, executor);
+    }
+}
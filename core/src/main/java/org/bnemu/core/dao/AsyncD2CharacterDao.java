@@ -0,0 +1,63 @@
+package org.bnemu.core.dao;
+
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking view of {@link D2CharacterDao} for use from Netty event loops.
+ */
+public interface AsyncD2CharacterDao {
+    CompletionStage<List<D2Character>> findByAccountName(String accountName);
+
+    /**
+     * Completes with the character, or null if not found.
+     */
+    CompletionStage<D2Character> findByAccountAndName(String accountName, String characterName);
+
+    CompletionStage<List<D2CharacterSummary>> findSummariesByAccountName(String accountName);
+
+    /**
+     * Completes with the character summary, or null if not found.
+     */
+    CompletionStage<D2CharacterSummary> findSummary(String accountName, String characterName);
+
+    /**
+     * Completes with the save, or null if there is none.
+     */
+    CompletionStage<byte[]> loadSaveData(String accountName, String characterName);
+
+    CompletionStage<Boolean> isNameAvailable(String characterName);
+
+    /**
+     * Pass every lower-case character name to {@code action}, on the DAO's thread.
+     */
+    CompletionStage<Void> forEachCharacterName(Consumer<String> action);
+
+    /**
+     * Fails with {@link DuplicateCharacterNameException} if the name is already taken.
+     */
+    CompletionStage<Void> save(D2Character character);
+
+    CompletionStage<Void> update(D2Character character);
+
+    CompletionStage<Void> touchLastPlayed(String characterName, long lastPlayedAt);
+
+    CompletionStage<Void> setLevel(String characterName, int level);
+
+    CompletionStage<Void> setFlags(String characterName, int flags);
+
+    CompletionStage<Void> replaceSaveData(String characterName, byte[] saveData);
+
+    CompletionStage<Void> delete(String accountName, String characterName);
+
+    /**
+     * Run the blocking {@code dao} on {@code executor}.
+     */
+    static AsyncD2CharacterDao offload(D2CharacterDao dao, DaoExecutor executor) {
+        return new OffloadedD2CharacterDao(dao, executor);
+    }
+}
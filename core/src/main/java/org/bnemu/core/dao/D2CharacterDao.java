@@ -1,38 +1,78 @@
 package org.bnemu.core.dao;
 
 import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Data access interface for D2 characters.
  */
 public interface D2CharacterDao {
     /**
-     * Find all characters for an account.
+     * Find all characters for an account, including their saves.
      */
     List<D2Character> findByAccountName(String accountName);
 
     /**
-     * Find a character by account and name.
+     * Find a character by account and name, including its save.
      */
     D2Character findByAccountAndName(String accountName, String characterName);
 
+    /**
+     * Find all characters for an account, without loading their saves.
+     */
+    List<D2CharacterSummary> findSummariesByAccountName(String accountName);
+
+    /**
+     * Find a character by account and name without loading its save.
+     * @return the character, or null if not found
+     */
+    D2CharacterSummary findSummary(String accountName, String characterName);
+
+    /**
+     * Load just the save of a character.
+     * @return the save, or null if the character has none or does not exist
+     */
+    byte[] loadSaveData(String accountName, String characterName);
+
     /**
      * Check if a character name is available.
      */
     boolean isNameAvailable(String characterName);
 
+    /**
+     * Pass the lower-case name of every character to {@code action}, without loading anything else.
+     */
+    void forEachCharacterName(Consumer<String> action);
+
     /**
      * Save a new character.
+     * @throws DuplicateCharacterNameException if the name is already taken
      */
     void save(D2Character character);
 
     /**
-     * Update an existing character.
+     * Update an existing character, rewriting every field including the save. Prefer the targeted
+     * updates below when only some fields change.
      */
     void update(D2Character character);
 
+    /**
+     * Set when a character was last played.
+     */
+    void touchLastPlayed(String characterName, long lastPlayedAt);
+
+    void setLevel(String characterName, int level);
+
+    /**
+     * Set hardcore, dead, expansion and ladder from an MCP flags DWORD (see {@link D2Character#getFlags()}).
+     */
+    void setFlags(String characterName, int flags);
+
+    void replaceSaveData(String characterName, byte[] saveData);
+
     /**
      * Delete a character.
      */
@@ -0,0 +1,56 @@
+package org.bnemu.core.dao;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs blocking database calls off the Netty event loops.
+ *
+ * <p>Each call gets its own virtual thread, so a slow query parks a cheap thread instead of
+ * stalling every connection on an I/O thread. A semaphore bounds how many calls run at once (it
+ * should match the driver's connection pool); callers never block, excess calls simply wait their
+ * turn on their virtual thread.
+ */
+public final class DaoExecutor {
+    private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("dao-", 0).factory());
+    private final Semaphore permits;
+
+    public DaoExecutor(int maxConcurrency) {
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+    }
+
+    public <T> CompletableFuture<T> supply(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        threads.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            try {
+                result.complete(call.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        });
+        return result;
+    }
+
+    public CompletableFuture<Void> run(Runnable call) {
+        return supply(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public void shutdown() {
+        threads.shutdown();
+    }
+}
@@ -0,0 +1,11 @@
+package org.bnemu.core.dao;
+
+/**
+ * Thrown by {@link D2CharacterDao#save} when another character already has the name (compared
+ * case-insensitively).
+ */
+public class DuplicateCharacterNameException extends RuntimeException {
+    public DuplicateCharacterNameException(String characterName, Throwable cause) {
+        super("Character name already taken: " + characterName, cause);
+    }
+}
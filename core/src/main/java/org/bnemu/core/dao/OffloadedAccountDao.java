@@ -0,0 +1,30 @@
+package org.bnemu.core.dao;
+
+import org.bnemu.core.model.Account;
+
+import java.util.concurrent.CompletionStage;
+
+class OffloadedAccountDao implements AsyncAccountDao {
+    private final AccountDao dao;
+    private final DaoExecutor executor;
+
+    OffloadedAccountDao(AccountDao dao, DaoExecutor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletionStage<Account> findAccount(String username) {
+        return executor.supply(() -> dao.findAccount(username));
+    }
+
+    @Override
+    public CompletionStage<Boolean> createAccount(String username, byte[] passwordHash) {
+        return executor.supply(() -> dao.createAccount(username, passwordHash));
+    }
+
+    @Override
+    public CompletionStage<Boolean> validatePassword(String username, byte[] clientProof, int clientToken, int serverToken) {
+        return executor.supply(() -> dao.validatePassword(username, clientProof, clientToken, serverToken));
+    }
+}
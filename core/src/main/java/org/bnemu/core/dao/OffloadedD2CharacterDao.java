@@ -0,0 +1,88 @@
+package org.bnemu.core.dao;
+
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+class OffloadedD2CharacterDao implements AsyncD2CharacterDao {
+    private final D2CharacterDao dao;
+    private final DaoExecutor executor;
+
+    OffloadedD2CharacterDao(D2CharacterDao dao, DaoExecutor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletionStage<List<D2Character>> findByAccountName(String accountName) {
+        return executor.supply(() -> dao.findByAccountName(accountName));
+    }
+
+    @Override
+    public CompletionStage<D2Character> findByAccountAndName(String accountName, String characterName) {
+        return executor.supply(() -> dao.findByAccountAndName(accountName, characterName));
+    }
+
+    @Override
+    public CompletionStage<List<D2CharacterSummary>> findSummariesByAccountName(String accountName) {
+        return executor.supply(() -> dao.findSummariesByAccountName(accountName));
+    }
+
+    @Override
+    public CompletionStage<D2CharacterSummary> findSummary(String accountName, String characterName) {
+        return executor.supply(() -> dao.findSummary(accountName, characterName));
+    }
+
+    @Override
+    public CompletionStage<byte[]> loadSaveData(String accountName, String characterName) {
+        return executor.supply(() -> dao.loadSaveData(accountName, characterName));
+    }
+
+    @Override
+    public CompletionStage<Boolean> isNameAvailable(String characterName) {
+        return executor.supply(() -> dao.isNameAvailable(characterName));
+    }
+
+    @Override
+    public CompletionStage<Void> forEachCharacterName(Consumer<String> action) {
+        return executor.run(() -> dao.forEachCharacterName(action));
+    }
+
+    @Override
+    public CompletionStage<Void> save(D2Character character) {
+        return executor.run(() -> dao.save(character));
+    }
+
+    @Override
+    public CompletionStage<Void> update(D2Character character) {
+        return executor.run(() -> dao.update(character));
+    }
+
+    @Override
+    public CompletionStage<Void> touchLastPlayed(String characterName, long lastPlayedAt) {
+        return executor.run(() -> dao.touchLastPlayed(characterName, lastPlayedAt));
+    }
+
+    @Override
+    public CompletionStage<Void> setLevel(String characterName, int level) {
+        return executor.run(() -> dao.setLevel(characterName, level));
+    }
+
+    @Override
+    public CompletionStage<Void> setFlags(String characterName, int flags) {
+        return executor.run(() -> dao.setFlags(characterName, flags));
+    }
+
+    @Override
+    public CompletionStage<Void> replaceSaveData(String characterName, byte[] saveData) {
+        return executor.run(() -> dao.replaceSaveData(characterName, saveData));
+    }
+
+    @Override
+    public CompletionStage<Void> delete(String accountName, String characterName) {
+        return executor.run(() -> dao.delete(accountName, characterName));
+    }
+}
@@ -0,0 +1,75 @@
+package org.bnemu.core.link;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import org.bnemu.core.auth.SelectedCharacterStore.SelectedCharacter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of the selection link, over which D2CS tells BNCS which character an account just
+ * picked. Each frame is a 16-bit big-endian length followed by a message type byte and its fields;
+ * strings are a 16-bit length and UTF-8 bytes.
+ */
+public final class SelectionLink {
+    static final int MAX_FRAME_LENGTH = 1024;
+    static final byte MSG_SELECTED = 1;
+
+    private static final int FLAG_EXPANSION = 0x01;
+    private static final int FLAG_HARDCORE = 0x02;
+    private static final int FLAG_LADDER = 0x04;
+
+    private SelectionLink() {
+    }
+
+    static void initFraming(ChannelPipeline pipeline) {
+        pipeline.addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 2, 0, 2));
+        pipeline.addLast(new LengthFieldPrepender(2));
+    }
+
+    static ByteBuf encode(ByteBufAllocator alloc, SelectedCharacter character) {
+        ByteBuf out = alloc.buffer(64);
+        out.writeByte(MSG_SELECTED);
+        writeString(out, character.accountName());
+        writeString(out, character.realmName());
+        writeString(out, character.characterName());
+        writeString(out, character.charClass());
+        out.writeShort(character.level());
+        int flags = (character.expansion() ? FLAG_EXPANSION : 0)
+            | (character.hardcore() ? FLAG_HARDCORE : 0)
+            | (character.ladder() ? FLAG_LADDER : 0);
+        out.writeByte(flags);
+        return out;
+    }
+
+    /**
+     * @return the selection in {@code frame}, or null for a message type this side does not know
+     */
+    static SelectedCharacter decode(ByteBuf frame) {
+        if (frame.readByte() != MSG_SELECTED) {
+            return null;
+        }
+        String accountName = readString(frame);
+        String realmName = readString(frame);
+        String characterName = readString(frame);
+        String charClass = readString(frame);
+        int level = frame.readUnsignedShort();
+        int flags = frame.readUnsignedByte();
+        return new SelectedCharacter(accountName, realmName, characterName, charClass, level,
+            (flags & FLAG_EXPANSION) != 0, (flags & FLAG_HARDCORE) != 0, (flags & FLAG_LADDER) != 0);
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = in.readUnsignedShort();
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+}
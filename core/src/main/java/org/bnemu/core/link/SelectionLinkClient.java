@@ -0,0 +1,88 @@
+package org.bnemu.core.link;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.socket.SocketChannel;
+import org.bnemu.core.auth.SelectedCharacterStore.SelectedCharacter;
+import org.bnemu.core.net.Acceptors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * D2CS end of the selection link. Keeps a connection to BNCS open, reconnecting with backoff, and
+ * pushes selections over it. Pushes made while disconnected are dropped: the backing store still
+ * has them, and BNCS reads it on a cache miss.
+ */
+public class SelectionLinkClient implements Consumer<SelectedCharacter> {
+    private static final Logger logger = LoggerFactory.getLogger(SelectionLinkClient.class);
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    private final Bootstrap bootstrap;
+    private final String host;
+    private final int port;
+    private volatile Channel channel;
+    private long retryMillis = MIN_RETRY_MILLIS; // touched only on the link's event loop
+
+    public SelectionLinkClient(Acceptors acceptors, String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.bootstrap = acceptors.newClient()
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    SelectionLink.initFraming(ch.pipeline());
+                }
+            });
+    }
+
+    public void connect() {
+        bootstrap.connect(host, port).addListener((ChannelFuture future) -> {
+            if (!future.isSuccess()) {
+                if (retryMillis == MIN_RETRY_MILLIS) {
+                    logger.warn("Selection link to {}:{} unavailable, retrying: {}", host, port,
+                        future.cause().getMessage());
+                }
+                retry(future.channel());
+                return;
+            }
+            logger.info("Selection link connected to {}:{}", host, port);
+            retryMillis = MIN_RETRY_MILLIS;
+            channel = future.channel();
+            channel.closeFuture().addListener(f -> {
+                channel = null;
+                logger.warn("Selection link to {}:{} closed, reconnecting", host, port);
+                retry(future.channel());
+            });
+        });
+    }
+
+    private void retry(Channel failed) {
+        long delay = retryMillis;
+        retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        try {
+            failed.eventLoop().schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not reconnecting selection link: event loop shut down");
+        }
+    }
+
+    /**
+     * Push {@code character} to BNCS if the link is up.
+     */
+    @Override
+    public void accept(SelectedCharacter character) {
+        Channel current = channel;
+        if (current == null) {
+            logger.debug("Selection link down, not pushing selection for {}", character.accountName());
+            return;
+        }
+        current.writeAndFlush(SelectionLink.encode(current.alloc(), character));
+    }
+}
@@ -0,0 +1,78 @@
+package org.bnemu.core.link;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.logging.LogLevel;
+import io.netty.handler.logging.LoggingHandler;
+import org.bnemu.core.auth.SelectedCharacterStore.SelectedCharacter;
+import org.bnemu.core.net.Acceptors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * BNCS end of the selection link: accepts D2CS connections and hands every selection they push
+ * to {@code sink}. Whenever a D2CS connects or disconnects, {@code onLinkChange} runs, since
+ * selections made while it was not connected were never pushed. The link is not authenticated, so
+ * it should listen on a loopback or private address only.
+ */
+public class SelectionLinkServer {
+    private static final Logger logger = LoggerFactory.getLogger(SelectionLinkServer.class);
+
+    private final String host;
+    private final int port;
+    private final Consumer<SelectedCharacter> sink;
+    private final Runnable onLinkChange;
+
+    public SelectionLinkServer(String host, int port, Consumer<SelectedCharacter> sink, Runnable onLinkChange) {
+        this.host = host;
+        this.port = port;
+        this.sink = sink;
+        this.onLinkChange = onLinkChange;
+    }
+
+    public List<Channel> bind(Acceptors acceptors) throws InterruptedException {
+        List<Channel> listeners = acceptors.bind(host, port, new LoggingHandler(LogLevel.INFO),
+            new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) {
+                    SelectionLink.initFraming(ch.pipeline());
+                    ch.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+                        @Override
+                        public void channelActive(ChannelHandlerContext ctx) {
+                            logger.info("Selection link from {}", ctx.channel().remoteAddress());
+                            onLinkChange.run();
+                        }
+
+                        @Override
+                        public void channelInactive(ChannelHandlerContext ctx) {
+                            logger.info("Selection link from {} closed", ctx.channel().remoteAddress());
+                            onLinkChange.run();
+                        }
+
+                        @Override
+                        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+                            SelectedCharacter character = SelectionLink.decode(frame);
+                            if (character != null) {
+                                sink.accept(character);
+                            }
+                        }
+
+                        @Override
+                        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                            logger.warn("Selection link error from {}", ctx.channel().remoteAddress(), cause);
+                            ctx.close();
+                        }
+                    });
+                }
+            });
+        logger.info("Selection link listening on {}:{}", host, port);
+        return listeners;
+    }
+}
@@ -0,0 +1,69 @@
+package org.bnemu.core.model;
+
+/**
+ * A D2 character without its save: everything character lists, logons and game creation need.
+ * Load the save separately, and only where it is actually used.
+ */
+public final class D2CharacterSummary {
+    private final String id;
+    private final String accountName;
+    private final String name;
+    private final DiabloClass charClass;
+    private final int level;
+    private final boolean expansion;
+    private final boolean hardcore;
+    private final boolean dead;
+    private final boolean ladder;
+    private final long createdAt;
+    private final long lastPlayedAt;
+
+    public D2CharacterSummary(String id, String accountName, String name, DiabloClass charClass, int level,
+                              boolean expansion, boolean hardcore, boolean dead, boolean ladder,
+                              long createdAt, long lastPlayedAt) {
+        this.id = id;
+        this.accountName = accountName;
+        this.name = name;
+        this.charClass = charClass;
+        this.level = level;
+        this.expansion = expansion;
+        this.hardcore = hardcore;
+        this.dead = dead;
+        this.ladder = ladder;
+        this.createdAt = createdAt;
+        this.lastPlayedAt = lastPlayedAt;
+    }
+
+    public String getId() { return id; }
+
+    public String getAccountName() { return accountName; }
+
+    public String getName() { return name; }
+
+    public DiabloClass getCharClass() { return charClass; }
+
+    public int getLevel() { return level; }
+
+    public boolean isExpansion() { return expansion; }
+
+    public boolean isHardcore() { return hardcore; }
+
+    public boolean isDead() { return dead; }
+
+    public boolean isLadder() { return ladder; }
+
+    public long getCreatedAt() { return createdAt; }
+
+    public long getLastPlayedAt() { return lastPlayedAt; }
+
+    /**
+     * The MCP flags DWORD, as {@link D2Character#getFlags()}.
+     */
+    public int getFlags() {
+        int flags = 0;
+        if (hardcore) flags |= 0x04;
+        if (dead)     flags |= 0x08;
+        if (expansion) flags |= 0x20;
+        if (ladder)   flags |= 0x40;
+        return flags;
+    }
+}
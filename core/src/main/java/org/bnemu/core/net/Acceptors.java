@@ -0,0 +1,89 @@
+package org.bnemu.core.net;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.NettyRuntime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The listening sockets of one server, each with its own acceptor and worker group.
+ *
+ * <p>With {@link ServerTransport#acceptors()} greater than one, every socket is bound to the same
+ * port with SO_REUSEPORT and the kernel spreads incoming connections across them, so a reconnect
+ * storm after a restart is accepted on several cores instead of queueing behind one accept loop.
+ * The worker threads are split evenly between the groups.
+ */
+public final class Acceptors {
+    private final ServerTransport transport;
+    private final List<EventLoopGroup> bossGroups = new ArrayList<>();
+    private final List<EventLoopGroup> workerGroups = new ArrayList<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    public Acceptors(ServerTransport transport) {
+        this.transport = transport;
+        int count = transport.acceptors();
+        int threadsPerGroup = transport.workerThreads();
+        if (count > 1) {
+            int total = threadsPerGroup > 0 ? threadsPerGroup : NettyRuntime.availableProcessors() * 2;
+            threadsPerGroup = Math.max(1, total / count);
+        }
+        for (int i = 0; i < count; i++) {
+            bossGroups.add(transport.newBossGroup());
+            workerGroups.add(transport.newEventLoopGroup(threadsPerGroup));
+        }
+    }
+
+    /**
+     * A worker event loop, round-robin across all groups; used to pin server-wide state (e.g. chat
+     * channels) to a single loop.
+     */
+    public EventLoop nextWorker() {
+        int index = Math.floorMod(nextWorker.getAndIncrement(), workerGroups.size());
+        return workerGroups.get(index).next();
+    }
+
+    /**
+     * Bind every acceptor to {@code port}. {@code handler} and {@code childHandler} are shared
+     * between the bootstraps and must be {@code @Sharable} (a {@code ChannelInitializer} is).
+     */
+    public List<Channel> bind(int port, ChannelHandler handler, ChannelHandler childHandler) throws InterruptedException {
+        return bind(null, port, handler, childHandler);
+    }
+
+    /**
+     * As {@link #bind(int, ChannelHandler, ChannelHandler)}, on {@code host} only (all addresses if null).
+     */
+    public List<Channel> bind(String host, int port, ChannelHandler handler, ChannelHandler childHandler)
+            throws InterruptedException {
+        List<Channel> channels = new ArrayList<>();
+        for (int i = 0; i < bossGroups.size(); i++) {
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            transport.configure(bootstrap.group(bossGroups.get(i), workerGroups.get(i)))
+                .handler(handler)
+                .childHandler(childHandler);
+            ChannelFuture bound = host != null ? bootstrap.bind(host, port) : bootstrap.bind(port);
+            channels.add(bound.sync().channel());
+        }
+        return channels;
+    }
+
+    /**
+     * A client bootstrap on one of the worker loops, for outgoing links to other servers.
+     */
+    public Bootstrap newClient() {
+        return transport.configure(new Bootstrap().group(nextWorker()));
+    }
+
+    public void shutdownGracefully() {
+        bossGroups.forEach(EventLoopGroup::shutdownGracefully);
+        workerGroups.forEach(EventLoopGroup::shutdownGracefully);
+    }
+}
@@ -0,0 +1,33 @@
+package org.bnemu.core.net;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+/**
+ * Write coalescing shared by the BNCS and D2CS pipelines.
+ *
+ * <p>Handlers {@code write} their responses and the dispatcher flushes once per request. While a
+ * read is in progress those flushes are held back until {@code channelReadComplete}, so a burst of
+ * requests in one read costs a single syscall. Flushes issued from other threads (chat fan-out,
+ * keep-alive pings) are merged into one flush per event loop tick. A flush is forced every
+ * {@link #EXPLICIT_FLUSH_AFTER_FLUSHES} flushes so a long burst can't grow the outbound buffer
+ * unbounded.
+ */
+public final class FlushBatching {
+    public static final int EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+
+    private FlushBatching() {
+    }
+
+    /**
+     * New consolidation handler; it must sit at the head of the pipeline, in front of the encoder.
+     */
+    public static ChannelHandler newHandler() {
+        return new FlushConsolidationHandler(EXPLICIT_FLUSH_AFTER_FLUSHES, true);
+    }
+
+    public static void install(ChannelPipeline pipeline) {
+        pipeline.addFirst("flushBatching", newHandler());
+    }
+}
@@ -0,0 +1,202 @@
+package org.bnemu.core.net;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a connection's packets in order while a handler waits on an asynchronous database call.
+ *
+ * <p>A handler that needs the database reads its payload, starts the call and passes the
+ * resulting stage to {@link #await}; the continuation runs back on the channel's event loop and
+ * its writes are flushed there. Until it has run, later packets from the same connection are held
+ * (retained, not released) and dispatched afterwards in arrival order, so clients never see
+ * responses out of order.
+ *
+ * <p>Handlers that are CPU-heavy or blocking can be {@link #offload offloaded}: they run on another
+ * executor, as do the continuations of anything they await, while the connection's later packets
+ * wait for them just the same. Everything except the in-flight count is touched only on the
+ * channel's event loop.
+ *
+ * @param <P> the decoded packet type
+ */
+public final class PacketSequencer<P extends ReferenceCounted> {
+    private static final Logger logger = LoggerFactory.getLogger(PacketSequencer.class);
+    private static final AttributeKey<PacketSequencer<?>> KEY = AttributeKey.valueOf("packetSequencer");
+    private static final ThreadLocal<Executor> OFFLOADED = new ThreadLocal<>();
+
+    private final ChannelHandlerContext ctx;
+    private final BiConsumer<ChannelHandlerContext, P> dispatch;
+    private final ArrayDeque<P> deferred = new ArrayDeque<>();
+    private final AtomicInteger inFlight = new AtomicInteger(); // offloaded handlers await off the loop
+
+    private PacketSequencer(ChannelHandlerContext ctx, BiConsumer<ChannelHandlerContext, P> dispatch) {
+        this.ctx = ctx;
+        this.dispatch = dispatch;
+    }
+
+    /**
+     * Return the channel's sequencer, creating it on first use. {@code dispatch} handles a packet
+     * immediately and takes ownership of it; it is used for packets replayed after an await.
+     */
+    @SuppressWarnings("unchecked")
+    public static <P extends ReferenceCounted> PacketSequencer<P> attach(
+            ChannelHandlerContext ctx, BiConsumer<ChannelHandlerContext, P> dispatch) {
+        Attribute<PacketSequencer<?>> attr = ctx.channel().attr(KEY);
+        PacketSequencer<?> existing = attr.get();
+        if (existing != null) {
+            return (PacketSequencer<P>) existing;
+        }
+        PacketSequencer<P> sequencer = new PacketSequencer<>(ctx, dispatch);
+        attr.set(sequencer);
+        ctx.channel().closeFuture().addListener(f -> sequencer.discard());
+        return sequencer;
+    }
+
+    /**
+     * Hold {@code packet} if an earlier packet is still awaiting a result.
+     *
+     * @return true if the packet was queued and now belongs to the sequencer
+     */
+    public boolean defer(P packet) {
+        if (inFlight.get() == 0 && deferred.isEmpty()) {
+            return false;
+        }
+        deferred.add(packet);
+        return true;
+    }
+
+    /**
+     * Run {@code continuation} once {@code stage} completes, then flush and resume any packets
+     * held meanwhile. The continuation runs on the channel's event loop, or on the offload executor
+     * when called from an offloaded handler. A failed stage is logged and the connection closed.
+     * The continuation is skipped if the connection has already gone.
+     *
+     * <p>The packet being handled is released as soon as the handler returns, so everything
+     * needed from its payload must be read before calling this.
+     */
+    public static <T> void await(ChannelHandlerContext ctx, CompletionStage<T> stage, Consumer<T> continuation) {
+        PacketSequencer<?> sequencer = ctx.channel().attr(KEY).get();
+        if (sequencer != null) {
+            sequencer.inFlight.incrementAndGet();
+        }
+        Executor offload = OFFLOADED.get();
+        stage.whenComplete((result, error) -> {
+            if (offload == null || error != null) {
+                onEventLoop(ctx, () -> complete(ctx, sequencer, result, error, continuation));
+                return;
+            }
+            try {
+                offload.execute(() -> {
+                    Throwable failure = null;
+                    try {
+                        runOffloaded(offload, () -> {
+                            if (ctx.channel().isActive()) {
+                                continuation.accept(result);
+                            }
+                        });
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                    Throwable cause = failure;
+                    onEventLoop(ctx, () -> complete(ctx, sequencer, null, cause, ignored -> { }));
+                });
+            } catch (RejectedExecutionException e) {
+                onEventLoop(ctx, () -> complete(ctx, sequencer, null, e, ignored -> { }));
+            }
+        });
+    }
+
+    /**
+     * Run {@code task} on {@code executor} instead of the event loop. The connection's later
+     * packets are held until it, and anything it awaits, has finished; its writes are flushed
+     * afterwards on the event loop. The task runs even if the connection closes meanwhile, so it
+     * can release what it holds; if the executor rejects it, it runs inline and its writes are
+     * flushed straight after.
+     */
+    public static void offload(ChannelHandlerContext ctx, Executor executor, Runnable task) {
+        CompletableFuture<Void> done;
+        try {
+            done = CompletableFuture.runAsync(() -> runOffloaded(executor, task), executor);
+        } catch (RejectedExecutionException e) {
+            try {
+                task.run();
+            } finally {
+                ctx.flush();
+            }
+            return;
+        }
+        await(ctx, done, ignored -> { });
+    }
+
+    private static void runOffloaded(Executor executor, Runnable task) {
+        OFFLOADED.set(executor);
+        try {
+            task.run();
+        } finally {
+            OFFLOADED.remove();
+        }
+    }
+
+    private static void onEventLoop(ChannelHandlerContext ctx, Runnable task) {
+        try {
+            ctx.executor().execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Dropping async result for {}: event loop shut down", ctx.channel());
+        }
+    }
+
+    private static <T> void complete(ChannelHandlerContext ctx, PacketSequencer<?> sequencer,
+                                     T result, Throwable error, Consumer<T> continuation) {
+        try {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                logger.error("Request failed for {}", ctx.channel(), cause);
+                ctx.close();
+            } else if (ctx.channel().isActive()) {
+                continuation.accept(result);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error completing request for {}", ctx.channel(), e);
+            ctx.close();
+        } finally {
+            ctx.flush();
+            if (sequencer != null) {
+                sequencer.resume();
+            }
+        }
+    }
+
+    private void resume() {
+        inFlight.decrementAndGet();
+        while (inFlight.get() == 0 && !deferred.isEmpty()) {
+            P packet = deferred.poll();
+            if (ctx.channel().isActive()) {
+                dispatch.accept(ctx, packet);
+            } else {
+                packet.release();
+            }
+        }
+    }
+
+    private void discard() {
+        P packet;
+        while ((packet = deferred.poll()) != null) {
+            packet.release();
+        }
+    }
+}
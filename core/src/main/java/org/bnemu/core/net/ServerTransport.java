@@ -0,0 +1,259 @@
+package org.bnemu.core.net;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioChannelOption;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.bnemu.core.config.TransportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Event loop and server channel implementation for a listener, chosen from {@link TransportConfig}.
+ *
+ * <p>On Linux the native transports avoid the JDK selector and its per-wakeup garbage, which adds
+ * up with tens of thousands of mostly idle chat connections. io_uring comes from Netty's incubator
+ * module, which the build adds with {@code -Pio-uring}; it is only used when that jar is on the
+ * classpath and the kernel supports it. epoll ships with netty-all. Anything unavailable falls
+ * back to the next option, ending with NIO.
+ *
+ * <p>Transports with the same allocator settings share one allocator, so a process running
+ * several servers keeps a single set of buffer pools.
+ */
+public final class ServerTransport {
+    private static final Logger logger = LoggerFactory.getLogger(ServerTransport.class);
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+    private static final Map<String, ByteBufAllocator> ALLOCATORS = new ConcurrentHashMap<>();
+
+    public enum Type {
+        IO_URING, EPOLL, NIO
+    }
+
+    private final Type type;
+    private final TransportConfig config;
+    private final ByteBufAllocator allocator;
+    private final ChannelOption<Boolean> reusePortOption;
+    private final int acceptors;
+
+    private ServerTransport(Type type, TransportConfig config) {
+        this.type = type;
+        this.config = config;
+        this.reusePortOption = config.getAcceptors() > 1 || config.isReusePort() ? reusePortOption(type) : null;
+        if (config.getAcceptors() > 1 && reusePortOption == null) {
+            logger.warn("SO_REUSEPORT is not supported by the {} transport here, using a single acceptor", type);
+            this.acceptors = 1;
+        } else {
+            this.acceptors = Math.max(1, config.getAcceptors());
+        }
+        this.allocator = allocator(config);
+    }
+
+    private static ByteBufAllocator allocator(TransportConfig config) {
+        boolean pooled = !"unpooled".equalsIgnoreCase(config.getAllocator());
+        boolean preferDirect = config.isPreferDirect();
+        return ALLOCATORS.computeIfAbsent((pooled ? "pooled" : "unpooled") + (preferDirect ? ",direct" : ",heap"),
+            key -> pooled ? new PooledByteBufAllocator(preferDirect) : new UnpooledByteBufAllocator(preferDirect));
+    }
+
+    /**
+     * Pick the transport named in {@code config}, or the best one available for "auto". The
+     * configured allocator is set on every channel, so outgoing packets built from
+     * {@code ctx.alloc()} are the same kind of buffer the transport writes from.
+     */
+    public static ServerTransport select(TransportConfig config) {
+        Type requested = parse(config.getType());
+        Type type = resolve(requested);
+        if (requested != null && requested != type) {
+            logger.warn("Transport {} is not available here, using {}", requested, type);
+        }
+
+        ServerTransport transport = new ServerTransport(type, config);
+        logger.info("Using {} transport ({} allocator, direct={}, acceptors={}, reusePort={})",
+            type, config.getAllocator(), config.isPreferDirect(), transport.acceptors, transport.isReusePort());
+        return transport;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * Number of listening sockets to bind on the same port; 1 unless SO_REUSEPORT is available.
+     */
+    public int acceptors() {
+        return acceptors;
+    }
+
+    public boolean isReusePort() {
+        return reusePortOption != null;
+    }
+
+    /**
+     * Configured worker thread count, or 0 for Netty's default.
+     */
+    public int workerThreads() {
+        return config.getWorkerThreads();
+    }
+
+    public EventLoopGroup newBossGroup() {
+        return newEventLoopGroup(1);
+    }
+
+    public EventLoopGroup newWorkerGroup() {
+        return newEventLoopGroup(config.getWorkerThreads());
+    }
+
+    /**
+     * @param threads event loop threads, or 0 for Netty's default
+     */
+    public EventLoopGroup newEventLoopGroup(int threads) {
+        return switch (type) {
+            case IO_URING -> ioUring("IOUringEventLoopGroup", threads);
+            case EPOLL -> new EpollEventLoopGroup(threads);
+            case NIO -> new NioEventLoopGroup(threads);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public Class<? extends ServerChannel> serverChannelClass() {
+        return switch (type) {
+            case IO_URING -> (Class<? extends ServerChannel>) ioUringClass("IOUringServerSocketChannel");
+            case EPOLL -> EpollServerSocketChannel.class;
+            case NIO -> NioServerSocketChannel.class;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public Class<? extends SocketChannel> socketChannelClass() {
+        return switch (type) {
+            case IO_URING -> (Class<? extends SocketChannel>) ioUringClass("IOUringSocketChannel");
+            case EPOLL -> EpollSocketChannel.class;
+            case NIO -> NioSocketChannel.class;
+        };
+    }
+
+    /**
+     * Set the client channel class and socket options on {@code bootstrap}, for links between servers.
+     */
+    public Bootstrap configure(Bootstrap bootstrap) {
+        return bootstrap
+            .channel(socketChannelClass())
+            .option(ChannelOption.ALLOCATOR, allocator)
+            .option(ChannelOption.TCP_NODELAY, config.isTcpNoDelay());
+    }
+
+    /**
+     * Set the server channel class and the configured socket options on {@code bootstrap}.
+     */
+    public ServerBootstrap configure(ServerBootstrap bootstrap) {
+        if (reusePortOption != null) {
+            bootstrap.option(reusePortOption, true);
+        }
+        return bootstrap
+            .channel(serverChannelClass())
+            .option(ChannelOption.SO_BACKLOG, config.getBacklog())
+            .option(ChannelOption.ALLOCATOR, allocator)
+            .childOption(ChannelOption.ALLOCATOR, allocator)
+            .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+            .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()));
+    }
+
+    /**
+     * The SO_REUSEPORT option for {@code type}'s server channel, or null if unsupported.
+     */
+    @SuppressWarnings("unchecked")
+    private static ChannelOption<Boolean> reusePortOption(Type type) {
+        switch (type) {
+            case IO_URING:
+                try {
+                    return (ChannelOption<Boolean>) ioUringClass("IOUringChannelOption").getField("SO_REUSEPORT").get(null);
+                } catch (ReflectiveOperationException e) {
+                    return null;
+                }
+            case EPOLL:
+                return EpollChannelOption.SO_REUSEPORT;
+            default:
+                try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+                    return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)
+                        ? NioChannelOption.of(StandardSocketOptions.SO_REUSEPORT)
+                        : null;
+                } catch (IOException | UnsupportedOperationException e) {
+                    return null;
+                }
+        }
+    }
+
+    private static Type parse(String name) {
+        if (name == null || name.isBlank() || name.equalsIgnoreCase("auto")) {
+            return null;
+        }
+        try {
+            return Type.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown transport type '{}', selecting automatically", name);
+            return null;
+        }
+    }
+
+    /**
+     * The requested transport if it is available, otherwise the best available one below it.
+     */
+    private static Type resolve(Type requested) {
+        Type start = requested != null ? requested : Type.IO_URING;
+        if (start == Type.IO_URING && ioUringAvailable()) {
+            return Type.IO_URING;
+        }
+        if (start != Type.NIO && Epoll.isAvailable()) {
+            return Type.EPOLL;
+        }
+        return Type.NIO;
+    }
+
+    private static boolean ioUringAvailable() {
+        try {
+            return (Boolean) ioUringClass("IOUring").getMethod("isAvailable").invoke(null);
+        } catch (ReflectiveOperationException | IllegalStateException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static EventLoopGroup ioUring(String className, int threads) {
+        try {
+            return (EventLoopGroup) ioUringClass(className).getConstructor(int.class).newInstance(threads);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create io_uring event loop group", e);
+        }
+    }
+
+    private static Class<?> ioUringClass(String simpleName) {
+        try {
+            return Class.forName(IO_URING_PACKAGE + simpleName);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("io_uring transport is not on the classpath (build with -Pio-uring)", e);
+        }
+    }
+}
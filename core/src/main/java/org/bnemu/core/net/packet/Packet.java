@@ -1,9 +1,58 @@
 package org.bnemu.core.net.packet;
 
-public interface Packet<A, B extends PacketBuffer<A, B>> {
+import io.netty.util.ReferenceCounted;
+
+/**
+ * A decoded or outgoing protocol packet.
+ *
+ * <p>Packets share the reference count of their payload buffer. Inbound packets hold a retained
+ * slice of the decoder's cumulation buffer and are released by the dispatcher once the handler
+ * returns; a handler that needs the payload afterwards must {@link #retain()} it. Outgoing packets
+ * are released by the encoder.
+ */
+public interface Packet<A, B extends PacketBuffer<A, B>> extends ReferenceCounted {
     A packetId();
 
     B payload();
 
     int getLength();
-}
\ No newline at end of file
+
+    @Override
+    default int refCnt() {
+        return payload().getBuf().refCnt();
+    }
+
+    @Override
+    default Packet<A, B> retain() {
+        payload().getBuf().retain();
+        return this;
+    }
+
+    @Override
+    default Packet<A, B> retain(int increment) {
+        payload().getBuf().retain(increment);
+        return this;
+    }
+
+    @Override
+    default Packet<A, B> touch() {
+        payload().getBuf().touch();
+        return this;
+    }
+
+    @Override
+    default Packet<A, B> touch(Object hint) {
+        payload().getBuf().touch(hint);
+        return this;
+    }
+
+    @Override
+    default boolean release() {
+        return payload().getBuf().release();
+    }
+
+    @Override
+    default boolean release(int decrement) {
+        return payload().getBuf().release(decrement);
+    }
+}
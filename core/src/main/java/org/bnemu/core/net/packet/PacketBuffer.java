@@ -1,18 +1,40 @@
 package org.bnemu.core.net.packet;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
 
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Little-endian packet payload builder/reader shared by the BNCS and MCP protocols.
+ *
+ * <p>Outgoing buffers come from the allocator of the channel they are written to (normally
+ * {@code ctx.alloc()}) with {@code headerSize} bytes reserved in front of the payload.
+ * {@link #withHeader} back-patches the protocol header into that space and hands a retained
+ * reference to the very same buffer to the encoder, so a packet is never copied on its way out.
+ */
 public abstract class PacketBuffer<A, B extends PacketBuffer<A, B>> {
+    private final int headerSize;
+    private final boolean headerReserved;
     protected ByteBuf buf;
 
-    public PacketBuffer() {
-        buf = Unpooled.buffer();
-    }
-
-    public PacketBuffer(ByteBuf buf) {
+    /**
+     * An outgoing packet: allocates from {@code alloc} with the first {@code headerSize} bytes
+     * reserved for the header.
+     */
+    protected PacketBuffer(ByteBufAllocator alloc, int headerSize) {
+        this.headerSize = headerSize;
+        this.headerReserved = true;
+        this.buf = alloc.buffer();
+        this.buf.writerIndex(headerSize).readerIndex(headerSize);
+    }
+
+    /**
+     * A payload already in {@code buf} (e.g. an inbound packet), with no header space reserved.
+     */
+    protected PacketBuffer(ByteBuf buf, int headerSize) {
+        this.headerSize = headerSize;
+        this.headerReserved = false;
         this.buf = buf;
     }
 
@@ -30,7 +52,33 @@ public abstract class PacketBuffer<A, B extends PacketBuffer<A, B>> {
 
     protected abstract B self();
 
-    public abstract ByteBuf withHeader(A id);
+    /**
+     * Write the protocol header for a packet of {@code length} bytes (header included)
+     * into {@code out} starting at {@code index}.
+     */
+    protected abstract void writeHeader(ByteBuf out, int index, A id, int length);
+
+    /**
+     * Frame this payload for the wire. When header space was reserved up front the header is
+     * written in place and a retained reference to this buffer is returned. The caller owns the
+     * returned reference; this PacketBuffer keeps its own, which is released with the packet.
+     */
+    public ByteBuf withHeader(A id) {
+        if (headerReserved) {
+            writeHeader(buf, 0, id, buf.writerIndex());
+            buf.readerIndex(0);
+            return buf.retain();
+        }
+
+        final var length = buf.readableBytes() + headerSize;
+
+        // No reserved space (e.g. a wrapped inbound buffer): fall back to a single copy
+        final var output = buf.alloc().buffer(length);
+        output.writerIndex(headerSize);
+        output.writeBytes(buf);
+        writeHeader(output, 0, id, length);
+        return output;
+    }
 
     public B writeByte(byte b) {
         buf.writeByte(b);
@@ -58,6 +106,15 @@ public abstract class PacketBuffer<A, B extends PacketBuffer<A, B>> {
         return self();
     }
 
+    /**
+     * Write an already ISO-8859-1 encoded string followed by its NUL terminator.
+     */
+    public B writeString(byte[] encoded) {
+        buf.writeBytes(encoded);
+        buf.writeByte((byte) 0x00);
+        return self();
+    }
+
     public B writeBytes(byte[] b) {
         buf.writeBytes(b);
         return self();
@@ -0,0 +1,240 @@
+package org.bnemu.core.session;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-connection state, attached once to each channel by {@link SessionManager}.
+ *
+ * <p>Fields read while building chat events for other users (flags, ping, display name and
+ * statstring) are kept as primitives or pre-encoded bytes so a broadcast never parses or
+ * re-encodes anything. Every field is volatile: a session is written on its own event loop but
+ * read from the event loops of the other members of its chat channel.
+ */
+public class Session {
+    private static final Encoded EMPTY = new Encoded("", new byte[0]);
+
+    private volatile Encoded username;
+    private volatile int userId = UserIds.NONE;
+    private volatile Encoded statstring = EMPTY;
+    private volatile String logonName;
+    private volatile String accountName;
+    private volatile String product;
+    private volatile String channel;
+    private volatile String away;
+    private volatile String dnd;
+    private volatile boolean authenticated;
+    private volatile int membership;
+    private int joinRequest; // guarded by this
+
+    private volatile int flags;
+    private volatile int ping;
+    private volatile boolean pingMeasured;
+    private volatile int clientToken;
+    private volatile int serverToken;
+
+    private final SquelchList squelched = new SquelchList();
+
+    // --- Chat identity ---
+
+    /**
+     * Channel display name ("CharName*AccountName" for D2 realm characters), or null before login.
+     */
+    public String getUsername() {
+        Encoded name = username;
+        return name != null ? name.value() : null;
+    }
+
+    /**
+     * ISO-8859-1 encoding of {@link #getUsername()}, without the NUL terminator.
+     */
+    public byte[] getUsernameBytes() {
+        Encoded name = username;
+        return name != null ? name.bytes() : EMPTY.bytes();
+    }
+
+    /**
+     * Interned id of the display name (see {@link UserIds}), or {@link UserIds#NONE} before login.
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    void setUsername(String username, int userId) {
+        this.username = username != null ? encode(username) : null;
+        this.userId = userId;
+    }
+
+    public String getStatstring() {
+        return statstring.value();
+    }
+
+    public byte[] getStatstringBytes() {
+        return statstring.bytes();
+    }
+
+    public void setStatstring(String statstring) {
+        this.statstring = statstring != null ? encode(statstring) : EMPTY;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public void setFlags(int flags) {
+        this.flags = flags;
+    }
+
+    public int getPing() {
+        return ping;
+    }
+
+    public boolean isPingMeasured() {
+        return pingMeasured;
+    }
+
+    public void setPing(int ping) {
+        this.ping = ping;
+        this.pingMeasured = true;
+    }
+
+    // --- Account and product ---
+
+    /**
+     * Account name sent with SID_AUTH_ACCOUNTLOGON, pending password proof.
+     */
+    public String getLogonName() {
+        return logonName;
+    }
+
+    public void setLogonName(String logonName) {
+        this.logonName = logonName;
+    }
+
+    public String getAccountName() {
+        return accountName;
+    }
+
+    public void setAccountName(String accountName) {
+        this.accountName = accountName;
+    }
+
+    public String getProduct() {
+        return product;
+    }
+
+    public void setProduct(String product) {
+        this.product = product;
+    }
+
+    public int getClientToken() {
+        return clientToken;
+    }
+
+    public void setClientToken(int clientToken) {
+        this.clientToken = clientToken;
+    }
+
+    public int getServerToken() {
+        return serverToken;
+    }
+
+    public void setServerToken(int serverToken) {
+        this.serverToken = serverToken;
+    }
+
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    void setAuthenticated(boolean authenticated) {
+        this.authenticated = authenticated;
+    }
+
+    // --- Chat state ---
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Record the chat channel the user is now in, and the join request that put them there.
+     * Callers hold the session lock so the check against {@link #getJoinRequest()} and the update
+     * are atomic.
+     */
+    public void setChannel(String channel, int membership) {
+        this.channel = channel;
+        this.membership = membership;
+    }
+
+    /**
+     * Id of the join request behind the user's current channel membership. Chat channels compare
+     * it with the id a member joined under to stop delivering to users who have already moved on
+     * while their removal is still queued.
+     */
+    public int getMembership() {
+        return membership;
+    }
+
+    /**
+     * Start a new channel join or leave; any earlier request that has not been applied yet is
+     * superseded.
+     */
+    public synchronized int requestJoin() {
+        return ++joinRequest;
+    }
+
+    public synchronized int getJoinRequest() {
+        return joinRequest;
+    }
+
+    public String getAway() {
+        return away;
+    }
+
+    public void setAway(String away) {
+        this.away = away;
+    }
+
+    public String getDnd() {
+        return dnd;
+    }
+
+    public void setDnd(String dnd) {
+        this.dnd = dnd;
+    }
+
+    /**
+     * Start ignoring the user with interned id {@code userId}. Returns false if already ignored.
+     */
+    boolean squelch(int userId) {
+        return squelched.add(userId);
+    }
+
+    /**
+     * Stop ignoring {@code userId}. Returns false if it was not being ignored.
+     */
+    boolean unsquelch(int userId) {
+        return squelched.remove(userId);
+    }
+
+    public boolean isSquelched(int userId) {
+        return squelched.contains(userId);
+    }
+
+    /**
+     * Stop ignoring everyone, returning the ids that were ignored.
+     */
+    int[] clearSquelched() {
+        return squelched.clear();
+    }
+
+    private static Encoded encode(String value) {
+        return new Encoded(value, value.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * A string and its wire encoding, swapped as a unit so readers never see a mismatched pair.
+     */
+    private record Encoded(String value, byte[] bytes) {
+    }
+}
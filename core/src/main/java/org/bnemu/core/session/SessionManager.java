@@ -1,83 +1,136 @@
 package org.bnemu.core.session;
 
 import io.netty.channel.Channel;
+import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
 
 public class SessionManager {
-    private static final AttributeKey<String> USERNAME_KEY = AttributeKey.valueOf("session.username");
-    private static final AttributeKey<Boolean> AUTH_KEY = AttributeKey.valueOf("session.authenticated");
-    private final Map<String, Channel> userToChannelMap = new ConcurrentHashMap<>();
+    private static final AttributeKey<Session> SESSION_KEY = AttributeKey.valueOf("session");
+    private final UserRegistry registry = new UserRegistry();
+    private final UserIds userIds = new UserIds();
 
-    public void set(Channel channel, String key, String value) {
-        AttributeKey<String> attrKey = AttributeKey.valueOf(key);
-        channel.attr(attrKey).set(value);
+    /**
+     * Returns the session attached to {@code channel}, attaching a new one on first use.
+     */
+    public Session session(Channel channel) {
+        Attribute<Session> attr = channel.attr(SESSION_KEY);
+        Session session = attr.get();
+        if (session == null) {
+            Session created = new Session();
+            session = attr.setIfAbsent(created);
+            if (session == null) {
+                session = created;
+            }
+        }
+        return session;
     }
 
-    public String get(Channel channel, String key) {
-        AttributeKey<String> attrKey = AttributeKey.valueOf(key);
-        return channel.attr(attrKey).get();
+    /**
+     * Set the channel display name and re-index the user under it.
+     */
+    public void setUsername(Channel channel, String username) {
+        Session session = session(channel);
+        synchronized (session) {
+            registry.rename(channel, session.getUsername(), username);
+            int previous = session.getUserId();
+            session.setUsername(username, userIds.acquire(username));
+            if (previous != UserIds.NONE) {
+                userIds.release(previous);
+            }
+        }
     }
 
-    public boolean has(Channel channel, String key) {
-        AttributeKey<String> attrKey = AttributeKey.valueOf(key);
-        return channel.hasAttr(attrKey);
+    /**
+     * Find an online user by display name, D2 character name or account name (case-insensitive).
+     */
+    public Channel getChannelByUsername(String username) {
+        return registry.find(username);
     }
 
-    public void setUsername(Channel channel, String username) {
-        channel.attr(USERNAME_KEY).set(username);
-        userToChannelMap.put(username.toLowerCase(), channel); // case-insensitive
+    /**
+     * Start ignoring a user by a name typed by {@code channel}'s user. Online users are ignored under
+     * their display name, whichever of their names was typed; other names as typed.
+     *
+     * @return false if the user was already being ignored
+     */
+    public boolean squelch(Channel channel, String name) {
+        int id = userIds.acquire(resolveName(name));
+        if (session(channel).squelch(id)) {
+            return true;
+        }
+        userIds.release(id);
+        return false;
     }
 
-    public Channel getChannelByUsername(String username) {
-        // Strip leading '*' — Battle.net convention for account-name lookup
-        if (username.startsWith("*")) {
-            username = username.substring(1);
+    /**
+     * Stop ignoring a user by a name typed by {@code channel}'s user, resolved as for {@link #squelch}.
+     *
+     * @return false if the user was not being ignored
+     */
+    public boolean unsquelch(Channel channel, String name) {
+        int id = userIds.lookup(resolveName(name));
+        if (id == UserIds.NONE || !session(channel).unsquelch(id)) {
+            return false;
         }
-        String lower = username.toLowerCase();
-        Channel ch = userToChannelMap.get(lower);
-        if (ch != null) return ch;
+        userIds.release(id);
+        return true;
+    }
 
-        // Fallback: for D2 users with "CharName*AccountName" display names,
-        // match by either the character name or account name part
-        for (Map.Entry<String, Channel> entry : userToChannelMap.entrySet()) {
-            String key = entry.getKey();
-            int star = key.indexOf('*');
-            if (star >= 0) {
-                String charPart = key.substring(0, star);
-                String acctPart = key.substring(star + 1);
-                if (charPart.equals(lower) || acctPart.equals(lower)) {
-                    return entry.getValue();
-                }
+    /**
+     * Resolve a name typed by a user (display, character or account name) to the name its user id
+     * is interned under: an online user's display name, otherwise the name without a leading '*'.
+     */
+    private String resolveName(String name) {
+        Channel online = registry.find(name);
+        if (online != null) {
+            String username = getUsername(online);
+            if (username != null) {
+                return username;
             }
         }
-        return null;
+        return name.startsWith("*") ? name.substring(1) : name;
     }
 
     public String getUsername(Channel channel) {
-        return channel.attr(USERNAME_KEY).get();
+        return session(channel).getUsername();
     }
 
     public boolean hasUsername(Channel channel) {
-        return channel.hasAttr(USERNAME_KEY);
+        return getUsername(channel) != null;
     }
 
     public void markAuthenticated(Channel channel) {
-        channel.attr(AUTH_KEY).set(true);
+        session(channel).setAuthenticated(true);
     }
 
     public boolean isAuthenticated(Channel channel) {
-        Boolean val = channel.attr(AUTH_KEY).get();
-        return val != null && val;
+        return session(channel).isAuthenticated();
     }
 
+    /**
+     * Drop the user from the registry, reset their login state and let go of the user ids they held.
+     * Called when the connection closes.
+     */
     public void clear(Channel channel) {
-        String username = getUsername(channel);
-        if (username != null) {
-            userToChannelMap.remove(username.toLowerCase());
+        Session session = session(channel);
+        synchronized (session) {
+            String username = session.getUsername();
+            if (username != null) {
+                registry.remove(channel, username);
+            }
+            int userId = session.getUserId();
+            session.setUsername(null, UserIds.NONE);
+            if (userId != UserIds.NONE) {
+                userIds.release(userId);
+            }
+            for (int squelched : session.clearSquelched()) {
+                userIds.release(squelched);
+            }
+            session.setAuthenticated(false);
         }
-        channel.attr(USERNAME_KEY).set(null);
-        channel.attr(AUTH_KEY).set(null);
     }
-}
\ No newline at end of file
+
+    public int getOnlineCount() {
+        return registry.size();
+    }
+}
@@ -0,0 +1,56 @@
+package org.bnemu.core.session;
+
+import java.util.Arrays;
+
+/**
+ * A user's squelch list as a sorted array of interned user ids. Updates copy the array (squelching
+ * is rare); {@link #contains} reads the current snapshot without locking or allocating, which keeps
+ * the per-recipient check in a chat broadcast to a binary search over a handful of ints.
+ */
+class SquelchList {
+    private static final int[] EMPTY = new int[0];
+
+    private volatile int[] ids = EMPTY;
+
+    boolean contains(int id) {
+        int[] snapshot = ids;
+        return snapshot.length != 0 && Arrays.binarySearch(snapshot, id) >= 0;
+    }
+
+    synchronized boolean add(int id) {
+        int[] current = ids;
+        int index = Arrays.binarySearch(current, id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = id;
+        System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+        ids = updated;
+        return true;
+    }
+
+    synchronized boolean remove(int id) {
+        int[] current = ids;
+        int index = Arrays.binarySearch(current, id);
+        if (index < 0) {
+            return false;
+        }
+        int[] updated = new int[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        ids = updated;
+        return true;
+    }
+
+    /**
+     * Empty the list, returning the ids it held.
+     */
+    synchronized int[] clear() {
+        int[] current = ids;
+        ids = EMPTY;
+        return current;
+    }
+}
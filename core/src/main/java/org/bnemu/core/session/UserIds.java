@@ -0,0 +1,78 @@
+package org.bnemu.core.session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns case-insensitive user names to small int ids, so per-message checks such as squelch
+ * membership compare ints instead of strings.
+ *
+ * <p>Ids are reference counted: a logged-on user holds the id of their display name and a squelch
+ * list holds the ids on it. A name is forgotten once nothing holds its id, so the table is bounded
+ * by the users online and the names they ignore. Ids are never reused; a name interned again after
+ * being forgotten gets a new one, which no stale holder can match.
+ */
+public class UserIds {
+    public static final int NONE = -1;
+
+    private final Map<String, Entry> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Returns the id for {@code name}, assigning a new one if it has none, and takes a reference to
+     * it. Each call is matched by a {@link #release}.
+     */
+    public int acquire(String name) {
+        return ids.compute(name.toLowerCase(), (n, entry) -> {
+            if (entry == null) {
+                entry = new Entry(nextId.getAndIncrement());
+                names.put(entry.id, n);
+            }
+            entry.refs++;
+            return entry;
+        }).id;
+    }
+
+    /**
+     * Drops a reference taken by {@link #acquire}, forgetting the name when it was the last.
+     */
+    public void release(int id) {
+        String name = names.get(id);
+        if (name == null) {
+            return;
+        }
+        ids.computeIfPresent(name, (n, entry) -> {
+            if (entry.id != id || --entry.refs > 0) {
+                return entry;
+            }
+            names.remove(id);
+            return null;
+        });
+    }
+
+    /**
+     * Returns the id for {@code name}, or {@link #NONE} if nothing holds one.
+     */
+    public int lookup(String name) {
+        Entry entry = ids.get(name.toLowerCase());
+        return entry != null ? entry.id : NONE;
+    }
+
+    /**
+     * The number of names currently interned.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private static final class Entry {
+        final int id;
+        int refs; // only changed inside compute on its key
+
+        Entry(int id) {
+            this.id = id;
+        }
+    }
+}
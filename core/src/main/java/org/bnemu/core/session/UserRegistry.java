@@ -0,0 +1,76 @@
+package org.bnemu.core.session;
+
+import io.netty.channel.Channel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online users indexed by display name, D2 character name and account name (all case-insensitive).
+ *
+ * <p>D2 realm users appear in chat as "CharName*AccountName"; both halves get their own index so
+ * whispers, /whois and operator commands resolve either form with a single hash lookup instead of
+ * scanning every online user. Lookups are lock-free; updates are serialized so a rename never
+ * leaves a user half-indexed. Removals are conditional on the channel, so a stale entry can never
+ * evict a newer login that took the same name.
+ */
+public class UserRegistry {
+    private final Map<String, Channel> byDisplayName = new ConcurrentHashMap<>();
+    private final Map<String, Channel> byCharacterName = new ConcurrentHashMap<>();
+    private final Map<String, Channel> byAccountName = new ConcurrentHashMap<>();
+
+    /**
+     * Index {@code channel} under {@code displayName}, dropping the entries for its previous name.
+     */
+    public synchronized void rename(Channel channel, String previousName, String displayName) {
+        if (previousName != null) {
+            removeIndexes(channel, previousName.toLowerCase());
+        }
+        String lower = displayName.toLowerCase();
+        byDisplayName.put(lower, channel);
+
+        int star = lower.indexOf('*');
+        if (star >= 0) {
+            byCharacterName.put(lower.substring(0, star), channel);
+            byAccountName.put(lower.substring(star + 1), channel);
+        }
+    }
+
+    public synchronized void remove(Channel channel, String displayName) {
+        removeIndexes(channel, displayName.toLowerCase());
+    }
+
+    /**
+     * Resolve a display name, character name or account name. A leading '*' (Battle.net
+     * convention for account-name lookup) is ignored.
+     */
+    public Channel find(String name) {
+        if (name.startsWith("*")) {
+            name = name.substring(1);
+        }
+        String lower = name.toLowerCase();
+
+        Channel channel = byDisplayName.get(lower);
+        if (channel == null) {
+            channel = byCharacterName.get(lower);
+        }
+        if (channel == null) {
+            channel = byAccountName.get(lower);
+        }
+        return channel;
+    }
+
+    public int size() {
+        return byDisplayName.size();
+    }
+
+    private void removeIndexes(Channel channel, String lower) {
+        byDisplayName.remove(lower, channel);
+
+        int star = lower.indexOf('*');
+        if (star >= 0) {
+            byCharacterName.remove(lower.substring(0, star), channel);
+            byAccountName.remove(lower.substring(star + 1), channel);
+        }
+    }
+}
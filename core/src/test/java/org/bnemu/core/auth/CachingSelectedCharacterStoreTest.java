@@ -0,0 +1,81 @@
+package org.bnemu.core.auth;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.bnemu.core.auth.SelectedCharacterStore.SelectedCharacter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingSelectedCharacterStoreTest {
+    // Its event loop is the expiry timer, on a clock the test moves
+    private final EmbeddedChannel clock = new EmbeddedChannel();
+    private final InMemorySelectedCharacterStore database = new InMemorySelectedCharacterStore();
+    private final CachingSelectedCharacterStore store = new CachingSelectedCharacterStore(database, clock.eventLoop());
+
+    @AfterEach
+    public void teardown() {
+        clock.finishAndReleaseAll();
+    }
+
+    @Test
+    public void pushedSelectionsAreServedFromMemory() {
+        store.cache(selection("Alice", "Zeus"));
+
+        assertEquals("Zeus", store.getSelectedCharacter("alice").characterName());
+        assertEquals("Zeus", store.getSelectedCharacterAsync("ALICE").toCompletableFuture().join().characterName());
+        assertNull(database.getSelectedCharacter("alice"), "pushed selections are not written back");
+    }
+
+    @Test
+    public void selectionsExpire() {
+        store.cache(selection("alice", "Zeus"));
+
+        clock.advanceTimeBy(SelectedCharacterStore.SELECTION_TTL_MILLIS - 1, TimeUnit.MILLISECONDS);
+        clock.runScheduledPendingTasks();
+        assertNotNull(store.getSelectedCharacter("alice"));
+
+        clock.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        clock.runScheduledPendingTasks();
+        assertNull(store.getSelectedCharacter("alice"));
+    }
+
+    @Test
+    public void replacedSelectionKeepsItsOwnExpiry() {
+        store.cache(selection("alice", "Zeus"));
+        clock.advanceTimeBy(SelectedCharacterStore.SELECTION_TTL_MILLIS / 2, TimeUnit.MILLISECONDS);
+        store.cache(selection("alice", "Hera"));
+
+        clock.advanceTimeBy(SelectedCharacterStore.SELECTION_TTL_MILLIS / 2, TimeUnit.MILLISECONDS);
+        clock.runScheduledPendingTasks();
+        assertEquals("Hera", store.getSelectedCharacter("alice").characterName());
+    }
+
+    @Test
+    public void invalidatingFallsBackToTheBackingStore() {
+        store.cache(selection("alice", "Zeus"));
+        // Selected again while the link was down: only the database has it
+        database.setSelectedCharacter("alice", "realm", "Hera", "SORCERESS", 1, true, false, false);
+        assertEquals("Zeus", store.getSelectedCharacter("alice").characterName());
+
+        store.invalidateAll();
+
+        assertEquals("Hera", store.getSelectedCharacter("alice").characterName());
+    }
+
+    @Test
+    public void localSelectionsAreWrittenThrough() {
+        store.setSelectedCharacter("Alice", "realm", "Zeus", "SORCERESS", 1, true, false, false);
+        store.invalidateAll();
+        assertEquals("Zeus", store.getSelectedCharacter("alice").characterName());
+
+        store.clearSelectedCharacter("alice");
+        assertNull(store.getSelectedCharacter("alice"));
+    }
+
+    private static SelectedCharacter selection(String account, String character) {
+        return new SelectedCharacter(account.toLowerCase(), "realm", character, "SORCERESS", 1, true, false, false);
+    }
+}
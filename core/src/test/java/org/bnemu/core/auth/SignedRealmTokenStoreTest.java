@@ -0,0 +1,54 @@
+package org.bnemu.core.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignedRealmTokenStoreTest {
+    private static final String SECRET = "0123456789abcdef-test";
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final SignedRealmTokenStore bncs = new SignedRealmTokenStore(SECRET, now::get);
+    private final SignedRealmTokenStore d2cs = new SignedRealmTokenStore(SECRET, now::get);
+
+    @Test
+    public void tokenIsAcceptedOnce() {
+        RealmToken issued = bncs.createToken("alice", 11, 22);
+
+        RealmToken accepted = d2cs.validateAndConsume(presented(issued, "alice"));
+        assertNotNull(accepted);
+        assertEquals("alice", accepted.getAccountName());
+        assertEquals(11, accepted.getClientToken());
+        assertEquals(22, accepted.getServerToken());
+
+        assertNull(d2cs.validateAndConsume(presented(issued, "alice")), "replay must be rejected");
+    }
+
+    @Test
+    public void tamperedTokenIsRejected() {
+        RealmToken issued = bncs.createToken("alice", 11, 22);
+
+        assertNull(d2cs.validateAndConsume(presented(issued, "mallory")));
+
+        byte[] data = issued.getAuthData().clone();
+        data[10] ^= 1;
+        assertNull(d2cs.validateAndConsume(new RealmToken(issued.getCookie(), "alice", 11, 22, 0, data)));
+        assertNull(new SignedRealmTokenStore("another-secret-key!", now::get)
+            .validateAndConsume(presented(issued, "alice")));
+    }
+
+    @Test
+    public void expiredTokenIsRejected() {
+        RealmToken issued = bncs.createToken("alice", 11, 22);
+        now.addAndGet(301_000);
+
+        assertNull(d2cs.validateAndConsume(presented(issued, "alice")));
+    }
+
+    private static RealmToken presented(RealmToken issued, String uniqueName) {
+        return new RealmToken(issued.getCookie(), uniqueName, issued.getClientToken(), issued.getServerToken(),
+            0, issued.getAuthData().clone());
+    }
+}
@@ -0,0 +1,108 @@
+package org.bnemu.core.link;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.bnemu.core.auth.SelectedCharacterStore.SelectedCharacter;
+import org.bnemu.core.config.TransportConfig;
+import org.bnemu.core.net.Acceptors;
+import org.bnemu.core.net.ServerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelectionLinkTest {
+    private static final SelectedCharacter SELECTION =
+        new SelectedCharacter("alice", "Realm", "Zeüs", "SORCERESS", 42, true, false, true);
+
+    private Acceptors bncs;
+    private Acceptors d2cs;
+
+    @AfterEach
+    public void teardown() {
+        if (d2cs != null) {
+            d2cs.shutdownGracefully();
+        }
+        if (bncs != null) {
+            bncs.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void selectionsSurviveFramingAndDecoding() {
+        EmbeddedChannel sender = new EmbeddedChannel();
+        SelectionLink.initFraming(sender.pipeline());
+        EmbeddedChannel receiver = new EmbeddedChannel();
+        SelectionLink.initFraming(receiver.pipeline());
+
+        assertTrue(sender.writeOutbound(SelectionLink.encode(sender.alloc(), SELECTION)));
+        ByteBuf wire;
+        while ((wire = sender.readOutbound()) != null) {
+            receiver.writeInbound(wire);
+        }
+        ByteBuf frame = receiver.readInbound();
+        try {
+            assertEquals(SELECTION, SelectionLink.decode(frame));
+            assertFalse(frame.isReadable());
+        } finally {
+            frame.release();
+        }
+        assertFalse(sender.finishAndReleaseAll());
+        assertFalse(receiver.finishAndReleaseAll());
+    }
+
+    @Test
+    public void unknownMessagesAreSkipped() {
+        ByteBuf frame = ByteBufAllocator.DEFAULT.buffer().writeByte(99).writeShort(0);
+        try {
+            assertNull(SelectionLink.decode(frame));
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    public void clientPushesToServerAndLinkChangesAreReported() throws Exception {
+        BlockingQueue<SelectedCharacter> received = new LinkedBlockingQueue<>();
+        AtomicInteger linkChanges = new AtomicInteger();
+        bncs = new Acceptors(nio());
+        SelectionLinkServer server = new SelectionLinkServer("127.0.0.1", 0, received::add, linkChanges::incrementAndGet);
+        Channel listener = server.bind(bncs).get(0);
+        int port = ((InetSocketAddress) listener.localAddress()).getPort();
+
+        d2cs = new Acceptors(nio());
+        SelectionLinkClient client = new SelectionLinkClient(d2cs, "127.0.0.1", port);
+        client.connect();
+
+        // Pushes before the client has connected are dropped, so keep pushing until one arrives
+        SelectedCharacter delivered = null;
+        for (int i = 0; i < 50 && delivered == null; i++) {
+            client.accept(SELECTION);
+            delivered = received.poll(100, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(SELECTION, delivered);
+        assertEquals(1, linkChanges.get(), "connected");
+
+        d2cs.shutdownGracefully();
+        d2cs = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (linkChanges.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, linkChanges.get(), "disconnected");
+    }
+
+    private static ServerTransport nio() {
+        TransportConfig config = new TransportConfig();
+        config.setType("nio");
+        return ServerTransport.select(config);
+    }
+}
@@ -0,0 +1,57 @@
+package org.bnemu.core.net;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Fails a test class if Netty reported a leaked buffer while it ran. Registered for every test
+ * through {@code META-INF/services}, so it applies to any module with core's test jar on its test
+ * classpath; the surefire configuration in the parent POM turns on autodetection and installs
+ * {@link RecordingLeakDetector} at the paranoid level.
+ *
+ * <p>Leaks are only noticed once the buffer has been garbage collected and another one is
+ * allocated, so a leak may be blamed on the class after the one that caused it. Tests about
+ * buffer lifetimes call {@link #assertNoLeaks} themselves to pin it down.
+ */
+public class LeakDetectionExtension implements AfterAllCallback {
+    private static final int ROUNDS = 5;
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        if (RecordingLeakDetector.installed()) {
+            check(context.getDisplayName());
+        }
+    }
+
+    /**
+     * Collect garbage and fail if that turns up a leaked buffer.
+     */
+    public static void assertNoLeaks() {
+        check("this test");
+        assertTrue(RecordingLeakDetector.installed(), "Leak detection is off; run with "
+            + "-Dio.netty.customResourceLeakDetector=" + RecordingLeakDetector.class.getName());
+    }
+
+    private static void check(String where) {
+        collect();
+        List<String> leaks = RecordingLeakDetector.drain();
+        if (!leaks.isEmpty()) {
+            fail("Netty reported " + leaks.size() + " leaked buffer(s) during " + where + ":\n"
+                + String.join("\n", leaks));
+        }
+    }
+
+    private static void collect() {
+        // The detector reports a collected buffer the next time it tracks an allocation
+        for (int i = 0; i < ROUNDS; i++) {
+            System.gc();
+            PooledByteBufAllocator.DEFAULT.buffer(1).release();
+        }
+    }
+}
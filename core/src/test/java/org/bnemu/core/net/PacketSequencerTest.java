@@ -0,0 +1,47 @@
+package org.bnemu.core.net;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PacketSequencerTest {
+    @Test
+    public void offloadedTaskIsFlushedWhenItRunsInline() {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("shut down");
+        };
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                PacketSequencer.offload(ctx, rejecting, () -> ctx.write("reply to " + msg));
+            }
+        });
+
+        channel.writeInbound("request");
+
+        assertEquals("reply to request", channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void offloadedTaskIsFlushedOnceItCompletes() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                PacketSequencer.offload(ctx, Runnable::run, () -> ctx.write("reply to " + msg));
+            }
+        });
+
+        channel.writeInbound("request");
+        channel.runPendingTasks();
+
+        assertEquals("reply to request", channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+}
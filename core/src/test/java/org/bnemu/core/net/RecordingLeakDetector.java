@@ -0,0 +1,52 @@
+package org.bnemu.core.net;
+
+import io.netty.util.ResourceLeakDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A leak detector that, besides logging them, keeps the leaks it reports so
+ * {@link LeakDetectionExtension} can fail the test that caused them. Installed for the test suite
+ * through {@code io.netty.customResourceLeakDetector}, which Netty reads when it first creates a
+ * detector.
+ */
+public class RecordingLeakDetector<T> extends ResourceLeakDetector<T> {
+    private static final Queue<String> leaks = new ConcurrentLinkedQueue<>();
+    private static volatile boolean installed;
+
+    public RecordingLeakDetector(Class<?> resourceType, int samplingInterval) {
+        super(resourceType, samplingInterval);
+        installed = true;
+    }
+
+    static boolean installed() {
+        return installed;
+    }
+
+    /**
+     * @return the leaks reported since the last call
+     */
+    static List<String> drain() {
+        List<String> drained = new ArrayList<>();
+        String leak;
+        while ((leak = leaks.poll()) != null) {
+            drained.add(leak);
+        }
+        return drained;
+    }
+
+    @Override
+    protected void reportTracedLeak(String resourceType, String records) {
+        super.reportTracedLeak(resourceType, records);
+        leaks.add(resourceType + " leaked:" + records);
+    }
+
+    @Override
+    protected void reportUntracedLeak(String resourceType) {
+        super.reportUntracedLeak(resourceType);
+        leaks.add(resourceType + " leaked (no records)");
+    }
+}
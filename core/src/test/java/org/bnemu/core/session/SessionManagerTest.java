@@ -0,0 +1,46 @@
+package org.bnemu.core.session;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionManagerTest {
+    private final SessionManager sessions = new SessionManager();
+
+    @Test
+    public void squelchOutlivesTheSquelchedUsersLogout() {
+        EmbeddedChannel alice = online("alice");
+        EmbeddedChannel bob = online("bob");
+
+        assertTrue(sessions.squelch(alice, "BOB"));
+        assertFalse(sessions.squelch(alice, "bob"), "already ignored");
+
+        sessions.clear(bob);
+        bob = online("bob");
+        assertTrue(sessions.session(alice).isSquelched(sessions.session(bob).getUserId()));
+
+        assertTrue(sessions.unsquelch(alice, "bob"));
+        assertFalse(sessions.session(alice).isSquelched(sessions.session(bob).getUserId()));
+        assertFalse(sessions.unsquelch(alice, "bob"), "no longer ignored");
+    }
+
+    @Test
+    public void offlineNamesCanBeSquelchedAndUnsquelched() {
+        EmbeddedChannel alice = online("alice");
+
+        assertTrue(sessions.squelch(alice, "*carol"));
+        EmbeddedChannel carol = online("carol");
+        assertTrue(sessions.session(alice).isSquelched(sessions.session(carol).getUserId()));
+
+        sessions.clear(alice);
+        assertFalse(sessions.session(alice).isSquelched(sessions.session(carol).getUserId()));
+        assertFalse(sessions.unsquelch(online("alice"), "carol"));
+    }
+
+    private EmbeddedChannel online(String name) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        sessions.setUsername(channel, name);
+        return channel;
+    }
+}
@@ -0,0 +1,41 @@
+package org.bnemu.core.session;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserIdsTest {
+    private final UserIds ids = new UserIds();
+
+    @Test
+    public void namesAreCaseInsensitiveAndForgottenWithTheirLastReference() {
+        int id = ids.acquire("Alice");
+        assertEquals(id, ids.acquire("alice"));
+        assertEquals(id, ids.lookup("ALICE"));
+
+        ids.release(id);
+        assertEquals(id, ids.lookup("alice"), "one reference is still held");
+        ids.release(id);
+        assertEquals(UserIds.NONE, ids.lookup("alice"));
+        assertEquals(0, ids.size());
+    }
+
+    @Test
+    public void idsAreNotReused() {
+        int first = ids.acquire("alice");
+        ids.release(first);
+        int second = ids.acquire("alice");
+
+        assertNotEquals(first, second);
+        ids.release(first);
+        assertEquals(second, ids.lookup("alice"), "a stale release must not drop the new id");
+    }
+
+    @Test
+    public void tableIsBoundedByHeldNames() {
+        for (int i = 0; i < 10_000; i++) {
+            ids.release(ids.acquire("user" + i));
+        }
+        assertEquals(0, ids.size());
+    }
+}
@@ -1,30 +1,40 @@
 package org.bnemu.d2cs;
 
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
-import com.mongodb.client.MongoDatabase;
-import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import org.bnemu.core.auth.PublishingSelectedCharacterStore;
 import org.bnemu.core.auth.RealmTokenStore;
 import org.bnemu.core.auth.SelectedCharacterStore;
+import org.bnemu.core.config.CacheConfig;
 import org.bnemu.core.config.ConfigLoadException;
 import org.bnemu.core.config.ConfigLoader;
 import org.bnemu.core.config.CoreConfig;
+import org.bnemu.core.config.PortConfig;
+import org.bnemu.core.dao.AsyncD2CharacterDao;
 import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bnemu.core.link.SelectionLinkClient;
+import org.bnemu.core.net.Acceptors;
+import org.bnemu.core.net.FlushBatching;
+import org.bnemu.core.net.ServerTransport;
+import org.bnemu.d2cs.character.CharacterCache;
+import org.bnemu.d2cs.character.CharacterNameRegistry;
 import org.bnemu.d2cs.game.GameRegistry;
 import org.bnemu.d2cs.handler.McpDispatcher;
-import org.bnemu.persistence.dao.MongoD2CharacterDao;
+import org.bnemu.persistence.Persistence;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketDecoder;
 import org.bnemu.d2cs.net.packet.McpPacketEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
 /**
  * Diablo 2 Character Server (D2CS).
  * Handles character management and game creation for D2 realm.
@@ -34,31 +44,59 @@ public class D2csServer {
 
     private final int port;
     private final McpDispatcher dispatcher;
+    private final Acceptors acceptors;
 
     public D2csServer(CoreConfig config) {
-        this.port = config.getServer().getD2cs().getPort();
+        this(config, new Acceptors(ServerTransport.select(config.getServer().getTransport())),
+                Persistence.open(config));
+    }
 
-        // Construct MongoDB connection
-        String mongoUri = String.format(
-                "mongodb://%s:%s@%s:%d/%s?authSource=admin",
-                config.getMongo().getUsername(),
-                config.getMongo().getPassword(),
-                config.getMongo().getHost(),
-                config.getMongo().getPort(),
-                config.getMongo().getDatabase()
-        );
+    private D2csServer(CoreConfig config, Acceptors acceptors, Persistence persistence) {
+        this(config, acceptors, persistence,
+                // Database calls run here, never on the event loops
+                new DaoExecutor(persistence.maxConcurrentOperations()));
+    }
 
-        MongoClient mongoClient = MongoClients.create(mongoUri);
-        MongoDatabase db = mongoClient.getDatabase(config.getMongo().getDatabase());
+    private D2csServer(CoreConfig config, Acceptors acceptors, Persistence persistence, DaoExecutor daoExecutor) {
+        this(config, acceptors, persistence, daoExecutor,
+                // Shared with BNCS through the database
+                persistence.realmTokenStore(config.getRealm(), daoExecutor),
+                linked(config, acceptors, persistence.selectedCharacterStore(daoExecutor)));
+    }
 
-        // Initialize shared token store for D2 realm auth
-        RealmTokenStore.initialize(db);
+    /**
+     * With the selection link configured, also push each selection straight to BNCS so it need
+     * not read it back from the database.
+     */
+    private static SelectedCharacterStore linked(CoreConfig config, Acceptors acceptors, SelectedCharacterStore store) {
+        PortConfig linkConfig = config.getServer().getSelectionLink();
+        if (linkConfig == null) {
+            return store;
+        }
+        SelectionLinkClient link = new SelectionLinkClient(acceptors, linkConfig.getHost(), linkConfig.getPort());
+        link.connect();
+        return new PublishingSelectedCharacterStore(store, link);
+    }
 
-        // Initialize selected character store for cross-server sharing
-        SelectedCharacterStore.initialize(db);
+    /**
+     * Build a server on shared event loops and stores, for running in one process with BNCS.
+     * {@link #bind()} it rather than {@link #start()}, which shuts the event loops down.
+     */
+    public D2csServer(CoreConfig config, Acceptors acceptors, Persistence persistence, DaoExecutor daoExecutor,
+                      RealmTokenStore tokenStore, SelectedCharacterStore selectedCharStore) {
+        this.port = config.getServer().getD2cs().getPort();
+        this.acceptors = acceptors;
 
         // Initialize character DAO
-        D2CharacterDao characterDao = new MongoD2CharacterDao(db);
+        D2CharacterDao characters = persistence.characterDao();
+        AsyncD2CharacterDao characterDao = AsyncD2CharacterDao.offload(characters, daoExecutor);
+        // Lobby traffic (character lists, logons, game creation) is answered from here
+        CacheConfig cacheConfig = config.getCache();
+        CharacterCache characterCache = new CharacterCache(characterDao, cacheConfig.getCharacterAccountsMaxSize(),
+                Duration.ofSeconds(cacheConfig.getCharacterTtlSeconds()));
+        // Character creation checks names against this once loaded, and the database until then
+        CharacterNameRegistry nameRegistry = new CharacterNameRegistry(characterDao);
+        nameRegistry.load();
 
         // Get realm name from config
         String realmName = config.getRealm() != null ? config.getRealm().getName() : "bnemu";
@@ -67,26 +105,27 @@ public class D2csServer {
         GameRegistry gameRegistry = new GameRegistry();
         String d2gsHost = config.getServer().getD2gs().getHost();
 
-        this.dispatcher = new McpDispatcher(characterDao, SelectedCharacterStore.getInstance(),
-                realmName, gameRegistry, d2gsHost);
-    }
+        // Handlers marked blocking run on virtual threads, keeping the event loops on I/O
+        Executor handlerExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("d2cs-handler-", 0).factory());
 
-    public void start() throws InterruptedException {
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        this.dispatcher = new McpDispatcher(characterDao, characterCache, nameRegistry, selectedCharStore, tokenStore,
+                realmName, gameRegistry, d2gsHost, handlerExecutor);
+    }
 
-        try {
-            ServerBootstrap bootstrap = new ServerBootstrap();
-            bootstrap.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .handler(new LoggingHandler(LogLevel.INFO))
-                .childHandler(new ChannelInitializer<SocketChannel>() {
+    /**
+     * Open the listening sockets and return them; the event loops keep running until shut down.
+     */
+    public List<Channel> bind() throws InterruptedException {
+        List<Channel> listeners = acceptors.bind(port, new LoggingHandler(LogLevel.INFO),
+                new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
                         ChannelPipeline pipeline = ch.pipeline();
+                        FlushBatching.install(pipeline);
                         pipeline.addLast(new McpPacketDecoder());
                         pipeline.addLast(new McpPacketEncoder());
-                        pipeline.addLast(new SimpleChannelInboundHandler<McpPacket>() {
+                        pipeline.addLast(new SimpleChannelInboundHandler<McpPacket>(false) { // dispatcher releases
                             @Override
                             protected void channelRead0(ChannelHandlerContext ctx, McpPacket msg) {
                                 dispatcher.dispatch(ctx, msg);
@@ -101,12 +140,17 @@ public class D2csServer {
                     }
                 });
 
-            ChannelFuture future = bootstrap.bind(port).sync();
-            logger.info("D2CS server started on port {}", port);
-            future.channel().closeFuture().sync();
+        logger.info("D2CS server started on port {} ({} acceptor(s))", port, listeners.size());
+        return listeners;
+    }
+
+    public void start() throws InterruptedException {
+        try {
+            for (Channel listener : bind()) {
+                listener.closeFuture().sync();
+            }
         } finally {
-            bossGroup.shutdownGracefully();
-            workerGroup.shutdownGracefully();
+            acceptors.shutdownGracefully();
         }
     }
 
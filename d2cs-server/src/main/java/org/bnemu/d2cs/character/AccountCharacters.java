@@ -0,0 +1,46 @@
+package org.bnemu.d2cs.character;
+
+import org.bnemu.core.model.D2CharacterSummary;
+
+import java.util.List;
+
+/**
+ * The characters of one account as cached by {@link CharacterCache}, each with its encoded
+ * character list entry. Shared between connections; never modified.
+ */
+public final class AccountCharacters {
+    private final List<D2CharacterSummary> characters;
+    private final List<byte[]> listEntries;
+
+    AccountCharacters(List<D2CharacterSummary> characters) {
+        this.characters = List.copyOf(characters);
+        this.listEntries = characters.stream().map(CharacterListEntry::encode).toList();
+    }
+
+    public int size() {
+        return characters.size();
+    }
+
+    public D2CharacterSummary get(int index) {
+        return characters.get(index);
+    }
+
+    /**
+     * The name and statstring for MCP_CHARLIST2; callers must not modify it.
+     */
+    public byte[] listEntry(int index) {
+        return listEntries.get(index);
+    }
+
+    /**
+     * @return the character with this name (ignoring case), or null
+     */
+    public D2CharacterSummary find(String characterName) {
+        for (D2CharacterSummary character : characters) {
+            if (character.getName().equalsIgnoreCase(characterName)) {
+                return character;
+            }
+        }
+        return null;
+    }
+}
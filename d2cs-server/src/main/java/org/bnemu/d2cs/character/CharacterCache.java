@@ -0,0 +1,54 @@
+package org.bnemu.d2cs.character;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.bnemu.core.model.D2CharacterSummary;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Per-account character summaries and list entries, so the character select screen and game
+ * creation do not query the database each time.
+ *
+ * <p>An account's entry is loaded once and kept until the TTL runs out or a handler that changes
+ * its characters (create, delete, upgrade) invalidates it. Concurrent misses for an account share
+ * one query, and an invalidation during a load discards its result. Last-played times are not
+ * refreshed in the cache; nothing read through it uses them. With several D2CS instances a change
+ * made on another instance shows up here after at most the TTL.
+ */
+public class CharacterCache {
+    private final AsyncD2CharacterDao characterDao;
+    private final AsyncCache<String, AccountCharacters> accounts;
+
+    public CharacterCache(AsyncD2CharacterDao characterDao, int maxAccounts, Duration ttl) {
+        this.characterDao = characterDao;
+        this.accounts = Caffeine.newBuilder()
+            .maximumSize(maxAccounts)
+            .expireAfterWrite(ttl)
+            .buildAsync();
+    }
+
+    public CompletionStage<AccountCharacters> get(String accountName) {
+        // The loader only starts the query, so nothing blocks inside the cache
+        return accounts.get(accountName.toLowerCase(), (key, executor) ->
+            characterDao.findSummariesByAccountName(key)
+                .thenApply(AccountCharacters::new)
+                .toCompletableFuture());
+    }
+
+    /**
+     * Completes with the character, or null if the account has none by that name.
+     */
+    public CompletionStage<D2CharacterSummary> find(String accountName, String characterName) {
+        return get(accountName).thenApply(characters -> characters.find(characterName));
+    }
+
+    /**
+     * Drop an account's entry after its characters changed.
+     */
+    public void invalidate(String accountName) {
+        accounts.synchronous().invalidate(accountName.toLowerCase());
+    }
+}
@@ -0,0 +1,80 @@
+package org.bnemu.d2cs.character;
+
+import org.bnemu.core.model.D2CharacterSummary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The part of an MCP_CHARLIST2 entry that depends only on the character: its name and 33-byte
+ * statstring, both NUL-terminated. The expiry DWORD in front of it is written per response.
+ */
+public final class CharacterListEntry {
+    private CharacterListEntry() {
+    }
+
+    public static byte[] encode(D2CharacterSummary character) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+        // (STRING) Character name
+        out.writeBytes(character.getName().getBytes(StandardCharsets.ISO_8859_1));
+        out.write(0x00);
+
+        // 33-byte character statstring per BnetDocs format
+        // Note: Values 0x01-0xFF are valid; 0xFF typically means "empty/none"
+        int charClass = character.getCharClass() != null ? character.getCharClass().getCode() : 0;
+        int level = Math.max(1, Math.min(99, character.getLevel()));
+
+        // Build flags byte (byte 27): 0x04=hardcore, 0x08=dead, 0x20=expansion, 0x40=ladder
+        int flags = 0x80; // Base flag (character exists)
+        if (character.isHardcore()) flags |= 0x04;
+        if (character.isDead()) flags |= 0x08;
+        if (character.isExpansion()) flags |= 0x20;
+        if (character.isLadder()) flags |= 0x40;
+
+        // Byte 1-2: Header bytes
+        out.write(0x84);
+        out.write(0x80);
+
+        // Bytes 3-12: Equipment slots (10 bytes) - 0xFF = no item
+        for (int i = 0; i < 10; i++) {
+            out.write(0xFF);
+        }
+
+        // Byte 13: Offhand item - 0xFF = none
+        out.write(0xFF);
+
+        // Byte 14: Character class (1-indexed: 1=Amazon, 2=Sorc, 3=Necro, 4=Pally, 5=Barb, 6=Druid, 7=Sin)
+        out.write(charClass + 1);
+
+        // Bytes 15-25: Equipment colors (11 bytes) - 0xFF = default/none
+        for (int i = 0; i < 11; i++) {
+            out.write(0xFF);
+        }
+
+        // Byte 26: Level
+        out.write(level);
+
+        // Byte 27: Flags
+        out.write(flags);
+
+        // Byte 28: Current act - bitfield: bits 0-2 = act (0-4), bit 7 = active
+        // 0x80 = Act 1 Normal active (bit 7 set, act = 0)
+        out.write(0x80);
+
+        // Bytes 29-30: Unknown
+        out.write(0xFF);
+        out.write(0xFF);
+
+        // Byte 31: Ladder (0xFF = non-ladder, other values = ladder season)
+        out.write(character.isLadder() ? 0x01 : 0xFF);
+
+        // Bytes 32-33: Unknown
+        out.write(0xFF);
+        out.write(0xFF);
+
+        // Null terminator - statstring is sent as null-terminated string
+        out.write(0x00);
+        return out.toByteArray();
+    }
+}
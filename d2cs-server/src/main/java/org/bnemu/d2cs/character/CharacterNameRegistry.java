@@ -0,0 +1,128 @@
+package org.bnemu.d2cs.character;
+
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Character names known to be taken, so MCP_CHARCREATE can turn down most taken names without a
+ * database query.
+ *
+ * <p>All names are loaded at startup into an exact set, screened by a Bloom filter: a name the
+ * filter has never seen skips the set lookup, and anything else is answered by the set. Names are
+ * reserved atomically while a character is being created, so two creates on this instance cannot
+ * race. A name that looks free is still only claimed by the insert: the unique {@code nameLower}
+ * index catches names created on another D2CS instance since startup. Until loading finishes the
+ * registry knows nothing, and callers ask the database as before.
+ *
+ * <p>A name deleted on another instance would otherwise stay taken here until restart, so a taken
+ * name is only trusted for {@link #DEFAULT_CONFIRM_AFTER} after it was last seen in the database.
+ * After that, {@link #tryReserve} lets the create go ahead and {@link #isKnownFree} sends the caller
+ * to the database; a name still taken there is confirmed again through {@link #release}.
+ */
+public class CharacterNameRegistry {
+    public static final Duration DEFAULT_CONFIRM_AFTER = Duration.ofMinutes(10);
+    private static final Logger logger = LoggerFactory.getLogger(CharacterNameRegistry.class);
+
+    private final AsyncD2CharacterDao characterDao;
+    private final long confirmAfterNanos;
+    private final LongSupplier nanoTime;
+    // Taken names and when the database last said so
+    private final Map<String, Long> taken = new ConcurrentHashMap<>();
+    private final Set<String> reserved = ConcurrentHashMap.newKeySet();
+    private volatile NameBloomFilter filter;
+
+    public CharacterNameRegistry(AsyncD2CharacterDao characterDao) {
+        this(characterDao, DEFAULT_CONFIRM_AFTER, System::nanoTime);
+    }
+
+    CharacterNameRegistry(AsyncD2CharacterDao characterDao, Duration confirmAfter, LongSupplier nanoTime) {
+        this.characterDao = characterDao;
+        this.confirmAfterNanos = confirmAfter.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Load every existing name in the background.
+     */
+    public CompletionStage<Void> load() {
+        long started = System.nanoTime();
+        long loadedAt = nanoTime.getAsLong();
+        return characterDao.forEachCharacterName(name -> taken.put(name, loadedAt)).whenComplete((v, e) -> {
+            if (e != null) {
+                logger.error("Failed to load character names; checking names against the database", e);
+                return;
+            }
+            // Sized for growth; past that the false positive rate rises, but answers stay exact
+            NameBloomFilter loaded = new NameBloomFilter(Math.max(100_000, taken.size() * 2L));
+            taken.keySet().forEach(loaded::add);
+            filter = loaded;
+            logger.info("Loaded {} character names in {} ms", taken.size(), (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+
+    /**
+     * Whether {@code name} is free as far as this instance can tell without asking the database:
+     * all names are loaded and it is not among them. A name whose taken status is due for
+     * confirmation is not known free.
+     */
+    public boolean isKnownFree(String name) {
+        String key = name.toLowerCase();
+        NameBloomFilter current = filter;
+        return current != null && (!current.mightContain(key) || !taken.containsKey(key));
+    }
+
+    /**
+     * Reserve {@code name} for a character about to be created. Must be followed by
+     * {@link #release} once the create has finished, whatever its outcome.
+     *
+     * @return false if the name was recently confirmed taken or another create for it is in progress
+     */
+    public boolean tryReserve(String name) {
+        String key = name.toLowerCase();
+        NameBloomFilter current = filter;
+        if (current != null && current.mightContain(key)) {
+            Long confirmedAt = taken.get(key);
+            if (confirmedAt != null && nanoTime.getAsLong() - confirmedAt < confirmAfterNanos) {
+                return false;
+            }
+        }
+        return reserved.add(key);
+    }
+
+    /**
+     * End a reservation.
+     *
+     * @param taken whether the name now belongs to a character, created here or found elsewhere
+     */
+    public void release(String name, boolean taken) {
+        String key = name.toLowerCase();
+        if (taken) {
+            markTaken(key);
+        }
+        reserved.remove(key);
+    }
+
+    /**
+     * Forget a name after its character was deleted.
+     */
+    public void remove(String name) {
+        // The filter keeps the name's bits; the set decides
+        taken.remove(name.toLowerCase());
+    }
+
+    private void markTaken(String key) {
+        taken.put(key, nanoTime.getAsLong());
+        NameBloomFilter current = filter;
+        if (current != null) {
+            current.add(key);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.bnemu.d2cs.character;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter over lower-case character names, sized for about 1% false positives at the
+ * expected count. Safe for concurrent use; names can be added but not removed.
+ */
+final class NameBloomFilter {
+    private static final int HASHES = 7;
+
+    private final AtomicLongArray words;
+    private final long bits;
+
+    NameBloomFilter(long expectedNames) {
+        // m = -n ln(p) / ln(2)^2, which is about 9.6 bits per name for p = 0.01
+        long wanted = Math.max(1024, (long) Math.ceil(expectedNames * 9.6));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (wanted + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = wordCount * 64L;
+    }
+
+    void add(String name) {
+        long h1 = hash1(name);
+        long h2 = hash2(name);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * @return false if {@code name} was certainly never added
+     */
+    boolean mightContain(String name) {
+        long h1 = hash1(name);
+        long h2 = hash2(name);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Two independent hashes combined as h1 + i * h2 (Kirsch-Mitzenmacher)
+    private static long hash1(String name) {
+        long h = 0xcbf29ce484222325L; // FNV-1a
+        for (int i = 0; i < name.length(); i++) {
+            h ^= name.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long hash2(String name) {
+        long h = name.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return h | 1; // odd, so the probes do not collapse onto one bit
+    }
+}
@@ -3,15 +3,21 @@ package org.bnemu.d2cs.handler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
 import org.bnemu.core.auth.SelectedCharacterStore;
-import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.bnemu.core.dao.DuplicateCharacterNameException;
 import org.bnemu.core.model.D2Character;
 import org.bnemu.core.model.DiabloClass;
+import org.bnemu.d2cs.character.CharacterCache;
+import org.bnemu.d2cs.character.CharacterNameRegistry;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketBuffer;
 import org.bnemu.d2cs.net.packet.McpPacketId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * Handles MCP_CHARCREATE (0x02) - Create a new character.
  */
@@ -24,13 +30,18 @@ public class CharCreateHandler extends McpPacketHandler {
     private static final int RESULT_NAME_ALREADY_EXISTS = 0x14;
     private static final int RESULT_INVALID_NAME = 0x15;
 
-    private final D2CharacterDao characterDao;
+    private final AsyncD2CharacterDao characterDao;
+    private final CharacterCache characterCache;
+    private final CharacterNameRegistry nameRegistry;
     private final SelectedCharacterStore selectedCharStore;
     private final String realmName;
 
-    public CharCreateHandler(D2CharacterDao characterDao, SelectedCharacterStore selectedCharStore,
+    public CharCreateHandler(AsyncD2CharacterDao characterDao, CharacterCache characterCache,
+                             CharacterNameRegistry nameRegistry, SelectedCharacterStore selectedCharStore,
                              String realmName) {
         this.characterDao = characterDao;
+        this.characterCache = characterCache;
+        this.nameRegistry = nameRegistry;
         this.selectedCharStore = selectedCharStore;
         this.realmName = realmName;
     }
@@ -81,13 +92,6 @@ public class CharCreateHandler extends McpPacketHandler {
             return;
         }
 
-        // Check if name is already taken
-        if (!characterDao.isNameAvailable(name)) {
-            logger.info("MCP_CHARCREATE: Name '{}' already exists", name);
-            sendResult(ctx, RESULT_NAME_ALREADY_EXISTS);
-            return;
-        }
-
         // Create the character
         D2Character character = new D2Character();
         character.setAccountName(accountName);
@@ -96,22 +100,53 @@ public class CharCreateHandler extends McpPacketHandler {
         character.setFlags(flags);
         character.setLevel(1);
 
-        try {
-            characterDao.save(character);
-
-            // Store as selected — D2 client may enter chat directly after creation
-            // without sending MCP_CHARLOGON first.
-            selectedCharStore.setSelectedCharacter(
-                accountName, realmName, name, charClass.name(),
-                1, character.isExpansion(), character.isHardcore(), character.isLadder());
-
-            logger.info("MCP_CHARCREATE: Created '{}' ({}) for account '{}', sending success",
-                    name, charClass.name(), accountName);
-            sendResult(ctx, RESULT_SUCCESS);
-        } catch (Exception e) {
-            logger.error("MCP_CHARCREATE: Failed to save character '{}': {}", name, e.getMessage(), e);
+        // Turn down names known to be taken, and hold the name until the create has finished
+        if (!nameRegistry.tryReserve(name)) {
+            logger.info("MCP_CHARCREATE: Name '{}' already exists", name);
             sendResult(ctx, RESULT_NAME_ALREADY_EXISTS);
+            return;
         }
+
+        // Once all names are loaded, a name not known to be taken needs no query; the unique
+        // index still rejects one created on another D2CS instance since
+        var available = nameRegistry.isKnownFree(name)
+            ? CompletableFuture.completedFuture(true)
+            : characterDao.isNameAvailable(name).whenComplete((free, e) -> {
+                if (e != null) {
+                    nameRegistry.release(name, false);
+                }
+            });
+
+        var result = available.thenCompose(free -> {
+            if (!free) {
+                logger.info("MCP_CHARCREATE: Name '{}' already exists", name);
+                nameRegistry.release(name, true);
+                return CompletableFuture.completedFuture(RESULT_NAME_ALREADY_EXISTS);
+            }
+            return characterDao.save(character)
+                .whenComplete((v, e) -> nameRegistry.release(name, e == null || isDuplicateName(e)))
+                .thenRun(() -> characterCache.invalidate(accountName))
+                // Store as selected — D2 client may enter chat directly after creation
+                // without sending MCP_CHARLOGON first.
+                .thenCompose(v -> selectedCharStore.setSelectedCharacterAsync(
+                    accountName, realmName, name, charClass.name(),
+                    1, character.isExpansion(), character.isHardcore(), character.isLadder()))
+                .handle((v, e) -> {
+                    if (e != null) {
+                        if (isDuplicateName(e)) {
+                            logger.info("MCP_CHARCREATE: Name '{}' was taken meanwhile", name);
+                        } else {
+                            logger.error("MCP_CHARCREATE: Failed to save character '{}': {}", name, e.getMessage(), e);
+                        }
+                        return RESULT_NAME_ALREADY_EXISTS;
+                    }
+                    logger.info("MCP_CHARCREATE: Created '{}' ({}) for account '{}', sending success",
+                            name, charClass.name(), accountName);
+                    return RESULT_SUCCESS;
+                });
+        });
+
+        await(ctx, result, code -> sendResult(ctx, code));
     }
 
     private boolean isValidCharacterName(String name) {
@@ -146,10 +181,16 @@ public class CharCreateHandler extends McpPacketHandler {
         return true;
     }
 
+    private static boolean isDuplicateName(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause() : error;
+        return cause instanceof DuplicateCharacterNameException;
+    }
+
     private void sendResult(ChannelHandlerContext ctx, int result) {
         // S->C format:
         // (DWORD) Result
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
             .writeDword(result);
         send(ctx, output);
     }
@@ -2,13 +2,17 @@ package org.bnemu.d2cs.handler;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
-import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.bnemu.d2cs.character.CharacterCache;
+import org.bnemu.d2cs.character.CharacterNameRegistry;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketBuffer;
 import org.bnemu.d2cs.net.packet.McpPacketId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Handles MCP_CHARDELETE (0x0A) - Delete a character.
  */
@@ -16,10 +20,15 @@ public class CharDeleteHandler extends McpPacketHandler {
     private static final Logger logger = LoggerFactory.getLogger(CharDeleteHandler.class);
     private static final AttributeKey<String> ACCOUNT_NAME_KEY = AttributeKey.valueOf("accountName");
 
-    private final D2CharacterDao characterDao;
+    private final AsyncD2CharacterDao characterDao;
+    private final CharacterCache characterCache;
+    private final CharacterNameRegistry nameRegistry;
 
-    public CharDeleteHandler(D2CharacterDao characterDao) {
+    public CharDeleteHandler(AsyncD2CharacterDao characterDao, CharacterCache characterCache,
+                             CharacterNameRegistry nameRegistry) {
         this.characterDao = characterDao;
+        this.characterCache = characterCache;
+        this.nameRegistry = nameRegistry;
     }
 
     @Override
@@ -43,21 +52,29 @@ public class CharDeleteHandler extends McpPacketHandler {
         }
 
         // Verify the character belongs to this account
-        var character = characterDao.findByAccountAndName(accountName, characterName);
-        if (character == null) {
-            logger.warn("MCP_CHARDELETE: Character '{}' not found for account '{}'", characterName, accountName);
-            sendResult(ctx, 0x01, characterName);
-            return;
-        }
+        var deleted = characterCache.find(accountName, characterName)
+            .thenCompose(character -> character == null
+                ? CompletableFuture.completedFuture(false)
+                : characterDao.delete(accountName, characterName).thenApply(v -> {
+                    characterCache.invalidate(accountName);
+                    nameRegistry.remove(characterName);
+                    return true;
+                }));
 
-        characterDao.delete(accountName, characterName);
-        logger.info("MCP_CHARDELETE: Deleted '{}' from account '{}'", characterName, accountName);
-        sendResult(ctx, 0x00, characterName);
+        await(ctx, deleted, ok -> {
+            if (!ok) {
+                logger.warn("MCP_CHARDELETE: Character '{}' not found for account '{}'", characterName, accountName);
+                sendResult(ctx, 0x01, characterName);
+                return;
+            }
+            logger.info("MCP_CHARDELETE: Deleted '{}' from account '{}'", characterName, accountName);
+            sendResult(ctx, 0x00, characterName);
+        });
     }
 
     private void sendResult(ChannelHandlerContext ctx, int result, String characterName) {
         // S->C: (WORD) Result + (STRING) Character Name
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
             .writeWord((short) result)
             .writeString(characterName != null ? characterName : "");
         send(ctx, output);
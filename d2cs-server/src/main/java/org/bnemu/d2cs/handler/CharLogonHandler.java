@@ -3,14 +3,17 @@ package org.bnemu.d2cs.handler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
 import org.bnemu.core.auth.SelectedCharacterStore;
-import org.bnemu.core.dao.D2CharacterDao;
-import org.bnemu.core.model.D2Character;
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.d2cs.character.CharacterCache;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketBuffer;
 import org.bnemu.d2cs.net.packet.McpPacketId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Handles MCP_CHARLOGON (0x07) - Select a character to play.
  */
@@ -24,12 +27,15 @@ public class CharLogonHandler extends McpPacketHandler {
     private static final int RESULT_CHARACTER_NOT_FOUND = 0x46;
     private static final int RESULT_LOGON_FAILED = 0x7A;
 
-    private final D2CharacterDao characterDao;
+    private final AsyncD2CharacterDao characterDao;
+    private final CharacterCache characterCache;
     private final SelectedCharacterStore selectedCharStore;
     private final String realmName;
 
-    public CharLogonHandler(D2CharacterDao characterDao, SelectedCharacterStore selectedCharStore, String realmName) {
+    public CharLogonHandler(AsyncD2CharacterDao characterDao, CharacterCache characterCache,
+                            SelectedCharacterStore selectedCharStore, String realmName) {
         this.characterDao = characterDao;
+        this.characterCache = characterCache;
         this.selectedCharStore = selectedCharStore;
         this.realmName = realmName;
     }
@@ -55,45 +61,49 @@ public class CharLogonHandler extends McpPacketHandler {
             return;
         }
 
-        // Find the character
-        D2Character character = characterDao.findByAccountAndName(accountName, characterName);
-        if (character == null) {
-            logger.warn("MCP_CHARLOGON: Character '{}' not found for account '{}'",
-                    characterName, accountName);
-            sendResult(ctx, RESULT_CHARACTER_NOT_FOUND);
-            return;
-        }
-
-        // Store character name in session for game creation
-        ctx.channel().attr(CHARACTER_NAME_KEY).set(character.getName());
-
-        // Update last played time
-        character.setLastPlayedAt(System.currentTimeMillis());
-        characterDao.update(character);
-
-        // Store selected character for BNCS to pick up
-        selectedCharStore.setSelectedCharacter(
-            accountName,
-            realmName,
-            character.getName(),
-            character.getCharClass() != null ? character.getCharClass().name() : "BARBARIAN",
-            character.getLevel(),
-            character.isExpansion(),
-            character.isHardcore(),
-            character.isLadder()
-        );
-
-        logger.info("MCP_CHARLOGON: '{}' selected character '{}' (Level {} {})",
-                accountName, character.getName(), character.getLevel(),
-                character.getCharClass() != null ? character.getCharClass().name() : "Unknown");
-
-        sendResult(ctx, RESULT_SUCCESS);
+        // Find the character, then record the selection before replying so BNCS sees it
+        var selected = characterCache.find(accountName, characterName).thenCompose(character -> {
+            if (character == null) {
+                return CompletableFuture.completedFuture((D2CharacterSummary) null);
+            }
+
+            // Update last played time, then store the selected character for BNCS to pick up
+            return characterDao.touchLastPlayed(character.getName(), System.currentTimeMillis())
+                .thenCompose(v -> selectedCharStore.setSelectedCharacterAsync(
+                    accountName,
+                    realmName,
+                    character.getName(),
+                    character.getCharClass() != null ? character.getCharClass().name() : "BARBARIAN",
+                    character.getLevel(),
+                    character.isExpansion(),
+                    character.isHardcore(),
+                    character.isLadder()))
+                .thenApply(v -> character);
+        });
+
+        await(ctx, selected, character -> {
+            if (character == null) {
+                logger.warn("MCP_CHARLOGON: Character '{}' not found for account '{}'",
+                        characterName, accountName);
+                sendResult(ctx, RESULT_CHARACTER_NOT_FOUND);
+                return;
+            }
+
+            // Store character name in session for game creation
+            ctx.channel().attr(CHARACTER_NAME_KEY).set(character.getName());
+
+            logger.info("MCP_CHARLOGON: '{}' selected character '{}' (Level {} {})",
+                    accountName, character.getName(), character.getLevel(),
+                    character.getCharClass() != null ? character.getCharClass().name() : "Unknown");
+
+            sendResult(ctx, RESULT_SUCCESS);
+        });
     }
 
     private void sendResult(ChannelHandlerContext ctx, int result) {
         // S->C format:
         // (DWORD) Result
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
             .writeDword(result);
         send(ctx, output);
     }
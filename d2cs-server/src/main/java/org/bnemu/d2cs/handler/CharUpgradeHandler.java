@@ -2,14 +2,16 @@ package org.bnemu.d2cs.handler;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
-import org.bnemu.core.dao.D2CharacterDao;
-import org.bnemu.core.model.D2Character;
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.bnemu.d2cs.character.CharacterCache;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketBuffer;
 import org.bnemu.d2cs.net.packet.McpPacketId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Handles MCP_CHARUPGRADE (0x18) - Upgrade a classic D2 character to expansion (LoD).
  */
@@ -20,10 +22,12 @@ public class CharUpgradeHandler extends McpPacketHandler {
     private static final int RESULT_SUCCESS = 0x00;
     private static final int RESULT_FAILED = 0x01;
 
-    private final D2CharacterDao characterDao;
+    private final AsyncD2CharacterDao characterDao;
+    private final CharacterCache characterCache;
 
-    public CharUpgradeHandler(D2CharacterDao characterDao) {
+    public CharUpgradeHandler(AsyncD2CharacterDao characterDao, CharacterCache characterCache) {
         this.characterDao = characterDao;
+        this.characterCache = characterCache;
     }
 
     @Override
@@ -46,33 +50,33 @@ public class CharUpgradeHandler extends McpPacketHandler {
             return;
         }
 
-        D2Character character = characterDao.findByAccountAndName(accountName, characterName);
-        if (character == null) {
-            logger.warn("MCP_CHARUPGRADE: Character '{}' not found for account '{}'",
-                    characterName, accountName);
-            sendResult(ctx, RESULT_FAILED);
-            return;
-        }
-
-        if (character.isExpansion()) {
-            logger.debug("MCP_CHARUPGRADE: Character '{}' is already expansion", characterName);
-            sendResult(ctx, RESULT_SUCCESS);
-            return;
-        }
+        var result = characterCache.find(accountName, characterName).thenCompose(character -> {
+            if (character == null) {
+                logger.warn("MCP_CHARUPGRADE: Character '{}' not found for account '{}'",
+                        characterName, accountName);
+                return CompletableFuture.completedFuture(RESULT_FAILED);
+            }
 
-        character.setExpansion(true);
-        characterDao.update(character);
+            if (character.isExpansion()) {
+                logger.debug("MCP_CHARUPGRADE: Character '{}' is already expansion", characterName);
+                return CompletableFuture.completedFuture(RESULT_SUCCESS);
+            }
 
-        logger.info("MCP_CHARUPGRADE: '{}' upgraded character '{}' to expansion",
-                accountName, characterName);
+            return characterDao.setFlags(character.getName(), character.getFlags() | 0x20).thenApply(v -> {
+                characterCache.invalidate(accountName);
+                logger.info("MCP_CHARUPGRADE: '{}' upgraded character '{}' to expansion",
+                        accountName, characterName);
+                return RESULT_SUCCESS;
+            });
+        });
 
-        sendResult(ctx, RESULT_SUCCESS);
+        await(ctx, result, code -> sendResult(ctx, code));
     }
 
     private void sendResult(ChannelHandlerContext ctx, int result) {
         // S->C format:
         // (DWORD) Result
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
             .writeDword(result);
         send(ctx, output);
     }
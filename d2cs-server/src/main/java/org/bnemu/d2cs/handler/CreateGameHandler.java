@@ -2,8 +2,7 @@ package org.bnemu.d2cs.handler;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
-import org.bnemu.core.dao.D2CharacterDao;
-import org.bnemu.core.model.D2Character;
+import org.bnemu.d2cs.character.CharacterCache;
 import org.bnemu.d2cs.game.GameRegistry;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketBuffer;
@@ -25,11 +24,11 @@ public class CreateGameHandler extends McpPacketHandler {
     private static final int RESULT_DEAD_HARDCORE = 0x6E;
 
     private final GameRegistry gameRegistry;
-    private final D2CharacterDao characterDao;
+    private final CharacterCache characterCache;
 
-    public CreateGameHandler(GameRegistry gameRegistry, D2CharacterDao characterDao) {
+    public CreateGameHandler(GameRegistry gameRegistry, CharacterCache characterCache) {
         this.gameRegistry = gameRegistry;
-        this.characterDao = characterDao;
+        this.characterCache = characterCache;
     }
 
     @Override
@@ -69,31 +68,33 @@ public class CreateGameHandler extends McpPacketHandler {
             return;
         }
 
-        if (gameRegistry.exists(gameName)) {
-            logger.info("MCP_CREATEGAME: Game '{}' already exists", gameName);
-            sendResponse(ctx, requestId, 0, RESULT_ALREADY_EXISTS);
-            return;
-        }
-
-        D2Character character = characterDao.findByAccountAndName(accountName, characterName);
-        if (character != null && character.isHardcore() && character.isDead()) {
-            logger.info("MCP_CREATEGAME: Dead hardcore character '{}'", characterName);
-            sendResponse(ctx, requestId, 0, RESULT_DEAD_HARDCORE);
-            return;
-        }
-
-        var game = gameRegistry.createGame(gameName, gamePassword, gameDescription,
-                difficulty, maxPlayers, accountName);
-
-        // Add creator as first character in the game
-        if (character != null) {
-            gameRegistry.addCharacter(gameName, characterName,
-                    character.getCharClass() != null ? character.getCharClass().getCode() : 0,
-                    character.getLevel());
-        }
-
-        logger.info("MCP_CREATEGAME: Game '{}' created by '{}' ({})", gameName, characterName, accountName);
-        sendResponse(ctx, requestId, game.getGameToken(), RESULT_SUCCESS);
+        // Registry checks run after the lookup: the registry may change while it is in flight
+        await(ctx, characterCache.find(accountName, characterName), character -> {
+            if (gameRegistry.exists(gameName)) {
+                logger.info("MCP_CREATEGAME: Game '{}' already exists", gameName);
+                sendResponse(ctx, requestId, 0, RESULT_ALREADY_EXISTS);
+                return;
+            }
+
+            if (character != null && character.isHardcore() && character.isDead()) {
+                logger.info("MCP_CREATEGAME: Dead hardcore character '{}'", characterName);
+                sendResponse(ctx, requestId, 0, RESULT_DEAD_HARDCORE);
+                return;
+            }
+
+            var game = gameRegistry.createGame(gameName, gamePassword, gameDescription,
+                    difficulty, maxPlayers, accountName);
+
+            // Add creator as first character in the game
+            if (character != null) {
+                gameRegistry.addCharacter(gameName, characterName,
+                        character.getCharClass() != null ? character.getCharClass().getCode() : 0,
+                        character.getLevel());
+            }
+
+            logger.info("MCP_CREATEGAME: Game '{}' created by '{}' ({})", gameName, characterName, accountName);
+            sendResponse(ctx, requestId, game.getGameToken(), RESULT_SUCCESS);
+        });
     }
 
     private void sendResponse(ChannelHandlerContext ctx, short requestId, int gameToken, int result) {
@@ -102,7 +103,7 @@ public class CreateGameHandler extends McpPacketHandler {
         // (DWORD) Game token
         // (WORD) Unknown
         // (DWORD) Result
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
                 .writeWord(requestId)
                 .writeDword(gameToken)
                 .writeWord((short) 0)
@@ -65,7 +65,7 @@ public class GameInfoHandler extends McpPacketHandler {
         // For each character: (BYTE) class, (BYTE) level
         // (STRING) Game description
         // For each character: (STRING) name
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
                 .writeWord(requestId)
                 .writeDword(game.getDifficulty() & 0x0F)
                 .writeDword(uptimeSeconds)
@@ -90,7 +90,7 @@ public class GameInfoHandler extends McpPacketHandler {
     }
 
     private void sendNotFound(ChannelHandlerContext ctx, short requestId) {
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
                 .writeWord(requestId)
                 .writeDword(0xFFFFFFFF)
                 .writeDword(0)
@@ -45,7 +45,7 @@ public class GameListHandler extends McpPacketHandler {
         Collection<GameInfo> games = gameRegistry.listGames(searchFilter);
 
         for (GameInfo game : games) {
-            var output = new McpPacketBuffer()
+            var output = new McpPacketBuffer(ctx.alloc())
                     .writeWord(requestId)
                     .writeDword((int) game.getId())
                     .writeByte(game.getCurrentPlayers())
@@ -56,7 +56,7 @@ public class GameListHandler extends McpPacketHandler {
         }
 
         // Send terminator (empty game name = end of list)
-        var end = new McpPacketBuffer()
+        var end = new McpPacketBuffer(ctx.alloc())
                 .writeWord(requestId)
                 .writeDword(0)
                 .writeByte(0)
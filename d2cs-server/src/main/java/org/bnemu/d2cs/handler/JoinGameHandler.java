@@ -2,8 +2,8 @@ package org.bnemu.d2cs.handler;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
-import org.bnemu.core.dao.D2CharacterDao;
-import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.d2cs.character.CharacterCache;
 import org.bnemu.d2cs.game.GameRegistry;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketBuffer;
@@ -26,12 +26,12 @@ public class JoinGameHandler extends McpPacketHandler {
     private static final int RESULT_DEAD_HARDCORE = 0x6E;
 
     private final GameRegistry gameRegistry;
-    private final D2CharacterDao characterDao;
+    private final CharacterCache characterCache;
     private final int d2gsIp;
 
-    public JoinGameHandler(GameRegistry gameRegistry, D2CharacterDao characterDao, String d2gsHost) {
+    public JoinGameHandler(GameRegistry gameRegistry, CharacterCache characterCache, String d2gsHost) {
         this.gameRegistry = gameRegistry;
-        this.characterDao = characterDao;
+        this.characterCache = characterCache;
         this.d2gsIp = ipToInt(d2gsHost);
     }
 
@@ -62,6 +62,13 @@ public class JoinGameHandler extends McpPacketHandler {
             return;
         }
 
+        // Registry checks run after the lookup: the registry may change while it is in flight
+        await(ctx, characterCache.find(accountName, characterName),
+            character -> join(ctx, requestId, gameName, gamePassword, characterName, character));
+    }
+
+    private void join(ChannelHandlerContext ctx, short requestId, String gameName, String gamePassword,
+                      String characterName, D2CharacterSummary character) {
         var game = gameRegistry.findByName(gameName);
         if (game == null) {
             logger.info("MCP_JOINGAME: Game '{}' not found", gameName);
@@ -87,7 +94,6 @@ public class JoinGameHandler extends McpPacketHandler {
         }
 
         // Check dead hardcore
-        D2Character character = characterDao.findByAccountAndName(accountName, characterName);
         if (character != null && character.isHardcore() && character.isDead()) {
             logger.info("MCP_JOINGAME: Dead hardcore character '{}'", characterName);
             sendResponse(ctx, requestId, 0, 0, 0, RESULT_DEAD_HARDCORE);
@@ -113,7 +119,7 @@ public class JoinGameHandler extends McpPacketHandler {
         // (DWORD) D2GS IP address
         // (DWORD) Game hash
         // (DWORD) Result
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
                 .writeWord(requestId)
                 .writeDword(gameToken)
                 .writeWord((short) 0)
@@ -3,7 +3,10 @@ package org.bnemu.d2cs.handler;
 import io.netty.channel.ChannelHandlerContext;
 import org.bnemu.core.auth.RealmTokenStore;
 import org.bnemu.core.auth.SelectedCharacterStore;
-import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.bnemu.core.net.PacketSequencer;
+import org.bnemu.d2cs.character.CharacterCache;
+import org.bnemu.d2cs.character.CharacterNameRegistry;
 import org.bnemu.d2cs.game.GameRegistry;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.slf4j.Logger;
@@ -11,6 +14,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 /**
  * Dispatches MCP packets to appropriate handlers.
@@ -19,27 +24,32 @@ public class McpDispatcher {
     private static final Logger logger = LoggerFactory.getLogger(McpDispatcher.class);
 
     private final Map<Byte, McpPacketHandler> handlers = new HashMap<>();
+    private final BiConsumer<ChannelHandlerContext, McpPacket> dispatchNow = this::dispatchNow;
     private final RealmTokenStore tokenStore;
+    private final Executor offloadExecutor;
 
-    public McpDispatcher(D2CharacterDao characterDao, SelectedCharacterStore selectedCharStore,
-                         String realmName, GameRegistry gameRegistry, String d2gsHost) {
-        this.tokenStore = RealmTokenStore.getInstance();
-        registerDefaults(characterDao, selectedCharStore, realmName, gameRegistry, d2gsHost);
+    public McpDispatcher(AsyncD2CharacterDao characterDao, CharacterCache characterCache,
+                         CharacterNameRegistry nameRegistry, SelectedCharacterStore selectedCharStore, RealmTokenStore tokenStore, String realmName,
+                         GameRegistry gameRegistry, String d2gsHost, Executor offloadExecutor) {
+        this.tokenStore = tokenStore;
+        this.offloadExecutor = offloadExecutor;
+        registerDefaults(characterDao, characterCache, nameRegistry, selectedCharStore, realmName, gameRegistry, d2gsHost);
     }
 
-    private void registerDefaults(D2CharacterDao characterDao, SelectedCharacterStore selectedCharStore,
-                                  String realmName, GameRegistry gameRegistry, String d2gsHost) {
+    private void registerDefaults(AsyncD2CharacterDao characterDao, CharacterCache characterCache,
+                                  CharacterNameRegistry nameRegistry, SelectedCharacterStore selectedCharStore, String realmName,
+                                  GameRegistry gameRegistry, String d2gsHost) {
         register(new StartupHandler(tokenStore));
         register(new MotdHandler());
-        register(new CharList2Handler(characterDao));
-        register(new CharCreateHandler(characterDao, selectedCharStore, realmName));
-        register(new CharLogonHandler(characterDao, selectedCharStore, realmName));
-        register(new CharUpgradeHandler(characterDao));
-        register(new CharDeleteHandler(characterDao));
+        register(new CharList2Handler(characterCache));
+        register(new CharCreateHandler(characterDao, characterCache, nameRegistry, selectedCharStore, realmName));
+        register(new CharLogonHandler(characterDao, characterCache, selectedCharStore, realmName));
+        register(new CharUpgradeHandler(characterDao, characterCache));
+        register(new CharDeleteHandler(characterDao, characterCache, nameRegistry));
 
         // Game management handlers
-        register(new CreateGameHandler(gameRegistry, characterDao));
-        register(new JoinGameHandler(gameRegistry, characterDao, d2gsHost));
+        register(new CreateGameHandler(gameRegistry, characterCache));
+        register(new JoinGameHandler(gameRegistry, characterCache, d2gsHost));
         register(new GameListHandler(gameRegistry));
         register(new GameInfoHandler(gameRegistry));
     }
@@ -48,18 +58,47 @@ public class McpDispatcher {
         handlers.put(handler.packetId().getCode(), handler);
     }
 
+    /**
+     * Dispatch a decoded packet to its handler. Handlers only write; the response is flushed here
+     * once the handler returns (coalesced with the rest of the read by the pipeline's flush
+     * batching). Blocking handlers run on the offload executor instead. If an earlier packet on this
+     * connection is still waiting on the database or an offloaded handler, the packet is held and
+     * dispatched after it. The packet is released whether or not a handler was registered for it.
+     */
     public void dispatch(ChannelHandlerContext ctx, McpPacket packet) {
+        if (PacketSequencer.attach(ctx, dispatchNow).defer(packet)) {
+            return;
+        }
+        dispatchNow(ctx, packet);
+    }
+
+    private void dispatchNow(ChannelHandlerContext ctx, McpPacket packet) {
         logger.info("MCP packet received: 0x{} ({}), payload size={}",
             String.format("%02X", packet.rawPacketId()),
             packet.packetId().name(),
             packet.payload().length());
 
         McpPacketHandler handler = handlers.get(packet.packetId().getCode());
-        if (handler != null) {
-            handler.handle(ctx, packet);
-        } else {
-            logger.warn("No handler found for MCP packet ID: 0x{}",
-                String.format("%02X", packet.rawPacketId()));
+        if (handler != null && handler.isBlocking() && offloadExecutor != null) {
+            PacketSequencer.offload(ctx, offloadExecutor, () -> {
+                try {
+                    handler.handle(ctx, packet);
+                } finally {
+                    packet.release();
+                }
+            });
+            return;
+        }
+        try {
+            if (handler != null) {
+                handler.handle(ctx, packet);
+            } else {
+                logger.warn("No handler found for MCP packet ID: 0x{}",
+                    String.format("%02X", packet.rawPacketId()));
+            }
+        } finally {
+            ctx.flush();
+            packet.release();
         }
     }
 }
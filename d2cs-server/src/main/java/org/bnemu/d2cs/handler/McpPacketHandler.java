@@ -1,23 +1,45 @@
 package org.bnemu.d2cs.handler;
 
 import io.netty.channel.ChannelHandlerContext;
+import org.bnemu.core.net.PacketSequencer;
 import org.bnemu.d2cs.net.packet.McpPacket;
 import org.bnemu.d2cs.net.packet.McpPacketBuffer;
 import org.bnemu.d2cs.net.packet.McpPacketId;
 
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
 /**
- * Base class for MCP packet handlers.
+ * Base class for MCP packet handlers. Responses are written without flushing; the dispatcher
+ * flushes once the handler returns. Handlers that call the database {@link #await} the result
+ * rather than blocking the event loop.
  */
 public abstract class McpPacketHandler {
     public abstract McpPacketId packetId();
 
     public abstract void handle(ChannelHandlerContext ctx, McpPacket packet);
 
+    /**
+     * Whether {@link #handle} is CPU-heavy or blocking. Such handlers, and whatever they await, run
+     * on the dispatcher's offload executor; the connection's later packets still wait for them.
+     */
+    public boolean isBlocking() {
+        return false;
+    }
+
     protected void send(ChannelHandlerContext ctx, McpPacketId id, McpPacketBuffer buffer) {
-        ctx.writeAndFlush(new McpPacket(id, id.getCode(), buffer));
+        ctx.write(new McpPacket(id, id.getCode(), buffer));
     }
 
     protected void send(ChannelHandlerContext ctx, McpPacketBuffer buffer) {
         send(ctx, packetId(), buffer);
     }
+
+    /**
+     * Continue on the event loop once {@code stage} completes; later packets from this connection
+     * wait until then. Read the whole payload before calling this.
+     */
+    protected <T> void await(ChannelHandlerContext ctx, CompletionStage<T> stage, Consumer<T> continuation) {
+        PacketSequencer.await(ctx, stage, continuation);
+    }
 }
@@ -34,7 +34,7 @@ public class MotdHandler extends McpPacketHandler {
         // S->C format:
         // (BYTE) Unknown (1 per protocol)
         // (STRING) MOTD message
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
             .writeByte(1)
             .writeString("Welcome to bnemu realm!");
 
@@ -44,13 +44,20 @@ public class StartupHandler extends McpPacketHandler {
         int mcpStatus = input.readDword();
         int chunk1_0 = input.readDword(); // Client token
         int chunk1_1 = input.readDword(); // Server token
-        input.skipBytes(48); // MCP Chunk 2 (12 DWORDs)
+        byte[] chunk2 = input.readBytes(RealmToken.AUTH_DATA_LENGTH); // MCP Chunk 2 (12 DWORDs)
         String uniqueName = input.readString();
 
         logger.debug("MCP_STARTUP: cookie={}, status={}, user='{}'", mcpCookie, mcpStatus, uniqueName);
 
         // Validate token from BNCS
-        RealmToken token = tokenStore.validateAndConsume(mcpCookie);
+        RealmToken presented = new RealmToken(mcpCookie, uniqueName, chunk1_0, chunk1_1,
+            System.currentTimeMillis(), chunk2);
+        await(ctx, tokenStore.validateAndConsumeAsync(presented),
+            token -> authenticate(ctx, token, mcpCookie, chunk1_0, chunk1_1, uniqueName));
+    }
+
+    private void authenticate(ChannelHandlerContext ctx, RealmToken token, int mcpCookie,
+                              int chunk1_0, int chunk1_1, String uniqueName) {
         if (token == null) {
             logger.warn("MCP_STARTUP: Invalid or expired token for cookie {}", mcpCookie);
             sendResult(ctx, RESULT_FAIL);
@@ -75,7 +82,7 @@ public class StartupHandler extends McpPacketHandler {
     private void sendResult(ChannelHandlerContext ctx, int result) {
         // S->C format:
         // (DWORD) Result
-        var output = new McpPacketBuffer()
+        var output = new McpPacketBuffer(ctx.alloc())
             .writeDword(result);
         send(ctx, output);
     }
@@ -1,7 +1,14 @@
 package org.bnemu.d2cs.net.packet;
 
+import org.bnemu.core.net.packet.Packet;
+
 /**
  * Represents a decoded MCP packet.
  */
-public record McpPacket(McpPacketId packetId, byte rawPacketId, McpPacketBuffer payload) {
+public record McpPacket(McpPacketId packetId, byte rawPacketId, McpPacketBuffer payload)
+        implements Packet<McpPacketId, McpPacketBuffer> {
+
+    public int getLength() {
+        return McpPacketBuffer.HEADER_SIZE + payload.length();
+    }
 }
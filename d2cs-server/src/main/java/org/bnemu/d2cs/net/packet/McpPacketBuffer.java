@@ -1,7 +1,7 @@
 package org.bnemu.d2cs.net.packet;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
 import org.bnemu.core.net.packet.PacketBuffer;
 
 /**
@@ -9,13 +9,14 @@ import org.bnemu.core.net.packet.PacketBuffer;
  * Size includes the header (3 bytes).
  */
 public class McpPacketBuffer extends PacketBuffer<McpPacketId, McpPacketBuffer> {
+    public static final int HEADER_SIZE = 3;
 
-    public McpPacketBuffer() {
-        super();
+    public McpPacketBuffer(ByteBufAllocator alloc) {
+        super(alloc, HEADER_SIZE);
     }
 
     public McpPacketBuffer(ByteBuf buf) {
-        super(buf);
+        super(buf, HEADER_SIZE);
     }
 
     @Override
@@ -24,16 +25,9 @@ public class McpPacketBuffer extends PacketBuffer<McpPacketId, McpPacketBuffer>
     }
 
     @Override
-    public ByteBuf withHeader(McpPacketId id) {
-        final var output = Unpooled.buffer();
-        final var headerSize = 3;
-        final var length = this.buf.readableBytes() + headerSize;
-
+    protected void writeHeader(ByteBuf out, int index, McpPacketId id, int length) {
         // MCP header: [SIZE:2 little-endian][ID:1]
-        output.writeShortLE(length);
-        output.writeByte(id.getCode());
-        output.writeBytes(this.buf);
-
-        return output;
+        out.setShortLE(index, length);
+        out.setByte(index + 2, id.getCode());
     }
 }
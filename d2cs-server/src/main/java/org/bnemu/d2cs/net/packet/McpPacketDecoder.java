@@ -58,8 +58,8 @@ public class McpPacketDecoder extends ByteToMessageDecoder {
                 return;
             }
 
-            // Read payload
-            ByteBuf payload = in.readBytes(payloadSize);
+            // Slice the payload out of the cumulation buffer; released by the dispatcher
+            ByteBuf payload = in.readRetainedSlice(payloadSize);
             McpPacketId id = McpPacketId.fromCode(packetId & 0xFF);
 
             logger.debug("Decoded MCP packet: ID=0x{} ({}) Length={} PayloadSize={}",
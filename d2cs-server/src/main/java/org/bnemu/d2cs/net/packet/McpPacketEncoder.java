@@ -3,23 +3,29 @@ package org.bnemu.d2cs.net.packet;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * Encodes MCP packets with 3-byte header: [SIZE:2][ID:1]
+ * The header is written into space reserved in the payload buffer, which is passed on without copying;
+ * the packet itself is released by {@link MessageToMessageEncoder} once encoded.
  */
-public class McpPacketEncoder extends MessageToByteEncoder<McpPacket> {
+public class McpPacketEncoder extends MessageToMessageEncoder<McpPacket> {
     private static final Logger logger = LoggerFactory.getLogger(McpPacketEncoder.class);
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, McpPacket msg, ByteBuf out) {
+    protected void encode(ChannelHandlerContext ctx, McpPacket msg, List<Object> out) {
         ByteBuf encoded = msg.payload().withHeader(msg.packetId());
-        logger.debug("Encoding MCP packet 0x{} ({} bytes): {}",
-            String.format("%02X", msg.packetId().getCode()),
-            encoded.readableBytes(),
-            ByteBufUtil.hexDump(encoded));
-        out.writeBytes(encoded);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Encoding MCP packet 0x{} ({} bytes): {}",
+                String.format("%02X", msg.packetId().getCode()),
+                encoded.readableBytes(),
+                ByteBufUtil.hexDump(encoded));
+        }
+        out.add(encoded);
     }
 }
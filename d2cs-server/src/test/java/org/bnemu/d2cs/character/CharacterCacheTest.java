@@ -0,0 +1,90 @@
+package org.bnemu.d2cs.character;
+
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.core.model.DiabloClass;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the cache with queries the test completes by hand, to pin down what a load racing an
+ * invalidation leaves behind.
+ */
+public class CharacterCacheTest {
+    private final AsyncD2CharacterDao dao = mock(AsyncD2CharacterDao.class);
+    private final Queue<CompletableFuture<List<D2CharacterSummary>>> queries = new ConcurrentLinkedQueue<>();
+    private CharacterCache cache;
+
+    @BeforeEach
+    public void setup() {
+        when(dao.findSummariesByAccountName(anyString())).thenAnswer(invocation -> {
+            CompletableFuture<List<D2CharacterSummary>> query = new CompletableFuture<>();
+            queries.add(query);
+            return query;
+        });
+        cache = new CharacterCache(dao, 100, Duration.ofHours(1));
+    }
+
+    @Test
+    public void concurrentMissesShareOneQuery() {
+        CompletionStage<AccountCharacters> first = cache.get("Alice");
+        CompletionStage<AccountCharacters> second = cache.get("alice");
+
+        assertEquals(1, queries.size());
+        queries.poll().complete(List.of(summary("Zeus")));
+        assertEquals(1, first.toCompletableFuture().join().size());
+        assertSame(first.toCompletableFuture().join(), second.toCompletableFuture().join());
+        assertNotNull(cache.find("ALICE", "zeus").toCompletableFuture().join());
+        verify(dao, times(1)).findSummariesByAccountName("alice");
+    }
+
+    @Test
+    public void invalidationDuringLoadDiscardsItsResult() {
+        CompletionStage<AccountCharacters> stale = cache.get("alice");
+        CompletableFuture<List<D2CharacterSummary>> before = queries.poll();
+
+        // A character is created while the first query is still running
+        cache.invalidate("alice");
+        CompletionStage<AccountCharacters> fresh = cache.get("alice");
+        CompletableFuture<List<D2CharacterSummary>> after = queries.poll();
+        assertNotNull(after, "the invalidated load is not reused");
+
+        after.complete(List.of(summary("Zeus"), summary("Hera")));
+        before.complete(List.of(summary("Zeus")));
+
+        assertEquals(1, stale.toCompletableFuture().join().size(), "its own callers still get it");
+        assertEquals(2, fresh.toCompletableFuture().join().size());
+        assertEquals(2, cache.get("alice").toCompletableFuture().join().size(), "the late result was not cached");
+        assertTrue(queries.isEmpty());
+    }
+
+    @Test
+    public void failedLoadIsNotCached() {
+        CompletionStage<AccountCharacters> failed = cache.get("alice");
+        queries.poll().completeExceptionally(new IllegalStateException("database down"));
+        assertTrue(failed.toCompletableFuture().isCompletedExceptionally());
+
+        CompletionStage<AccountCharacters> retried = cache.get("alice");
+        queries.poll().complete(List.of(summary("Zeus")));
+        assertEquals(1, retried.toCompletableFuture().join().size());
+    }
+
+    private static D2CharacterSummary summary(String name) {
+        return new D2CharacterSummary(name.toLowerCase(), "alice", name, DiabloClass.SORCERESS, 1,
+            true, false, false, false, 0, 0);
+    }
+}
@@ -0,0 +1,98 @@
+package org.bnemu.d2cs.character;
+
+import org.bnemu.core.dao.AsyncD2CharacterDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CharacterNameRegistryTest {
+    private static final Duration CONFIRM_AFTER = Duration.ofMinutes(10);
+
+    private final AtomicLong now = new AtomicLong();
+    private final AsyncD2CharacterDao dao = mock(AsyncD2CharacterDao.class);
+    private final CompletableFuture<Void> loading = new CompletableFuture<>();
+    private CharacterNameRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        when(dao.forEachCharacterName(any())).thenAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            List.of("alice", "bob").forEach(action);
+            return loading;
+        });
+        registry = new CharacterNameRegistry(dao, CONFIRM_AFTER, now::get);
+        registry.load();
+    }
+
+    @Test
+    public void nothingIsKnownUntilLoaded() {
+        assertFalse(registry.isKnownFree("carol"));
+        assertTrue(registry.tryReserve("alice"), "the insert decides until names are loaded");
+
+        loading.complete(null);
+        registry.release("alice", true);
+        assertTrue(registry.isKnownFree("carol"));
+        assertFalse(registry.isKnownFree("alice"));
+    }
+
+    @Test
+    public void loadedNamesAreTurnedDown() {
+        loading.complete(null);
+
+        assertFalse(registry.tryReserve("Alice"));
+        assertFalse(registry.tryReserve("BOB"));
+        assertTrue(registry.tryReserve("carol"));
+    }
+
+    @Test
+    public void reservationsAreExclusiveUntilReleased() {
+        loading.complete(null);
+
+        assertTrue(registry.tryReserve("carol"));
+        assertFalse(registry.tryReserve("Carol"), "a create for it is in progress");
+
+        registry.release("carol", false);
+        assertTrue(registry.tryReserve("carol"));
+        registry.release("carol", true);
+        assertFalse(registry.tryReserve("carol"));
+        assertFalse(registry.isKnownFree("carol"));
+    }
+
+    @Test
+    public void removedNamesAreFreeAgain() {
+        loading.complete(null);
+
+        registry.remove("alice");
+        assertTrue(registry.isKnownFree("alice"));
+        assertTrue(registry.tryReserve("alice"));
+    }
+
+    @Test
+    public void takenNamesAreConfirmedWithTheDatabaseOncePerInterval() {
+        loading.complete(null);
+
+        now.addAndGet(CONFIRM_AFTER.toNanos());
+        // Maybe deleted on another instance: let the create ask the database
+        assertTrue(registry.tryReserve("alice"));
+        assertFalse(registry.isKnownFree("alice"));
+
+        // The database said it is still taken
+        registry.release("alice", true);
+        assertFalse(registry.tryReserve("alice"));
+
+        now.addAndGet(CONFIRM_AFTER.toNanos() - 1);
+        assertFalse(registry.tryReserve("alice"));
+        now.incrementAndGet();
+        assertTrue(registry.tryReserve("alice"));
+    }
+}
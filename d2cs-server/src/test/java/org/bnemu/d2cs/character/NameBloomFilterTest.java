@@ -0,0 +1,42 @@
+package org.bnemu.d2cs.character;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameBloomFilterTest {
+    private static final int NAMES = 50_000;
+
+    @Test
+    public void addedNamesAreAlwaysFound() {
+        NameBloomFilter filter = new NameBloomFilter(NAMES);
+        for (int i = 0; i < NAMES; i++) {
+            filter.add("char" + i);
+        }
+        for (int i = 0; i < NAMES; i++) {
+            assertTrue(filter.mightContain("char" + i), "char" + i);
+        }
+    }
+
+    @Test
+    public void falsePositivesStayNearOnePercentAtCapacity() {
+        NameBloomFilter filter = new NameBloomFilter(NAMES);
+        for (int i = 0; i < NAMES; i++) {
+            filter.add("char" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < NAMES; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < NAMES * 0.02, falsePositives + " false positives");
+    }
+
+    @Test
+    public void emptyFilterContainsNothing() {
+        NameBloomFilter filter = new NameBloomFilter(0);
+        assertFalse(filter.mightContain("alice"));
+        assertFalse(filter.mightContain(""));
+    }
+}
@@ -0,0 +1,204 @@
+package org.bnemu.d2cs.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.bnemu.d2cs.net.packet.McpPacket;
+import org.bnemu.d2cs.net.packet.McpPacketBuffer;
+import org.bnemu.d2cs.net.packet.McpPacketDecoder;
+import org.bnemu.d2cs.net.packet.McpPacketEncoder;
+import org.bnemu.d2cs.net.packet.McpPacketId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.bnemu.core.net.LeakDetectionExtension.assertNoLeaks;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives packets through the real MCP decoder/dispatcher/encoder path under paranoid leak
+ * detection. Every inbound packet must be released once its handler returns, including when the
+ * handler throws, awaits a result or is offloaded, and Netty must not report any leaked buffer.
+ */
+public class McpDispatcherLeakTest {
+    private final List<McpPacket> decoded = new ArrayList<>();
+    private EmbeddedChannel channel;
+    private CompletableFuture<Integer> pending;
+
+    @BeforeEach
+    public void setup() {
+        // Offloaded handlers run inline; their completion still goes through the event loop
+        McpDispatcher dispatcher = new McpDispatcher(null, null, null, null, null, "test", null, "127.0.0.1", Runnable::run);
+        dispatcher.register(new McpPacketHandler() {
+            @Override
+            public McpPacketId packetId() {
+                return McpPacketId.MCP_CHARRANK;
+            }
+
+            @Override
+            public void handle(ChannelHandlerContext ctx, McpPacket packet) {
+                throw new IllegalStateException("handler failure");
+            }
+        });
+        dispatcher.register(new McpPacketHandler() {
+            @Override
+            public McpPacketId packetId() {
+                return McpPacketId.MCP_CHARLOGON;
+            }
+
+            @Override
+            public void handle(ChannelHandlerContext ctx, McpPacket packet) {
+                await(ctx, pending, status -> send(ctx, new McpPacketBuffer(ctx.alloc()).writeDword(status)));
+            }
+        });
+        dispatcher.register(new McpPacketHandler() {
+            @Override
+            public McpPacketId packetId() {
+                return McpPacketId.MCP_GAMELIST;
+            }
+
+            @Override
+            public boolean isBlocking() {
+                return true;
+            }
+
+            @Override
+            public void handle(ChannelHandlerContext ctx, McpPacket packet) {
+                send(ctx, new McpPacketBuffer(ctx.alloc()).writeDword(packet.payload().readDword()));
+            }
+        });
+        pending = new CompletableFuture<>();
+
+        decoded.clear();
+        channel = new EmbeddedChannel(
+            new McpPacketDecoder(),
+            new McpPacketEncoder(),
+            new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    decoded.add((McpPacket) msg);
+                    ctx.fireChannelRead(msg);
+                }
+            },
+            new SimpleChannelInboundHandler<McpPacket>(false) {
+                @Override
+                protected void channelRead0(ChannelHandlerContext ctx, McpPacket msg) {
+                    dispatcher.dispatch(ctx, msg);
+                }
+            });
+        channel.writeInbound(protocolByte());
+    }
+
+    @AfterEach
+    public void teardown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void handledPacketsAreReleased() {
+        channel.writeInbound(frame(0x12, new byte[0]));
+
+        ByteBuf motd = channel.readOutbound();
+        assertNotNull(motd);
+        assertEquals(motd.readableBytes(), motd.getUnsignedShortLE(0));
+        assertEquals((byte) 0x12, motd.getByte(2));
+        assertTrue(motd.release());
+
+        assertEquals(1, decoded.size());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void unhandledPacketsAreReleased() {
+        channel.writeInbound(frame(0x50, new byte[] {1, 2, 3, 4}));
+
+        assertEquals(1, decoded.size());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void packetsAreReleasedWhenHandlerThrows() {
+        assertThrows(IllegalStateException.class, () -> channel.writeInbound(frame(0x1A, new byte[0])));
+
+        assertEquals(1, decoded.size());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void offloadedPacketsAreReleasedAndAnswered() {
+        channel.writeInbound(frame(0x05, new byte[] {7, 0, 0, 0}));
+        channel.runPendingTasks();
+
+        ByteBuf response = channel.readOutbound();
+        assertNotNull(response);
+        assertEquals((byte) 0x05, response.getByte(2));
+        assertEquals(7, response.getIntLE(3));
+        assertTrue(response.release());
+
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void packetsWaitForAwaitedResultInOrder() {
+        channel.writeInbound(frame(0x07, new byte[0]));
+        channel.writeInbound(frame(0x12, new byte[0]));
+
+        assertNull(channel.readOutbound(), "nothing may be sent before the awaited result");
+        assertEquals(1, decoded.get(1).refCnt(), "the later packet is held, not dropped");
+
+        pending.complete(0);
+        channel.runPendingTasks();
+
+        ByteBuf first = channel.readOutbound();
+        ByteBuf second = channel.readOutbound();
+        assertEquals((byte) 0x07, first.getByte(2));
+        assertEquals((byte) 0x12, second.getByte(2));
+        first.release();
+        second.release();
+
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    @Test
+    public void heldPacketsAreReleasedOnClose() {
+        channel.writeInbound(frame(0x07, new byte[0]));
+        channel.writeInbound(frame(0x12, new byte[0]));
+
+        channel.close();
+        pending.complete(0);
+        channel.runPendingTasks();
+
+        assertNull(channel.readOutbound());
+        assertAllReleased();
+        assertNoLeaks();
+    }
+
+    private void assertAllReleased() {
+        for (McpPacket packet : decoded) {
+            assertEquals(0, packet.refCnt(), "packet 0x" + String.format("%02X", packet.rawPacketId()) + " leaked");
+        }
+    }
+
+    private ByteBuf protocolByte() {
+        return PooledByteBufAllocator.DEFAULT.buffer(1).writeByte(0x01);
+    }
+
+    private ByteBuf frame(int id, byte[] payload) {
+        return PooledByteBufAllocator.DEFAULT.buffer(3 + payload.length)
+            .writeShortLE(3 + payload.length)
+            .writeByte(id)
+            .writeBytes(payload);
+    }
+}
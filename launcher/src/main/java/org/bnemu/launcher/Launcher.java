@@ -0,0 +1,73 @@
+package org.bnemu.launcher;
+
+import io.netty.channel.Channel;
+import org.bnemu.bncs.BncsServer;
+import org.bnemu.core.auth.InMemoryRealmTokenStore;
+import org.bnemu.core.auth.InMemorySelectedCharacterStore;
+import org.bnemu.core.auth.RealmTokenStore;
+import org.bnemu.core.auth.SelectedCharacterStore;
+import org.bnemu.core.config.ConfigLoadException;
+import org.bnemu.core.config.ConfigLoader;
+import org.bnemu.core.config.CoreConfig;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bnemu.core.net.Acceptors;
+import org.bnemu.core.net.ServerTransport;
+import org.bnemu.d2cs.D2csServer;
+import org.bnemu.persistence.Persistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs BNCS (with BNFTP, served on the same port) and D2CS in one JVM.
+ *
+ * <p>Both servers share one set of event loops, one database connection and DAO executor, and
+ * hand a login over to the realm through in-memory stores instead of the database. Only one D2CS
+ * can sit behind a launcher; run the servers separately to scale the realm out.
+ */
+public class Launcher {
+    private static final Logger logger = LoggerFactory.getLogger(Launcher.class);
+
+    private final Acceptors acceptors;
+    private final BncsServer bncs;
+    private final D2csServer d2cs;
+
+    public Launcher(CoreConfig config) {
+        this.acceptors = new Acceptors(ServerTransport.select(config.getServer().getTransport()));
+        Persistence persistence = Persistence.open(config);
+        DaoExecutor daoExecutor = new DaoExecutor(persistence.maxConcurrentOperations());
+
+        RealmTokenStore tokenStore = new InMemoryRealmTokenStore();
+        SelectedCharacterStore selectedCharStore = new InMemorySelectedCharacterStore();
+
+        this.bncs = new BncsServer(config, acceptors, persistence, daoExecutor, tokenStore, selectedCharStore);
+        this.d2cs = new D2csServer(config, acceptors, persistence, daoExecutor, tokenStore, selectedCharStore);
+    }
+
+    public void start() throws InterruptedException {
+        try {
+            List<Channel> listeners = new ArrayList<>(bncs.bind());
+            listeners.addAll(d2cs.bind());
+            for (Channel listener : listeners) {
+                listener.closeFuture().sync();
+            }
+        } finally {
+            acceptors.shutdownGracefully();
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            CoreConfig config = ConfigLoader.load("config.yml");
+            new Launcher(config).start();
+        } catch (ConfigLoadException e) {
+            logger.error("Failed to load configuration", e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            logger.error("Launcher was interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.bnemu.persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.bnemu.core.config.DatabaseConfig;
+
+public final class JdbcConnections {
+    private JdbcConnections() {
+    }
+
+    /**
+     * Open a connection pool for the configured database.
+     */
+    public static HikariDataSource open(DatabaseConfig config) {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName("bnemu-jdbc");
+        hikari.setJdbcUrl(config.getUrl());
+        hikari.setUsername(config.getUsername());
+        hikari.setPassword(config.getPassword());
+        hikari.setMaximumPoolSize(config.getPoolSize());
+        String url = config.getUrl();
+        if (url.startsWith("jdbc:mariadb:") || url.startsWith("jdbc:mysql:")) {
+            // Parse each statement once per connection, on the server, and keep it
+            hikari.addDataSourceProperty("useServerPrepStmts", "true");
+            hikari.addDataSourceProperty("cachePrepStmts", "true");
+            hikari.addDataSourceProperty("prepStmtCacheSize", Integer.toString(config.getPreparedStatementCacheSize()));
+        }
+        return new HikariDataSource(hikari);
+    }
+}
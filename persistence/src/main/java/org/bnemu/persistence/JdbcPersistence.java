@@ -0,0 +1,103 @@
+package org.bnemu.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.bnemu.core.auth.JdbcSelectedCharacterStore;
+import org.bnemu.core.auth.RealmTokenStore;
+import org.bnemu.core.auth.SelectedCharacterStore;
+import org.bnemu.core.auth.SignedRealmTokenStore;
+import org.bnemu.core.config.DatabaseConfig;
+import org.bnemu.core.config.JournalConfig;
+import org.bnemu.core.config.RealmConfig;
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bnemu.persistence.dao.JournaledAccountDao;
+import org.bnemu.persistence.dao.JournaledD2CharacterDao;
+import org.bnemu.persistence.dao.JdbcAccountDao;
+import org.bnemu.persistence.dao.JdbcD2CharacterDao;
+import org.bnemu.persistence.dao.WriteBehindD2CharacterDao;
+
+import java.time.Duration;
+
+/**
+ * Everything in a MariaDB or MySQL database, through a HikariCP pool. Tables are created on
+ * first use. Realm tokens are not database: this backend needs {@code realm.tokenMode: signed}.
+ */
+public class JdbcPersistence implements Persistence {
+    private final DatabaseConfig config;
+    private final JournalConfig journal;
+    private final HikariDataSource dataSource;
+    // One instance each: a second journal on the same files would fail to lock them
+    private AccountDao accounts;
+    private D2CharacterDao characters;
+
+    public JdbcPersistence(DatabaseConfig config, JournalConfig journal) {
+        this.config = config;
+        this.journal = journal;
+        this.dataSource = JdbcConnections.open(config);
+    }
+
+    @Override
+    public synchronized AccountDao accountDao() {
+        if (accounts == null) {
+            accounts = createAccountDao();
+        }
+        return accounts;
+    }
+
+    @Override
+    public synchronized D2CharacterDao characterDao() {
+        if (characters == null) {
+            characters = createCharacterDao();
+        }
+        return characters;
+    }
+
+    private AccountDao createAccountDao() {
+        JdbcAccountDao database = new JdbcAccountDao(dataSource);
+        if (!journal.isEnabled()) {
+            return database;
+        }
+        JournaledAccountDao journaled = new JournaledAccountDao(database, journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(journaled::close, "account-journal-close"));
+        return journaled;
+    }
+
+    private D2CharacterDao createCharacterDao() {
+        JdbcD2CharacterDao database = new JdbcD2CharacterDao(dataSource);
+        if (journal.isEnabled()) {
+            // Batches updates on its own, so write-behind is not stacked on top
+            JournaledD2CharacterDao journaled = new JournaledD2CharacterDao(database, journal);
+            Runtime.getRuntime().addShutdownHook(new Thread(journaled::close, "character-journal-close"));
+            return journaled;
+        }
+        int writeBehindMillis = config.getCharacterWriteBehindMillis();
+        if (writeBehindMillis <= 0) {
+            return database;
+        }
+        WriteBehindD2CharacterDao writeBehind = new WriteBehindD2CharacterDao(database,
+            Duration.ofMillis(writeBehindMillis), config.getCharacterWriteBehindMaxPending());
+        // Queued updates must reach the database however the process stops
+        Runtime.getRuntime().addShutdownHook(new Thread(writeBehind::close, "character-write-behind-flush"));
+        return writeBehind;
+    }
+
+    @Override
+    public SelectedCharacterStore selectedCharacterStore(DaoExecutor executor) {
+        return new JdbcSelectedCharacterStore(dataSource, executor);
+    }
+
+    @Override
+    public RealmTokenStore realmTokenStore(RealmConfig realm, DaoExecutor executor) {
+        if (!"signed".equals(realm.getTokenMode())) {
+            throw new IllegalArgumentException("The jdbc persistence backend needs realm.tokenMode: signed");
+        }
+        return new SignedRealmTokenStore(realm.getTokenSecret());
+    }
+
+    @Override
+    public int maxConcurrentOperations() {
+        // More calls in flight would only queue for a connection
+        return config.getPoolSize();
+    }
+}
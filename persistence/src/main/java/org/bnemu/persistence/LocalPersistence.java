@@ -0,0 +1,118 @@
+package org.bnemu.persistence;
+
+import org.bnemu.core.auth.InMemorySelectedCharacterStore;
+import org.bnemu.core.auth.RealmTokenStore;
+import org.bnemu.core.auth.SelectedCharacterStore;
+import org.bnemu.core.auth.SignedRealmTokenStore;
+import org.bnemu.core.config.LocalStoreConfig;
+import org.bnemu.core.config.RealmConfig;
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bnemu.persistence.dao.LocalAccountDao;
+import org.bnemu.persistence.dao.LocalD2CharacterDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts and characters in embedded log files under {@code dataDir}, for single-node realms
+ * that would rather not run a database. A background thread forces writes to disk and compacts
+ * the logs; both are flushed and closed on shutdown.
+ *
+ * <p>Nothing is shared between processes. Run BNCS and D2CS in the launcher, or separately with
+ * the selection link configured and {@code realm.tokenMode: signed}.
+ */
+public class LocalPersistence implements Persistence {
+    private static final Logger logger = LoggerFactory.getLogger(LocalPersistence.class);
+    private static final int MAX_CONCURRENT_OPERATIONS = 64; // in-memory lookups and appends
+
+    private final LocalStoreConfig config;
+    private final Path dataDir;
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "local-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // One instance per file: two writers on the same log would corrupt it
+    private LocalAccountDao accounts;
+    private LocalD2CharacterDao characters;
+
+    public LocalPersistence(LocalStoreConfig config) {
+        this.config = config;
+        this.dataDir = Path.of(config.getDataDir());
+        try {
+            Files.createDirectories(dataDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create " + dataDir, e);
+        }
+    }
+
+    @Override
+    public synchronized AccountDao accountDao() {
+        if (accounts == null) {
+            accounts = new LocalAccountDao(dataDir.resolve("accounts.log"), regionSize());
+            maintain("accounts", accounts::force, accounts::compactIfWorthwhile, accounts::close);
+        }
+        return accounts;
+    }
+
+    @Override
+    public synchronized D2CharacterDao characterDao() {
+        if (characters == null) {
+            characters = new LocalD2CharacterDao(dataDir.resolve("characters.log"), regionSize());
+            maintain("characters", characters::force, characters::compactIfWorthwhile, characters::close);
+        }
+        return characters;
+    }
+
+    @Override
+    public SelectedCharacterStore selectedCharacterStore(DaoExecutor executor) {
+        return new InMemorySelectedCharacterStore();
+    }
+
+    @Override
+    public RealmTokenStore realmTokenStore(RealmConfig realm, DaoExecutor executor) {
+        if (!"signed".equals(realm.getTokenMode())) {
+            throw new IllegalArgumentException("The local persistence backend needs realm.tokenMode: signed");
+        }
+        return new SignedRealmTokenStore(realm.getTokenSecret());
+    }
+
+    @Override
+    public int maxConcurrentOperations() {
+        return MAX_CONCURRENT_OPERATIONS;
+    }
+
+    private int regionSize() {
+        return config.getRegionSizeMegabytes() << 20;
+    }
+
+    private void maintain(String name, Runnable force, Runnable compact, Runnable close) {
+        long syncMillis = config.getSyncIntervalMillis();
+        maintenance.scheduleWithFixedDelay(() -> run(name, force), syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        long compactSeconds = config.getCompactionIntervalSeconds();
+        maintenance.scheduleWithFixedDelay(() -> run(name, compact),
+            compactSeconds, compactSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            maintenance.shutdownNow();
+            close.run();
+        }, "local-store-close-" + name));
+    }
+
+    private static void run(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // Keep the schedule going; the next run retries
+            logger.error("Maintenance of the {} store failed", name, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.bnemu.persistence;
+
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.bnemu.core.config.MongoConfig;
+
+public final class MongoConnections {
+    private MongoConnections() {
+    }
+
+    /**
+     * Connect to the configured database, authenticating against {@code admin}.
+     */
+    public static MongoDatabase open(MongoConfig config) {
+        String mongoUri = String.format(
+                "mongodb://%s:%s@%s:%d/%s?authSource=admin",
+                config.getUsername(),
+                config.getPassword(),
+                config.getHost(),
+                config.getPort(),
+                config.getDatabase()
+        );
+        return MongoClients.create(mongoUri).getDatabase(config.getDatabase());
+    }
+}
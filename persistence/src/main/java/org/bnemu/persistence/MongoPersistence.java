@@ -0,0 +1,97 @@
+package org.bnemu.persistence;
+
+import com.mongodb.client.MongoDatabase;
+import org.bnemu.core.auth.MongoSelectedCharacterStore;
+import org.bnemu.core.auth.RealmTokenStore;
+import org.bnemu.core.auth.SelectedCharacterStore;
+import org.bnemu.core.config.JournalConfig;
+import org.bnemu.core.config.MongoConfig;
+import org.bnemu.core.config.RealmConfig;
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DaoExecutor;
+import org.bnemu.persistence.dao.JournaledAccountDao;
+import org.bnemu.persistence.dao.JournaledD2CharacterDao;
+import org.bnemu.persistence.dao.MongoAccountDao;
+import org.bnemu.persistence.dao.MongoD2CharacterDao;
+import org.bnemu.persistence.dao.WriteBehindD2CharacterDao;
+
+import java.time.Duration;
+
+/**
+ * Everything in one MongoDB database.
+ */
+public class MongoPersistence implements Persistence {
+    private final MongoConfig config;
+    private final JournalConfig journal;
+    private final MongoDatabase db;
+    // One instance each: a second journal on the same files would fail to lock them
+    private AccountDao accounts;
+    private D2CharacterDao characters;
+
+    public MongoPersistence(MongoConfig config, JournalConfig journal) {
+        this.config = config;
+        this.journal = journal;
+        this.db = MongoConnections.open(config);
+    }
+
+    @Override
+    public synchronized AccountDao accountDao() {
+        if (accounts == null) {
+            accounts = createAccountDao();
+        }
+        return accounts;
+    }
+
+    @Override
+    public synchronized D2CharacterDao characterDao() {
+        if (characters == null) {
+            characters = createCharacterDao();
+        }
+        return characters;
+    }
+
+    private AccountDao createAccountDao() {
+        MongoAccountDao database = new MongoAccountDao(db);
+        if (!journal.isEnabled()) {
+            return database;
+        }
+        JournaledAccountDao journaled = new JournaledAccountDao(database, journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(journaled::close, "account-journal-close"));
+        return journaled;
+    }
+
+    private D2CharacterDao createCharacterDao() {
+        MongoD2CharacterDao database = new MongoD2CharacterDao(db);
+        if (journal.isEnabled()) {
+            // Batches updates on its own, so write-behind is not stacked on top
+            JournaledD2CharacterDao journaled = new JournaledD2CharacterDao(database, journal);
+            Runtime.getRuntime().addShutdownHook(new Thread(journaled::close, "character-journal-close"));
+            return journaled;
+        }
+        int writeBehindMillis = config.getCharacterWriteBehindMillis();
+        if (writeBehindMillis <= 0) {
+            return database;
+        }
+        WriteBehindD2CharacterDao writeBehind = new WriteBehindD2CharacterDao(database,
+            Duration.ofMillis(writeBehindMillis), config.getCharacterWriteBehindMaxPending());
+        // Queued updates must reach the database however the process stops
+        Runtime.getRuntime().addShutdownHook(new Thread(writeBehind::close, "character-write-behind-flush"));
+        return writeBehind;
+    }
+
+    @Override
+    public SelectedCharacterStore selectedCharacterStore(DaoExecutor executor) {
+        return new MongoSelectedCharacterStore(db, executor);
+    }
+
+    @Override
+    public RealmTokenStore realmTokenStore(RealmConfig realm, DaoExecutor executor) {
+        return RealmTokenStore.create(realm, db, executor);
+    }
+
+    @Override
+    public int maxConcurrentOperations() {
+        return config.getMaxConcurrentOperations();
+    }
+}
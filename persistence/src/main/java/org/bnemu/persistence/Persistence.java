@@ -0,0 +1,41 @@
+package org.bnemu.persistence;
+
+import org.bnemu.core.auth.RealmTokenStore;
+import org.bnemu.core.auth.SelectedCharacterStore;
+import org.bnemu.core.config.CoreConfig;
+import org.bnemu.core.config.RealmConfig;
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DaoExecutor;
+
+/**
+ * The database the servers keep their state in, selected by {@code persistence.backend}.
+ */
+public interface Persistence {
+    AccountDao accountDao();
+
+    /**
+     * The character DAO, batching targeted updates when write-behind or the journal is configured.
+     * Queued updates are flushed on shutdown.
+     */
+    D2CharacterDao characterDao();
+
+    SelectedCharacterStore selectedCharacterStore(DaoExecutor executor);
+
+    RealmTokenStore realmTokenStore(RealmConfig config, DaoExecutor executor);
+
+    /**
+     * Database calls to allow in flight at once, for the {@link DaoExecutor}.
+     */
+    int maxConcurrentOperations();
+
+    static Persistence open(CoreConfig config) {
+        String backend = config.getPersistence().getBackend();
+        return switch (backend) {
+            case "mongo" -> new MongoPersistence(config.getMongo(), config.getPersistence().getJournal());
+            case "jdbc" -> new JdbcPersistence(config.getPersistence().getJdbc(), config.getPersistence().getJournal());
+            case "local" -> new LocalPersistence(config.getPersistence().getLocal());
+            default -> throw new IllegalArgumentException("Unknown persistence backend: " + backend);
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.crypto.BrokenSHA1;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * The SID_AUTH_ACCOUNTLOGONPROOF check shared by the account DAOs.
+ */
+final class AccountProofs {
+    private AccountProofs() {
+    }
+
+    static boolean matches(byte[] storedHash, byte[] clientProof, int clientToken, int serverToken) {
+        ByteBuffer buf = ByteBuffer.allocate(8 + storedHash.length).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(clientToken);
+        buf.putInt(serverToken);
+        buf.put(storedHash);
+
+        byte[] input = buf.array();
+        int[] hashBuffer = BrokenSHA1.calcHashBuffer(input);
+
+        ByteBuffer out = ByteBuffer.allocate(20).order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < 5; i++) {
+            out.putInt(hashBuffer[i]);
+        }
+        byte[] expectedProof = out.array();
+
+        return MessageDigest.isEqual(expectedProof, clientProof);
+    }
+}
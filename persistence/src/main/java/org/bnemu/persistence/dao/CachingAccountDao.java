@@ -0,0 +1,94 @@
+package org.bnemu.persistence.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.model.Account;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Read-through cache in front of another {@link AccountDao}.
+ *
+ * <p>Logins and reconnect loops look up the same few accounts over and over, and brute-force
+ * attempts look up accounts that do not exist. Both are answered from memory: found accounts are
+ * kept for the TTL, missing ones (negative entries) for a shorter TTL. Creating an account drops
+ * its entry. Cached accounts are shared and must not be modified by callers.
+ */
+public class CachingAccountDao implements AccountDao {
+    private final AccountDao delegate;
+    private final Cache<String, Optional<Account>> accounts;
+
+    public CachingAccountDao(AccountDao delegate, int maxSize, Duration ttl, Duration negativeTtl) {
+        this(delegate, maxSize, ttl, negativeTtl, Ticker.systemTicker());
+    }
+
+    CachingAccountDao(AccountDao delegate, int maxSize, Duration ttl, Duration negativeTtl, Ticker ticker) {
+        this.delegate = delegate;
+        this.accounts = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, Optional<Account>>() {
+                @Override
+                public long expireAfterCreate(String key, Optional<Account> value, long currentTime) {
+                    return (value.isPresent() ? ttl : negativeTtl).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Optional<Account> value, long currentTime,
+                                              long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, Optional<Account> value, long currentTime,
+                                            long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .ticker(ticker)
+            .recordStats()
+            .build();
+    }
+
+    @Override
+    public Account findAccount(String username) {
+        // Loaded under the entry's lock, so concurrent misses share one query and an account created
+        // meanwhile waits for the load and then drops its result instead of being overwritten by it
+        return accounts.get(username.toLowerCase(), key -> Optional.ofNullable(delegate.findAccount(key)))
+            .orElse(null);
+    }
+
+    @Override
+    public boolean createAccount(String username, byte[] passwordHash) {
+        String key = username.toLowerCase();
+        try {
+            return delegate.createAccount(key, passwordHash);
+        } finally {
+            accounts.invalidate(key);
+        }
+    }
+
+    @Override
+    public boolean validatePassword(String username, byte[] clientProof, int clientToken, int serverToken) {
+        Account account = findAccount(username);
+        if (account == null || account.getPasswordHashBytes() == null) {
+            return false;
+        }
+        return AccountProofs.matches(account.getPasswordHashBytes(), clientProof, clientToken, serverToken);
+    }
+
+    /**
+     * Hit, miss and eviction counts since startup, for sizing the cache.
+     */
+    public CacheStats stats() {
+        return accounts.stats();
+    }
+
+    public long size() {
+        return accounts.estimatedSize();
+    }
+}
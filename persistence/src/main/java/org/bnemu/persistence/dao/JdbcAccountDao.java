@@ -0,0 +1,112 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.model.Account;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * MariaDB/MySQL implementation of AccountDao.
+ */
+public class JdbcAccountDao implements AccountDao {
+    private static final String INSERT = "INSERT INTO accounts (username, password_hash) VALUES (?, ?)";
+    private static final String INSERT_IGNORE = "INSERT IGNORE INTO accounts (username, password_hash) VALUES (?, ?)";
+    private static final String SELECT = "SELECT username, password_hash FROM accounts WHERE username = ?";
+
+    private final DataSource dataSource;
+
+    public JdbcAccountDao(DataSource dataSource) {
+        this.dataSource = dataSource;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS accounts ("
+                + "username VARCHAR(32) NOT NULL PRIMARY KEY,"
+                + " password_hash VARBINARY(64))");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create the accounts table", e);
+        }
+    }
+
+    @Override
+    public boolean createAccount(String username, byte[] passwordHash) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT)) {
+            statement.setString(1, username.toLowerCase());
+            statement.setBytes(2, passwordHash);
+            statement.executeUpdate();
+            return true;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false; // taken
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create account " + username, e);
+        }
+    }
+
+    /**
+     * Create many accounts as one batch in one transaction, skipping names that are taken.
+     *
+     * @param passwordHashes keyed by username
+     * @return how many were created
+     */
+    public int insertAll(Map<String, byte[]> passwordHashes) {
+        if (passwordHashes.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_IGNORE)) {
+                for (Map.Entry<String, byte[]> account : passwordHashes.entrySet()) {
+                    statement.setString(1, account.getKey().toLowerCase());
+                    statement.setBytes(2, account.getValue());
+                    statement.addBatch();
+                }
+                int inserted = JdbcD2CharacterDao.insertedCount(statement.executeBatch());
+                connection.commit();
+                return inserted;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create " + passwordHashes.size() + " account(s)", e);
+        }
+    }
+
+    @Override
+    public Account findAccount(String username) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            statement.setString(1, username.toLowerCase());
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return null;
+                }
+                Account acc = new Account();
+                acc.setUsername(row.getString("username"));
+                acc.setPasswordHashBytes(row.getBytes("password_hash"));
+                return acc;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to look up account " + username, e);
+        }
+    }
+
+    @Override
+    public boolean validatePassword(String username, byte[] clientProof, int clientToken, int serverToken) {
+        Account account = findAccount(username);
+        if (account == null || account.getPasswordHashBytes() == null) {
+            return false;
+        }
+        return AccountProofs.matches(account.getPasswordHashBytes(), clientProof, clientToken, serverToken);
+    }
+}
@@ -0,0 +1,413 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DuplicateCharacterNameException;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.core.model.DiabloClass;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MariaDB/MySQL implementation of D2CharacterDao.
+ *
+ * <p>The SQL sticks to what MariaDB and MySQL both accept. The tests run it on H2 in MariaDB mode
+ * only, so MySQL-specific behavior is untested.
+ */
+public class JdbcD2CharacterDao implements D2CharacterDao {
+    // Saves can be tens of KB; anything that does not need one leaves it in the database
+    private static final String SUMMARY_COLUMNS =
+        "id, account_name, name, char_class, level, expansion, hardcore, dead, ladder, created_at, last_played_at";
+    private static final String ALL_COLUMNS = SUMMARY_COLUMNS + ", save_data";
+    private static final String BY_ACCOUNT = " FROM d2_characters WHERE account_name = ?";
+    private static final String BY_ACCOUNT_AND_NAME = " FROM d2_characters WHERE account_name = ? AND name_lower = ?";
+
+    private static final String INSERT =
+        "INSERT INTO d2_characters (account_name, name, name_lower, char_class, level, expansion, hardcore, dead,"
+            + " ladder, created_at, last_played_at, save_data) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Skips names that are taken, so a bulk load can be rerun over rows it already wrote
+    private static final String INSERT_IGNORE = INSERT.replaceFirst("INSERT", "INSERT IGNORE");
+    private static final String UPDATE =
+        "UPDATE d2_characters SET level = ?, expansion = ?, hardcore = ?, dead = ?, ladder = ?,"
+            + " last_played_at = ?, save_data = ? WHERE name_lower = ?";
+    // One statement for any mix of targeted updates, so a flush is a single batch: null leaves a
+    // column as it is, and the save is only replaced when the flag says so (a null save is valid)
+    private static final String UPDATE_FIELDS =
+        "UPDATE d2_characters SET last_played_at = COALESCE(?, last_played_at), level = COALESCE(?, level),"
+            + " hardcore = COALESCE(?, hardcore), dead = COALESCE(?, dead), expansion = COALESCE(?, expansion),"
+            + " ladder = COALESCE(?, ladder), save_data = CASE WHEN ? THEN ? ELSE save_data END"
+            + " WHERE name_lower = ?";
+    private static final String DELETE = "DELETE" + BY_ACCOUNT_AND_NAME;
+
+    private final DataSource dataSource;
+
+    public JdbcD2CharacterDao(DataSource dataSource) {
+        this.dataSource = dataSource;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS d2_characters ("
+                + "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                + " account_name VARCHAR(32) NOT NULL,"
+                + " name VARCHAR(16) NOT NULL,"
+                // Unique, case-insensitive character names
+                + " name_lower VARCHAR(16) NOT NULL UNIQUE,"
+                + " char_class VARCHAR(16),"
+                + " level INT NOT NULL,"
+                + " expansion BOOLEAN NOT NULL,"
+                + " hardcore BOOLEAN NOT NULL,"
+                + " dead BOOLEAN NOT NULL,"
+                + " ladder BOOLEAN NOT NULL,"
+                + " created_at BIGINT NOT NULL,"
+                + " last_played_at BIGINT NOT NULL,"
+                + " save_data MEDIUMBLOB,"
+                // Index on account for fast lookups; declared here since MySQL has no CREATE INDEX IF NOT EXISTS
+                + " INDEX d2_characters_account (account_name))");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create the d2_characters table", e);
+        }
+    }
+
+    @Override
+    public List<D2Character> findByAccountName(String accountName) {
+        List<D2Character> result = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT " + ALL_COLUMNS + BY_ACCOUNT)) {
+            statement.setString(1, accountName.toLowerCase());
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    result.add(rowToCharacter(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw failure("list characters of " + accountName, e);
+        }
+        return result;
+    }
+
+    @Override
+    public D2Character findByAccountAndName(String accountName, String characterName) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT " + ALL_COLUMNS + BY_ACCOUNT_AND_NAME)) {
+            bindAccountAndName(statement, accountName, characterName);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? rowToCharacter(row) : null;
+            }
+        } catch (SQLException e) {
+            throw failure("load character " + characterName, e);
+        }
+    }
+
+    @Override
+    public List<D2CharacterSummary> findSummariesByAccountName(String accountName) {
+        List<D2CharacterSummary> result = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT " + SUMMARY_COLUMNS + BY_ACCOUNT)) {
+            statement.setString(1, accountName.toLowerCase());
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    result.add(rowToSummary(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw failure("list characters of " + accountName, e);
+        }
+        return result;
+    }
+
+    @Override
+    public D2CharacterSummary findSummary(String accountName, String characterName) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                 "SELECT " + SUMMARY_COLUMNS + BY_ACCOUNT_AND_NAME)) {
+            bindAccountAndName(statement, accountName, characterName);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? rowToSummary(row) : null;
+            }
+        } catch (SQLException e) {
+            throw failure("load character " + characterName, e);
+        }
+    }
+
+    @Override
+    public byte[] loadSaveData(String accountName, String characterName) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT save_data" + BY_ACCOUNT_AND_NAME)) {
+            bindAccountAndName(statement, accountName, characterName);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? row.getBytes(1) : null;
+            }
+        } catch (SQLException e) {
+            throw failure("load the save of " + characterName, e);
+        }
+    }
+
+    @Override
+    public boolean isNameAvailable(String characterName) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                 "SELECT 1 FROM d2_characters WHERE name_lower = ?")) {
+            statement.setString(1, characterName.toLowerCase());
+            try (ResultSet row = statement.executeQuery()) {
+                return !row.next();
+            }
+        } catch (SQLException e) {
+            throw failure("check character name " + characterName, e);
+        }
+    }
+
+    @Override
+    public void forEachCharacterName(Consumer<String> action) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT name_lower FROM d2_characters")) {
+            statement.setFetchSize(10_000); // stream instead of buffering every name
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    action.accept(row.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw failure("list character names", e);
+        }
+    }
+
+    @Override
+    public void save(D2Character character) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(statement, character);
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                if (keys.next()) {
+                    character.setId(Long.toString(keys.getLong(1)));
+                }
+            }
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new DuplicateCharacterNameException(character.getName(), e);
+        } catch (SQLException e) {
+            throw failure("save character " + character.getName(), e);
+        }
+    }
+
+    @Override
+    public void update(D2Character character) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(UPDATE)) {
+            statement.setInt(1, character.getLevel());
+            statement.setBoolean(2, character.isExpansion());
+            statement.setBoolean(3, character.isHardcore());
+            statement.setBoolean(4, character.isDead());
+            statement.setBoolean(5, character.isLadder());
+            statement.setLong(6, character.getLastPlayedAt());
+            statement.setBytes(7, character.getSaveData());
+            statement.setString(8, character.getName().toLowerCase());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw failure("update character " + character.getName(), e);
+        }
+    }
+
+    @Override
+    public void touchLastPlayed(String characterName, long lastPlayedAt) {
+        apply(characterName, PendingCharacterUpdate.lastPlayed(lastPlayedAt));
+    }
+
+    @Override
+    public void setLevel(String characterName, int level) {
+        apply(characterName, PendingCharacterUpdate.level(level));
+    }
+
+    @Override
+    public void setFlags(String characterName, int flags) {
+        apply(characterName, PendingCharacterUpdate.flags(flags));
+    }
+
+    @Override
+    public void replaceSaveData(String characterName, byte[] saveData) {
+        apply(characterName, PendingCharacterUpdate.saveData(saveData));
+    }
+
+    private void apply(String characterName, PendingCharacterUpdate update) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(UPDATE_FIELDS)) {
+            bindUpdate(statement, characterName.toLowerCase(), update);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw failure("update character " + characterName, e);
+        }
+    }
+
+    /**
+     * Write many updates as one batch in one transaction.
+     *
+     * @param updates keyed by lower-case character name
+     */
+    void applyAll(Map<String, PendingCharacterUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_FIELDS)) {
+                for (Map.Entry<String, PendingCharacterUpdate> entry : updates.entrySet()) {
+                    bindUpdate(statement, entry.getKey(), entry.getValue());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw failure("write " + updates.size() + " character update(s)", e);
+        }
+    }
+
+    /**
+     * Insert many new characters as one batch in one transaction, skipping names that are taken.
+     *
+     * @return how many were inserted
+     */
+    public int insertAll(List<D2Character> characters) {
+        if (characters.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_IGNORE)) {
+                for (D2Character character : characters) {
+                    bindInsert(statement, character);
+                    statement.addBatch();
+                }
+                int inserted = insertedCount(statement.executeBatch());
+                connection.commit();
+                return inserted;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw failure("insert " + characters.size() + " character(s)", e);
+        }
+    }
+
+    /**
+     * Rows a batch of inserts added. Drivers that send the batch in bulk may not say per row;
+     * those rows are counted as inserted.
+     */
+    static int insertedCount(int[] counts) {
+        int inserted = 0;
+        for (int count : counts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public void delete(String accountName, String characterName) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE)) {
+            bindAccountAndName(statement, accountName, characterName);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw failure("delete character " + characterName, e);
+        }
+    }
+
+    private static void bindInsert(PreparedStatement statement, D2Character character) throws SQLException {
+        statement.setString(1, character.getAccountName().toLowerCase());
+        statement.setString(2, character.getName());
+        statement.setString(3, character.getName().toLowerCase());
+        statement.setString(4, character.getCharClass() != null ? character.getCharClass().name() : null);
+        statement.setInt(5, character.getLevel());
+        statement.setBoolean(6, character.isExpansion());
+        statement.setBoolean(7, character.isHardcore());
+        statement.setBoolean(8, character.isDead());
+        statement.setBoolean(9, character.isLadder());
+        statement.setLong(10, character.getCreatedAt());
+        statement.setLong(11, character.getLastPlayedAt());
+        statement.setBytes(12, character.getSaveData());
+    }
+
+    private static void bindAccountAndName(PreparedStatement statement, String accountName, String characterName)
+            throws SQLException {
+        statement.setString(1, accountName.toLowerCase());
+        statement.setString(2, characterName.toLowerCase());
+    }
+
+    private static void bindUpdate(PreparedStatement statement, String nameLower, PendingCharacterUpdate update)
+            throws SQLException {
+        statement.setObject(1, update.lastPlayedAt(), Types.BIGINT);
+        statement.setObject(2, update.level(), Types.INTEGER);
+        Integer flags = update.flags();
+        statement.setObject(3, flags != null ? (flags & 0x04) != 0 : null, Types.BOOLEAN);
+        statement.setObject(4, flags != null ? (flags & 0x08) != 0 : null, Types.BOOLEAN);
+        statement.setObject(5, flags != null ? (flags & 0x20) != 0 : null, Types.BOOLEAN);
+        statement.setObject(6, flags != null ? (flags & 0x40) != 0 : null, Types.BOOLEAN);
+        statement.setBoolean(7, update.hasSaveData());
+        statement.setBytes(8, update.saveData());
+        statement.setString(9, nameLower);
+    }
+
+    private static D2CharacterSummary rowToSummary(ResultSet row) throws SQLException {
+        String classStr = row.getString("char_class");
+        return new D2CharacterSummary(
+            Long.toString(row.getLong("id")),
+            row.getString("account_name"),
+            row.getString("name"),
+            classStr != null ? DiabloClass.valueOf(classStr) : null,
+            row.getInt("level"),
+            row.getBoolean("expansion"),
+            row.getBoolean("hardcore"),
+            row.getBoolean("dead"),
+            row.getBoolean("ladder"),
+            row.getLong("created_at"),
+            row.getLong("last_played_at")
+        );
+    }
+
+    private static D2Character rowToCharacter(ResultSet row) throws SQLException {
+        D2Character character = new D2Character();
+        character.setId(Long.toString(row.getLong("id")));
+        character.setAccountName(row.getString("account_name"));
+        character.setName(row.getString("name"));
+
+        String classStr = row.getString("char_class");
+        if (classStr != null) {
+            character.setCharClass(DiabloClass.valueOf(classStr));
+        }
+
+        character.setLevel(row.getInt("level"));
+        character.setExpansion(row.getBoolean("expansion"));
+        character.setHardcore(row.getBoolean("hardcore"));
+        character.setDead(row.getBoolean("dead"));
+        character.setLadder(row.getBoolean("ladder"));
+        character.setCreatedAt(row.getLong("created_at"));
+        character.setLastPlayedAt(row.getLong("last_played_at"));
+        character.setSaveData(row.getBytes("save_data"));
+        return character;
+    }
+
+    private static IllegalStateException failure(String action, SQLException e) {
+        return new IllegalStateException("Failed to " + action, e);
+    }
+}
@@ -0,0 +1,155 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.config.JournalConfig;
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.model.Account;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Acknowledges account creation once it is in a {@link WriteAheadJournal} on local disk, and
+ * creates the account in the database in the background. Until then the account is answered from
+ * memory, so the player can log on straight away.
+ *
+ * <p>Replaying a creation that was already applied finds the account present and does nothing.
+ * Names are checked against this instance and the database only, so another instance can take
+ * the same name before the creation is applied; the creation is then dropped with a warning.
+ * A creation whose journal write failed was reported as failed, and is forgotten once the journal
+ * drops it.
+ */
+public class JournaledAccountDao implements AccountDao, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(JournaledAccountDao.class);
+
+    private record Unapplied(long sequence, byte[] passwordHash) {
+    }
+
+    private final AccountDao delegate;
+    private final ConcurrentHashMap<String, Unapplied> unapplied = new ConcurrentHashMap<>();
+    // Keeps the check and the journal order in step; not held while waiting on the database or the disk
+    private final ReentrantLock createLock = new ReentrantLock();
+    // Creations applied so far; written by the replayer only
+    private volatile long appliedCount;
+    private final WriteAheadJournal journal;
+
+    public JournaledAccountDao(AccountDao delegate, JournalConfig config) {
+        this.delegate = delegate;
+        this.journal = WriteAheadJournal.open(Path.of(config.getDir()), "accounts", this::apply, this::discardAfter,
+            config.getReplayIntervalMillis(), config.getReplayBatchSize(),
+            (long) config.getSegmentSizeMegabytes() << 20);
+    }
+
+    @Override
+    public Account findAccount(String username) {
+        String key = username.toLowerCase();
+        Unapplied write = unapplied.get(key);
+        if (write == null) {
+            return delegate.findAccount(key);
+        }
+        Account account = new Account();
+        account.setUsername(key);
+        account.setPasswordHashBytes(write.passwordHash());
+        return account;
+    }
+
+    @Override
+    public boolean createAccount(String username, byte[] passwordHash) {
+        String key = username.toLowerCase();
+        long appliedBefore = appliedCount;
+        if (unapplied.containsKey(key) || delegate.findAccount(key) != null) {
+            return false;
+        }
+        long sequence;
+        createLock.lock();
+        try {
+            // Another creation of the name may have been journaled meanwhile, or even applied and
+            // left memory; only in that last case is the database asked again
+            if (unapplied.containsKey(key)
+                    || (appliedCount != appliedBefore && delegate.findAccount(key) != null)) {
+                return false;
+            }
+            sequence = journal.append(encode(key, passwordHash));
+            unapplied.put(key, new Unapplied(sequence, passwordHash.clone()));
+        } finally {
+            createLock.unlock();
+        }
+        journal.sync(sequence);
+        return true;
+    }
+
+    @Override
+    public boolean validatePassword(String username, byte[] clientProof, int clientToken, int serverToken) {
+        Unapplied write = unapplied.get(username.toLowerCase());
+        if (write == null) {
+            return delegate.validatePassword(username, clientProof, clientToken, serverToken);
+        }
+        return AccountProofs.matches(write.passwordHash(), clientProof, clientToken, serverToken);
+    }
+
+    /**
+     * Accounts journaled but not yet created in the database.
+     */
+    public int pendingCount() {
+        return journal.pendingCount();
+    }
+
+    /**
+     * Create everything journaled so far and close the journal.
+     */
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    private void apply(List<WriteAheadJournal.Entry> batch) {
+        // Accounts are created rarely enough that one call each is fine
+        for (WriteAheadJournal.Entry entry : batch) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.payload()))) {
+                String username = in.readUTF();
+                byte[] passwordHash = in.readNBytes(in.readUnsignedShort());
+                if (!delegate.createAccount(username, passwordHash)) {
+                    Account existing = delegate.findAccount(username);
+                    if (existing == null || !Arrays.equals(existing.getPasswordHashBytes(), passwordHash)) {
+                        // Another instance took the name within the same replay window
+                        logger.warn("Account {} was created in the database by someone else; dropping its creation",
+                            username);
+                    }
+                    // Otherwise applied before a restart
+                }
+                // Before leaving memory, so createAccount knows to ask the database again
+                appliedCount++;
+                // An account is created once, so nothing newer can be waiting under its name
+                unapplied.remove(username);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void discardAfter(long durable) {
+        unapplied.values().removeIf(write -> write.sequence() > durable);
+    }
+
+    private static byte[] encode(String username, byte[] passwordHash) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(username);
+            out.writeShort(passwordHash.length);
+            out.write(passwordHash);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
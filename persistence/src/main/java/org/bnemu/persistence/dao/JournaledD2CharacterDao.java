@@ -0,0 +1,503 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.config.JournalConfig;
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DuplicateCharacterNameException;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.core.model.DiabloClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Acknowledges character writes once they are in a {@link WriteAheadJournal} on local disk, and
+ * applies them to the database in the background.
+ *
+ * <p>Until a write is applied it is kept in memory, keyed by lower-case name, and laid over what the
+ * database returns, so callers read their own writes. Each write is checked against that view
+ * before it is journaled: saving a taken name throws, and deleting a character the account does
+ * not own does nothing. The replayer applies creates and deletes one at a time, and merges the
+ * updates between them into one batch (an unordered {@code bulkWrite}, or a JDBC batch).
+ *
+ * <p>Replaying an entry that was already applied is harmless: a create finds its character
+ * present, a delete finds it gone, and updates set the same values again. Writes whose journal
+ * write failed were reported as failed; once the journal drops them, the in-memory view drops
+ * every write that includes one, and reads fall back to the database.
+ */
+public class JournaledD2CharacterDao implements D2CharacterDao, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(JournaledD2CharacterDao.class);
+
+    private static final byte SAVE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    /**
+     * The newest unapplied write to one character: it was created (with any later updates folded
+     * in), deleted, or only updated.
+     */
+    private record Unapplied(long sequence, D2Character created, boolean deleted, PendingCharacterUpdate updates) {
+    }
+
+    private final D2CharacterDao delegate;
+    private final Consumer<Map<String, PendingCharacterUpdate>> writer;
+    private final ConcurrentHashMap<String, Unapplied> unapplied = new ConcurrentHashMap<>();
+    // Keeps checks, journal order and the in-memory view in step; not held while waiting on the disk
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final WriteAheadJournal journal;
+
+    public JournaledD2CharacterDao(MongoD2CharacterDao delegate, JournalConfig config) {
+        this(delegate, delegate::applyAll, config);
+    }
+
+    public JournaledD2CharacterDao(JdbcD2CharacterDao delegate, JournalConfig config) {
+        this(delegate, delegate::applyAll, config);
+    }
+
+    /**
+     * @param writer writes a batch of updates, keyed by lower-case character name
+     */
+    private JournaledD2CharacterDao(D2CharacterDao delegate, Consumer<Map<String, PendingCharacterUpdate>> writer,
+                                    JournalConfig config) {
+        this.delegate = delegate;
+        this.writer = writer;
+        this.journal = WriteAheadJournal.open(Path.of(config.getDir()), "characters", this::apply, this::discardAfter,
+            config.getReplayIntervalMillis(), config.getReplayBatchSize(),
+            (long) config.getSegmentSizeMegabytes() << 20);
+    }
+
+    // Reads look at the unapplied writes before the database: a write is removed from memory only
+    // after it is applied, so one of the two always has it.
+
+    @Override
+    public List<D2Character> findByAccountName(String accountName) {
+        List<D2Character> created = createdBy(accountName);
+        Set<String> createdNames = keys(created);
+        List<D2Character> result = new ArrayList<>(created);
+        for (D2Character character : delegate.findByAccountName(accountName)) {
+            if (!createdNames.contains(key(character.getName()))) {
+                D2Character current = overlay(character);
+                if (current != null) {
+                    result.add(current);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public D2Character findByAccountAndName(String accountName, String characterName) {
+        Unapplied write = unapplied.get(key(characterName));
+        if (write != null && write.updates() == null) {
+            return owned(write, accountName) ? copy(write.created()) : null;
+        }
+        D2Character character = delegate.findByAccountAndName(accountName, characterName);
+        if (character != null && write != null) {
+            write.updates().applyTo(character);
+        }
+        return character;
+    }
+
+    @Override
+    public List<D2CharacterSummary> findSummariesByAccountName(String accountName) {
+        List<D2Character> created = createdBy(accountName);
+        Set<String> createdNames = keys(created);
+        List<D2CharacterSummary> result = new ArrayList<>();
+        created.forEach(character -> result.add(summary(character)));
+        for (D2CharacterSummary summary : delegate.findSummariesByAccountName(accountName)) {
+            if (!createdNames.contains(key(summary.getName()))) {
+                D2CharacterSummary current = overlay(summary);
+                if (current != null) {
+                    result.add(current);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public D2CharacterSummary findSummary(String accountName, String characterName) {
+        Unapplied write = unapplied.get(key(characterName));
+        if (write != null && write.updates() == null) {
+            return owned(write, accountName) ? summary(write.created()) : null;
+        }
+        D2CharacterSummary summary = delegate.findSummary(accountName, characterName);
+        return summary != null && write != null ? write.updates().applyTo(summary) : summary;
+    }
+
+    @Override
+    public byte[] loadSaveData(String accountName, String characterName) {
+        Unapplied write = unapplied.get(key(characterName));
+        if (write != null && write.updates() == null) {
+            return owned(write, accountName) ? write.created().getSaveData() : null;
+        }
+        if (write != null && write.updates().hasSaveData()) {
+            return write.updates().saveData();
+        }
+        return delegate.loadSaveData(accountName, characterName);
+    }
+
+    @Override
+    public boolean isNameAvailable(String characterName) {
+        Unapplied write = unapplied.get(key(characterName));
+        if (write != null && write.updates() == null) {
+            return write.deleted();
+        }
+        return delegate.isNameAvailable(characterName);
+    }
+
+    @Override
+    public void forEachCharacterName(Consumer<String> action) {
+        Set<String> created = new HashSet<>();
+        unapplied.forEach((name, write) -> {
+            if (write.created() != null) {
+                created.add(name);
+            }
+        });
+        created.forEach(action);
+        delegate.forEachCharacterName(name -> {
+            Unapplied write = unapplied.get(name);
+            if (!created.contains(name) && (write == null || write.updates() != null)) {
+                action.accept(name);
+            }
+        });
+    }
+
+    @Override
+    public void save(D2Character character) {
+        String key = key(character.getName());
+        long sequence;
+        writeLock.lock();
+        try {
+            Unapplied write = unapplied.get(key);
+            boolean taken = write != null && write.updates() == null
+                ? !write.deleted()
+                : !delegate.isNameAvailable(character.getName());
+            if (taken) {
+                throw new DuplicateCharacterNameException(character.getName(), null);
+            }
+            D2Character created = copy(character);
+            created.setAccountName(character.getAccountName().toLowerCase());
+            sequence = journal.append(encodeSave(created));
+            unapplied.put(key, new Unapplied(sequence, created, false, null));
+        } finally {
+            writeLock.unlock();
+        }
+        journal.sync(sequence);
+    }
+
+    @Override
+    public void update(D2Character character) {
+        queue(character.getName(), PendingCharacterUpdate.all(character));
+    }
+
+    @Override
+    public void touchLastPlayed(String characterName, long lastPlayedAt) {
+        queue(characterName, PendingCharacterUpdate.lastPlayed(lastPlayedAt));
+    }
+
+    @Override
+    public void setLevel(String characterName, int level) {
+        queue(characterName, PendingCharacterUpdate.level(level));
+    }
+
+    @Override
+    public void setFlags(String characterName, int flags) {
+        queue(characterName, PendingCharacterUpdate.flags(flags));
+    }
+
+    @Override
+    public void replaceSaveData(String characterName, byte[] saveData) {
+        queue(characterName, PendingCharacterUpdate.saveData(saveData));
+    }
+
+    @Override
+    public void delete(String accountName, String characterName) {
+        String key = key(characterName);
+        long sequence;
+        writeLock.lock();
+        try {
+            Unapplied write = unapplied.get(key);
+            boolean exists = write != null && write.updates() == null
+                ? owned(write, accountName)
+                : delegate.findSummary(accountName, characterName) != null;
+            if (!exists) {
+                return;
+            }
+            sequence = journal.append(encodeDelete(accountName.toLowerCase(), key));
+            unapplied.put(key, new Unapplied(sequence, null, true, null));
+        } finally {
+            writeLock.unlock();
+        }
+        journal.sync(sequence);
+    }
+
+    /**
+     * Writes journaled but not yet applied to the database.
+     */
+    public int pendingCount() {
+        return journal.pendingCount();
+    }
+
+    /**
+     * Apply everything journaled so far and close the journal.
+     */
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    private void queue(String characterName, PendingCharacterUpdate update) {
+        String key = key(characterName);
+        long sequence;
+        writeLock.lock();
+        try {
+            sequence = journal.append(encodeUpdate(key, update));
+            Unapplied write = unapplied.get(key);
+            Unapplied merged;
+            if (write == null) {
+                merged = new Unapplied(sequence, null, false, update);
+            } else if (write.created() != null) {
+                D2Character created = copy(write.created());
+                update.applyTo(created);
+                merged = new Unapplied(sequence, created, false, null);
+            } else if (write.deleted()) {
+                merged = new Unapplied(sequence, null, true, null);
+            } else {
+                merged = new Unapplied(sequence, null, false, write.updates().merge(update));
+            }
+            unapplied.put(key, merged);
+        } finally {
+            writeLock.unlock();
+        }
+        journal.sync(sequence);
+    }
+
+    private void apply(List<WriteAheadJournal.Entry> batch) {
+        Map<String, PendingCharacterUpdate> updates = new LinkedHashMap<>();
+        for (WriteAheadJournal.Entry entry : batch) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.payload()))) {
+                byte type = in.readByte();
+                if (type == UPDATE) {
+                    updates.merge(in.readUTF(), readUpdate(in), PendingCharacterUpdate::merge);
+                    continue;
+                }
+                String accountName = in.readUTF();
+                String name = in.readUTF();
+                // Updates queued before a create or delete must land before it
+                if (updates.containsKey(key(name))) {
+                    writer.accept(updates);
+                    updates.clear();
+                }
+                if (type == SAVE) {
+                    applySave(readCharacter(accountName, name, in));
+                } else {
+                    delegate.delete(accountName, name);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (!updates.isEmpty()) {
+            writer.accept(updates);
+        }
+        long applied = batch.get(batch.size() - 1).sequence();
+        unapplied.forEach((name, write) -> {
+            if (write.sequence() <= applied) {
+                unapplied.remove(name, write);
+            }
+        });
+    }
+
+    private void discardAfter(long durable) {
+        // Everything up to durable is applied by now, so the database has what such a write held before
+        unapplied.values().removeIf(write -> write.sequence() > durable);
+    }
+
+    private void applySave(D2Character character) {
+        try {
+            delegate.save(character);
+        } catch (DuplicateCharacterNameException e) {
+            if (delegate.findSummary(character.getAccountName(), character.getName()) == null) {
+                logger.warn("Character {} was taken in the database by another account; dropping its creation",
+                    character.getName());
+            }
+            // Otherwise applied before a restart
+        }
+    }
+
+    private List<D2Character> createdBy(String accountName) {
+        List<D2Character> created = new ArrayList<>();
+        for (Unapplied write : unapplied.values()) {
+            if (write.created() != null && owned(write, accountName)) {
+                created.add(copy(write.created()));
+            }
+        }
+        return created;
+    }
+
+    /**
+     * The stored character with any unapplied write laid over it, or null if it was deleted or replaced.
+     */
+    private D2Character overlay(D2Character character) {
+        Unapplied write = unapplied.get(key(character.getName()));
+        if (write == null) {
+            return character;
+        }
+        if (write.updates() == null) {
+            return null;
+        }
+        write.updates().applyTo(character);
+        return character;
+    }
+
+    private D2CharacterSummary overlay(D2CharacterSummary summary) {
+        Unapplied write = unapplied.get(key(summary.getName()));
+        if (write == null) {
+            return summary;
+        }
+        return write.updates() != null ? write.updates().applyTo(summary) : null;
+    }
+
+    private static boolean owned(Unapplied write, String accountName) {
+        return write.created() != null && write.created().getAccountName().equalsIgnoreCase(accountName);
+    }
+
+    private static Set<String> keys(List<D2Character> characters) {
+        Set<String> keys = new HashSet<>();
+        characters.forEach(character -> keys.add(key(character.getName())));
+        return keys;
+    }
+
+    private static String key(String characterName) {
+        return characterName.toLowerCase();
+    }
+
+    private static D2Character copy(D2Character character) {
+        D2Character copy = new D2Character();
+        copy.setId(character.getId());
+        copy.setAccountName(character.getAccountName());
+        copy.setName(character.getName());
+        copy.setCharClass(character.getCharClass());
+        copy.setLevel(character.getLevel());
+        copy.setFlags(character.getFlags());
+        copy.setCreatedAt(character.getCreatedAt());
+        copy.setLastPlayedAt(character.getLastPlayedAt());
+        copy.setSaveData(character.getSaveData());
+        return copy;
+    }
+
+    private static D2CharacterSummary summary(D2Character character) {
+        return new D2CharacterSummary(character.getId(), character.getAccountName(), character.getName(),
+            character.getCharClass(), character.getLevel(), character.isExpansion(), character.isHardcore(),
+            character.isDead(), character.isLadder(), character.getCreatedAt(), character.getLastPlayedAt());
+    }
+
+    private static byte[] encodeSave(D2Character character) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SAVE);
+            out.writeUTF(character.getAccountName());
+            out.writeUTF(character.getName());
+            out.writeUTF(character.getCharClass() != null ? character.getCharClass().name() : "");
+            out.writeInt(character.getLevel());
+            out.writeInt(character.getFlags());
+            out.writeLong(character.getCreatedAt());
+            out.writeLong(character.getLastPlayedAt());
+            writeBytes(out, character.getSaveData());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static D2Character readCharacter(String accountName, String name, DataInputStream in) throws IOException {
+        D2Character character = new D2Character();
+        character.setAccountName(accountName);
+        character.setName(name);
+        String charClass = in.readUTF();
+        character.setCharClass(charClass.isEmpty() ? null : DiabloClass.valueOf(charClass));
+        character.setLevel(in.readInt());
+        character.setFlags(in.readInt());
+        character.setCreatedAt(in.readLong());
+        character.setLastPlayedAt(in.readLong());
+        character.setSaveData(readBytes(in));
+        return character;
+    }
+
+    private static byte[] encodeUpdate(String key, PendingCharacterUpdate update) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(UPDATE);
+            out.writeUTF(key);
+            out.writeByte((update.lastPlayedAt() != null ? 1 : 0) | (update.level() != null ? 2 : 0)
+                | (update.flags() != null ? 4 : 0) | (update.hasSaveData() ? 8 : 0));
+            if (update.lastPlayedAt() != null) {
+                out.writeLong(update.lastPlayedAt());
+            }
+            if (update.level() != null) {
+                out.writeInt(update.level());
+            }
+            if (update.flags() != null) {
+                out.writeInt(update.flags());
+            }
+            if (update.hasSaveData()) {
+                writeBytes(out, update.saveData());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PendingCharacterUpdate readUpdate(DataInputStream in) throws IOException {
+        int fields = in.readByte();
+        Long lastPlayedAt = (fields & 1) != 0 ? in.readLong() : null;
+        Integer level = (fields & 2) != 0 ? in.readInt() : null;
+        Integer flags = (fields & 4) != 0 ? in.readInt() : null;
+        boolean hasSaveData = (fields & 8) != 0;
+        return PendingCharacterUpdate.of(lastPlayedAt, level, flags, hasSaveData, hasSaveData ? readBytes(in) : null);
+    }
+
+    private static byte[] encodeDelete(String accountName, String key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DELETE);
+            out.writeUTF(accountName);
+            out.writeUTF(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : in.readNBytes(length);
+    }
+}
@@ -0,0 +1,75 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.model.Account;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * AccountDao on an embedded {@link LogStore}: every lookup is answered from memory and the local
+ * disk, with no database to run. One process at a time may open the store; a second fails to
+ * lock it.
+ */
+public class LocalAccountDao implements AccountDao, Closeable {
+    private final LogStore accounts;
+
+    public LocalAccountDao(Path file, int regionSize) {
+        this.accounts = LogStore.open(file, regionSize, null);
+    }
+
+    @Override
+    public boolean createAccount(String username, byte[] passwordHash) {
+        return accounts.insert(username.toLowerCase(), ByteBuffer.allocate(2 + passwordHash.length)
+            .putShort((short) passwordHash.length)
+            .put(passwordHash)
+            .array());
+    }
+
+    @Override
+    public Account findAccount(String username) {
+        String usernameLower = username.toLowerCase();
+        ByteBuffer value = accounts.get(usernameLower);
+        if (value == null) return null;
+
+        Account acc = new Account();
+        acc.setUsername(usernameLower);
+        acc.setPasswordHashBytes(passwordHash(value));
+        return acc;
+    }
+
+    @Override
+    public boolean validatePassword(String username, byte[] clientProof, int clientToken, int serverToken) {
+        ByteBuffer value = accounts.get(username.toLowerCase());
+        if (value == null) {
+            return false;
+        }
+        return AccountProofs.matches(passwordHash(value), clientProof, clientToken, serverToken);
+    }
+
+    /**
+     * Rewrite the log without overwritten records, if enough of it is garbage.
+     */
+    public boolean compactIfWorthwhile() {
+        return accounts.compactIfWorthwhile();
+    }
+
+    /**
+     * Write everything so far to the storage device.
+     */
+    public void force() {
+        accounts.force();
+    }
+
+    @Override
+    public void close() {
+        accounts.close();
+    }
+
+    private static byte[] passwordHash(ByteBuffer value) {
+        byte[] hash = new byte[Short.toUnsignedInt(value.getShort(0))];
+        value.get(2, hash);
+        return hash;
+    }
+}
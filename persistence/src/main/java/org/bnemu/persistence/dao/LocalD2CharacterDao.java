@@ -0,0 +1,256 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DuplicateCharacterNameException;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.core.model.DiabloClass;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * D2CharacterDao on an embedded {@link LogStore}, keyed by lower-case name with a secondary index
+ * on the account. One process at a time may open the store; a second fails to lock it.
+ *
+ * <p>A record holds the account first (for the secondary index), then the summary fields, then the
+ * save, so summaries are decoded without touching the save. Targeted updates rewrite the whole
+ * record.
+ */
+public class LocalD2CharacterDao implements D2CharacterDao, Closeable {
+    private final LogStore characters;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public LocalD2CharacterDao(Path file, int regionSize) {
+        this.characters = LogStore.open(file, regionSize, LocalD2CharacterDao::accountName);
+        characters.forEachKey(name -> {
+            ByteBuffer value = characters.get(name);
+            long id = value.getLong(2 + Short.toUnsignedInt(value.getShort(0)));
+            nextId.accumulateAndGet(id + 1, Math::max);
+        });
+    }
+
+    @Override
+    public List<D2Character> findByAccountName(String accountName) {
+        List<D2Character> result = new ArrayList<>();
+        for (String name : characters.keysFor(accountName.toLowerCase())) {
+            ByteBuffer value = characters.get(name);
+            if (value != null) {
+                result.add(decode(value));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public D2Character findByAccountAndName(String accountName, String characterName) {
+        ByteBuffer value = find(accountName, characterName);
+        return value != null ? decode(value) : null;
+    }
+
+    @Override
+    public List<D2CharacterSummary> findSummariesByAccountName(String accountName) {
+        List<D2CharacterSummary> result = new ArrayList<>();
+        for (String name : characters.keysFor(accountName.toLowerCase())) {
+            ByteBuffer value = characters.get(name);
+            if (value != null) {
+                result.add(decodeSummary(value.duplicate()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public D2CharacterSummary findSummary(String accountName, String characterName) {
+        ByteBuffer value = find(accountName, characterName);
+        return value != null ? decodeSummary(value.duplicate()) : null;
+    }
+
+    @Override
+    public byte[] loadSaveData(String accountName, String characterName) {
+        ByteBuffer value = find(accountName, characterName);
+        if (value == null) {
+            return null;
+        }
+        ByteBuffer cursor = value.duplicate();
+        decodeSummary(cursor);
+        return readSaveData(cursor);
+    }
+
+    @Override
+    public boolean isNameAvailable(String characterName) {
+        return !characters.contains(characterName.toLowerCase());
+    }
+
+    @Override
+    public void forEachCharacterName(Consumer<String> action) {
+        characters.forEachKey(action);
+    }
+
+    @Override
+    public void save(D2Character character) {
+        long id = nextId.getAndIncrement();
+        if (!characters.insert(character.getName().toLowerCase(), encode(character, id))) {
+            throw new DuplicateCharacterNameException(character.getName(), null);
+        }
+        character.setId(Long.toString(id));
+    }
+
+    @Override
+    public void update(D2Character character) {
+        change(character.getName(), stored -> {
+            stored.setLevel(character.getLevel());
+            stored.setExpansion(character.isExpansion());
+            stored.setHardcore(character.isHardcore());
+            stored.setDead(character.isDead());
+            stored.setLadder(character.isLadder());
+            stored.setLastPlayedAt(character.getLastPlayedAt());
+            stored.setSaveData(character.getSaveData());
+        });
+    }
+
+    @Override
+    public void touchLastPlayed(String characterName, long lastPlayedAt) {
+        change(characterName, stored -> stored.setLastPlayedAt(lastPlayedAt));
+    }
+
+    @Override
+    public void setLevel(String characterName, int level) {
+        change(characterName, stored -> stored.setLevel(level));
+    }
+
+    @Override
+    public void setFlags(String characterName, int flags) {
+        change(characterName, stored -> stored.setFlags(flags));
+    }
+
+    @Override
+    public void replaceSaveData(String characterName, byte[] saveData) {
+        change(characterName, stored -> stored.setSaveData(saveData));
+    }
+
+    @Override
+    public void delete(String accountName, String characterName) {
+        String accountLower = accountName.toLowerCase();
+        characters.delete(characterName.toLowerCase(), value -> accountName(value).equals(accountLower));
+    }
+
+    /**
+     * Rewrite the log without overwritten and deleted records, if enough of it is garbage.
+     */
+    public boolean compactIfWorthwhile() {
+        return characters.compactIfWorthwhile();
+    }
+
+    /**
+     * Write everything so far to the storage device.
+     */
+    public void force() {
+        characters.force();
+    }
+
+    @Override
+    public void close() {
+        characters.close();
+    }
+
+    private ByteBuffer find(String accountName, String characterName) {
+        ByteBuffer value = characters.get(characterName.toLowerCase());
+        return value != null && accountName(value).equals(accountName.toLowerCase()) ? value : null;
+    }
+
+    private void change(String characterName, Consumer<D2Character> change) {
+        characters.update(characterName.toLowerCase(), value -> {
+            D2Character stored = decode(value);
+            change.accept(stored);
+            return encode(stored, Long.parseLong(stored.getId()));
+        });
+    }
+
+    private static String accountName(ByteBuffer value) {
+        byte[] bytes = new byte[Short.toUnsignedInt(value.getShort(0))];
+        value.get(2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(D2Character character, long id) {
+        byte[] account = character.getAccountName().toLowerCase().getBytes(StandardCharsets.UTF_8);
+        byte[] name = character.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] charClass = character.getCharClass() != null
+            ? character.getCharClass().name().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] saveData = character.getSaveData();
+        int length = 2 + account.length + 8 + 2 + name.length + 2 + charClass.length + 4 + 4 + 8 + 8 + 4
+            + (saveData != null ? saveData.length : 0);
+        ByteBuffer out = ByteBuffer.allocate(length)
+            .putShort((short) account.length).put(account)
+            .putLong(id)
+            .putShort((short) name.length).put(name)
+            .putShort((short) charClass.length).put(charClass)
+            .putInt(character.getLevel())
+            .putInt(character.getFlags())
+            .putLong(character.getCreatedAt())
+            .putLong(character.getLastPlayedAt());
+        if (saveData != null) {
+            out.putInt(saveData.length).put(saveData);
+        } else {
+            out.putInt(-1);
+        }
+        return out.array();
+    }
+
+    /**
+     * Decode the fields before the save, leaving {@code cursor} at the save.
+     */
+    private static D2CharacterSummary decodeSummary(ByteBuffer cursor) {
+        String accountName = readUtf(cursor);
+        long id = cursor.getLong();
+        String name = readUtf(cursor);
+        String classStr = readUtf(cursor);
+        int level = cursor.getInt();
+        int flags = cursor.getInt();
+        long createdAt = cursor.getLong();
+        long lastPlayedAt = cursor.getLong();
+        return new D2CharacterSummary(Long.toString(id), accountName, name,
+            classStr.isEmpty() ? null : DiabloClass.valueOf(classStr), level,
+            (flags & 0x20) != 0, (flags & 0x04) != 0, (flags & 0x08) != 0, (flags & 0x40) != 0,
+            createdAt, lastPlayedAt);
+    }
+
+    private static D2Character decode(ByteBuffer value) {
+        ByteBuffer cursor = value.duplicate();
+        D2CharacterSummary summary = decodeSummary(cursor);
+        D2Character character = new D2Character();
+        character.setId(summary.getId());
+        character.setAccountName(summary.getAccountName());
+        character.setName(summary.getName());
+        character.setCharClass(summary.getCharClass());
+        character.setLevel(summary.getLevel());
+        character.setFlags(summary.getFlags());
+        character.setCreatedAt(summary.getCreatedAt());
+        character.setLastPlayedAt(summary.getLastPlayedAt());
+        character.setSaveData(readSaveData(cursor));
+        return character;
+    }
+
+    private static byte[] readSaveData(ByteBuffer cursor) {
+        int length = cursor.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] saveData = new byte[length];
+        cursor.get(saveData);
+        return saveData;
+    }
+
+    private static String readUtf(ByteBuffer cursor) {
+        byte[] bytes = new byte[Short.toUnsignedInt(cursor.getShort())];
+        cursor.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
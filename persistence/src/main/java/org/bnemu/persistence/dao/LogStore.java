@@ -0,0 +1,347 @@
+package org.bnemu.persistence.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A key-value store on a {@link RecordLog}, with every key held in memory.
+ *
+ * <p>The primary index maps each key to the position of its latest record, and an optional
+ * secondary index maps a key derived from each value (e.g. a character's account) to the keys
+ * that have it. Both are rebuilt by scanning the log on open. A lookup is a hash probe and a view
+ * of the mapping, with no locking and no copy; writes are appended under a lock.
+ *
+ * <p>Overwritten and deleted records stay in the log until {@link #compact()} copies the live ones
+ * to a new file and swaps it in. Readers keep using the generation they started with, so they
+ * are never blocked by compaction; writers wait for it to finish.
+ *
+ * <p>A lock on {@code <file>.lock} keeps a second process, or a second store in this one, from
+ * appending to the same log.
+ */
+final class LogStore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(LogStore.class);
+
+    private record Generation(RecordLog log, ConcurrentHashMap<String, Long> index) {
+    }
+
+    private final Path file;
+    private final int regionSize;
+    private final FileChannel lockChannel;
+    private final Function<ByteBuffer, String> secondaryKey;
+    private final ConcurrentHashMap<String, Set<String>> secondary = new ConcurrentHashMap<>();
+    // Not synchronized: callers may be virtual threads, and compaction holds it for a while
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Generation current;
+    private long liveBytes;
+    private long deadBytes;
+
+    /**
+     * @param secondaryKey derives the secondary key from a value, or null for no secondary index
+     */
+    private LogStore(Path file, int regionSize, Function<ByteBuffer, String> secondaryKey, FileChannel lockChannel) {
+        this.file = file;
+        this.regionSize = regionSize;
+        this.lockChannel = lockChannel;
+        this.secondaryKey = secondaryKey;
+    }
+
+    /**
+     * @throws IllegalStateException if the log is already open
+     */
+    static LogStore open(Path file, int regionSize, Function<ByteBuffer, String> secondaryKey) {
+        FileChannel lockChannel = lock(file);
+        try {
+            return open(file, regionSize, secondaryKey, lockChannel);
+        } catch (RuntimeException e) {
+            closeQuietly(lockChannel);
+            throw e;
+        }
+    }
+
+    private static FileChannel lock(Path file) {
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.tryLock() == null) {
+                throw new IllegalStateException(file + " is in use by another process");
+            }
+            return channel;
+        } catch (OverlappingFileLockException e) {
+            closeQuietly(channel);
+            throw new IllegalStateException(file + " is already open in this process", e);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException("Failed to lock " + lockFile, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private static LogStore open(Path file, int regionSize, Function<ByteBuffer, String> secondaryKey,
+                                 FileChannel lockChannel) {
+        LogStore store = new LogStore(file, regionSize, secondaryKey, lockChannel);
+        try {
+            // Left behind by a compaction that did not finish; the original is intact
+            Files.deleteIfExists(compactionFile(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long started = System.nanoTime();
+        ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>();
+        RecordLog log = RecordLog.open(file, regionSize, (type, key, position, size, value) -> {
+            if (type == RecordLog.PUT) {
+                index.put(key, position);
+            } else {
+                index.remove(key);
+            }
+        });
+        index.forEach((key, position) -> {
+            store.rememberSecondary(key, log.value(position));
+            store.liveBytes += log.size(position);
+        });
+        store.deadBytes = log.end() - store.liveBytes;
+        store.current = new Generation(log, index);
+        logger.info("Loaded {} record(s) from {} in {} ms ({} bytes live, {} garbage)", index.size(), file,
+            (System.nanoTime() - started) / 1_000_000, store.liveBytes, store.deadBytes);
+        return store;
+    }
+
+    /**
+     * The value stored for {@code key}, as a read-only buffer, or null.
+     */
+    ByteBuffer get(String key) {
+        Generation generation = current;
+        Long position = generation.index().get(key);
+        return position != null ? generation.log().value(position) : null;
+    }
+
+    boolean contains(String key) {
+        return current.index().containsKey(key);
+    }
+
+    /**
+     * The keys whose values have {@code secondaryKey}.
+     */
+    List<String> keysFor(String secondaryKey) {
+        Set<String> keys = secondary.get(secondaryKey);
+        return keys != null ? List.copyOf(keys) : List.of();
+    }
+
+    void forEachKey(Consumer<String> action) {
+        current.index().keySet().forEach(action);
+    }
+
+    int size() {
+        return current.index().size();
+    }
+
+    /**
+     * Store {@code value} under {@code key} unless the key is already taken.
+     *
+     * @return false if it was
+     */
+    boolean insert(String key, byte[] value) {
+        writeLock.lock();
+        try {
+            if (current.index().containsKey(key)) {
+                return false;
+            }
+            write(key, ByteBuffer.wrap(value));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the value of an existing key.
+     *
+     * @param change gets the current value and returns the new one, or null to leave it
+     * @return false if the key does not exist or {@code change} left it
+     */
+    boolean update(String key, Function<ByteBuffer, byte[]> change) {
+        writeLock.lock();
+        try {
+            ByteBuffer value = get(key);
+            if (value == null) {
+                return false;
+            }
+            byte[] changed = change.apply(value);
+            if (changed == null) {
+                return false;
+            }
+            write(key, ByteBuffer.wrap(changed));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Delete {@code key} if its value passes {@code condition}.
+     */
+    boolean delete(String key, Predicate<ByteBuffer> condition) {
+        writeLock.lock();
+        try {
+            Generation generation = current;
+            Long position = generation.index().get(key);
+            if (position == null || !condition.test(generation.log().value(position))) {
+                return false;
+            }
+            long tombstone = generation.log().append(RecordLog.DELETE, key, null);
+            generation.index().remove(key);
+            forgetSecondary(key, generation.log().value(position));
+            int size = generation.log().size(position);
+            liveBytes -= size;
+            deadBytes += size + generation.log().size(tombstone);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void write(String key, ByteBuffer value) {
+        Generation generation = current;
+        long position = generation.log().append(RecordLog.PUT, key, value);
+        Long previous = generation.index().put(key, position);
+        ByteBuffer written = generation.log().value(position);
+        if (previous == null) {
+            rememberSecondary(key, written);
+        } else {
+            // Usually unchanged; moving the key only when it is keeps it visible to readers meanwhile
+            ByteBuffer replaced = generation.log().value(previous);
+            if (secondaryKey != null && !secondaryKey.apply(replaced).equals(secondaryKey.apply(written))) {
+                forgetSecondary(key, replaced);
+                rememberSecondary(key, written);
+            }
+            int size = generation.log().size(previous);
+            liveBytes -= size;
+            deadBytes += size;
+        }
+        liveBytes += generation.log().size(position);
+    }
+
+    private void rememberSecondary(String key, ByteBuffer value) {
+        if (secondaryKey != null) {
+            secondary.computeIfAbsent(secondaryKey.apply(value), k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private void forgetSecondary(String key, ByteBuffer value) {
+        if (secondaryKey != null) {
+            secondary.computeIfPresent(secondaryKey.apply(value), (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * Compact if at least half the log is garbage, and enough of it to be worth a rewrite.
+     */
+    boolean compactIfWorthwhile() {
+        writeLock.lock();
+        try {
+            if (deadBytes < liveBytes || deadBytes < regionSize / 4) {
+                return false;
+            }
+            compact();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rewrite the log with only the live records.
+     */
+    void compact() {
+        writeLock.lock();
+        try {
+            long started = System.nanoTime();
+            Generation old = current;
+            Path target = compactionFile(file);
+            ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>(old.index().size());
+            RecordLog log = RecordLog.open(target, regionSize, (type, key, position, size, value) -> { });
+            long live = 0;
+            try {
+                for (var entry : old.index().entrySet()) {
+                    long position = log.append(RecordLog.PUT, entry.getKey(), old.log().value(entry.getValue()));
+                    index.put(entry.getKey(), position);
+                    live += log.size(position);
+                }
+                log.force();
+                Files.move(target, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                log.close();
+                throw e instanceof IOException io ? new UncheckedIOException("Failed to compact " + file, io)
+                    : (RuntimeException) e;
+            }
+            current = new Generation(log, index);
+            old.log().close();
+            logger.info("Compacted {}: {} -> {} bytes in {} ms", file, old.log().end(), log.end(),
+                (System.nanoTime() - started) / 1_000_000);
+            liveBytes = live;
+            deadBytes = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write everything stored so far to the storage device.
+     */
+    void force() {
+        writeLock.lock();
+        try {
+            current.log().force();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            current.log().close();
+        } finally {
+            closeQuietly(lockChannel);
+            writeLock.unlock();
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close {}", channel, e);
+            }
+        }
+    }
+
+    private static Path compactionFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+}
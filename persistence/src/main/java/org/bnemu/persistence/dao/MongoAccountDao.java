@@ -1,18 +1,20 @@
 package org.bnemu.persistence.dao;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import org.bnemu.core.dao.AccountDao;
 import org.bnemu.core.model.Account;
-import org.bnemu.crypto.BrokenSHA1;
 
 import org.bson.Document;
 import org.bson.types.Binary;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.security.MessageDigest;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static com.mongodb.client.model.Filters.eq;
 
@@ -20,7 +22,49 @@ public class MongoAccountDao implements AccountDao {
     private final MongoCollection<Document> accounts;
 
     public MongoAccountDao(MongoDatabase db) {
+        this(db, true);
+    }
+
+    private MongoAccountDao(MongoDatabase db, boolean createIndexes) {
         this.accounts = db.getCollection("accounts");
+        if (createIndexes) {
+            try {
+                createIndexes();
+            } catch (Exception e) {
+                // Indexes may already exist
+            }
+        }
+    }
+
+    /**
+     * A DAO for loading many accounts with {@link #insertAll}, without creating the index first;
+     * call {@link #createIndexes()} once the load is done.
+     */
+    public static MongoAccountDao forBulkLoad(MongoDatabase db) {
+        return new MongoAccountDao(db, false);
+    }
+
+    public void createIndexes() {
+        accounts.createIndex(Indexes.ascending("username"), new IndexOptions().unique(true));
+    }
+
+    /**
+     * Create many accounts in one unordered {@code bulkWrite}, skipping names that are taken.
+     * Each gets an {@code _id} derived from its name, so a load that is run again skips what it
+     * already inserted even without the username index.
+     *
+     * @param passwordHashes keyed by username
+     * @return how many were created
+     */
+    public int insertAll(Map<String, byte[]> passwordHashes) {
+        List<Document> docs = new ArrayList<>(passwordHashes.size());
+        passwordHashes.forEach((username, passwordHash) -> {
+            String usernameLower = username.toLowerCase();
+            docs.add(new Document("_id", MongoBulkInserts.naturalId("accounts", usernameLower))
+                .append("username", usernameLower)
+                .append("passwordHash", new Binary(passwordHash)));
+        });
+        return MongoBulkInserts.insertAll(accounts, docs);
     }
 
     @Override
@@ -31,7 +75,14 @@ public class MongoAccountDao implements AccountDao {
         }
         Document doc = new Document("username", usernameLower)
                 .append("passwordHash", new Binary(passwordHash));
-        accounts.insertOne(doc);
+        try {
+            accounts.insertOne(doc);
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                return false; // created concurrently
+            }
+            throw e;
+        }
         return true;
     }
 
@@ -58,22 +109,7 @@ public class MongoAccountDao implements AccountDao {
             return false;
         }
 
-        // Compute expected proof
-        ByteBuffer buf = ByteBuffer.allocate(8 + storedHash.length).order(ByteOrder.LITTLE_ENDIAN);
-        buf.putInt(clientToken);
-        buf.putInt(serverToken);
-        buf.put(storedHash);
-
-        byte[] input = buf.array();
-        int[] hashBuffer = BrokenSHA1.calcHashBuffer(input);
-
-        ByteBuffer out = ByteBuffer.allocate(20).order(ByteOrder.BIG_ENDIAN);
-        for (int i = 0; i < 5; i++) {
-            out.putInt(hashBuffer[i]);
-        }
-        byte[] expectedProof = out.array();
-
-        return MessageDigest.isEqual(expectedProof, clientProof);
+        return AccountProofs.matches(storedHash, clientProof, clientToken, serverToken);
     }
 
     public byte[] getRawHash(String username) {
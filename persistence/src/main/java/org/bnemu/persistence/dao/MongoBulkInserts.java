@@ -0,0 +1,73 @@
+package org.bnemu.persistence.dao;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Unordered bulk inserts that skip documents already present, shared by the Mongo DAOs.
+ */
+final class MongoBulkInserts {
+    private MongoBulkInserts() {
+    }
+
+    /**
+     * An {@code _id} that follows from the document's unique key, so inserting the same document
+     * twice fails on {@code _id} even before the unique index on the key exists.
+     */
+    static ObjectId naturalId(String collection, String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest((collection + '/' + key).getBytes(StandardCharsets.UTF_8));
+            return new ObjectId(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Insert {@code documents} in one unordered {@code bulkWrite}, skipping duplicates.
+     *
+     * @return how many were inserted
+     */
+    static int insertAll(MongoCollection<Document> collection, List<Document> documents) {
+        return insertAll(collection, documents, new BitSet());
+    }
+
+    /**
+     * As {@link #insertAll(MongoCollection, List)}, also setting the index of each document that
+     * was skipped in {@code skipped}.
+     */
+    static int insertAll(MongoCollection<Document> collection, List<Document> documents, BitSet skipped) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+        List<WriteModel<Document>> writes = new ArrayList<>(documents.size());
+        documents.forEach(document -> writes.add(new InsertOneModel<>(document)));
+        try {
+            return collection.bulkWrite(writes, new BulkWriteOptions().ordered(false)).getInsertedCount();
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                skipped.set(error.getIndex());
+            }
+            return e.getWriteResult().getInsertedCount();
+        }
+    }
+}
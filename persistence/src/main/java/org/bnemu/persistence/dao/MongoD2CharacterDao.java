@@ -1,68 +1,215 @@
 package org.bnemu.persistence.dao;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
 import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.dao.DuplicateCharacterNameException;
 import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
 import org.bnemu.core.model.DiabloClass;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.Binary;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * MongoDB implementation of D2CharacterDao.
+ *
+ * <p>Summaries live in {@code d2_characters} and saves in {@code d2_saves} (see
+ * {@link MongoSaveStore}). Characters written before saves moved out may still carry theirs
+ * inline; it is read from there until the next save replaces it.
  */
 public class MongoD2CharacterDao implements D2CharacterDao {
+    // Leaves any inline save from before saves moved out on the server
+    private static final Bson WITHOUT_SAVE = Projections.exclude("saveData");
+    private static final Document UNSET_INLINE_SAVE = new Document("saveData", "");
+
     private final MongoCollection<Document> characters;
+    private final MongoSaveStore saves;
 
     public MongoD2CharacterDao(MongoDatabase db) {
+        this(db, true);
+    }
+
+    private MongoD2CharacterDao(MongoDatabase db, boolean createIndexes) {
         this.characters = db.getCollection("d2_characters");
+        this.saves = new MongoSaveStore(db);
+        if (createIndexes) {
+            try {
+                createIndexes();
+            } catch (Exception e) {
+                // Indexes may already exist
+            }
+        }
+    }
 
+    /**
+     * A DAO for loading many characters with {@link #insertAll}, without creating the indexes
+     * first; call {@link #createIndexes()} once the load is done.
+     */
+    public static MongoD2CharacterDao forBulkLoad(MongoDatabase db) {
+        return new MongoD2CharacterDao(db, false);
+    }
+
+    public void createIndexes() {
         // Create unique index on character name (case-insensitive)
-        try {
-            characters.createIndex(
-                Indexes.ascending("nameLower"),
-                new IndexOptions().unique(true)
-            );
-            // Index on account for fast lookups
-            characters.createIndex(Indexes.ascending("accountName"));
-        } catch (Exception e) {
-            // Indexes may already exist
-        }
+        characters.createIndex(
+            Indexes.ascending("nameLower"),
+            new IndexOptions().unique(true)
+        );
+        // Index on account for fast lookups
+        characters.createIndex(Indexes.ascending("accountName"));
     }
 
     @Override
     public List<D2Character> findByAccountName(String accountName) {
-        List<D2Character> result = new ArrayList<>();
-        for (Document doc : characters.find(Filters.eq("accountName", accountName.toLowerCase()))) {
-            result.add(documentToCharacter(doc));
+        List<Document> docs = characters.find(Filters.eq("accountName", accountName.toLowerCase()))
+            .into(new ArrayList<>());
+        Map<String, byte[]> stored = saves.getAll(docs.stream().map(doc -> doc.getString("nameLower")).toList());
+        List<D2Character> result = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            result.add(documentToCharacter(doc, stored.get(doc.getString("nameLower"))));
         }
         return result;
     }
 
     @Override
     public D2Character findByAccountAndName(String accountName, String characterName) {
-        Document doc = characters.find(Filters.and(
-            Filters.eq("accountName", accountName.toLowerCase()),
-            Filters.eq("nameLower", characterName.toLowerCase())
-        )).first();
-        return doc != null ? documentToCharacter(doc) : null;
+        Document doc = characters.find(byAccountAndName(accountName, characterName)).first();
+        return doc != null ? documentToCharacter(doc, saves.get(doc.getString("nameLower"))) : null;
+    }
+
+    @Override
+    public List<D2CharacterSummary> findSummariesByAccountName(String accountName) {
+        List<D2CharacterSummary> result = new ArrayList<>();
+        for (Document doc : characters.find(Filters.eq("accountName", accountName.toLowerCase()))
+                .projection(WITHOUT_SAVE)) {
+            result.add(documentToSummary(doc));
+        }
+        return result;
+    }
+
+    @Override
+    public D2CharacterSummary findSummary(String accountName, String characterName) {
+        Document doc = characters.find(byAccountAndName(accountName, characterName))
+            .projection(WITHOUT_SAVE)
+            .first();
+        return doc != null ? documentToSummary(doc) : null;
+    }
+
+    @Override
+    public byte[] loadSaveData(String accountName, String characterName) {
+        Document doc = characters.find(byAccountAndName(accountName, characterName))
+            .projection(Projections.include("saveData"))
+            .first();
+        if (doc == null) {
+            return null;
+        }
+        byte[] stored = saves.get(characterName.toLowerCase());
+        Binary inline = doc.get("saveData", Binary.class);
+        return stored != null ? stored : inline != null ? inline.getData() : null;
     }
 
     @Override
     public boolean isNameAvailable(String characterName) {
-        return characters.find(Filters.eq("nameLower", characterName.toLowerCase())).first() == null;
+        return characters.find(Filters.eq("nameLower", characterName.toLowerCase()))
+            .projection(Projections.include("_id"))
+            .first() == null;
+    }
+
+    @Override
+    public void forEachCharacterName(Consumer<String> action) {
+        for (Document doc : characters.find()
+                .projection(Projections.fields(Projections.include("nameLower"), Projections.excludeId()))
+                .batchSize(10_000)) {
+            action.accept(doc.getString("nameLower"));
+        }
     }
 
     @Override
     public void save(D2Character character) {
+        Document doc = toDocument(character);
+        try {
+            characters.insertOne(doc);
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                throw new DuplicateCharacterNameException(character.getName(), e);
+            }
+            throw e;
+        }
+        try {
+            // Also clears any save left by a character of the same name whose delete was interrupted
+            saves.put(character.getName().toLowerCase(), character.getSaveData());
+        } catch (RuntimeException e) {
+            characters.deleteOne(Filters.eq("_id", doc.getObjectId("_id")));
+            throw e;
+        }
+        character.setId(doc.getObjectId("_id").toString());
+    }
+
+    /**
+     * Insert many new characters in one unordered {@code bulkWrite}, skipping names that are
+     * taken. Each gets an {@code _id} derived from its name, so a load that is run again skips
+     * what it already inserted even without the name index.
+     *
+     * @return how many were inserted
+     */
+    public int insertAll(List<D2Character> toInsert) {
+        List<Document> docs = new ArrayList<>(toInsert.size());
+        for (D2Character character : toInsert) {
+            docs.add(toDocument(character)
+                .append("_id", MongoBulkInserts.naturalId("d2_characters", character.getName().toLowerCase())));
+        }
+        BitSet skipped = new BitSet();
+        int inserted = MongoBulkInserts.insertAll(characters, docs, skipped);
+
+        Map<String, byte[]> toStore = new HashMap<>();
+        Map<ObjectId, D2Character> skippedWithSave = new HashMap<>();
+        for (int i = 0; i < toInsert.size(); i++) {
+            D2Character character = toInsert.get(i);
+            if (character.getSaveData() == null) {
+                continue;
+            }
+            if (skipped.get(i)) {
+                skippedWithSave.put(docs.get(i).getObjectId("_id"), character);
+            } else {
+                toStore.put(character.getName().toLowerCase(), character.getSaveData());
+            }
+        }
+        // A skipped character is still ours if an earlier load inserted it, and may be missing its save
+        if (!skippedWithSave.isEmpty()) {
+            for (Document doc : characters.find(Filters.in("_id", skippedWithSave.keySet()))
+                    .projection(Projections.include("accountName"))) {
+                D2Character character = skippedWithSave.get(doc.getObjectId("_id"));
+                if (character.getAccountName().toLowerCase().equals(doc.getString("accountName"))) {
+                    toStore.put(character.getName().toLowerCase(), character.getSaveData());
+                }
+            }
+        }
+        saves.insertAll(toStore);
+        return inserted;
+    }
+
+    private static Document toDocument(D2Character character) {
         Document doc = new Document()
             .append("accountName", character.getAccountName().toLowerCase())
             .append("name", character.getName())
@@ -75,13 +222,7 @@ public class MongoD2CharacterDao implements D2CharacterDao {
             .append("ladder", character.isLadder())
             .append("createdAt", new Date(character.getCreatedAt()))
             .append("lastPlayedAt", new Date(character.getLastPlayedAt()));
-
-        if (character.getSaveData() != null) {
-            doc.append("saveData", new Binary(character.getSaveData()));
-        }
-
-        characters.insertOne(doc);
-        character.setId(doc.getObjectId("_id").toString());
+        return doc;
     }
 
     @Override
@@ -93,24 +234,136 @@ public class MongoD2CharacterDao implements D2CharacterDao {
             .append("dead", character.isDead())
             .append("ladder", character.isLadder())
             .append("lastPlayedAt", new Date(character.getLastPlayedAt()))
-            .append("saveData", character.getSaveData() != null ? new Binary(character.getSaveData()) : null)
         );
 
-        characters.updateOne(
-            Filters.eq("nameLower", character.getName().toLowerCase()),
-            update
-        );
+        // The character first, so no save is stored for one that is gone
+        String nameLower = character.getName().toLowerCase();
+        if (characters.updateOne(Filters.eq("nameLower", nameLower), update).getMatchedCount() > 0) {
+            storeSave(nameLower, character.getSaveData());
+        }
+    }
+
+    @Override
+    public void touchLastPlayed(String characterName, long lastPlayedAt) {
+        apply(characterName, PendingCharacterUpdate.lastPlayed(lastPlayedAt));
+    }
+
+    @Override
+    public void setLevel(String characterName, int level) {
+        apply(characterName, PendingCharacterUpdate.level(level));
+    }
+
+    @Override
+    public void setFlags(String characterName, int flags) {
+        apply(characterName, PendingCharacterUpdate.flags(flags));
+    }
+
+    @Override
+    public void replaceSaveData(String characterName, byte[] saveData) {
+        apply(characterName, PendingCharacterUpdate.saveData(saveData));
+    }
+
+    private void apply(String characterName, PendingCharacterUpdate update) {
+        String nameLower = characterName.toLowerCase();
+        Bson byName = Filters.eq("nameLower", nameLower);
+        Document set = update.toSet();
+        // The character first, so no save is stored for one that is gone
+        boolean exists = !set.isEmpty()
+            ? characters.updateOne(byName, new Document("$set", set)).getMatchedCount() > 0
+            : update.hasSaveData() && characters.find(byName).projection(Projections.include("_id")).first() != null;
+        if (exists && update.hasSaveData()) {
+            storeSave(nameLower, update.saveData());
+        }
+    }
+
+    /**
+     * Write many updates in one round trip.
+     *
+     * @param updates keyed by lower-case character name
+     */
+    void applyAll(Map<String, PendingCharacterUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> savesByName = new HashMap<>();
+        List<WriteModel<Document>> writes = new ArrayList<>(updates.size());
+        updates.forEach((nameLower, update) -> {
+            if (update.hasSaveData()) {
+                savesByName.put(nameLower, update.saveData());
+            }
+            Document set = update.toSet();
+            if (!set.isEmpty()) {
+                writes.add(new UpdateOneModel<>(Filters.eq("nameLower", nameLower), new Document("$set", set)));
+            }
+        });
+        if (!writes.isEmpty()) {
+            characters.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
+        if (savesByName.isEmpty()) {
+            return;
+        }
+        // The bulk result does not say which updates matched, so look up which characters are left
+        Set<String> present = new HashSet<>();
+        for (Document doc : characters.find(Filters.in("nameLower", savesByName.keySet()))
+                .projection(Projections.fields(Projections.include("nameLower"), Projections.excludeId()))) {
+            present.add(doc.getString("nameLower"));
+        }
+        savesByName.keySet().retainAll(present);
+        if (!savesByName.isEmpty()) {
+            saves.putAll(savesByName);
+            characters.updateMany(
+                Filters.and(Filters.in("nameLower", savesByName.keySet()), Filters.exists("saveData")),
+                new Document("$unset", UNSET_INLINE_SAVE));
+        }
+    }
+
+    /**
+     * Store the save of a character that exists, then drop any inline save it replaces. In that
+     * order, a failed store leaves the inline save in place.
+     */
+    private void storeSave(String nameLower, byte[] save) {
+        saves.put(nameLower, save);
+        characters.updateOne(Filters.and(Filters.eq("nameLower", nameLower), Filters.exists("saveData")),
+            new Document("$unset", UNSET_INLINE_SAVE));
     }
 
     @Override
     public void delete(String accountName, String characterName) {
-        characters.deleteOne(Filters.and(
+        if (characters.deleteOne(byAccountAndName(accountName, characterName)).getDeletedCount() > 0) {
+            saves.delete(characterName.toLowerCase());
+        }
+    }
+
+    private static Bson byAccountAndName(String accountName, String characterName) {
+        return Filters.and(
             Filters.eq("accountName", accountName.toLowerCase()),
             Filters.eq("nameLower", characterName.toLowerCase())
-        ));
+        );
+    }
+
+    private D2CharacterSummary documentToSummary(Document doc) {
+        String classStr = doc.getString("charClass");
+        Date createdAt = doc.getDate("createdAt");
+        Date lastPlayedAt = doc.getDate("lastPlayedAt");
+        return new D2CharacterSummary(
+            doc.getObjectId("_id").toString(),
+            doc.getString("accountName"),
+            doc.getString("name"),
+            classStr != null ? DiabloClass.valueOf(classStr) : null,
+            doc.getInteger("level", 1),
+            doc.getBoolean("expansion", true),
+            doc.getBoolean("hardcore", false),
+            doc.getBoolean("dead", false),
+            doc.getBoolean("ladder", false),
+            createdAt != null ? createdAt.getTime() : 0,
+            lastPlayedAt != null ? lastPlayedAt.getTime() : 0
+        );
     }
 
-    private D2Character documentToCharacter(Document doc) {
+    /**
+     * @param stored the character's save from {@code d2_saves}, or null to use any inline one
+     */
+    private D2Character documentToCharacter(Document doc, byte[] stored) {
         D2Character character = new D2Character();
         character.setId(doc.getObjectId("_id").toString());
         character.setAccountName(doc.getString("accountName"));
@@ -137,9 +390,11 @@ public class MongoD2CharacterDao implements D2CharacterDao {
             character.setLastPlayedAt(lastPlayedAt.getTime());
         }
 
-        Binary saveData = doc.get("saveData", Binary.class);
-        if (saveData != null) {
-            character.setSaveData(saveData.getData());
+        Binary inline = doc.get("saveData", Binary.class);
+        if (stored != null) {
+            character.setSaveData(stored);
+        } else if (inline != null) {
+            character.setSaveData(inline.getData());
         }
 
         return character;
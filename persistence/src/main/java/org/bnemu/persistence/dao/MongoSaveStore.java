@@ -0,0 +1,133 @@
+package org.bnemu.persistence.dao;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Character saves in {@code d2_saves}, one document per character keyed by lower-case name,
+ * apart from the summaries in {@code d2_characters} so those stay small.
+ *
+ * <p>Each document holds the save as a {@link SaveBlobs} blob and the save's hash. A write first
+ * reads the stored hashes alone and skips saves that are unchanged, so those are neither
+ * compressed nor sent.
+ */
+final class MongoSaveStore {
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final Bson HASH_ONLY = Projections.include("hash");
+
+    private final MongoCollection<Document> saves;
+
+    MongoSaveStore(MongoDatabase db) {
+        this.saves = db.getCollection("d2_saves");
+    }
+
+    /**
+     * @return the save, or null if there is none
+     */
+    byte[] get(String nameLower) {
+        Document doc = saves.find(Filters.eq("_id", nameLower)).first();
+        return doc != null ? decode(doc) : null;
+    }
+
+    /**
+     * @return the saves there are, keyed by lower-case name
+     */
+    Map<String, byte[]> getAll(Collection<String> namesLower) {
+        Map<String, byte[]> result = new HashMap<>();
+        if (!namesLower.isEmpty()) {
+            for (Document doc : saves.find(Filters.in("_id", namesLower))) {
+                result.put(doc.getString("_id"), decode(doc));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Store {@code save}, or remove the stored one if it is null.
+     */
+    void put(String nameLower, byte[] save) {
+        if (save == null) {
+            delete(nameLower);
+            return;
+        }
+        byte[] hash = SaveBlobs.hash(save);
+        Document stored = saves.find(Filters.eq("_id", nameLower)).projection(HASH_ONLY).first();
+        if (stored == null || !Arrays.equals(hash, stored.get("hash", Binary.class).getData())) {
+            saves.updateOne(Filters.eq("_id", nameLower), store(hash, save), UPSERT);
+        }
+    }
+
+    /**
+     * Store many saves in one round trip; null values remove the stored save.
+     *
+     * @param savesByName keyed by lower-case name
+     */
+    void putAll(Map<String, byte[]> savesByName) {
+        if (savesByName.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> storedHashes = new HashMap<>();
+        for (Document doc : saves.find(Filters.in("_id", savesByName.keySet())).projection(HASH_ONLY)) {
+            storedHashes.put(doc.getString("_id"), doc.get("hash", Binary.class).getData());
+        }
+        List<WriteModel<Document>> writes = new ArrayList<>(savesByName.size());
+        savesByName.forEach((nameLower, save) -> {
+            if (save == null) {
+                writes.add(new DeleteOneModel<>(Filters.eq("_id", nameLower)));
+                return;
+            }
+            byte[] hash = SaveBlobs.hash(save);
+            if (!Arrays.equals(hash, storedHashes.get(nameLower))) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", nameLower), store(hash, save), UPSERT));
+            }
+        });
+        if (!writes.isEmpty()) {
+            saves.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
+    }
+
+    /**
+     * Insert saves for characters being bulk loaded, skipping ones already stored.
+     *
+     * @param savesByName keyed by lower-case name
+     */
+    void insertAll(Map<String, byte[]> savesByName) {
+        List<Document> docs = new ArrayList<>(savesByName.size());
+        savesByName.forEach((nameLower, save) -> docs.add(new Document("_id", nameLower)
+            .append("hash", new Binary(SaveBlobs.hash(save)))
+            .append("blob", new Binary(SaveBlobs.encode(save)))));
+        MongoBulkInserts.insertAll(saves, docs);
+    }
+
+    void delete(String nameLower) {
+        saves.deleteOne(Filters.eq("_id", nameLower));
+    }
+
+    private static Bson store(byte[] hash, byte[] save) {
+        return Updates.combine(
+            Updates.set("hash", new Binary(hash)),
+            Updates.set("blob", new Binary(SaveBlobs.encode(save))));
+    }
+
+    private static byte[] decode(Document doc) {
+        return SaveBlobs.decode(doc.get("blob", Binary.class).getData(), doc.getString("_id"));
+    }
+}
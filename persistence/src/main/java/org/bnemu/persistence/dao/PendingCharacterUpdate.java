@@ -0,0 +1,134 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bson.Document;
+
+import java.util.Date;
+
+/**
+ * Changes to some fields of one character. Merging keeps the newer value of each field, so any
+ * number of updates to a character collapse into a single {@code $set}.
+ */
+final class PendingCharacterUpdate {
+    private final Long lastPlayedAt;
+    private final Integer level;
+    private final Integer flags;
+    private final boolean hasSaveData;
+    private final byte[] saveData;
+
+    private PendingCharacterUpdate(Long lastPlayedAt, Integer level, Integer flags, boolean hasSaveData, byte[] saveData) {
+        this.lastPlayedAt = lastPlayedAt;
+        this.level = level;
+        this.flags = flags;
+        this.hasSaveData = hasSaveData;
+        this.saveData = saveData;
+    }
+
+    static PendingCharacterUpdate lastPlayed(long lastPlayedAt) {
+        return new PendingCharacterUpdate(lastPlayedAt, null, null, false, null);
+    }
+
+    static PendingCharacterUpdate level(int level) {
+        return new PendingCharacterUpdate(null, level, null, false, null);
+    }
+
+    static PendingCharacterUpdate flags(int flags) {
+        return new PendingCharacterUpdate(null, null, flags, false, null);
+    }
+
+    static PendingCharacterUpdate saveData(byte[] saveData) {
+        return new PendingCharacterUpdate(null, null, null, true, saveData);
+    }
+
+    /**
+     * Every field a full {@code update} rewrites.
+     */
+    static PendingCharacterUpdate all(D2Character character) {
+        return new PendingCharacterUpdate(character.getLastPlayedAt(), character.getLevel(), character.getFlags(),
+            true, character.getSaveData());
+    }
+
+    static PendingCharacterUpdate of(Long lastPlayedAt, Integer level, Integer flags, boolean hasSaveData,
+                                     byte[] saveData) {
+        return new PendingCharacterUpdate(lastPlayedAt, level, flags, hasSaveData, saveData);
+    }
+
+    /**
+     * This update with {@code newer} applied on top.
+     */
+    PendingCharacterUpdate merge(PendingCharacterUpdate newer) {
+        return new PendingCharacterUpdate(
+            newer.lastPlayedAt != null ? newer.lastPlayedAt : lastPlayedAt,
+            newer.level != null ? newer.level : level,
+            newer.flags != null ? newer.flags : flags,
+            newer.hasSaveData || hasSaveData,
+            newer.hasSaveData ? newer.saveData : saveData);
+    }
+
+    Long lastPlayedAt() {
+        return lastPlayedAt;
+    }
+
+    Integer level() {
+        return level;
+    }
+
+    Integer flags() {
+        return flags;
+    }
+
+    boolean hasSaveData() {
+        return hasSaveData;
+    }
+
+    byte[] saveData() {
+        return saveData;
+    }
+
+    /**
+     * The fields to {@code $set} in a character document. A save is stored apart from the
+     * document, so it is left out.
+     */
+    Document toSet() {
+        Document set = new Document();
+        if (lastPlayedAt != null) {
+            set.append("lastPlayedAt", new Date(lastPlayedAt));
+        }
+        if (level != null) {
+            set.append("level", level);
+        }
+        if (flags != null) {
+            set.append("hardcore", (flags & 0x04) != 0)
+                .append("dead", (flags & 0x08) != 0)
+                .append("expansion", (flags & 0x20) != 0)
+                .append("ladder", (flags & 0x40) != 0);
+        }
+        return set;
+    }
+
+    void applyTo(D2Character character) {
+        if (lastPlayedAt != null) {
+            character.setLastPlayedAt(lastPlayedAt);
+        }
+        if (level != null) {
+            character.setLevel(level);
+        }
+        if (flags != null) {
+            character.setFlags(flags);
+        }
+        if (hasSaveData) {
+            character.setSaveData(saveData);
+        }
+    }
+
+    D2CharacterSummary applyTo(D2CharacterSummary summary) {
+        int merged = flags != null ? flags : summary.getFlags();
+        return new D2CharacterSummary(summary.getId(), summary.getAccountName(), summary.getName(),
+            summary.getCharClass(),
+            level != null ? level : summary.getLevel(),
+            (merged & 0x20) != 0, (merged & 0x04) != 0, (merged & 0x08) != 0, (merged & 0x40) != 0,
+            summary.getCreatedAt(),
+            lastPlayedAt != null ? lastPlayedAt : summary.getLastPlayedAt());
+    }
+}
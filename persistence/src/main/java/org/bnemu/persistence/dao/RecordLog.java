@@ -0,0 +1,255 @@
+package org.bnemu.persistence.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only file of keyed records, memory-mapped in fixed-size regions.
+ *
+ * <p>The file starts with a magic number and version. Each record is a length, a CRC32C of the
+ * body, and the body: a type (put or delete), the key and the value. A record never straddles two
+ * regions; a length of -1 pads to the next one, and a length of 0 ends the log. Every append
+ * writes that end marker after itself, so on {@link #open} the scan stops at the first record
+ * that is missing, torn or fails its checksum. Everything after it is dropped and later appends
+ * overwrite it, leaving the longest intact prefix.
+ *
+ * <p>Appends come from one writer at a time. Reads are lock-free absolute reads of the mapping,
+ * and values returned stay valid after the log is closed or replaced.
+ */
+final class RecordLog implements Closeable {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final int MAGIC = 0x424E4C47; // "BNLG"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 8;
+    private static final int RECORD_HEADER = 8; // length + CRC
+    private static final int BODY_HEADER = 3;   // type + key length
+    private static final int END = 0;
+    private static final int PADDING = -1;
+
+    /**
+     * Called for each intact record while opening a log, in file order.
+     */
+    interface Visitor {
+        /**
+         * @param value the value, empty for a delete; valid for the life of the mapping
+         */
+        void record(byte type, String key, long position, int size, ByteBuffer value);
+    }
+
+    private final FileChannel channel;
+    private final int regionSize;
+    private volatile MappedByteBuffer[] regions;
+    private long end; // next write position
+    private int forcedRegion; // first region written since the last force()
+
+    private RecordLog(FileChannel channel, int regionSize) {
+        this.channel = channel;
+        this.regionSize = regionSize;
+        this.regions = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Open {@code file}, creating it if needed, and pass every intact record to {@code visitor}.
+     */
+    static RecordLog open(Path file, int regionSize, Visitor visitor) {
+        try {
+            FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            RecordLog log = new RecordLog(channel, regionSize);
+            try {
+                if (channel.size() == 0) {
+                    log.region(0).putInt(0, MAGIC).putInt(4, VERSION);
+                    log.end = FILE_HEADER;
+                } else {
+                    log.recover(file, visitor);
+                }
+                log.markEnd();
+                return log;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + file, e);
+        }
+    }
+
+    private void recover(Path file, Visitor visitor) throws IOException {
+        long regionCount = (channel.size() + regionSize - 1) / regionSize;
+        ByteBuffer first = region(0);
+        if (first.getInt(0) != MAGIC || first.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a record log");
+        }
+        long position = FILE_HEADER;
+        CRC32C crc = new CRC32C();
+        while (true) {
+            int index = (int) (position / regionSize);
+            int offset = (int) (position % regionSize);
+            if (regionSize - offset < RECORD_HEADER) {
+                position = (long) (index + 1) * regionSize;
+                continue;
+            }
+            if (index >= regionCount) {
+                break;
+            }
+            MappedByteBuffer region = region(index);
+            int length = region.getInt(offset);
+            if (length == PADDING) {
+                position = (long) (index + 1) * regionSize;
+                continue;
+            }
+            if (length < BODY_HEADER || length > regionSize - offset - RECORD_HEADER) {
+                break; // end of log, or a torn header
+            }
+            ByteBuffer body = region.slice(offset + RECORD_HEADER, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != region.getInt(offset + 4)) {
+                break; // torn write
+            }
+            byte type = body.get(0);
+            int keyLength = Short.toUnsignedInt(body.getShort(1));
+            if ((type != PUT && type != DELETE) || BODY_HEADER + keyLength > length) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            body.get(BODY_HEADER, key);
+            visitor.record(type, new String(key, StandardCharsets.UTF_8), position, RECORD_HEADER + length,
+                body.slice(BODY_HEADER + keyLength, length - BODY_HEADER - keyLength).asReadOnlyBuffer());
+            position += RECORD_HEADER + length;
+        }
+        end = position;
+        forcedRegion = (int) Math.min(position / regionSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Append a record.
+     *
+     * @param value the value of a put; ignored for a delete
+     * @return the record's position, for {@link #value}
+     */
+    long append(byte type, String key, ByteBuffer value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = type == PUT ? value.remaining() : 0;
+        int length = BODY_HEADER + keyBytes.length + valueLength;
+        if (keyBytes.length > 0xFFFF || RECORD_HEADER + length > regionSize - RECORD_HEADER) {
+            throw new IllegalArgumentException("Record for " + key + " is too large (" + length + " bytes)");
+        }
+        int offset = (int) (end % regionSize);
+        if (regionSize - offset < RECORD_HEADER + length) {
+            if (regionSize - offset >= RECORD_HEADER) {
+                region((int) (end / regionSize)).putInt(offset, PADDING);
+            }
+            end = (end / regionSize + 1) * regionSize;
+            offset = 0;
+        }
+        long position = end;
+        MappedByteBuffer region = region((int) (position / regionSize));
+        int bodyOffset = offset + RECORD_HEADER;
+        region.put(bodyOffset, type);
+        region.putShort(bodyOffset + 1, (short) keyBytes.length);
+        region.put(bodyOffset + BODY_HEADER, keyBytes);
+        if (valueLength > 0) {
+            region.put(bodyOffset + BODY_HEADER + keyBytes.length, value, value.position(), valueLength);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(region.slice(bodyOffset, length));
+        // End marker first, so a record is never followed by leftovers that still pass their checksum
+        end = position + RECORD_HEADER + length;
+        markEnd();
+        region.putInt(offset + 4, (int) crc.getValue());
+        region.putInt(offset, length);
+        return position;
+    }
+
+    private void markEnd() {
+        int offset = (int) (end % regionSize);
+        if (regionSize - offset >= RECORD_HEADER) {
+            region((int) (end / regionSize)).putInt(offset, END);
+        } else {
+            // The scan continues at the next region, which may hold records from before a crash
+            region((int) (end / regionSize) + 1).putInt(0, END);
+        }
+    }
+
+    /**
+     * The value of the put record at {@code position}, as a read-only view of the mapping.
+     */
+    ByteBuffer value(long position) {
+        MappedByteBuffer region = regions[(int) (position / regionSize)];
+        int offset = (int) (position % regionSize);
+        int length = region.getInt(offset);
+        int keyLength = Short.toUnsignedInt(region.getShort(offset + RECORD_HEADER + 1));
+        int skip = BODY_HEADER + keyLength;
+        return region.slice(offset + RECORD_HEADER + skip, length - skip).asReadOnlyBuffer();
+    }
+
+    /**
+     * Bytes the record at {@code position} takes up in the file.
+     */
+    int size(long position) {
+        return RECORD_HEADER + regions[(int) (position / regionSize)].getInt((int) (position % regionSize));
+    }
+
+    /**
+     * Bytes up to the end of the log.
+     */
+    long end() {
+        return end;
+    }
+
+    /**
+     * Write everything appended so far to the storage device.
+     */
+    void force() {
+        MappedByteBuffer[] mapped = regions;
+        int last = (int) Math.min(end / regionSize, mapped.length - 1);
+        for (int i = Math.min(forcedRegion, last); i <= last; i++) {
+            mapped[i].force();
+        }
+        forcedRegion = last;
+    }
+
+    @Override
+    public void close() {
+        try {
+            force();
+        } finally {
+            try {
+                // Mappings, and values read from them, stay valid until collected
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private MappedByteBuffer region(int index) {
+        MappedByteBuffer[] mapped = regions;
+        if (index < mapped.length) {
+            return mapped[index];
+        }
+        try {
+            MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+            for (int i = mapped.length; i <= index; i++) {
+                // Mapping past the end grows the file
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * regionSize, regionSize);
+            }
+            regions = grown;
+            return grown[index];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map log region " + index, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.bnemu.persistence.dao;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32C;
+
+/**
+ * The stored form of a character save: a header, then the save compressed with zstd, or as is
+ * when that does not make it smaller.
+ *
+ * <p>The header holds a format version, the codec, the save's length and a CRC32C of the save,
+ * so a blob that was damaged in storage fails to decode instead of reaching a client.
+ */
+final class SaveBlobs {
+    private static final byte VERSION = 1;
+    private static final byte STORED = 0;
+    private static final byte ZSTD = 1;
+    private static final int HEADER = 10; // version, codec, length, CRC
+    private static final int LEVEL = 3;
+    // Far above any real save; bounds what a damaged length can make decode allocate
+    private static final int MAX_LENGTH = 16 << 20;
+
+    private SaveBlobs() {
+    }
+
+    /**
+     * A SHA-256 of the save, to tell whether it changed without reading the stored one back.
+     */
+    static byte[] hash(byte[] save) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(save);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] encode(byte[] save) {
+        byte[] compressed = new byte[(int) Zstd.compressBound(save.length)];
+        long size = Zstd.compressByteArray(compressed, 0, compressed.length, save, 0, save.length, LEVEL);
+        if (Zstd.isError(size)) {
+            throw new IllegalStateException("Failed to compress save: " + Zstd.getErrorName(size));
+        }
+        boolean smaller = size < save.length;
+        ByteBuffer blob = ByteBuffer.allocate(HEADER + (smaller ? (int) size : save.length))
+            .put(VERSION)
+            .put(smaller ? ZSTD : STORED)
+            .putInt(save.length)
+            .putInt(crc(save));
+        return (smaller ? blob.put(compressed, 0, (int) size) : blob.put(save)).array();
+    }
+
+    /**
+     * @param name what the blob belongs to, for the error message
+     * @throws IllegalStateException if the blob is corrupt
+     */
+    static byte[] decode(byte[] blob, String name) {
+        ByteBuffer in = ByteBuffer.wrap(blob);
+        if (blob.length < HEADER || in.get() != VERSION) {
+            throw new IllegalStateException("Save of " + name + " is not a save blob");
+        }
+        byte codec = in.get();
+        int length = in.getInt();
+        int crc = in.getInt();
+        byte[] save;
+        if (codec == STORED && blob.length - HEADER == length) {
+            save = new byte[length];
+            in.get(save);
+        } else if (codec == ZSTD && length >= 0 && length <= MAX_LENGTH) {
+            save = new byte[length];
+            long size;
+            try {
+                size = Zstd.decompressByteArray(save, 0, length, blob, HEADER, blob.length - HEADER);
+            } catch (ZstdException e) {
+                throw new IllegalStateException("Save of " + name + " is corrupt: does not decompress", e);
+            }
+            if (Zstd.isError(size) || size != length) {
+                throw new IllegalStateException("Save of " + name + " is corrupt: does not decompress");
+            }
+        } else {
+            throw new IllegalStateException("Save of " + name + " is corrupt: bad header");
+        }
+        if (crc(save) != crc) {
+            throw new IllegalStateException("Save of " + name + " is corrupt: checksum mismatch");
+        }
+        return save;
+    }
+
+    private static int crc(byte[] save) {
+        CRC32C crc = new CRC32C();
+        crc.update(save);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,524 @@
+package org.bnemu.persistence.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * A write-ahead journal: writes are made durable on local disk first and applied to the database
+ * in the background, in order.
+ *
+ * <p>{@link #append} queues an entry and {@link #sync} waits for it to reach the disk. One thread
+ * writes whatever has queued up while the previous {@code force} was running and forces it all at
+ * once, so concurrent writers share an fsync (group commit). A replayer hands durable entries to
+ * the {@link Applier} in batches and records the last one applied in a checkpoint file.
+ *
+ * <p>Entries are a length, a CRC32C, a sequence number and the payload, in segment files named by
+ * their first sequence number. On {@link #open} every entry after the checkpoint is applied before
+ * anything else happens; a torn entry at the end of the last segment is dropped. Entries may be
+ * applied twice if the process dies between applying a batch and writing the checkpoint, so
+ * applying must be idempotent.
+ *
+ * <p>Only durable entries are ever applied. Once writing to the disk fails, {@link #append} refuses
+ * new entries, and the entries that were not durable yet (whose writers got the error from
+ * {@link #sync}) are dropped once everything before them is applied; the {@link Discarder} is told,
+ * so the owner can forget them too. What the failed write left in the segment is cut off where the
+ * file allows it, so a restart does not apply those entries either.
+ */
+final class WriteAheadJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadJournal.class);
+
+    private static final int ENTRY_HEADER = 16; // length + CRC + sequence
+    private static final int MAX_GROUP = 4096;
+    private static final Entry STOP = new Entry(-1, null);
+
+    record Entry(long sequence, byte[] payload) {
+    }
+
+    /**
+     * Applies a batch of entries, in sequence order, to the database.
+     */
+    interface Applier {
+        void apply(List<Entry> batch);
+    }
+
+    /**
+     * Told that every entry after {@code durable} was dropped without being applied.
+     */
+    interface Discarder {
+        void discardAfter(long durable);
+    }
+
+    private record Segment(Path path, long firstSequence) {
+    }
+
+    private final Path dir;
+    private final String name;
+    private final Pattern segmentName;
+    private final Applier applier;
+    private final Discarder discarder;
+    private final int batchSize;
+    private final long segmentSize;
+    private final FileChannel lockChannel;
+    private final LinkedBlockingQueue<Entry> unwritten = new LinkedBlockingQueue<>();
+    private final Queue<Entry> unapplied = new ConcurrentLinkedQueue<>();
+    private final Deque<Segment> segments = new ConcurrentLinkedDeque<>();
+    // Not synchronized: writers are virtual threads that wait on the fsync
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private final ReentrantLock replayLock = new ReentrantLock();
+    private final ScheduledExecutorService replayer;
+    private Thread committer;
+    private FileChannel active;
+    private long activeSize;
+    private long nextSequence;
+    private volatile long durable;
+    private volatile IOException failure;
+    private boolean closed;
+
+    private WriteAheadJournal(Path dir, String name, Applier applier, Discarder discarder, int batchSize,
+                              long segmentSize, FileChannel lockChannel) {
+        this.dir = dir;
+        this.name = name;
+        this.segmentName = Pattern.compile(Pattern.quote(name) + "-(\\d{20})\\.journal");
+        this.applier = applier;
+        this.discarder = discarder;
+        this.batchSize = batchSize;
+        this.segmentSize = segmentSize;
+        this.lockChannel = lockChannel;
+        this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-replay-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open the journal called {@code name} in {@code dir}, apply whatever it holds that was not
+     * applied before, and start the writer and the replayer.
+     *
+     * @throws IllegalStateException if another process has the journal open, or the leftover
+     *                               entries cannot be applied
+     */
+    static WriteAheadJournal open(Path dir, String name, Applier applier, Discarder discarder,
+                                  long replayIntervalMillis, int batchSize, long segmentSize) {
+        FileChannel lockChannel = null;
+        try {
+            Files.createDirectories(dir);
+            lockChannel = FileChannel.open(dir.resolve(name + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = lockChannel.tryLock();
+            if (lock == null) {
+                throw new IllegalStateException("Journal " + name + " in " + dir + " is in use by another process");
+            }
+            WriteAheadJournal journal = new WriteAheadJournal(dir, name, applier, discarder, batchSize, segmentSize, lockChannel);
+            journal.recover();
+            journal.committer = Thread.ofPlatform().name("journal-commit-" + name).daemon().start(journal::commitLoop);
+            journal.replayer.scheduleWithFixedDelay(journal::replay,
+                replayIntervalMillis, replayIntervalMillis, TimeUnit.MILLISECONDS);
+            return journal;
+        } catch (IOException e) {
+            closeQuietly(lockChannel);
+            throw new UncheckedIOException("Failed to open journal " + name + " in " + dir, e);
+        } catch (RuntimeException e) {
+            closeQuietly(lockChannel);
+            throw e;
+        }
+    }
+
+    private void recover() throws IOException {
+        long checkpoint = readCheckpoint();
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(path -> segmentName.matcher(path.getFileName().toString()).matches())
+                .sorted()
+                .toList();
+        }
+        List<Entry> tail = new ArrayList<>();
+        long last = checkpoint;
+        for (Path file : files) {
+            last = Math.max(last, scan(file, checkpoint, tail));
+        }
+        long started = System.nanoTime();
+        for (int from = 0; from < tail.size(); from += batchSize) {
+            List<Entry> batch = tail.subList(from, Math.min(tail.size(), from + batchSize));
+            try {
+                applier.apply(batch);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Failed to replay journal " + name + "; it is kept for the next start", e);
+            }
+            writeCheckpoint(batch.get(batch.size() - 1).sequence());
+        }
+        if (!tail.isEmpty()) {
+            logger.info("Replayed {} journaled write(s) from {} in {} ms", tail.size(), name,
+                (System.nanoTime() - started) / 1_000_000);
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        nextSequence = last + 1;
+        durable = last;
+        startSegment(nextSequence);
+    }
+
+    /**
+     * Add the entries of {@code file} after {@code checkpoint} to {@code tail}, stopping at a torn end.
+     *
+     * @return the last sequence number in the file
+     */
+    private long scan(Path file, long checkpoint, List<Entry> tail) throws IOException {
+        long last = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read it all
+            }
+            buffer.flip();
+            CRC32C crc = new CRC32C();
+            while (buffer.remaining() >= ENTRY_HEADER) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length < 0 || length > buffer.remaining() - ENTRY_HEADER) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(start + 8, 8 + length));
+                long sequence = buffer.getLong(start + 8);
+                if ((int) crc.getValue() != buffer.getInt(start + 4) || sequence <= last) {
+                    break;
+                }
+                last = sequence;
+                if (sequence > checkpoint) {
+                    byte[] payload = new byte[length];
+                    buffer.get(start + ENTRY_HEADER, payload);
+                    tail.add(new Entry(sequence, payload));
+                }
+                buffer.position(start + ENTRY_HEADER + length);
+            }
+            if (buffer.hasRemaining()) {
+                logger.warn("Dropping {} torn byte(s) at the end of {}", buffer.remaining(), file);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Queue an entry to be written and applied. Entries are applied in the order they are appended.
+     *
+     * @return its sequence number, for {@link #sync}
+     * @throws UncheckedIOException if writing the journal has failed
+     */
+    long append(byte[] payload) {
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal " + name + " is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal " + name + " cannot be written", failure);
+            }
+            Entry entry = new Entry(nextSequence++, payload);
+            unwritten.add(entry);
+            unapplied.add(entry);
+            return entry.sequence();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the entry {@code sequence}, and every one before it, is on disk.
+     *
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    void sync(long sequence) {
+        if (durable >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal " + name + " cannot be written", failure);
+                }
+                synced.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for journal " + name, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Entries not yet applied to the database.
+     */
+    int pendingCount() {
+        return unapplied.size();
+    }
+
+    private void commitLoop() {
+        List<Entry> group = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        CRC32C crc = new CRC32C();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                group.add(unwritten.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            unwritten.drainTo(group, MAX_GROUP);
+            if (group.get(group.size() - 1) == STOP) {
+                group.remove(group.size() - 1);
+                stopping = true;
+            }
+            if (!group.isEmpty() && failure == null) {
+                buffer = write(group, buffer, crc);
+            }
+            group.clear();
+            syncLock.lock();
+            try {
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    private ByteBuffer write(List<Entry> group, ByteBuffer buffer, CRC32C crc) {
+        int size = 0;
+        for (Entry entry : group) {
+            size += ENTRY_HEADER + entry.payload().length;
+        }
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+        }
+        buffer.clear();
+        for (Entry entry : group) {
+            int start = buffer.position();
+            buffer.putInt(entry.payload().length).putInt(0).putLong(entry.sequence()).put(entry.payload());
+            crc.reset();
+            crc.update(buffer.slice(start + 8, 8 + entry.payload().length));
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                active.write(buffer);
+            }
+            active.force(false);
+            activeSize += size;
+            long last = group.get(group.size() - 1).sequence();
+            durable = last;
+            if (activeSize >= segmentSize) {
+                active.close();
+                startSegment(last + 1);
+            }
+        } catch (IOException e) {
+            // Nothing after this can be made durable; writers get the error from sync()
+            logger.error("Failed to write journal {}; later writes will be refused", name, e);
+            failure = e;
+            truncateActive();
+            try {
+                replayer.execute(this::replay);
+            } catch (RejectedExecutionException rejected) {
+                // Closing; close() replays
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Cut what a failed write left off the active segment, so a restart does not apply entries
+     * their writers were told failed. Best effort: the file may be unusable by now.
+     */
+    private void truncateActive() {
+        if (!active.isOpen()) {
+            return; // failed while starting a new segment; nothing was written to it
+        }
+        try {
+            active.truncate(activeSize);
+            active.force(false);
+        } catch (IOException e) {
+            logger.warn("Failed to cut the failed write off journal {}", name, e);
+        }
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        Path path = dir.resolve(String.format("%s-%020d.journal", name, firstSequence));
+        active = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSize = 0;
+        segments.addLast(new Segment(path, firstSequence));
+        // Make the new file itself survive a crash
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not supported everywhere (e.g. Windows)
+        }
+    }
+
+    /**
+     * Apply durable entries in batches until none are left. A failed batch is retried on the next run.
+     * After a write failure, what is left once the durable entries are applied is dropped.
+     */
+    private void replay() {
+        replayLock.lock();
+        try {
+            while (true) {
+                // Read before durable, which is final once failure is set
+                IOException failed = failure;
+                long limit = durable;
+                List<Entry> batch = new ArrayList<>();
+                for (Entry entry : unapplied) {
+                    if (entry.sequence() > limit || batch.size() == batchSize) {
+                        break;
+                    }
+                    batch.add(entry);
+                }
+                if (batch.isEmpty()) {
+                    if (failed != null) {
+                        discard(limit);
+                    }
+                    return;
+                }
+                try {
+                    applier.apply(batch);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to apply {} journaled write(s) from {}, will retry", batch.size(), name, e);
+                    return;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    unapplied.poll();
+                }
+                long applied = batch.get(batch.size() - 1).sequence();
+                writeCheckpoint(applied);
+                deleteSegmentsThrough(applied);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to checkpoint journal {}", name, e);
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    private void discard(long limit) {
+        int dropped = 0;
+        while (unapplied.poll() != null) {
+            dropped++;
+        }
+        if (dropped > 0) {
+            logger.warn("Dropped {} write(s) from {} that did not reach the disk", dropped, name);
+        }
+        // Also on later runs: an append that raced the failure may have been added since
+        discarder.discardAfter(limit);
+    }
+
+    private void deleteSegmentsThrough(long applied) throws IOException {
+        // A segment is done once the next one starts at or before the first unapplied entry
+        while (true) {
+            Segment first = segments.peekFirst();
+            Segment second = segments.stream().skip(1).findFirst().orElse(null);
+            if (first == null || second == null || second.firstSequence() > applied + 1) {
+                return;
+            }
+            segments.pollFirst();
+            Files.deleteIfExists(first.path());
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = dir.resolve(name + ".checkpoint");
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        // Replaced atomically, so never torn
+        return Long.parseLong(Files.readString(file).trim());
+    }
+
+    /**
+     * Record that everything up to {@code sequence} is applied. Not forced: losing it only means
+     * applying some entries again.
+     */
+    private void writeCheckpoint(long sequence) throws IOException {
+        Path file = dir.resolve(name + ".checkpoint");
+        Path temp = dir.resolve(name + ".checkpoint.tmp");
+        Files.writeString(temp, Long.toString(sequence));
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Write and apply everything appended so far, then release the journal. Anything that cannot
+     * be applied now is applied on the next {@link #open}.
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unwritten.add(STOP);
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replayer.shutdown();
+        try {
+            replayer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replay();
+        int left = unapplied.size();
+        if (left > 0) {
+            logger.warn("{} journaled write(s) in {} not applied; they will be on the next start", left, name);
+        }
+        closeQuietly(active);
+        closeQuietly(lockChannel);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close journal file", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.D2CharacterDao;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Queues the targeted character updates (last played, level, flags, save) and writes them in
+ * batches, so a character updated several times between flushes costs one write.
+ *
+ * <p>Pending updates are flushed in one batch (an unordered {@code bulkWrite}, or a JDBC batch) every
+ * {@code flushInterval}, as soon as {@code maxPending} characters have updates queued, and on
+ * {@link #close()}, which the server calls on shutdown. Reads through this DAO see queued updates;
+ * full updates and deletes write through and supersede anything queued for that character. Updates
+ * still queued when the process dies are lost, so keep the interval short.
+ */
+public class WriteBehindD2CharacterDao implements D2CharacterDao, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindD2CharacterDao.class);
+
+    private final D2CharacterDao delegate;
+    private final Consumer<Map<String, PendingCharacterUpdate>> writer;
+    private final int maxPending;
+    private final ConcurrentHashMap<String, PendingCharacterUpdate> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    // Not synchronized: flushes block on the database and callers may be virtual threads
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile boolean closed;
+
+    public WriteBehindD2CharacterDao(MongoD2CharacterDao delegate, Duration flushInterval, int maxPending) {
+        this(delegate, delegate::applyAll, flushInterval, maxPending);
+    }
+
+    public WriteBehindD2CharacterDao(JdbcD2CharacterDao delegate, Duration flushInterval, int maxPending) {
+        this(delegate, delegate::applyAll, flushInterval, maxPending);
+    }
+
+    /**
+     * @param writer writes a batch of updates, keyed by lower-case character name
+     */
+    WriteBehindD2CharacterDao(D2CharacterDao delegate, Consumer<Map<String, PendingCharacterUpdate>> writer,
+                                      Duration flushInterval, int maxPending) {
+        this.delegate = delegate;
+        this.writer = writer;
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "character-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<D2Character> findByAccountName(String accountName) {
+        List<D2Character> characters = delegate.findByAccountName(accountName);
+        characters.forEach(this::overlay);
+        return characters;
+    }
+
+    @Override
+    public D2Character findByAccountAndName(String accountName, String characterName) {
+        D2Character character = delegate.findByAccountAndName(accountName, characterName);
+        if (character != null) {
+            overlay(character);
+        }
+        return character;
+    }
+
+    @Override
+    public List<D2CharacterSummary> findSummariesByAccountName(String accountName) {
+        return delegate.findSummariesByAccountName(accountName).stream()
+            .map(this::overlay)
+            .toList();
+    }
+
+    @Override
+    public D2CharacterSummary findSummary(String accountName, String characterName) {
+        D2CharacterSummary summary = delegate.findSummary(accountName, characterName);
+        return summary != null ? overlay(summary) : null;
+    }
+
+    @Override
+    public byte[] loadSaveData(String accountName, String characterName) {
+        PendingCharacterUpdate update = pending.get(characterName.toLowerCase());
+        if (update != null && update.hasSaveData()) {
+            return update.saveData();
+        }
+        return delegate.loadSaveData(accountName, characterName);
+    }
+
+    @Override
+    public boolean isNameAvailable(String characterName) {
+        return delegate.isNameAvailable(characterName);
+    }
+
+    @Override
+    public void forEachCharacterName(Consumer<String> action) {
+        delegate.forEachCharacterName(action);
+    }
+
+    @Override
+    public void save(D2Character character) {
+        delegate.save(character);
+    }
+
+    @Override
+    public void update(D2Character character) {
+        writeLock.lock();
+        try {
+            pending.remove(character.getName().toLowerCase());
+            delegate.update(character);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void touchLastPlayed(String characterName, long lastPlayedAt) {
+        queue(characterName, PendingCharacterUpdate.lastPlayed(lastPlayedAt));
+    }
+
+    @Override
+    public void setLevel(String characterName, int level) {
+        queue(characterName, PendingCharacterUpdate.level(level));
+    }
+
+    @Override
+    public void setFlags(String characterName, int flags) {
+        queue(characterName, PendingCharacterUpdate.flags(flags));
+    }
+
+    @Override
+    public void replaceSaveData(String characterName, byte[] saveData) {
+        queue(characterName, PendingCharacterUpdate.saveData(saveData));
+    }
+
+    @Override
+    public void delete(String accountName, String characterName) {
+        writeLock.lock();
+        try {
+            pending.remove(characterName.toLowerCase());
+            delegate.delete(accountName, characterName);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Number of characters with updates not yet written.
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Write everything queued so far. Failed writes stay queued for the next flush.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            flushQueued.set(false);
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<String, PendingCharacterUpdate> batch = new HashMap<>(pending);
+            try {
+                writer.accept(batch);
+            } catch (RuntimeException e) {
+                logger.error("Failed to write {} queued character update(s), will retry", batch.size(), e);
+                return;
+            }
+            // Keep anything queued while the batch was being written
+            batch.forEach(pending::remove);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the timer and write whatever is still queued. Later updates are written through.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int count = pending.size();
+        flush();
+        logger.info("Flushed {} queued character update(s) on shutdown", count);
+    }
+
+    private void queue(String characterName, PendingCharacterUpdate update) {
+        String key = characterName.toLowerCase();
+        if (closed) {
+            writer.accept(Map.of(key, update));
+            return;
+        }
+        pending.merge(key, update, PendingCharacterUpdate::merge);
+        if (closed) {
+            flush(); // raced with close()
+        } else if (pending.size() >= maxPending && flushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+    }
+
+    private void overlay(D2Character character) {
+        PendingCharacterUpdate update = pending.get(character.getName().toLowerCase());
+        if (update != null) {
+            update.applyTo(character);
+        }
+    }
+
+    private D2CharacterSummary overlay(D2CharacterSummary summary) {
+        PendingCharacterUpdate update = pending.get(summary.getName().toLowerCase());
+        return update != null ? update.applyTo(summary) : summary;
+    }
+}
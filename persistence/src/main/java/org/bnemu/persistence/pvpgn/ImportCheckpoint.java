@@ -0,0 +1,89 @@
+package org.bnemu.persistence.pvpgn;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * How far each phase of an import got, so a rerun can skip what is already loaded.
+ *
+ * <p>A phase works through names in sorted order, in numbered chunks that finish out of order.
+ * The checkpoint records the last name of the highest chunk below which every chunk is done;
+ * anything after it may or may not be loaded and is inserted again, which the targets skip.
+ * The file is replaced atomically, so a crash leaves the previous checkpoint.
+ */
+final class ImportCheckpoint {
+    private final Path file;
+    private final Properties completed = new Properties();
+    // Per phase: chunks done above the contiguous prefix, by index, with their last names
+    private final TreeMap<Integer, String> doneAhead = new TreeMap<>();
+    private String phase;
+    private int nextChunk;
+
+    private ImportCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    static ImportCheckpoint open(Path file) {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(file);
+        if (Files.exists(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                checkpoint.completed.load(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + file, e);
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * The last name {@code phase} completed through, or null if it has not started.
+     */
+    synchronized String completedThrough(String phase) {
+        return completed.getProperty(phase);
+    }
+
+    /**
+     * Start tracking the chunks of {@code phase}, numbered from 0.
+     */
+    synchronized void begin(String phase) {
+        this.phase = phase;
+        this.nextChunk = 0;
+        doneAhead.clear();
+    }
+
+    /**
+     * Record chunk {@code index}, ending at {@code lastName}, as loaded.
+     */
+    synchronized void chunkDone(int index, String lastName) {
+        doneAhead.put(index, lastName);
+        String through = null;
+        while (!doneAhead.isEmpty() && doneAhead.firstKey() == nextChunk) {
+            through = doneAhead.pollFirstEntry().getValue();
+            nextChunk++;
+        }
+        if (through != null) {
+            completed.setProperty(phase, through);
+            write();
+        }
+    }
+
+    private void write() {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                completed.store(out, "PvPGN import progress; delete to import from the start");
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.bnemu.persistence.pvpgn;
+
+import org.bnemu.core.config.CoreConfig;
+import org.bnemu.core.model.D2Character;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where an import writes, in batches, selected by {@code persistence.backend} as for the servers.
+ * Inserts skip accounts and characters that already exist, so an interrupted import can be run
+ * again over what it already loaded.
+ */
+interface ImportTarget extends AutoCloseable {
+    /**
+     * @param passwordHashes keyed by username
+     * @return how many were inserted
+     */
+    int insertAccounts(Map<String, byte[]> passwordHashes);
+
+    /**
+     * @return how many were inserted
+     */
+    int insertCharacters(List<D2Character> characters);
+
+    /**
+     * Build whatever indexes were left out during the load.
+     */
+    void finish();
+
+    @Override
+    void close();
+
+    static ImportTarget open(CoreConfig config) {
+        String backend = config.getPersistence().getBackend();
+        return switch (backend) {
+            case "mongo" -> new MongoImportTarget(config.getMongo());
+            case "jdbc" -> new JdbcImportTarget(config.getPersistence().getJdbc());
+            case "local" -> new LocalImportTarget(config.getPersistence().getLocal());
+            default -> throw new IllegalArgumentException("Unknown persistence backend: " + backend);
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package org.bnemu.persistence.pvpgn;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.bnemu.core.config.DatabaseConfig;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.persistence.JdbcConnections;
+import org.bnemu.persistence.dao.JdbcAccountDao;
+import org.bnemu.persistence.dao.JdbcD2CharacterDao;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads with {@code INSERT IGNORE} batches, one transaction each. The unique keys stay in place
+ * during the load, since they are what lets a rerun skip rows it already wrote.
+ */
+class JdbcImportTarget implements ImportTarget {
+    private final HikariDataSource dataSource;
+    private final JdbcAccountDao accounts;
+    private final JdbcD2CharacterDao characters;
+
+    JdbcImportTarget(DatabaseConfig config) {
+        this.dataSource = JdbcConnections.open(config);
+        this.accounts = new JdbcAccountDao(dataSource);
+        this.characters = new JdbcD2CharacterDao(dataSource);
+    }
+
+    @Override
+    public int insertAccounts(Map<String, byte[]> passwordHashes) {
+        return accounts.insertAll(passwordHashes);
+    }
+
+    @Override
+    public int insertCharacters(List<D2Character> toInsert) {
+        return characters.insertAll(toInsert);
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
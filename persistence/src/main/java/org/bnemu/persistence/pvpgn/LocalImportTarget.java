@@ -0,0 +1,70 @@
+package org.bnemu.persistence.pvpgn;
+
+import org.bnemu.core.config.LocalStoreConfig;
+import org.bnemu.core.dao.DuplicateCharacterNameException;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.persistence.dao.LocalAccountDao;
+import org.bnemu.persistence.dao.LocalD2CharacterDao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends to the local backend's logs. A batch is just a loop: each insert is an in-memory index
+ * update and a copy into the mapped file, and the logs are forced to disk once, on close.
+ */
+class LocalImportTarget implements ImportTarget {
+    private final LocalAccountDao accounts;
+    private final LocalD2CharacterDao characters;
+
+    LocalImportTarget(LocalStoreConfig config) {
+        Path dataDir = Path.of(config.getDataDir());
+        try {
+            Files.createDirectories(dataDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create " + dataDir, e);
+        }
+        int regionSize = config.getRegionSizeMegabytes() << 20;
+        this.accounts = new LocalAccountDao(dataDir.resolve("accounts.log"), regionSize);
+        this.characters = new LocalD2CharacterDao(dataDir.resolve("characters.log"), regionSize);
+    }
+
+    @Override
+    public int insertAccounts(Map<String, byte[]> passwordHashes) {
+        int inserted = 0;
+        for (Map.Entry<String, byte[]> account : passwordHashes.entrySet()) {
+            if (accounts.createAccount(account.getKey(), account.getValue())) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public int insertCharacters(List<D2Character> toInsert) {
+        int inserted = 0;
+        for (D2Character character : toInsert) {
+            try {
+                characters.save(character);
+                inserted++;
+            } catch (DuplicateCharacterNameException e) {
+                // Loaded by an earlier run
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void close() {
+        accounts.close();
+        characters.close();
+    }
+}
@@ -0,0 +1,47 @@
+package org.bnemu.persistence.pvpgn;
+
+import com.mongodb.client.MongoDatabase;
+import org.bnemu.core.config.MongoConfig;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.persistence.MongoConnections;
+import org.bnemu.persistence.dao.MongoAccountDao;
+import org.bnemu.persistence.dao.MongoD2CharacterDao;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads with unordered {@code bulkWrite}s into collections without their indexes, which are
+ * built once at the end. Documents get {@code _id}s derived from their names, so inserting one
+ * twice is skipped even before the unique indexes exist.
+ */
+class MongoImportTarget implements ImportTarget {
+    private final MongoAccountDao accounts;
+    private final MongoD2CharacterDao characters;
+
+    MongoImportTarget(MongoConfig config) {
+        MongoDatabase db = MongoConnections.open(config);
+        this.accounts = MongoAccountDao.forBulkLoad(db);
+        this.characters = MongoD2CharacterDao.forBulkLoad(db);
+    }
+
+    @Override
+    public int insertAccounts(Map<String, byte[]> passwordHashes) {
+        return accounts.insertAll(passwordHashes);
+    }
+
+    @Override
+    public int insertCharacters(List<D2Character> toInsert) {
+        return characters.insertAll(toInsert);
+    }
+
+    @Override
+    public void finish() {
+        accounts.createIndexes();
+        characters.createIndexes();
+    }
+
+    @Override
+    public void close() {
+    }
+}
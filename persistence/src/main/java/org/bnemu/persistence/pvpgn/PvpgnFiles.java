@@ -0,0 +1,139 @@
+package org.bnemu.persistence.pvpgn;
+
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.DiabloClass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Readers for the files a PvPGN server keeps with file storage: {@code users/<account>} and
+ * {@code charinfo/<account>/<character>}, plus the optional {@code charsave/<character>}.
+ */
+final class PvpgnFiles {
+    private static final String USERNAME = "BNET\\acct\\username";
+    private static final String PASSWORD_HASH = "BNET\\acct\\passhash1";
+
+    // t_d2charinfo_file: header, portrait, padding and summary, all little-endian
+    private static final int CHARINFO_MAGIC = 0x12345678;
+    private static final int CREATE_TIME = 0x08;
+    private static final int LAST_TIME = 0x0C;
+    private static final int CHARNAME = 0x30;
+    private static final int CHARNAME_LENGTH = 16;
+    private static final int SUMMARY = 0xB4;
+    private static final int CHARINFO_SIZE = SUMMARY + 16;
+
+    record User(String username, byte[] passwordHash) {
+    }
+
+    private PvpgnFiles() {
+    }
+
+    /**
+     * Read an account file of {@code "key"="value"} lines.
+     *
+     * @return the account, or null if the file has no username or password hash
+     */
+    static User readUser(Path file) throws IOException {
+        String username = null;
+        byte[] passwordHash = null;
+        for (String line : Files.readAllLines(file, StandardCharsets.ISO_8859_1)) {
+            line = line.strip();
+            int split = line.indexOf("\"=\"");
+            if (line.startsWith("#") || split < 1 || line.charAt(0) != '"' || !line.endsWith("\"")) {
+                continue;
+            }
+            String key = unescape(line.substring(1, split));
+            String value = unescape(line.substring(split + 3, line.length() - 1));
+            if (key.equals(USERNAME)) {
+                username = value;
+            } else if (key.equals(PASSWORD_HASH)) {
+                passwordHash = passwordHash(value);
+            }
+        }
+        return username != null && !username.isEmpty() && passwordHash != null
+            ? new User(username, passwordHash) : null;
+    }
+
+    /**
+     * The hash a client sends when creating an account, from PvPGN's {@code passhash1}: five
+     * 32-bit words in hex, which the client sends little-endian.
+     *
+     * @return the hash, or null if {@code hex} is not one
+     */
+    static byte[] passwordHash(String hex) {
+        if (hex.length() != 40) {
+            return null;
+        }
+        ByteBuffer hash = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            for (int i = 0; i < 40; i += 8) {
+                hash.putInt(Integer.parseUnsignedInt(hex.substring(i, i + 8), 16));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return hash.array();
+    }
+
+    /**
+     * Read a character's charinfo file, and its save if {@code charsaveDir} has one.
+     *
+     * @return the character, or null if the file is not a charinfo file
+     */
+    static D2Character readCharacter(Path file, String accountName, Path charsaveDir) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < CHARINFO_SIZE) {
+            return null;
+        }
+        ByteBuffer info = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        DiabloClass charClass = DiabloClass.fromCode(info.getInt(SUMMARY + 12));
+        String name = cString(bytes, CHARNAME, CHARNAME_LENGTH);
+        if (info.getInt(0) != CHARINFO_MAGIC || charClass == null || name.isEmpty()) {
+            return null;
+        }
+        D2Character character = new D2Character();
+        character.setAccountName(accountName.toLowerCase());
+        character.setName(name);
+        character.setCharClass(charClass);
+        character.setLevel(Math.max(1, info.getInt(SUMMARY + 8)));
+        // Same bits as the MCP flags, plus 0x01 ("initialized"), which setFlags ignores
+        character.setFlags(info.getInt(SUMMARY + 4));
+        character.setCreatedAt(Integer.toUnsignedLong(info.getInt(CREATE_TIME)) * 1000);
+        character.setLastPlayedAt(Integer.toUnsignedLong(info.getInt(LAST_TIME)) * 1000);
+        if (charsaveDir != null) {
+            Path save = charsaveDir.resolve(name.toLowerCase());
+            if (Files.isRegularFile(save)) {
+                character.setSaveData(Files.readAllBytes(save));
+            }
+        }
+        return character;
+    }
+
+    private static String cString(byte[] bytes, int offset, int maxLength) {
+        int length = 0;
+        while (length < maxLength && bytes[offset + length] != 0) {
+            length++;
+        }
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String unescape(String quoted) {
+        if (quoted.indexOf('\\') < 0) {
+            return quoted;
+        }
+        StringBuilder out = new StringBuilder(quoted.length());
+        for (int i = 0; i < quoted.length(); i++) {
+            char c = quoted.charAt(i);
+            if (c == '\\' && i + 1 < quoted.length()) {
+                c = quoted.charAt(++i);
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+}
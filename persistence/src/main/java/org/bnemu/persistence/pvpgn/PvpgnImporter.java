@@ -0,0 +1,258 @@
+package org.bnemu.persistence.pvpgn;
+
+import org.bnemu.core.config.ConfigLoadException;
+import org.bnemu.core.config.ConfigLoader;
+import org.bnemu.core.model.D2Character;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Loads the accounts and Diablo II characters of a PvPGN server using file storage into the
+ * configured backend, for moving a realm over in one go.
+ *
+ * <p>Accounts come from {@code users/}, characters from {@code charinfo/<account>/} with their
+ * saves from {@code charsave/}. Each phase reads its files in sorted order, in chunks that a pool
+ * of threads parses and inserts as batches, and that the {@link ImportCheckpoint} records as they
+ * complete. If the import stops, running it again carries on from the checkpoint; names already
+ * present are skipped, not overwritten.
+ *
+ * <pre>
+ * PvpgnImporter &lt;pvpgn var dir&gt; [--config=config.yml] [--threads=N] [--batch=N] [--checkpoint=file]
+ * </pre>
+ */
+public class PvpgnImporter {
+    private static final Logger logger = LoggerFactory.getLogger(PvpgnImporter.class);
+    private static final long REPORT_INTERVAL_SECONDS = 10;
+
+    static final String USERS = "users";
+    static final String CHARINFO = "charinfo";
+
+    private final Path varDir;
+    private final ImportTarget target;
+    private final ImportCheckpoint checkpoint;
+    private final int threads;
+    private final int batchSize;
+
+    PvpgnImporter(Path varDir, ImportTarget target, ImportCheckpoint checkpoint, int threads, int batchSize) {
+        this.varDir = varDir;
+        this.target = target;
+        this.checkpoint = checkpoint;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import the accounts, then the characters, then build the target's indexes.
+     *
+     * @throws IllegalStateException if a batch failed; what was imported before it is kept
+     */
+    void run() {
+        Stats accounts = runPhase(USERS, this::importUsers);
+        Stats characters = runPhase(CHARINFO, this::importCharacters);
+        long started = System.nanoTime();
+        target.finish();
+        logger.info("Built indexes in {} ms", (System.nanoTime() - started) / 1_000_000);
+        logger.info("Import complete: {} account(s) and {} character(s) inserted",
+            accounts.inserted.sum(), characters.inserted.sum());
+    }
+
+    @FunctionalInterface
+    private interface ChunkImport {
+        void run(List<Path> chunk, Stats stats) throws IOException;
+    }
+
+    private Stats runPhase(String phase, ChunkImport importer) {
+        Path dir = varDir.resolve(phase);
+        Stats stats = new Stats(phase);
+        if (!Files.isDirectory(dir)) {
+            logger.warn("No {} directory in {}; skipping", phase, varDir);
+            return stats;
+        }
+        String through = checkpoint.completedThrough(phase);
+        List<Path> pending = list(dir, through);
+        if (through != null) {
+            logger.info("Resuming {} after {}: {} left", phase, through, pending.size());
+        } else {
+            logger.info("Importing {}: {} found", phase, pending.size());
+        }
+        checkpoint.begin(phase);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(stats::report, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        // Bounds the chunks read ahead of the inserts
+        Semaphore inFlight = new Semaphore(threads * 2);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            for (int start = 0, index = 0; start < pending.size() && failure.get() == null; start += batchSize, index++) {
+                List<Path> chunk = pending.subList(start, Math.min(start + batchSize, pending.size()));
+                int chunkIndex = index;
+                inFlight.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            importer.run(chunk, stats);
+                            checkpoint.chunkDone(chunkIndex, chunk.get(chunk.size() - 1).getFileName().toString());
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            workers.shutdown();
+            // Let running batches finish, so the checkpoint covers them
+            inFlight.acquireUninterruptibly(threads * 2);
+        } finally {
+            workers.shutdownNow();
+            reporter.shutdownNow();
+        }
+        stats.report();
+        if (failure.get() != null) {
+            throw new IllegalStateException("Failed to import " + phase, failure.get());
+        }
+        return stats;
+    }
+
+    private void importUsers(List<Path> files, Stats stats) {
+        Map<String, byte[]> accounts = new LinkedHashMap<>();
+        for (Path file : files) {
+            stats.processed.increment();
+            try {
+                PvpgnFiles.User user = PvpgnFiles.readUser(file);
+                if (user == null) {
+                    logger.warn("Skipping {}: no username or password hash", file);
+                    stats.unreadable.increment();
+                } else if (accounts.putIfAbsent(user.username().toLowerCase(), user.passwordHash()) != null) {
+                    stats.present.increment();
+                }
+            } catch (IOException e) {
+                logger.warn("Skipping {}: {}", file, e.toString());
+                stats.unreadable.increment();
+            }
+        }
+        stats.inserted(target.insertAccounts(accounts), accounts.size());
+    }
+
+    private void importCharacters(List<Path> accountDirs, Stats stats) throws IOException {
+        Path charsaveDir = varDir.resolve("charsave");
+        List<D2Character> batch = new ArrayList<>(batchSize);
+        for (Path accountDir : accountDirs) {
+            String accountName = accountDir.getFileName().toString();
+            for (Path file : list(accountDir, null)) {
+                stats.processed.increment();
+                try {
+                    D2Character character = PvpgnFiles.readCharacter(file, accountName, charsaveDir);
+                    if (character == null) {
+                        logger.warn("Skipping {}: not a charinfo file", file);
+                        stats.unreadable.increment();
+                        continue;
+                    }
+                    batch.add(character);
+                } catch (IOException e) {
+                    logger.warn("Skipping {}: {}", file, e.toString());
+                    stats.unreadable.increment();
+                }
+                if (batch.size() >= batchSize) {
+                    stats.inserted(target.insertCharacters(batch), batch.size());
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            stats.inserted(target.insertCharacters(batch), batch.size());
+        }
+    }
+
+    /**
+     * The entries of {@code dir} named after {@code after}, in order.
+     */
+    private static List<Path> list(Path dir, String after) {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries
+                .filter(entry -> after == null || entry.getFileName().toString().compareTo(after) > 0)
+                .sorted()
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + dir, e);
+        }
+    }
+
+    private static final class Stats {
+        private final String phase;
+        private final long started = System.nanoTime();
+        final LongAdder processed = new LongAdder();
+        final LongAdder inserted = new LongAdder();
+        final LongAdder present = new LongAdder();
+        final LongAdder unreadable = new LongAdder();
+
+        Stats(String phase) {
+            this.phase = phase;
+        }
+
+        void inserted(int count, int attempted) {
+            inserted.add(count);
+            present.add(attempted - count);
+        }
+
+        void report() {
+            double seconds = Math.max(1, System.nanoTime() - started) / 1e9;
+            long done = processed.sum();
+            logger.info("{}: {} processed ({}/s), {} inserted, {} already present, {} unreadable",
+                phase, done, Math.round(done / seconds), inserted.sum(), present.sum(), unreadable.sum());
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: PvpgnImporter <pvpgn var dir> [--config=config.yml] [--threads=N]"
+                + " [--batch=N] [--checkpoint=file]");
+            System.exit(2);
+        }
+        String configFile = "config.yml";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = 1000;
+        Path checkpointFile = Path.of("pvpgn-import.checkpoint");
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            String value = option.length > 1 ? option[1] : "";
+            switch (option[0]) {
+                case "--config" -> configFile = value;
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--batch" -> batchSize = Integer.parseInt(value);
+                case "--checkpoint" -> checkpointFile = Path.of(value);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        try (ImportTarget target = ImportTarget.open(ConfigLoader.load(configFile))) {
+            new PvpgnImporter(Path.of(args[0]), target, ImportCheckpoint.open(checkpointFile), threads, batchSize).run();
+        } catch (ConfigLoadException e) {
+            logger.error("Failed to load configuration", e);
+            System.exit(1);
+        } catch (RuntimeException e) {
+            logger.error("Import stopped; run it again to resume from {}", checkpointFile, e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.bnemu.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.bnemu.core.config.DatabaseConfig;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * An in-memory H2 database in MariaDB mode, opened before each test and dropped after it.
+ * Register it with {@code @RegisterExtension}.
+ *
+ * <p>Only H2's MariaDB mode is tested here; MySQL-only behavior needs a real server.
+ */
+public class H2Database implements BeforeEachCallback, AfterEachCallback {
+    private final String name;
+    private DatabaseConfig config;
+    private HikariDataSource dataSource;
+
+    public H2Database(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        config = new DatabaseConfig();
+        config.setUrl("jdbc:h2:mem:" + name + ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setPoolSize(4);
+        dataSource = JdbcConnections.open(config);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        dataSource.close();
+    }
+
+    /**
+     * The settings the pool was opened with, for code that opens its own.
+     */
+    public DatabaseConfig config() {
+        return config;
+    }
+
+    public HikariDataSource dataSource() {
+        return dataSource;
+    }
+}
@@ -0,0 +1,30 @@
+package org.bnemu.persistence;
+
+import org.bnemu.core.config.JournalConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcPersistenceTest {
+    @TempDir
+    Path dir;
+
+    @RegisterExtension
+    final H2Database h2 = new H2Database("persistence");
+
+    @Test
+    public void testJournaledDaosAreOpenedOnce() {
+        JournalConfig journal = new JournalConfig();
+        journal.setEnabled(true);
+        journal.setDir(dir.toString());
+        JdbcPersistence persistence = new JdbcPersistence(h2.config(), journal);
+
+        // A second journal on the same files would fail to lock them
+        assertSame(persistence.accountDao(), persistence.accountDao());
+        assertSame(persistence.characterDao(), persistence.characterDao());
+    }
+}
@@ -0,0 +1,28 @@
+package org.bnemu.persistence;
+
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.DiabloClass;
+
+/**
+ * Characters for DAO tests.
+ */
+public final class TestCharacters {
+    private TestCharacters() {
+    }
+
+    /**
+     * A level 1 sorceress.
+     */
+    public static D2Character character(String accountName, String name, byte[] saveData) {
+        D2Character character = new D2Character();
+        character.setAccountName(accountName);
+        character.setName(name);
+        character.setCharClass(DiabloClass.SORCERESS);
+        character.setSaveData(saveData);
+        return character;
+    }
+
+    public static D2Character character(String accountName, String name) {
+        return character(accountName, name, null);
+    }
+}
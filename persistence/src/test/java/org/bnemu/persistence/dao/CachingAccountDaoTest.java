@@ -0,0 +1,92 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.AccountDao;
+import org.bnemu.core.model.Account;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CachingAccountDaoTest {
+    private final AtomicLong now = new AtomicLong();
+    private AccountDao delegate;
+    private CachingAccountDao dao;
+
+    @BeforeEach
+    public void setup() {
+        delegate = mock(AccountDao.class);
+        dao = new CachingAccountDao(delegate, 100, Duration.ofMinutes(5), Duration.ofSeconds(30), now::get);
+    }
+
+    @Test
+    public void foundAccountsAreCachedUntilTtl() {
+        when(delegate.findAccount("alice")).thenReturn(account("alice"));
+
+        assertEquals("alice", dao.findAccount("Alice").getUsername());
+        assertEquals("alice", dao.findAccount("ALICE").getUsername());
+        verify(delegate, times(1)).findAccount("alice");
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        dao.findAccount("alice");
+        verify(delegate, times(2)).findAccount("alice");
+        assertEquals(1, dao.stats().hitCount());
+    }
+
+    @Test
+    public void missingAccountsAreCachedBriefly() {
+        assertNull(dao.findAccount("ghost"));
+        assertFalse(dao.validatePassword("ghost", new byte[20], 1, 2));
+        verify(delegate, times(1)).findAccount("ghost");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertNull(dao.findAccount("ghost"));
+        verify(delegate, times(2)).findAccount("ghost");
+    }
+
+    @Test
+    public void createAccountDropsNegativeEntry() {
+        assertNull(dao.findAccount("bob"));
+        when(delegate.createAccount(eq("bob"), any())).thenReturn(true);
+        when(delegate.findAccount("bob")).thenReturn(account("bob"));
+
+        assertTrue(dao.createAccount("Bob", new byte[20]));
+        assertNotNull(dao.findAccount("bob"));
+    }
+
+    @Test
+    public void createAccountDuringLoadIsNotHiddenByIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.findAccount("bob")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return null;
+        }).thenReturn(account("bob"));
+        when(delegate.createAccount(eq("bob"), any())).thenReturn(true);
+
+        CompletableFuture<Account> lookup = CompletableFuture.supplyAsync(() -> dao.findAccount("bob"));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> create = CompletableFuture.supplyAsync(() -> dao.createAccount("bob", new byte[20]));
+        release.countDown();
+
+        assertNull(lookup.get(5, TimeUnit.SECONDS));
+        assertTrue(create.get(5, TimeUnit.SECONDS));
+        assertNotNull(dao.findAccount("bob"), "the load that raced the create was not kept");
+    }
+
+    private static Account account(String name) {
+        Account account = new Account();
+        account.setUsername(name);
+        account.setPasswordHashBytes(new byte[20]);
+        return account;
+    }
+}
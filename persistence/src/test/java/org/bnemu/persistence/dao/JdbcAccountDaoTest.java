@@ -0,0 +1,76 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.model.Account;
+import org.bnemu.crypto.BrokenSHA1;
+import org.bnemu.persistence.H2Database;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the JDBC account DAO against an in-memory H2 database in MariaDB mode.
+ */
+public class JdbcAccountDaoTest {
+    @RegisterExtension
+    final H2Database h2 = new H2Database("accounts");
+
+    private JdbcAccountDao dao;
+
+    @BeforeEach
+    public void setup() {
+        dao = new JdbcAccountDao(h2.dataSource());
+    }
+
+    @Test
+    public void testCreateAndFindAccount() throws Exception {
+        byte[] passwordHash = sha1("testpass");
+        assertTrue(dao.createAccount("TestUser", passwordHash));
+        assertFalse(dao.createAccount("testuser", passwordHash), "Names are unique ignoring case");
+
+        Account account = dao.findAccount("TESTUSER");
+        assertNotNull(account);
+        assertEquals("testuser", account.getUsername());
+        assertArrayEquals(passwordHash, account.getPasswordHashBytes());
+        assertNull(dao.findAccount("nobody"));
+    }
+
+    @Test
+    public void testValidatePassword() throws Exception {
+        byte[] passwordHash = sha1("testpass");
+        dao.createAccount("testuser", passwordHash);
+
+        int clientToken = 123456;
+        int serverToken = 654321;
+        assertTrue(dao.validatePassword("testuser", proof(clientToken, serverToken, passwordHash),
+            clientToken, serverToken));
+        assertFalse(dao.validatePassword("testuser", proof(clientToken, serverToken, sha1("wrongpass")),
+            clientToken, serverToken));
+        assertFalse(dao.validatePassword("nobody", proof(clientToken, serverToken, passwordHash),
+            clientToken, serverToken));
+    }
+
+    private static byte[] sha1(String password) throws Exception {
+        return MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** The proof a client sends in SID_AUTH_ACCOUNTLOGONPROOF */
+    private static byte[] proof(int clientToken, int serverToken, byte[] passwordHash) {
+        ByteBuffer buf = ByteBuffer.allocate(8 + passwordHash.length).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(clientToken);
+        buf.putInt(serverToken);
+        buf.put(passwordHash);
+        int[] hashBuffer = BrokenSHA1.calcHashBuffer(buf.array());
+        ByteBuffer out = ByteBuffer.allocate(20).order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < 5; i++) {
+            out.putInt(hashBuffer[i]);
+        }
+        return out.array();
+    }
+}
@@ -0,0 +1,148 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.DuplicateCharacterNameException;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.core.model.DiabloClass;
+import org.bnemu.persistence.H2Database;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.bnemu.persistence.TestCharacters.character;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the JDBC character DAO against an in-memory H2 database in MariaDB mode.
+ */
+public class JdbcD2CharacterDaoTest {
+    @RegisterExtension
+    final H2Database h2 = new H2Database("characters");
+
+    private JdbcD2CharacterDao dao;
+
+    @BeforeEach
+    public void setup() {
+        dao = new JdbcD2CharacterDao(h2.dataSource());
+    }
+
+    @Test
+    public void testAccountIndexIsCreatedWithTheTable() throws SQLException {
+        try (Connection connection = h2.dataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet row = statement.executeQuery("SELECT COUNT(*) FROM information_schema.indexes"
+                 + " WHERE index_name = 'd2_characters_account'")) {
+            assertTrue(row.next());
+            assertEquals(1, row.getInt(1));
+        }
+    }
+
+    @Test
+    public void testSaveAndFind() {
+        D2Character saved = character("Account", "Zeus", new byte[] {1, 2, 3});
+        dao.save(saved);
+        assertNotNull(saved.getId());
+
+        D2Character found = dao.findByAccountAndName("ACCOUNT", "zeus");
+        assertNotNull(found);
+        assertEquals("Zeus", found.getName());
+        assertEquals("account", found.getAccountName());
+        assertEquals(DiabloClass.SORCERESS, found.getCharClass());
+        assertEquals(saved.getFlags(), found.getFlags());
+        assertArrayEquals(new byte[] {1, 2, 3}, found.getSaveData());
+        assertArrayEquals(new byte[] {1, 2, 3}, dao.loadSaveData("account", "ZEUS"));
+
+        assertNull(dao.findByAccountAndName("someone-else", "zeus"));
+        assertEquals(1, dao.findByAccountName("account").size());
+    }
+
+    @Test
+    public void testSummariesLeaveTheSave() {
+        dao.save(character("account", "Zeus", new byte[] {1}));
+        dao.save(character("account", "Hera", null));
+
+        List<D2CharacterSummary> summaries = dao.findSummariesByAccountName("account");
+        assertEquals(2, summaries.size());
+        D2CharacterSummary summary = dao.findSummary("account", "hera");
+        assertEquals("Hera", summary.getName());
+        assertEquals(1, summary.getLevel());
+        assertNull(dao.loadSaveData("account", "hera"));
+    }
+
+    @Test
+    public void testNamesAreUniqueIgnoringCase() {
+        dao.save(character("one", "Zeus", null));
+        assertFalse(dao.isNameAvailable("ZEUS"));
+        assertTrue(dao.isNameAvailable("Hera"));
+        assertThrows(DuplicateCharacterNameException.class, () -> dao.save(character("two", "zEUS", null)));
+
+        List<String> names = new ArrayList<>();
+        dao.forEachCharacterName(names::add);
+        assertEquals(List.of("zeus"), names);
+    }
+
+    @Test
+    public void testTargetedUpdatesChangeOnlyTheirFields() {
+        dao.save(character("account", "Zeus", new byte[] {1}));
+
+        dao.setLevel("zeus", 42);
+        dao.touchLastPlayed("zeus", 1234L);
+        D2Character found = dao.findByAccountAndName("account", "zeus");
+        assertEquals(42, found.getLevel());
+        assertEquals(1234L, found.getLastPlayedAt());
+        assertTrue(found.isExpansion());
+        assertArrayEquals(new byte[] {1}, found.getSaveData());
+
+        dao.setFlags("zeus", 0x04 | 0x08);
+        dao.replaceSaveData("zeus", null);
+        found = dao.findByAccountAndName("account", "zeus");
+        assertTrue(found.isHardcore());
+        assertTrue(found.isDead());
+        assertFalse(found.isExpansion());
+        assertEquals(42, found.getLevel());
+        assertNull(found.getSaveData());
+    }
+
+    @Test
+    public void testApplyAllWritesOneBatch() {
+        dao.save(character("account", "Zeus", null));
+        dao.save(character("account", "Hera", null));
+
+        dao.applyAll(Map.of(
+            "zeus", PendingCharacterUpdate.level(10).merge(PendingCharacterUpdate.saveData(new byte[] {7})),
+            "hera", PendingCharacterUpdate.flags(0x20 | 0x40),
+            "nobody", PendingCharacterUpdate.level(99)));
+
+        D2Character zeus = dao.findByAccountAndName("account", "zeus");
+        assertEquals(10, zeus.getLevel());
+        assertArrayEquals(new byte[] {7}, zeus.getSaveData());
+        D2CharacterSummary hera = dao.findSummary("account", "hera");
+        assertEquals(1, hera.getLevel());
+        assertTrue(hera.isLadder());
+    }
+
+    @Test
+    public void testUpdateAndDelete() {
+        D2Character zeus = character("account", "Zeus", null);
+        dao.save(zeus);
+        zeus.setLevel(99);
+        zeus.setSaveData(new byte[] {9});
+        dao.update(zeus);
+        assertEquals(99, dao.findSummary("account", "zeus").getLevel());
+        assertArrayEquals(new byte[] {9}, dao.loadSaveData("account", "zeus"));
+
+        dao.delete("someone-else", "zeus");
+        assertNotNull(dao.findSummary("account", "zeus"));
+        dao.delete("account", "zeus");
+        assertNull(dao.findSummary("account", "zeus"));
+        assertTrue(dao.isNameAvailable("zeus"));
+    }
+}
@@ -0,0 +1,59 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.config.JournalConfig;
+import org.bnemu.persistence.H2Database;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two journals, as two BNCS instances would, in front of one H2 database.
+ */
+public class JournaledAccountDaoTest {
+    @TempDir
+    Path dir;
+
+    @RegisterExtension
+    final H2Database h2 = new H2Database("journaled_accounts");
+
+    private JdbcAccountDao database;
+
+    @BeforeEach
+    public void setup() {
+        database = new JdbcAccountDao(h2.dataSource());
+    }
+
+    @Test
+    public void testNameTakenByAnotherInstanceIsDroppedOnReplay() {
+        byte[] first = {1, 2, 3};
+        byte[] second = {4, 5, 6};
+        JournaledAccountDao one = new JournaledAccountDao(database, config(dir.resolve("one")));
+        JournaledAccountDao two = new JournaledAccountDao(database, config(dir.resolve("two")));
+        // Neither instance can see the other's unapplied creation
+        assertTrue(one.createAccount("Zeus", first));
+        assertTrue(two.createAccount("zeus", second));
+
+        one.close();
+        assertDoesNotThrow(two::close);
+        assertArrayEquals(first, database.findAccount("zeus").getPasswordHashBytes());
+
+        // Nothing is left to replay, so the next start comes up
+        try (JournaledAccountDao reopened = new JournaledAccountDao(database, config(dir.resolve("two")))) {
+            assertEquals(0, reopened.pendingCount());
+            assertArrayEquals(first, reopened.findAccount("zeus").getPasswordHashBytes());
+        }
+    }
+
+    private static JournalConfig config(Path journalDir) {
+        JournalConfig config = new JournalConfig();
+        config.setEnabled(true);
+        config.setDir(journalDir.toString());
+        config.setReplayIntervalMillis(60_000);
+        return config;
+    }
+}
@@ -0,0 +1,151 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.config.JournalConfig;
+import org.bnemu.core.dao.DuplicateCharacterNameException;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.persistence.H2Database;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.bnemu.persistence.TestCharacters.character;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the journal in front of the JDBC character DAO on H2. The replayer is slowed down so
+ * writes stay unapplied until the test closes the journal or "crashes" by copying its files.
+ */
+public class JournaledD2CharacterDaoTest {
+    @TempDir
+    Path dir;
+
+    @RegisterExtension
+    final H2Database h2 = new H2Database("journaled");
+
+    private JdbcD2CharacterDao database;
+
+    @BeforeEach
+    public void setup() {
+        database = new JdbcD2CharacterDao(h2.dataSource());
+    }
+
+    @Test
+    public void testUnappliedWritesAreReadBack() {
+        database.save(character("account", "Hera"));
+        database.save(character("account", "Ares"));
+
+        try (JournaledD2CharacterDao dao = new JournaledD2CharacterDao(database, config(dir))) {
+            dao.save(character("Account", "Zeus"));
+            dao.setLevel("zeus", 10);
+            dao.setLevel("hera", 20);
+            dao.delete("account", "ares");
+            dao.delete("other", "hera"); // not this account's
+            assertThrows(DuplicateCharacterNameException.class, () -> dao.save(character("other", "HERA")));
+            assertEquals(4, dao.pendingCount());
+
+            assertNull(database.findSummary("account", "zeus"));
+            assertEquals(10, dao.findSummary("account", "zeus").getLevel());
+            assertEquals(20, dao.findByAccountAndName("account", "hera").getLevel());
+            assertNull(dao.findSummary("account", "ares"));
+            assertTrue(dao.isNameAvailable("ares"));
+            assertFalse(dao.isNameAvailable("ZEUS"));
+            assertEquals(List.of("Hera", "Zeus"), names(dao));
+
+            List<String> all = new ArrayList<>();
+            dao.forEachCharacterName(all::add);
+            assertEquals(List.of("hera", "zeus"), all.stream().sorted().toList());
+        }
+
+        assertEquals(10, database.findSummary("account", "zeus").getLevel());
+        assertEquals(20, database.findSummary("account", "hera").getLevel());
+        assertNull(database.findSummary("account", "ares"));
+    }
+
+    @Test
+    public void testCrashedJournalIsReplayedOnStart() throws Exception {
+        Path crashed = dir.resolve("crashed");
+        try (JournaledD2CharacterDao dao = new JournaledD2CharacterDao(database, config(dir.resolve("live")))) {
+            dao.save(character("account", "Zeus"));
+            dao.setLevel("zeus", 5);
+            dao.replaceSaveData("zeus", new byte[] {7});
+            dao.save(character("account", "Hera"));
+            dao.delete("account", "hera");
+            // Acknowledged writes are on disk, so a copy now is what a crash would leave behind
+            copy(dir.resolve("live"), crashed);
+        }
+        // The live journal applied everything on close; undo that to see the replay do it
+        database.delete("account", "zeus");
+        // A write torn by the crash
+        try (var segments = Files.list(crashed)) {
+            Path segment = segments.filter(path -> path.toString().endsWith(".journal")).findFirst().orElseThrow();
+            Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        try (JournaledD2CharacterDao dao = new JournaledD2CharacterDao(database, config(crashed))) {
+            assertEquals(0, dao.pendingCount());
+            assertEquals(5, database.findSummary("account", "zeus").getLevel());
+            assertArrayEquals(new byte[] {7}, database.loadSaveData("account", "zeus"));
+            assertNull(database.findSummary("account", "hera"));
+            dao.setLevel("zeus", 6);
+        }
+        assertEquals(6, database.findSummary("account", "zeus").getLevel());
+
+        // Replaying on top of what is already applied changes nothing
+        try (JournaledD2CharacterDao dao = new JournaledD2CharacterDao(database, config(crashed))) {
+            assertEquals(List.of("Zeus"), names(dao));
+        }
+    }
+
+    @Test
+    public void testConcurrentWritesShareTheJournal() throws Exception {
+        try (JournaledD2CharacterDao dao = new JournaledD2CharacterDao(database, config(dir));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String name = "Hero" + i;
+                writes.add(executor.submit(() -> {
+                    dao.save(character("account", name));
+                    dao.setLevel(name, 50);
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+            assertEquals(200, dao.findSummariesByAccountName("account").size());
+        }
+        assertEquals(200, database.findSummariesByAccountName("account").stream()
+            .filter(summary -> summary.getLevel() == 50).count());
+    }
+
+    private static JournalConfig config(Path journalDir) {
+        JournalConfig config = new JournalConfig();
+        config.setEnabled(true);
+        config.setDir(journalDir.toString());
+        config.setReplayIntervalMillis(60_000);
+        return config;
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (var files = Files.list(from)) {
+            for (Path file : files.filter(path -> !path.toString().endsWith(".lock")).toList()) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    private static List<String> names(JournaledD2CharacterDao dao) {
+        return dao.findByAccountName("account").stream().map(D2Character::getName).sorted().toList();
+    }
+}
@@ -0,0 +1,85 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.dao.DuplicateCharacterNameException;
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.core.model.DiabloClass;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.bnemu.persistence.TestCharacters.character;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalD2CharacterDaoTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testCharactersSurviveReopen() {
+        Path file = dir.resolve("characters.log");
+        String zeusId;
+        try (LocalD2CharacterDao dao = new LocalD2CharacterDao(file, 1 << 16)) {
+            D2Character zeus = character("Account", "Zeus", new byte[] {1, 2, 3});
+            dao.save(zeus);
+            zeusId = zeus.getId();
+            dao.save(character("account", "Hera", null));
+            dao.save(character("other", "Ares", null));
+            assertThrows(DuplicateCharacterNameException.class, () -> dao.save(character("other", "ZEUS", null)));
+
+            dao.setLevel("zeus", 42);
+            dao.setFlags("zeus", 0x04 | 0x20);
+            dao.touchLastPlayed("zeus", 1234L);
+            dao.delete("account", "ares"); // not this account's
+            dao.delete("other", "ares");
+        }
+
+        try (LocalD2CharacterDao dao = new LocalD2CharacterDao(file, 1 << 16)) {
+            D2Character zeus = dao.findByAccountAndName("ACCOUNT", "zeus");
+            assertEquals(zeusId, zeus.getId());
+            assertEquals("Zeus", zeus.getName());
+            assertEquals("account", zeus.getAccountName());
+            assertEquals(DiabloClass.SORCERESS, zeus.getCharClass());
+            assertEquals(42, zeus.getLevel());
+            assertTrue(zeus.isHardcore());
+            assertTrue(zeus.isExpansion());
+            assertEquals(1234L, zeus.getLastPlayedAt());
+            assertArrayEquals(new byte[] {1, 2, 3}, zeus.getSaveData());
+            assertNull(dao.findByAccountAndName("other", "zeus"));
+
+            List<D2CharacterSummary> summaries = dao.findSummariesByAccountName("account");
+            assertEquals(2, summaries.size());
+            assertTrue(dao.isNameAvailable("ares"));
+            assertEquals(List.of(), dao.findSummariesByAccountName("other"));
+
+            List<String> names = new ArrayList<>();
+            dao.forEachCharacterName(names::add);
+            assertEquals(2, names.size());
+
+            D2Character ares = character("other", "Ares", null);
+            dao.save(ares);
+            assertNotEquals(zeusId, ares.getId());
+        }
+    }
+
+    @Test
+    public void testSaveDataUpdates() {
+        try (LocalD2CharacterDao dao = new LocalD2CharacterDao(dir.resolve("characters.log"), 1 << 16)) {
+            D2Character zeus = character("account", "Zeus", null);
+            dao.save(zeus);
+            assertNull(dao.loadSaveData("account", "zeus"));
+
+            dao.replaceSaveData("zeus", new byte[] {9});
+            assertArrayEquals(new byte[] {9}, dao.loadSaveData("account", "zeus"));
+
+            zeus.setLevel(99);
+            zeus.setSaveData(null);
+            dao.update(zeus);
+            assertEquals(99, dao.findSummary("account", "zeus").getLevel());
+            assertNull(dao.loadSaveData("account", "zeus"));
+        }
+    }
+}
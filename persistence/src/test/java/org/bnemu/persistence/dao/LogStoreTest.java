@@ -0,0 +1,162 @@
+package org.bnemu.persistence.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStoreTest {
+    private static final int REGION_SIZE = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReopenRebuildsBothIndexes() {
+        Path file = dir.resolve("store.log");
+        try (LogStore store = open(file)) {
+            assertTrue(store.insert("zeus", value("alice", "v1")));
+            assertFalse(store.insert("zeus", value("alice", "v2")));
+            store.insert("hera", value("alice", "v1"));
+            store.insert("ares", value("bob", "v1"));
+            store.update("hera", old -> value("alice", "v2"));
+            store.delete("ares", old -> true);
+        }
+
+        try (LogStore store = open(file)) {
+            assertEquals(2, store.size());
+            assertEquals("v1", text(store.get("zeus")));
+            assertEquals("v2", text(store.get("hera")));
+            assertNull(store.get("ares"));
+            assertEquals(2, store.keysFor("alice").size());
+            assertEquals(List.of(), store.keysFor("bob"));
+        }
+    }
+
+    @Test
+    public void testRecordsSpanManyRegions() {
+        Path file = dir.resolve("store.log");
+        try (LogStore store = open(file)) {
+            for (int i = 0; i < 500; i++) {
+                store.insert("key" + i, value("owner" + (i % 7), "x".repeat(i % 300)));
+            }
+        }
+        try (LogStore store = open(file)) {
+            assertEquals(500, store.size());
+            for (int i = 0; i < 500; i++) {
+                assertEquals("x".repeat(i % 300), text(store.get("key" + i)));
+            }
+            assertTrue(store.insert("key500", value("owner", "after reopen")));
+        }
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws IOException {
+        Path file = dir.resolve("store.log");
+        try (LogStore store = open(file)) {
+            store.insert("zeus", value("alice", "kept"));
+            store.insert("hera", value("alice", "torn"));
+        }
+        // Flip a byte in the last record, as if the process died while writing it
+        long lastRecordEnd = 8 + recordSize("zeus", "alice", "kept") + recordSize("hera", "alice", "torn");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(lastRecordEnd - 1);
+            int last = raf.read();
+            raf.seek(lastRecordEnd - 1);
+            raf.write(last ^ 0xFF);
+        }
+
+        try (LogStore store = open(file)) {
+            assertEquals("kept", text(store.get("zeus")));
+            assertNull(store.get("hera"));
+            assertTrue(store.insert("ares", value("bob", "new")));
+        }
+        try (LogStore store = open(file)) {
+            assertEquals(2, store.size());
+            assertEquals("new", text(store.get("ares")));
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsOnlyLiveRecords() throws IOException {
+        Path file = dir.resolve("store.log");
+        try (LogStore store = open(file)) {
+            for (int i = 0; i < 200; i++) {
+                store.insert("key" + i, value("owner", "first"));
+            }
+            ByteBuffer before = store.get("key0");
+            for (int i = 0; i < 200; i++) {
+                String key = "key" + i;
+                store.update(key, old -> value("owner", "second"));
+                if (i % 2 == 0) {
+                    store.delete(key, old -> true);
+                }
+            }
+            assertTrue(store.compactIfWorthwhile());
+            assertFalse(store.compactIfWorthwhile());
+            // Values read before compaction stay readable
+            assertEquals("first", text(before));
+            assertEquals(100, store.size());
+            assertEquals("second", text(store.get("key1")));
+            assertTrue(store.insert("key0", value("owner", "third")));
+        }
+        assertFalse(Files.exists(dir.resolve("store.log.compact")));
+
+        try (LogStore store = open(file)) {
+            assertEquals(101, store.size());
+            assertEquals("third", text(store.get("key0")));
+            assertEquals("second", text(store.get("key199")));
+            assertEquals(101, store.keysFor("owner").size());
+        }
+    }
+
+    @Test
+    public void testSecondOpenIsRefusedUntilClosed() {
+        Path file = dir.resolve("store.log");
+        try (LogStore store = open(file)) {
+            store.insert("key", value("owner", "text"));
+            assertThrows(IllegalStateException.class, () -> open(file));
+            assertEquals("text", text(store.get("key")), "The refused open leaves the first one working");
+        }
+        try (LogStore store = open(file)) {
+            assertEquals("text", text(store.get("key")));
+        }
+    }
+
+    private static LogStore open(Path file) {
+        return LogStore.open(file, REGION_SIZE, LogStoreTest::owner);
+    }
+
+    /** Values in these tests are an owner (the secondary key) and some text */
+    private static byte[] value(String owner, String text) {
+        byte[] ownerBytes = owner.getBytes(StandardCharsets.UTF_8);
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + ownerBytes.length + textBytes.length)
+            .put((byte) ownerBytes.length).put(ownerBytes).put(textBytes)
+            .array();
+    }
+
+    private static String owner(ByteBuffer value) {
+        byte[] bytes = new byte[value.get(0)];
+        value.get(1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer value) {
+        byte[] bytes = new byte[value.remaining() - 1 - value.get(0)];
+        value.get(1 + value.get(0), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int recordSize(String key, String owner, String text) {
+        return 8 + 3 + key.length() + value(owner, text).length;
+    }
+}
@@ -0,0 +1,60 @@
+package org.bnemu.persistence.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SaveBlobsTest {
+
+    @Test
+    public void testRoundTripCompressesSaves() {
+        // Mostly zeroes and repeated item records, like a real save
+        byte[] save = new byte[8192];
+        for (int i = 0; i < save.length; i += 64) {
+            save[i] = (byte) i;
+            save[i + 1] = 'J';
+            save[i + 2] = 'M';
+        }
+        byte[] blob = SaveBlobs.encode(save);
+        assertTrue(blob.length < save.length / 4, "Compressed to " + blob.length + " bytes");
+        assertArrayEquals(save, SaveBlobs.decode(blob, "hero"));
+    }
+
+    @Test
+    public void testIncompressibleSavesAreStoredAsIs() {
+        byte[] save = new byte[512];
+        new Random(1).nextBytes(save);
+        byte[] blob = SaveBlobs.encode(save);
+        assertEquals(save.length + 10, blob.length);
+        assertArrayEquals(save, SaveBlobs.decode(blob, "hero"));
+        assertArrayEquals(new byte[0], SaveBlobs.decode(SaveBlobs.encode(new byte[0]), "hero"));
+    }
+
+    @Test
+    public void testCorruptBlobsAreDetected() {
+        byte[] save = new byte[4096];
+        save[100] = 1;
+        byte[] blob = SaveBlobs.encode(save);
+        for (int i = 0; i < blob.length; i++) {
+            byte[] damaged = blob.clone();
+            damaged[i] ^= 0x10;
+            // Some frame header bits do not change what decompresses; anything else must be caught
+            try {
+                assertArrayEquals(save, SaveBlobs.decode(damaged, "hero"), "Flipped byte " + i);
+            } catch (IllegalStateException expected) {
+                // Detected
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> SaveBlobs.decode(new byte[3], "hero"));
+    }
+
+    @Test
+    public void testHashTellsSavesApart() {
+        byte[] save = {1, 2, 3};
+        assertArrayEquals(SaveBlobs.hash(save), SaveBlobs.hash(save.clone()));
+        assertFalse(Arrays.equals(SaveBlobs.hash(save), SaveBlobs.hash(new byte[] {1, 2, 4})));
+    }
+}
@@ -0,0 +1,61 @@
+package org.bnemu.persistence.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadJournalTest {
+    @TempDir
+    Path dir;
+
+    private final List<String> applied = new CopyOnWriteArrayList<>();
+    private final List<Long> discarded = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void appliesWhatIsSyncedInOrder() {
+        WriteAheadJournal journal = open();
+        long first = journal.append(bytes("a"));
+        long second = journal.append(bytes("b"));
+        journal.sync(second);
+        assertTrue(first < second);
+
+        journal.close();
+        assertEquals(List.of("a", "b"), applied);
+        assertEquals(List.of(), discarded);
+    }
+
+    @Test
+    public void refusesWritesOnceTheDiskFails() throws Exception {
+        WriteAheadJournal journal = open();
+        // Every group fills the 1-byte segment; taking the next segment's name makes rotating fail
+        Files.createFile(dir.resolve("test-00000000000000000002.journal"));
+
+        long first = journal.append(bytes("a"));
+        journal.sync(first);
+        assertThrows(UncheckedIOException.class, () -> journal.append(bytes("b")));
+
+        journal.close();
+        assertEquals(List.of("a"), applied);
+        // Told on every replay after the failure, always with the last durable entry
+        assertEquals(Set.of(first), Set.copyOf(discarded));
+    }
+
+    private WriteAheadJournal open() {
+        return WriteAheadJournal.open(dir, "test",
+            batch -> batch.forEach(entry -> applied.add(new String(entry.payload(), StandardCharsets.UTF_8))),
+            discarded::add, 60_000, 100, 1);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
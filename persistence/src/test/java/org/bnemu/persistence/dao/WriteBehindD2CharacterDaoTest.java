@@ -0,0 +1,149 @@
+package org.bnemu.persistence.dao;
+
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.D2CharacterSummary;
+import org.bnemu.persistence.H2Database;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.bnemu.persistence.TestCharacters.character;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the write-behind DAO over the JDBC one on H2. The timer is set far out, so only the
+ * threshold, {@link WriteBehindD2CharacterDao#flush()} and close write anything.
+ */
+public class WriteBehindD2CharacterDaoTest {
+    private static final int MAX_PENDING = 3;
+
+    @RegisterExtension
+    final H2Database h2 = new H2Database("write-behind");
+
+    private final List<Map<String, PendingCharacterUpdate>> batches = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private JdbcD2CharacterDao jdbc;
+    private WriteBehindD2CharacterDao dao;
+
+    @BeforeEach
+    public void setup() {
+        jdbc = new JdbcD2CharacterDao(h2.dataSource());
+        dao = new WriteBehindD2CharacterDao(jdbc, batch -> {
+            if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("database unavailable");
+            }
+            batches.add(Map.copyOf(batch));
+            jdbc.applyAll(batch);
+        }, Duration.ofHours(1), MAX_PENDING);
+        for (String name : List.of("Zeus", "Hera", "Ares", "Apollo")) {
+            jdbc.save(character("account", name, new byte[] {0}));
+        }
+    }
+
+    @AfterEach
+    public void teardown() {
+        dao.close();
+    }
+
+    @Test
+    public void testUpdatesToOneCharacterAreCoalesced() {
+        dao.setLevel("Zeus", 2);
+        dao.setLevel("zeus", 3);
+        dao.touchLastPlayed("ZEUS", 1234);
+        dao.replaceSaveData("Zeus", new byte[] {1});
+        dao.replaceSaveData("Zeus", new byte[] {2});
+        assertEquals(1, dao.pendingCount());
+
+        dao.flush();
+
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+        D2Character stored = jdbc.findByAccountAndName("account", "zeus");
+        assertEquals(3, stored.getLevel());
+        assertEquals(1234, stored.getLastPlayedAt());
+        assertArrayEquals(new byte[] {2}, stored.getSaveData());
+        assertEquals(0, dao.pendingCount());
+    }
+
+    @Test
+    public void testReachingMaxPendingFlushes() throws InterruptedException {
+        dao.setLevel("Zeus", 2);
+        dao.setLevel("Hera", 2);
+        assertTrue(batches.isEmpty(), "below the threshold nothing is written");
+
+        dao.setLevel("Ares", 2);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dao.pendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, dao.pendingCount());
+        assertEquals(1, batches.size());
+        assertEquals(MAX_PENDING, batches.get(0).size());
+        assertEquals(2, jdbc.findSummary("account", "ares").getLevel());
+    }
+
+    @Test
+    public void testReadsSeeQueuedUpdates() {
+        dao.setLevel("Zeus", 5);
+        dao.setFlags("Zeus", 0x20);
+        dao.replaceSaveData("Zeus", new byte[] {9});
+
+        assertEquals(1, jdbc.findSummary("account", "zeus").getLevel(), "not written yet");
+        D2CharacterSummary summary = dao.findSummary("account", "zeus");
+        assertEquals(5, summary.getLevel());
+        assertEquals(0x20, summary.getFlags());
+        assertEquals(5, dao.findByAccountAndName("account", "zeus").getLevel());
+        assertTrue(dao.findSummariesByAccountName("account").stream()
+            .anyMatch(s -> s.getName().equals("Zeus") && s.getLevel() == 5));
+        assertArrayEquals(new byte[] {9}, dao.loadSaveData("account", "zeus"));
+        assertArrayEquals(new byte[] {0}, dao.loadSaveData("account", "hera"));
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() {
+        dao.setLevel("Zeus", 4);
+        failures.set(1);
+
+        dao.flush();
+        assertEquals(1, dao.pendingCount(), "kept for the next flush");
+        assertEquals(1, jdbc.findSummary("account", "zeus").getLevel());
+
+        dao.setLevel("Zeus", 6);
+        dao.flush();
+        assertEquals(0, dao.pendingCount());
+        assertEquals(6, jdbc.findSummary("account", "zeus").getLevel());
+    }
+
+    @Test
+    public void testFullUpdatesAndDeletesSupersedeQueuedOnes() {
+        dao.setLevel("Zeus", 4);
+        D2Character zeus = jdbc.findByAccountAndName("account", "zeus");
+        zeus.setLevel(7);
+        dao.update(zeus);
+        dao.setLevel("Hera", 4);
+        dao.delete("account", "Hera");
+
+        assertEquals(0, dao.pendingCount());
+        assertEquals(7, jdbc.findSummary("account", "zeus").getLevel());
+        assertNull(jdbc.findSummary("account", "hera"));
+    }
+
+    @Test
+    public void testCloseFlushesAndLaterUpdatesWriteThrough() {
+        dao.setLevel("Zeus", 8);
+        dao.close();
+
+        assertEquals(8, jdbc.findSummary("account", "zeus").getLevel());
+        dao.setLevel("Zeus", 9);
+        assertEquals(0, dao.pendingCount());
+        assertEquals(9, jdbc.findSummary("account", "zeus").getLevel());
+    }
+}
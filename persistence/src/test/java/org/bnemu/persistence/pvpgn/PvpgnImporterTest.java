@@ -0,0 +1,114 @@
+package org.bnemu.persistence.pvpgn;
+
+import org.bnemu.core.model.D2Character;
+import org.bnemu.core.model.DiabloClass;
+import org.bnemu.persistence.H2Database;
+import org.bnemu.persistence.dao.JdbcAccountDao;
+import org.bnemu.persistence.dao.JdbcD2CharacterDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Imports a synthetic PvPGN file tree into an in-memory H2 database in MariaDB mode.
+ */
+public class PvpgnImporterTest {
+    @TempDir
+    Path dir;
+
+    @RegisterExtension
+    final H2Database h2 = new H2Database("pvpgn");
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Path var = dir.resolve("var");
+        for (int i = 0; i < 5; i++) {
+            writeUser(var, "User" + i, "0123456789abcdef0123456789abcdef0123456" + i);
+            writeCharinfo(var, "user" + i, "Hero" + i, DiabloClass.fromCode(i), 10 + i, 0x20 | (i == 0 ? 0x04 : 0));
+        }
+        writeCharinfo(var, "user1", "Second", DiabloClass.DRUID, 1, 0);
+        Files.createDirectories(var.resolve("charsave"));
+        Files.write(var.resolve("charsave").resolve("hero2"), new byte[] {1, 2, 3});
+        Files.writeString(var.resolve("users").resolve("broken"), "\"BNET\\\\acct\\\\username\"=\"nohash\"\n");
+    }
+
+    @Test
+    public void testImportAndRerun() {
+        Path checkpointFile = dir.resolve("import.checkpoint");
+        runImport(checkpointFile);
+
+        JdbcAccountDao accounts = new JdbcAccountDao(h2.dataSource());
+        JdbcD2CharacterDao characters = new JdbcD2CharacterDao(h2.dataSource());
+        assertNotNull(accounts.findAccount("user3"));
+        assertArrayEquals(PvpgnFiles.passwordHash("0123456789abcdef0123456789abcdef01234563"),
+            accounts.findAccount("user3").getPasswordHashBytes());
+        assertNull(accounts.findAccount("nohash"), "Accounts without a password hash are skipped");
+
+        List<D2Character> user1 = characters.findByAccountName("user1");
+        assertEquals(2, user1.size());
+        D2Character hero0 = characters.findByAccountAndName("user0", "Hero0");
+        assertEquals(DiabloClass.AMAZON, hero0.getCharClass());
+        assertEquals(10, hero0.getLevel());
+        assertTrue(hero0.isHardcore());
+        assertTrue(hero0.isExpansion());
+        assertEquals(1_000_000_000_000L, hero0.getCreatedAt());
+        assertArrayEquals(new byte[] {1, 2, 3}, characters.loadSaveData("user2", "Hero2"));
+
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(checkpointFile);
+        assertEquals("user4", checkpoint.completedThrough(PvpgnImporter.USERS));
+        assertEquals("user4", checkpoint.completedThrough(PvpgnImporter.CHARINFO));
+
+        // Running again with the checkpoint removed re-reads everything and inserts nothing twice
+        assertDoesNotThrow(() -> Files.delete(checkpointFile));
+        runImport(checkpointFile);
+        assertEquals(2, characters.findByAccountName("user1").size());
+    }
+
+    @Test
+    public void testReadUserUnescapesKeys() throws IOException {
+        Path var = dir.resolve("var");
+        PvpgnFiles.User user = PvpgnFiles.readUser(var.resolve("users").resolve("user1"));
+        assertEquals("User1", user.username());
+        assertEquals(20, user.passwordHash().length);
+        assertNull(PvpgnFiles.readUser(var.resolve("users").resolve("broken")));
+    }
+
+    private void runImport(Path checkpointFile) {
+        try (ImportTarget target = new JdbcImportTarget(h2.config())) {
+            new PvpgnImporter(dir.resolve("var"), target, ImportCheckpoint.open(checkpointFile), 2, 2).run();
+        }
+    }
+
+    private static void writeUser(Path var, String username, String passhash) throws IOException {
+        Path users = Files.createDirectories(var.resolve("users"));
+        Files.writeString(users.resolve(username.toLowerCase()),
+            "\"BNET\\\\acct\\\\username\"=\"" + username + "\"\n"
+                + "\"BNET\\\\acct\\\\passhash1\"=\"" + passhash + "\"\n"
+                + "\"BNET\\\\acct\\\\userid\"=\"1\"\n");
+    }
+
+    private static void writeCharinfo(Path var, String account, String name, DiabloClass charClass, int level,
+                                      int status) throws IOException {
+        Path accountDir = Files.createDirectories(var.resolve("charinfo").resolve(account));
+        ByteBuffer info = ByteBuffer.allocate(0xC4).order(ByteOrder.LITTLE_ENDIAN);
+        info.putInt(0, 0x12345678);
+        info.putInt(0x08, 1_000_000_000);
+        info.putInt(0x0C, 1_100_000_000);
+        info.put(0x30, name.getBytes(StandardCharsets.ISO_8859_1));
+        info.putInt(0xB4 + 4, status);
+        info.putInt(0xB4 + 8, level);
+        info.putInt(0xB4 + 12, charClass.getCode());
+        Files.write(accountDir.resolve(name.toLowerCase()), info.array());
+    }
+}